@@ -27,6 +27,7 @@ import okhttp3.*;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static com.graphhopper.api.GraphHopperMatrixWeb.*;
@@ -68,6 +69,14 @@ public abstract class GHMatrixAbstractRequester {
 
     public abstract MatrixResponse route(GHMRequest request);
 
+    /**
+     * Like {@link #route(GHMRequest)}, but does not block the calling thread. This implementation simply calls
+     * {@link #route(GHMRequest)} in the common pool, sub classes should send the requests asynchronously instead.
+     */
+    public CompletableFuture<MatrixResponse> routeAsync(GHMRequest request) {
+        return CompletableFuture.supplyAsync(() -> route(request));
+    }
+
     public GHMatrixAbstractRequester setDownloader(OkHttpClient downloader) {
         this.downloader = downloader;
         return this;
@@ -77,6 +86,16 @@ public abstract class GHMatrixAbstractRequester {
         return downloader;
     }
 
+    protected MatrixResponse createMatrixResponse(GHMRequest ghRequest) {
+        boolean withTimes = ghRequest.getOutArrays().contains("times");
+        boolean withDistances = ghRequest.getOutArrays().contains("distances");
+        boolean withWeights = ghRequest.getOutArrays().contains("weights");
+        return new MatrixResponse(
+                ghRequest.getPoints() == null ? ghRequest.getFromPoints().size() : ghRequest.getPoints().size(),
+                ghRequest.getPoints() == null ? ghRequest.getToPoints().size() : ghRequest.getPoints().size(),
+                withTimes, withDistances, withWeights);
+    }
+
     protected JsonNode createPostRequest(GHMRequest ghRequest) {
         if (ghRequest.getHints().getObject("profile", null) != null)
             throw new IllegalArgumentException("use setProfile instead of hint 'profile'");
@@ -307,16 +326,9 @@ public abstract class GHMatrixAbstractRequester {
     }
 
     protected JsonResult postJson(String url, JsonNode data) throws IOException {
-        String stringData = data.toString();
-        Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, stringData));
-        builder.header(X_GH_CLIENT_VERSION, Version.GH_VERSION_FROM_MAVEN);
-        // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
-        if (stringData.length() < maxUnzippedLength)
-            builder.header("Content-Encoding", "identity");
-        Request okRequest = builder.build();
         ResponseBody body = null;
         try {
-            Response rsp = getDownloader().newCall(okRequest).execute();
+            Response rsp = getDownloader().newCall(createPostJsonRequest(url, data)).execute();
             body = rsp.body();
             return new JsonResult(body.string(), rsp.code(), rsp.headers().toMultimap());
         } finally {
@@ -324,6 +336,49 @@ public abstract class GHMatrixAbstractRequester {
         }
     }
 
+    /**
+     * Like {@link #postJson(String, JsonNode)}, but the request is executed by the {@link Dispatcher} of the
+     * downloader without blocking the calling thread.
+     */
+    protected CompletableFuture<JsonResult> postJsonAsync(String url, JsonNode data) {
+        return enqueue(createPostJsonRequest(url, data));
+    }
+
+    private Request createPostJsonRequest(String url, JsonNode data) {
+        String stringData = data.toString();
+        Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, stringData));
+        builder.header(X_GH_CLIENT_VERSION, Version.GH_VERSION_FROM_MAVEN);
+        // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
+        if (stringData.length() < maxUnzippedLength)
+            builder.header("Content-Encoding", "identity");
+        return builder.build();
+    }
+
+    protected CompletableFuture<JsonResult> enqueue(Request okRequest) {
+        CompletableFuture<JsonResult> future = new CompletableFuture<>();
+        Call call = getDownloader().newCall(okRequest);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void onResponse(Call call, Response rsp) {
+                try (ResponseBody body = rsp.body()) {
+                    future.complete(new JsonResult(body.string(), rsp.code(), rsp.headers().toMultimap()));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        future.whenComplete((rsp, ex) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+        return future;
+    }
+
     private void putStrings(ObjectNode requestJson, String name, Collection<String> stringList) {
         if (stringList == null || stringList.isEmpty())
             return;
@@ -29,7 +29,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.graphhopper.api.GraphHopperWeb.X_GH_CLIENT_VERSION;
 import static com.graphhopper.api.Version.GH_VERSION_FROM_MAVEN;
@@ -75,42 +78,21 @@ public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
     @Override
     public MatrixResponse route(GHMRequest ghRequest) {
         JsonNode requestJson = createPostRequest(ghRequest);
-
-        boolean withTimes = ghRequest.getOutArrays().contains("times");
-        boolean withDistances = ghRequest.getOutArrays().contains("distances");
-        boolean withWeights = ghRequest.getOutArrays().contains("weights");
-        final MatrixResponse matrixResponse = new MatrixResponse(
-                ghRequest.getPoints() == null ? ghRequest.getFromPoints().size() : ghRequest.getPoints().size(),
-                ghRequest.getPoints() == null ? ghRequest.getToPoints().size() : ghRequest.getPoints().size(),
-                withTimes, withDistances, withWeights);
+        final MatrixResponse matrixResponse = createMatrixResponse(ghRequest);
         try {
             String postUrl = buildURLNoHints("/calculate", ghRequest);
             JsonResult jsonResult = postJson(postUrl, requestJson);
-            matrixResponse.setHeaders(jsonResult.headers());
-            boolean debug = ghRequest.getHints().getBool("debug", false);
-            if (debug) {
-                logger.info("POST URL:" + postUrl + ", request:" + requestJson + ", response: " + jsonResult);
-            }
-
-            JsonNode responseJson = fromStringToJSON(postUrl, jsonResult.body());
-            if (responseJson.has("message")) {
-                matrixResponse.setStatusCode(jsonResult.statusCode());
-                matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, responseJson));
+            String id = readJobId(matrixResponse, ghRequest, requestJson, postUrl, jsonResult);
+            if (id == null)
                 return matrixResponse;
-            }
-            if (!responseJson.has("job_id")) {
-                throw new IllegalStateException("Response should contain job_id but was "
-                        + jsonResult + ", request:" + requestJson + ",url:" + postUrl);
-            }
 
-            final String id = responseJson.get("job_id").asText();
+            String getUrl = buildURLNoHints("/solution/" + id, ghRequest);
             int i = 0;
             for (; i < maxIterations; i++) {
                 // SLEEP a bit and GET solution
                 if (sleepAfterGET > 0) {
                     Thread.sleep(sleepAfterGET);
                 }
-                String getUrl = buildURLNoHints("/solution/" + id, ghRequest);
 
                 JsonResult rsp;
                 try {
@@ -119,37 +101,12 @@ public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
                     // if timeout exception try once again:
                     rsp = getJson(getUrl);
                 }
-
-                JsonNode getResponseJson = fromStringToJSON(getUrl, rsp.body());
-                if (debug) {
-                    logger.info(i + " GET URL:" + getUrl + ", response: " + rsp);
-                }
-                matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, getResponseJson));
-                matrixResponse.setStatusCode(rsp.statusCode());
-                if (matrixResponse.hasErrors()) {
-                    break;
-                }
-                String status = getResponseJson.get("status").asText();
-
-                if ("processing".equals(status) || "waiting".equals(status)) {
-                    continue;
-                }
-
-                if ("finished".equals(status)) {
-                    JsonNode solution = getResponseJson.get("solution");
-                    matrixResponse.addErrors(readUsableEntityError(ghRequest.getOutArrays(), solution));
-                    if (!matrixResponse.hasErrors())
-                        fillResponseFromJson(matrixResponse, solution, ghRequest.getFailFast());
-
+                if (readSolution(matrixResponse, ghRequest, getUrl, rsp, i))
                     break;
-                }
-
-                matrixResponse.addError(new RuntimeException("Status not supported: " + status + " - illegal JSON format?"));
-                break;
             }
 
             if (i >= maxIterations) {
-                throw new IllegalStateException("Maximum number of iterations reached " + maxIterations + ", increasing should only be necessary for big matrices. For smaller ones this is a bug, please contact us");
+                throw createMaxIterationsException();
             }
 
         } catch (InterruptedException | IOException ex) {
@@ -159,17 +116,178 @@ public class GHMatrixBatchRequester extends GHMatrixAbstractRequester {
         return matrixResponse;
     }
 
+    /**
+     * Like {@link #route(GHMRequest)}, but no thread is blocked while we wait for the solution: the requests are
+     * executed by the {@link okhttp3.Dispatcher} of the downloader and the next GET request is scheduled via
+     * {@link CompletableFuture#delayedExecutor}. Cancelling the returned future cancels the pending request and stops
+     * the polling.
+     */
+    @Override
+    public CompletableFuture<MatrixResponse> routeAsync(GHMRequest ghRequest) {
+        JsonNode requestJson;
+        try {
+            requestJson = createPostRequest(ghRequest);
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        final MatrixResponse matrixResponse = createMatrixResponse(ghRequest);
+        final String postUrl = buildURLNoHints("/calculate", ghRequest);
+        final CompletableFuture<MatrixResponse> result = new CompletableFuture<>();
+        // the request or delay we are currently waiting for
+        final AtomicReference<CompletableFuture<?>> currentStage = new AtomicReference<>();
+        result.whenComplete((rsp, ex) -> {
+            CompletableFuture<?> stage = currentStage.get();
+            if (result.isCancelled() && stage != null)
+                stage.cancel(true);
+        });
+        CompletableFuture<JsonResult> post = postJsonAsync(postUrl, requestJson);
+        setCurrentStage(result, currentStage, post);
+        post.whenComplete((jsonResult, ex) -> {
+            if (result.isDone())
+                return;
+            if (ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            try {
+                String id = readJobId(matrixResponse, ghRequest, requestJson, postUrl, jsonResult);
+                if (id == null)
+                    result.complete(matrixResponse);
+                else
+                    pollSolution(result, currentStage, matrixResponse, ghRequest, buildURLNoHints("/solution/" + id, ghRequest), 0);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private static void setCurrentStage(CompletableFuture<MatrixResponse> result, AtomicReference<CompletableFuture<?>> currentStage,
+                                        CompletableFuture<?> stage) {
+        currentStage.set(stage);
+        // the result might have been cancelled before we set the new stage
+        if (result.isCancelled())
+            stage.cancel(true);
+    }
+
+    private void pollSolution(CompletableFuture<MatrixResponse> result, AtomicReference<CompletableFuture<?>> currentStage,
+                              MatrixResponse matrixResponse, GHMRequest ghRequest, String getUrl, int iteration) {
+        if (iteration >= maxIterations) {
+            result.completeExceptionally(createMaxIterationsException());
+            return;
+        }
+        CompletableFuture<Void> delay = CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(sleepAfterGET, TimeUnit.MILLISECONDS));
+        setCurrentStage(result, currentStage, delay);
+        // if the delay is cancelled this is never called
+        delay.thenRun(() -> getSolution(result, currentStage, matrixResponse, ghRequest, getUrl, iteration, true));
+    }
+
+    private void getSolution(CompletableFuture<MatrixResponse> result, AtomicReference<CompletableFuture<?>> currentStage,
+                             MatrixResponse matrixResponse, GHMRequest ghRequest, String getUrl, int iteration, boolean retryOnTimeout) {
+        if (result.isDone())
+            return;
+        CompletableFuture<JsonResult> get = getJsonAsync(getUrl);
+        setCurrentStage(result, currentStage, get);
+        get.whenComplete((rsp, ex) -> {
+            if (result.isDone())
+                return;
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                // if timeout exception try once again:
+                if (retryOnTimeout && cause instanceof SocketTimeoutException)
+                    getSolution(result, currentStage, matrixResponse, ghRequest, getUrl, iteration, false);
+                else
+                    result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                if (readSolution(matrixResponse, ghRequest, getUrl, rsp, iteration))
+                    result.complete(matrixResponse);
+                else
+                    pollSolution(result, currentStage, matrixResponse, ghRequest, getUrl, iteration + 1);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * @return the id of the job or null if the response contains an error
+     */
+    private String readJobId(MatrixResponse matrixResponse, GHMRequest ghRequest, JsonNode requestJson, String postUrl, JsonResult jsonResult) {
+        matrixResponse.setHeaders(jsonResult.headers());
+        if (ghRequest.getHints().getBool("debug", false)) {
+            logger.info("POST URL:" + postUrl + ", request:" + requestJson + ", response: " + jsonResult);
+        }
+
+        JsonNode responseJson = fromStringToJSON(postUrl, jsonResult.body());
+        if (responseJson.has("message")) {
+            matrixResponse.setStatusCode(jsonResult.statusCode());
+            matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, responseJson));
+            return null;
+        }
+        if (!responseJson.has("job_id")) {
+            throw new IllegalStateException("Response should contain job_id but was "
+                    + jsonResult + ", request:" + requestJson + ",url:" + postUrl);
+        }
+        return responseJson.get("job_id").asText();
+    }
+
+    /**
+     * @return true if the polling is finished, i.e. if the solution was read or an error occurred
+     */
+    private boolean readSolution(MatrixResponse matrixResponse, GHMRequest ghRequest, String getUrl, JsonResult rsp, int iteration) {
+        JsonNode getResponseJson = fromStringToJSON(getUrl, rsp.body());
+        if (ghRequest.getHints().getBool("debug", false)) {
+            logger.info(iteration + " GET URL:" + getUrl + ", response: " + rsp);
+        }
+        matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, getResponseJson));
+        matrixResponse.setStatusCode(rsp.statusCode());
+        if (matrixResponse.hasErrors()) {
+            return true;
+        }
+        String status = getResponseJson.get("status").asText();
+
+        if ("processing".equals(status) || "waiting".equals(status)) {
+            return false;
+        }
+
+        if ("finished".equals(status)) {
+            JsonNode solution = getResponseJson.get("solution");
+            matrixResponse.addErrors(readUsableEntityError(ghRequest.getOutArrays(), solution));
+            if (!matrixResponse.hasErrors())
+                fillResponseFromJson(matrixResponse, solution, ghRequest.getFailFast());
+
+            return true;
+        }
+
+        matrixResponse.addError(new RuntimeException("Status not supported: " + status + " - illegal JSON format?"));
+        return true;
+    }
+
+    private IllegalStateException createMaxIterationsException() {
+        return new IllegalStateException("Maximum number of iterations reached " + maxIterations + ", increasing should only be necessary for big matrices. For smaller ones this is a bug, please contact us");
+    }
+
     protected JsonResult getJson(String url) throws IOException {
-        Request okRequest = new Request.Builder().url(url)
-                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN)
-                .build();
         ResponseBody body = null;
         try {
-            Response rsp = getDownloader().newCall(okRequest).execute();
+            Response rsp = getDownloader().newCall(createGetRequest(url)).execute();
             body = rsp.body();
             return new JsonResult(body.string(), rsp.code(), rsp.headers().toMultimap());
         } finally {
             Helper.close(body);
         }
     }
+
+    protected CompletableFuture<JsonResult> getJsonAsync(String url) {
+        return enqueue(createGetRequest(url));
+    }
+
+    private static Request createGetRequest(String url) {
+        return new Request.Builder().url(url)
+                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN)
+                .build();
+    }
 }
@@ -5,6 +5,7 @@ import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import okhttp3.OkHttpClient;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,35 +30,42 @@ public class GHMatrixSyncRequester extends GHMatrixAbstractRequester {
     @Override
     public MatrixResponse route(GHMRequest ghRequest) {
         JsonNode requestJson = createPostRequest(ghRequest);
+        String postUrl = buildURLNoHints("", ghRequest);
+        try {
+            return readResponse(ghRequest, postUrl, postJson(postUrl, requestJson));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 
-        boolean withTimes = ghRequest.getOutArrays().contains("times");
-        boolean withDistances = ghRequest.getOutArrays().contains("distances");
-        boolean withWeights = ghRequest.getOutArrays().contains("weights");
-        final MatrixResponse matrixResponse = new MatrixResponse(
-                ghRequest.getPoints() == null ? ghRequest.getFromPoints().size() : ghRequest.getPoints().size(),
-                ghRequest.getPoints() == null ? ghRequest.getToPoints().size() : ghRequest.getPoints().size(),
-                withTimes, withDistances, withWeights);
-
+    @Override
+    public CompletableFuture<MatrixResponse> routeAsync(GHMRequest ghRequest) {
+        JsonNode requestJson;
         try {
-            String postUrl = buildURLNoHints("", ghRequest);
-            JsonResult jsonResult = postJson(postUrl, requestJson);
-            JsonNode responseJson = fromStringToJSON(postUrl, jsonResult.body());
-            matrixResponse.setHeaders(jsonResult.headers());
-            matrixResponse.setStatusCode(jsonResult.statusCode());
-            if (responseJson.has("message")) {
-                matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, responseJson));
-                return matrixResponse;
-            }
+            requestJson = createPostRequest(ghRequest);
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        String postUrl = buildURLNoHints("", ghRequest);
+        return postJsonAsync(postUrl, requestJson).thenApply(jsonResult -> readResponse(ghRequest, postUrl, jsonResult));
+    }
 
+    private MatrixResponse readResponse(GHMRequest ghRequest, String postUrl, JsonResult jsonResult) {
+        final MatrixResponse matrixResponse = createMatrixResponse(ghRequest);
+        JsonNode responseJson = fromStringToJSON(postUrl, jsonResult.body());
+        matrixResponse.setHeaders(jsonResult.headers());
+        matrixResponse.setStatusCode(jsonResult.statusCode());
+        if (responseJson.has("message")) {
             matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, responseJson));
-            if (!matrixResponse.hasErrors())
-                matrixResponse.addErrors(readUsableEntityError(ghRequest.getOutArrays(), responseJson));
-
-            if (!matrixResponse.hasErrors())
-                fillResponseFromJson(matrixResponse, responseJson, ghRequest.getFailFast());
             return matrixResponse;
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
         }
+
+        matrixResponse.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, responseJson));
+        if (!matrixResponse.hasErrors())
+            matrixResponse.addErrors(readUsableEntityError(ghRequest.getOutArrays(), responseJson));
+
+        if (!matrixResponse.hasErrors())
+            fillResponseFromJson(matrixResponse, responseJson, ghRequest.getFailFast());
+        return matrixResponse;
     }
 }
@@ -3,6 +3,8 @@ package com.graphhopper.api;
 import com.graphhopper.util.Helper;
 import okhttp3.MediaType;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Peter Karich
  */
@@ -40,4 +42,14 @@ public class GraphHopperMatrixWeb {
             request.getHints().putObject(KEY, key);
         return requester.route(request);
     }
+
+    /**
+     * Like {@link #route(GHMRequest)}, but does not block the calling thread, see
+     * {@link GHMatrixAbstractRequester#routeAsync(GHMRequest)}.
+     */
+    public CompletableFuture<MatrixResponse> routeAsync(GHMRequest request) {
+        if (!Helper.isEmpty(key))
+            request.getHints().putObject(KEY, key);
+        return requester.routeAsync(request);
+    }
 }
@@ -26,6 +26,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathBinaryCodec;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.Helper;
@@ -33,10 +34,14 @@ import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
 import okhttp3.*;
+import okio.Buffer;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import static com.graphhopper.api.GraphHopperMatrixWeb.*;
@@ -64,7 +69,10 @@ public class GraphHopperWeb {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean binaryResponse = false;
     private int maxUnzippedLength = 1000;
+    private boolean coalesceRequests = false;
+    private final Map<String, CompletableFuture<GHResponse>> inFlightRequests = new ConcurrentHashMap<>();
     private final Set<String> ignoreSetForGet;
     private final Set<String> ignoreSetForPost;
 
@@ -128,6 +136,46 @@ public class GraphHopperWeb {
         return downloader;
     }
 
+    /**
+     * Limits the number of requests of {@link #routeAsync(GHRequest)} that are executed concurrently (in total and per
+     * host) and sizes the pool of idle connections accordingly. Further requests are queued without blocking the
+     * calling threads. For https URLs HTTP/2 is used if the server supports it, which multiplexes all requests to a
+     * host over a single connection. The default is 64 requests and 5 per host, see {@link Dispatcher}.
+     */
+    public GraphHopperWeb setMaxConcurrentRequests(int maxRequests) {
+        if (maxRequests < 1)
+            throw new IllegalArgumentException("maxRequests must be positive, but was: " + maxRequests);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        downloader = downloader.newBuilder().
+                dispatcher(dispatcher).
+                connectionPool(new ConnectionPool(maxRequests, 5, TimeUnit.MINUTES)).
+                build();
+        return this;
+    }
+
+    /**
+     * If true HTTP/2 is used without the TLS negotiation, which is useful to multiplex the requests to a server within
+     * the same network that is reachable via http and supports HTTP/2 (h2c). The default is false.
+     */
+    public GraphHopperWeb setHttp2PriorKnowledge(boolean http2PriorKnowledge) {
+        downloader = downloader.newBuilder().
+                protocols(http2PriorKnowledge ? List.of(Protocol.H2_PRIOR_KNOWLEDGE) : List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)).
+                build();
+        return this;
+    }
+
+    /**
+     * If true {@link #routeAsync(GHRequest)} sends identical requests only once while the first of them is still in
+     * flight and all callers receive the same {@link GHResponse}, which then must not be modified. The default is
+     * false.
+     */
+    public GraphHopperWeb setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+        return this;
+    }
+
     public GraphHopperWeb setKey(String key) {
         Objects.requireNonNull(key, "Key must not be null");
         if (key.isEmpty()) {
@@ -146,6 +194,16 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * If true the routes are requested in the compact binary format of {@link ResponsePathBinaryCodec} instead of
+     * JSON, which is faster to encode and decode for large responses. This requires POST requests and a server that
+     * supports this format. The default is false.
+     */
+    public GraphHopperWeb setBinaryResponse(boolean binaryResponse) {
+        this.binaryResponse = binaryResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -190,35 +248,131 @@ public class GraphHopperWeb {
             boolean tmpTurnDescription = ghRequest.getHints().getBool("turn_description", true);
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
-            Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            Request okRequest = createRequest(ghRequest);
             Response rsp = getClientForRequest(ghRequest).newCall(okRequest).execute();
             rspBody = rsp.body();
-            JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
+            return readResponse(rsp, tmpElevation, tmpTurnDescription);
+        } catch (Exception ex) {
+            throw new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
+        } finally {
+            Helper.close(rspBody);
+        }
+    }
 
-            GHResponse res = new GHResponse();
-            res.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, json));
-            if (res.hasErrors())
-                return res;
+    /**
+     * Like {@link #route(GHRequest)}, but does not block the calling thread. The request is executed by the
+     * {@link Dispatcher} of the downloader, see {@link #setMaxConcurrentRequests(int)}, and the response is read
+     * directly from the stream in the thread of the dispatcher. Cancelling the returned future cancels the request
+     * unless it is shared with other callers, see {@link #setCoalesceRequests(boolean)}.
+     */
+    public CompletableFuture<GHResponse> routeAsync(GHRequest ghRequest) {
+        boolean tmpElevation = ghRequest.getHints().getBool("elevation", elevation);
+        boolean tmpTurnDescription = ghRequest.getHints().getBool("turn_description", true);
+        ghRequest.getHints().remove("turn_description"); // do not include in request
+
+        Request okRequest;
+        try {
+            okRequest = createRequest(ghRequest);
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        OkHttpClient client = getClientForRequest(ghRequest);
+        List<GHPoint> points = ghRequest.getPoints();
+        if (!coalesceRequests)
+            return enqueue(client, okRequest, points, tmpElevation, tmpTurnDescription);
+
+        // the reading of the response depends on the flags, the timeout only matters for the first request
+        String coalescingKey = tmpElevation + "|" + tmpTurnDescription + "|" + okRequest.method() + "|" + okRequest.url() + "|" + getBodyString(okRequest);
+        List<CompletableFuture<GHResponse>> created = new ArrayList<>(1);
+        CompletableFuture<GHResponse> future = inFlightRequests.computeIfAbsent(coalescingKey, k -> {
+            CompletableFuture<GHResponse> f = enqueue(client, okRequest, points, tmpElevation, tmpTurnDescription);
+            created.add(f);
+            return f;
+        });
+        if (!created.isEmpty())
+            future.whenComplete((rsp, ex) -> inFlightRequests.remove(coalescingKey, future));
+        // every caller gets its own future so cancelling it does not affect the others
+        return future.copy();
+    }
+
+    private CompletableFuture<GHResponse> enqueue(OkHttpClient client, Request okRequest, List<GHPoint> points,
+                                                  boolean elevation, boolean turnDescription) {
+        CompletableFuture<GHResponse> future = new CompletableFuture<>();
+        Call call = client.newCall(okRequest);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                future.completeExceptionally(new RuntimeException("Problem while fetching path " + points + ": " + ex.getMessage(), ex));
+            }
 
-            JsonNode paths = json.get("paths");
-            for (JsonNode path : paths) {
-                ResponsePath altRsp = ResponsePathDeserializerHelper.createResponsePath(objectMapper, path, tmpElevation, tmpTurnDescription);
-                res.add(altRsp);
+            @Override
+            public void onResponse(Call call, Response rsp) {
+                try (ResponseBody ignored = rsp.body()) {
+                    future.complete(readResponse(rsp, elevation, turnDescription));
+                } catch (Exception ex) {
+                    future.completeExceptionally(new RuntimeException("Problem while fetching path " + points + ": " + ex.getMessage(), ex));
+                }
             }
+        });
+        future.whenComplete((rsp, ex) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+        return future;
+    }
 
+    private Request createRequest(GHRequest ghRequest) {
+        if (binaryResponse && !postRequest)
+            throw new IllegalStateException("The binary response format requires POST requests");
+        return postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+    }
+
+    private static String getBodyString(Request okRequest) {
+        if (okRequest.body() == null)
+            return "";
+        try (Buffer buffer = new Buffer()) {
+            okRequest.body().writeTo(buffer);
+            return buffer.readUtf8();
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not read request body", ex);
+        }
+    }
+
+    /**
+     * Reads the routes from the body of the given response without buffering it.
+     */
+    private GHResponse readResponse(Response rsp, boolean elevation, boolean turnDescription) throws IOException {
+        ResponseBody rspBody = rsp.body();
+        // errors are returned as JSON even if we asked for the binary format
+        MediaType contentType = rspBody.contentType();
+        if (binaryResponse && contentType != null
+                && ResponsePathBinaryCodec.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype())) {
+            GHResponse res = ResponsePathBinaryCodec.read(rspBody.byteStream(), turnDescription);
             for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
                 res.getHints().putObject(entry.getKey(), entry.getValue());
             }
-            JsonNode b = json.get("hints");
-            b.fields().forEachRemaining(f -> res.getHints().putObject(f.getKey(), Helper.toObject(f.getValue().asText())));
+            return res;
+        }
+        JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
+        GHResponse res = new GHResponse();
+        res.addErrors(ResponsePathDeserializerHelper.readErrors(objectMapper, json));
+        if (res.hasErrors())
             return res;
 
-        } catch (Exception ex) {
-            throw new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
-        } finally {
-            Helper.close(rspBody);
+        JsonNode paths = json.get("paths");
+        for (JsonNode path : paths) {
+            ResponsePath altRsp = ResponsePathDeserializerHelper.createResponsePath(objectMapper, path, elevation, turnDescription);
+            res.add(altRsp);
         }
+
+        for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
+            res.getHints().putObject(entry.getKey(), entry.getValue());
+        }
+        JsonNode b = json.get("hints");
+        b.fields().forEachRemaining(f -> res.getHints().putObject(f.getKey(), Helper.toObject(f.getValue().asText())));
+
+        return res;
     }
 
     OkHttpClient getClientForRequest(GHRequest request) {
@@ -248,6 +402,8 @@ public class GraphHopperWeb {
             throw new RuntimeException("Could not write request body", e);
         }
         Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, body));
+        if (binaryResponse)
+            builder.header("Accept", ResponsePathBinaryCodec.MEDIA_TYPE);
         builder.header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN);
         // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
         if (body.length() < maxUnzippedLength)
@@ -1,9 +1,17 @@
 package com.graphhopper.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -32,4 +40,71 @@ public class GHMatrixBatchTest extends AbstractGHMatrixWebTester {
     GHMatrixAbstractRequester createRequester(String url) {
         return new GHMatrixBatchRequester(url);
     }
+
+    @Test
+    public void testRouteAsync() throws Exception {
+        String ghMatrix = readFile(new InputStreamReader(getClass().getResourceAsStream("matrix-weights-only.json")));
+        AtomicInteger getRequests = new AtomicInteger();
+        GraphHopperMatrixWeb matrixWeb = new GraphHopperMatrixWeb(new GHMatrixBatchRequester("") {
+            @Override
+            protected CompletableFuture<JsonResult> postJsonAsync(String url, JsonNode data) {
+                return CompletableFuture.completedFuture(new JsonResult("{\"job_id\": \"1\"}", 200, new HashMap<>()));
+            }
+
+            @Override
+            protected CompletableFuture<JsonResult> getJsonAsync(String url) {
+                // the solution is only ready for the third request
+                String json = getRequests.incrementAndGet() < 3 ? "{\"status\": \"processing\"}" : ghMatrix;
+                return CompletableFuture.supplyAsync(() -> new JsonResult(json, 200, new HashMap<>()));
+            }
+        }.setSleepAfterGET(10));
+
+        MatrixResponse rsp = matrixWeb.routeAsync(createRequest()).get();
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(885.9, rsp.getWeight(0, 1), .1);
+        assertEquals(3, getRequests.get());
+    }
+
+    @Test
+    public void testCancelRouteAsync() throws Exception {
+        AtomicInteger getRequests = new AtomicInteger();
+        List<CompletableFuture<GHMatrixAbstractRequester.JsonResult>> pendingRequests = new CopyOnWriteArrayList<>();
+        GraphHopperMatrixWeb matrixWeb = new GraphHopperMatrixWeb(new GHMatrixBatchRequester("") {
+            @Override
+            protected CompletableFuture<JsonResult> postJsonAsync(String url, JsonNode data) {
+                return CompletableFuture.completedFuture(new JsonResult("{\"job_id\": \"1\"}", 200, new HashMap<>()));
+            }
+
+            @Override
+            protected CompletableFuture<JsonResult> getJsonAsync(String url) {
+                // the solution is never ready and the third request is never answered
+                if (getRequests.incrementAndGet() < 3)
+                    return CompletableFuture.completedFuture(new JsonResult("{\"status\": \"processing\"}", 200, new HashMap<>()));
+                CompletableFuture<JsonResult> pending = new CompletableFuture<>();
+                pendingRequests.add(pending);
+                return pending;
+            }
+        }.setSleepAfterGET(10));
+
+        // cancelling while a request is pending cancels the request
+        CompletableFuture<MatrixResponse> future = matrixWeb.routeAsync(createRequest());
+        while (pendingRequests.isEmpty())
+            Thread.sleep(1);
+        assertTrue(future.cancel(true));
+        assertTrue(pendingRequests.get(0).isCancelled());
+        Thread.sleep(100);
+        assertEquals(3, getRequests.get());
+
+        // cancelling while we wait for the next poll stops the polling
+        getRequests.set(0);
+        future = matrixWeb.routeAsync(createRequest());
+        while (getRequests.get() == 0)
+            Thread.sleep(1);
+        assertTrue(future.cancel(true));
+        // a poll that already started before we cancelled might still send its request
+        Thread.sleep(20);
+        int requests = getRequests.get();
+        Thread.sleep(100);
+        assertEquals(requests, getRequests.get());
+    }
 }
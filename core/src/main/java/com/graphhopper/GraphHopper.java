@@ -29,8 +29,10 @@ import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.CustomizableCH;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.lm.CoreALT;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
 import com.graphhopper.routing.lm.LandmarkStorage;
@@ -65,8 +67,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -107,6 +113,8 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private ExecutorService viaExecutor;
+    private ExecutorService batchExecutor;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
@@ -126,6 +134,18 @@ public class GraphHopper {
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    // customizable CH
+    private boolean customizableCHEnabled = false;
+    private int customizableCHThreads = 1;
+    private int customizableCHCacheSize = 8;
+    private CustomizableCH customizableCH;
+    private ExecutorService customizableCHExecutor;
+    // core-ALT
+    private List<String> coreALTProfiles = Collections.emptyList();
+    private int coreALTCoreSize = 5;
+    private int coreALTLandmarks = 16;
+    private Map<String, CoreALT> coreALTs = Collections.emptyMap();
+    private RouteCache routeCache;
 
     // for data reader
     private String osmFile;
@@ -222,6 +242,47 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Enables the customizable CH, which is used to calculate routes with custom models (or for custom profiles
+     * without a CH preparation) quickly. The topology is calculated whenever the graph is loaded and the shortcut
+     * weights are calculated per custom model using the given number of threads. The last cacheSize customizations are
+     * kept in memory. See {@link CustomizableCH}.
+     */
+    public GraphHopper setCustomizableCH(boolean enabled, int threads, int cacheSize) {
+        ensureNotLoaded();
+        this.customizableCHEnabled = enabled;
+        this.customizableCHThreads = threads;
+        this.customizableCHCacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * Enables Core-ALT for the given (node-based) profiles, which is used for the profiles without a CH preparation.
+     * Only the given percentage of the nodes is kept uncontracted and the given number of landmarks is placed within
+     * this core. The preparation is done in memory whenever the graph is loaded. See {@link CoreALT}.
+     */
+    public GraphHopper setCoreALT(List<String> profiles, int coreSize, int landmarks) {
+        ensureNotLoaded();
+        this.coreALTProfiles = profiles;
+        this.coreALTCoreSize = coreSize;
+        this.coreALTLandmarks = landmarks;
+        return this;
+    }
+
+    /**
+     * Sets the cache for the paths of CH requests, see {@link RouteCache}. The cache is cleared whenever a graph
+     * with a different version (import date and checksums, see graph.calc_checksums) is loaded, so it can be shared
+     * by several instances that load updated graphs. Use null to disable it, which is the default.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
     /**
      * Only valid option for in-memory graph and if you e.g. want to disable store on flush for unit
      * tests. Specify storeOnFlush to true if you want that existing data will be loaded FROM disc
@@ -375,6 +436,21 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * @return the Core-ALT preparations by profile name, which is empty if Core-ALT is disabled or the graph was not
+     * loaded yet
+     */
+    public Map<String, CoreALT> getCoreALTs() {
+        return coreALTs;
+    }
+
+    /**
+     * @return the customizable CH or null if it is disabled or the graph was not loaded yet
+     */
+    public CustomizableCH getCustomizableCH() {
+        return customizableCH;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -565,6 +641,7 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setPbfBlobIndex(ghConfig.getBool("datareader.pbf_blob_index", osmReaderConfig.isPbfBlobIndex()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
@@ -583,6 +660,12 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setViaThreads(ghConfig.getInt(Routing.INIT_VIA_THREADS, routerConfig.getViaThreads()));
+        routerConfig.setBatchThreads(ghConfig.getInt(Routing.INIT_BATCH_THREADS, routerConfig.getBatchThreads()));
+        routerConfig.setMaxBatchRequests(ghConfig.getInt(Routing.INIT_MAX_BATCH_REQUESTS, routerConfig.getMaxBatchRequests()));
+        int routeCacheSize = ghConfig.getInt(Routing.INIT_CACHE_SIZE, 0);
+        if (routeCacheSize > 0)
+            routeCache = new RouteCache(routeCacheSize);
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -591,6 +674,18 @@ public class GraphHopper {
 
         calcChecksums = ghConfig.getBool("graph.calc_checksums", false);
 
+        // customizable CH
+        customizableCHEnabled = ghConfig.getBool("prepare.cch.enabled", customizableCHEnabled);
+        customizableCHThreads = ghConfig.getInt("prepare.cch.threads", customizableCHThreads);
+        customizableCHCacheSize = ghConfig.getInt("prepare.cch.cache_size", customizableCHCacheSize);
+
+        // core-ALT
+        String coreALTProfilesStr = ghConfig.getString("prepare.core_alt.profiles", "");
+        if (!coreALTProfilesStr.isEmpty())
+            coreALTProfiles = Arrays.stream(coreALTProfilesStr.split(",")).map(String::trim).collect(Collectors.toList());
+        coreALTCoreSize = ghConfig.getInt("prepare.core_alt.core_size", coreALTCoreSize);
+        coreALTLandmarks = ghConfig.getInt("prepare.core_alt.landmarks", coreALTLandmarks);
+
         return this;
     }
 
@@ -614,6 +709,8 @@ public class GraphHopper {
         restrictionVehicleTypesByProfile.entrySet().stream()
                 .filter(e -> !e.getValue().isEmpty())
                 .forEach(e -> emBuilder.addTurnCostEncodedValue(TurnRestriction.create(e.getKey())));
+        if (profilesByName.values().stream().anyMatch(p -> p.hasTurnCosts() && p.getTurnCostsConfig().hasTurnAngleCosts()))
+            emBuilder.addTurnCostEncodedValue(TurnAngle.create());
         return emBuilder.build();
     }
 
@@ -891,6 +988,13 @@ public class GraphHopper {
 
         if (hasElevation())
             interpolateBridgesTunnelsAndFerries();
+
+        if (encodingManager.hasTurnEncodedValue(TurnAngle.KEY))
+            TurnAngleCalculator.calcTurnAngles(baseGraph, encodingManager.getTurnEncodedValue(TurnAngle.KEY, EnumEncodedValue.class));
+
+        // all turn costs are written at this point, so we can speed up the lookups for all following steps
+        if (baseGraph.getTurnCostStorage() != null)
+            baseGraph.getTurnCostStorage().sortEntries();
     }
 
     protected void importOSM() {
@@ -1095,6 +1199,10 @@ public class GraphHopper {
             if (!profilesByName.containsKey(chProfile.getProfile())) {
                 throw new IllegalArgumentException("CH profile references unknown profile '" + chProfile.getProfile() + "'");
             }
+            if (usesTrafficSpeed(profilesByName.get(chProfile.getProfile()))) {
+                throw new IllegalArgumentException("CH profile '" + chProfile.getProfile() + "' cannot use " + TrafficSpeed.KEY
+                        + ", because the traffic speeds change after the preparation. Use LM or flexible routing instead");
+            }
         }
         Map<String, LMProfile> lmProfileMap = new LinkedHashMap<>(lmPreparationHandler.getLMProfiles().size());
         for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
@@ -1108,6 +1216,11 @@ public class GraphHopper {
             if (lmProfile.usesOtherPreparation() && !profilesByName.containsKey(lmProfile.getPreparationProfile())) {
                 throw new IllegalArgumentException("LM profile references unknown preparation profile '" + lmProfile.getPreparationProfile() + "'");
             }
+            CustomModel customModel = profilesByName.get(lmProfile.getProfile()).getCustomModel();
+            if (customModel != null && CustomModelParser.isUsedOutsideOfSpeedLimits(customModel, TrafficSpeed.KEY)) {
+                throw new IllegalArgumentException("LM profile '" + lmProfile.getProfile() + "' can use " + TrafficSpeed.KEY
+                        + " only as the value of limit_to statements for the speed, because otherwise the landmark weights are no lower bounds");
+            }
         }
         for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
             if (lmProfile.usesOtherPreparation() && !lmProfileMap.containsKey(lmProfile.getPreparationProfile())) {
@@ -1119,6 +1232,16 @@ public class GraphHopper {
         }
     }
 
+    /**
+     * The live traffic speeds can only be used for preparations whose weights are not stored. LM is fine as long as the
+     * traffic speeds are only used to limit the speed, because then they can only increase the weights and the landmark
+     * weights remain lower bounds, see {@link CustomModelParser#isUsedOutsideOfSpeedLimits}.
+     */
+    private static boolean usesTrafficSpeed(Profile profile) {
+        return profile.getCustomModel() != null && CustomModelParser.findVariablesForEncodedValuesString(
+                profile.getCustomModel(), TrafficSpeed.KEY::equals, s -> "").contains(TrafficSpeed.KEY);
+    }
+
     public final CHPreparationHandler getCHPreparationHandler() {
         return chPreparationHandler;
     }
@@ -1184,6 +1307,56 @@ public class GraphHopper {
 
         if (chPreparationHandler.isEnabled())
             loadOrPrepareCH(closeEarly);
+
+        // the topology is not stored, and there is no need to calculate it if we only import the graph
+        if (customizableCHEnabled && !closeEarly)
+            createCustomizableCH();
+
+        // just like the customizable CH the core-ALT preparation is not stored
+        if (!coreALTProfiles.isEmpty() && !closeEarly)
+            createCoreALT();
+
+        if (routeCache != null)
+            routeCache.setGraphVersion(getGraphVersion());
+    }
+
+    /**
+     * @return the version of the graph and the weightings, which is used to invalidate the route cache. It consists of
+     * the import date and the weighting checksums if they were calculated, see graph.calc_checksums
+     */
+    private String getGraphVersion() {
+        StringBuilder sb = new StringBuilder(properties.get("datareader.import.date"));
+        for (String profile : profilesByName.keySet())
+            sb.append('|').append(properties.get("checksum.fwd." + profile)).append('|').append(properties.get("checksum.bwd." + profile));
+        return sb.toString();
+    }
+
+    protected void createCoreALT() {
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        Map<String, CoreALT> coreALTs = new LinkedHashMap<>();
+        for (String profileName : coreALTProfiles) {
+            Profile profile = profilesByName.get(profileName);
+            if (profile == null)
+                throw new IllegalArgumentException("Core-ALT profile '" + profileName + "' does not exist. Available: " + profilesByName.keySet());
+            if (profile.hasTurnCosts())
+                throw new IllegalArgumentException("Core-ALT does not support profiles with turn costs, but '" + profileName + "' uses them");
+            if (usesTrafficSpeed(profile))
+                throw new IllegalArgumentException("Core-ALT does not support " + TrafficSpeed.KEY + ", but '" + profileName + "' uses it");
+            CHConfig chConfig = CHConfig.nodeBased("core_alt_" + profileName, createWeighting(profile, new PMap()));
+            coreALTs.put(profileName, new CoreALT(baseGraph.getBaseGraph(), chConfig, coreALTCoreSize, coreALTLandmarks));
+        }
+        this.coreALTs = coreALTs;
+    }
+
+    protected void createCustomizableCH() {
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        if (customizableCHThreads > 1)
+            customizableCHExecutor = createDaemonThreadPool(customizableCHThreads, "gh-cch-");
+        customizableCH = new CustomizableCH(baseGraph.getBaseGraph())
+                .setExecutor(customizableCHExecutor, customizableCHThreads)
+                .setCacheSize(customizableCHCacheSize);
     }
 
     protected void importPublicTransit() {
@@ -1222,6 +1395,15 @@ public class GraphHopper {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the routes for all the given requests and passes each response together with the index of its
+     * request to the given consumer as soon as it is ready. The consumer is called from multiple threads if
+     * routing.batch_threads is larger than one. See {@link Router#routeBatch}.
+     */
+    public void routeBatch(List<GHRequest> requests, ObjIntConsumer<GHResponse> consumer) {
+        createRouter().routeBatch(requests, getBatchExecutor(), routerConfig.getBatchThreads(), consumer);
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1231,7 +1413,36 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks)
+                .setViaExecutor(getViaExecutor())
+                .setCustomizableCH(customizableCH)
+                .setCoreALT(coreALTs)
+                .setRouteCache(routeCache);
+    }
+
+    private synchronized ExecutorService getViaExecutor() {
+        if (routerConfig.getViaThreads() <= 1)
+            return null;
+        if (viaExecutor == null)
+            viaExecutor = createDaemonThreadPool(routerConfig.getViaThreads(), "gh-via-routing-");
+        return viaExecutor;
+    }
+
+    private synchronized ExecutorService getBatchExecutor() {
+        if (routerConfig.getBatchThreads() <= 1)
+            return null;
+        if (batchExecutor == null)
+            batchExecutor = createDaemonThreadPool(routerConfig.getBatchThreads(), "gh-batch-routing-");
+        return batchExecutor;
+    }
+
+    private static ExecutorService createDaemonThreadPool(int threads, String namePrefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1423,6 +1634,17 @@ public class GraphHopper {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        synchronized (this) {
+            if (viaExecutor != null)
+                viaExecutor.shutdownNow();
+            viaExecutor = null;
+            if (batchExecutor != null)
+                batchExecutor.shutdownNow();
+            batchExecutor = null;
+            if (customizableCHExecutor != null)
+                customizableCHExecutor.shutdownNow();
+            customizableCHExecutor = null;
+        }
         if (baseGraph != null)
             baseGraph.close();
         if (properties != null)
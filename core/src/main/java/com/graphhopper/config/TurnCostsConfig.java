@@ -1,5 +1,6 @@
 package com.graphhopper.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -8,6 +9,10 @@ import java.util.Set;
 public class TurnCostsConfig {
     public static final int INFINITE_U_TURN_COSTS = -1;
     private int uTurnCosts = INFINITE_U_TURN_COSTS;
+    private double rightTurnCosts;
+    private double sharpRightTurnCosts;
+    private double leftTurnCosts;
+    private double sharpLeftTurnCosts;
     private List<String> vehicleTypes;
     // ensure that no typos can occur like motor_car vs motorcar or bike vs bicycle
     private static final Set<String> ALL_SUPPORTED = Set.of(
@@ -70,8 +75,70 @@ public class TurnCostsConfig {
         return uTurnCosts;
     }
 
+    public TurnCostsConfig setRightTurnCosts(double rightTurnCosts) {
+        this.rightTurnCosts = checkTurnCosts(rightTurnCosts);
+        return this;
+    }
+
+    /**
+     * @return the costs in seconds of a right turn at a junction, see TurnAngle
+     */
+    @JsonProperty("right_turn_costs")
+    public double getRightTurnCosts() {
+        return rightTurnCosts;
+    }
+
+    public TurnCostsConfig setSharpRightTurnCosts(double sharpRightTurnCosts) {
+        this.sharpRightTurnCosts = checkTurnCosts(sharpRightTurnCosts);
+        return this;
+    }
+
+    @JsonProperty("sharp_right_turn_costs")
+    public double getSharpRightTurnCosts() {
+        return sharpRightTurnCosts;
+    }
+
+    public TurnCostsConfig setLeftTurnCosts(double leftTurnCosts) {
+        this.leftTurnCosts = checkTurnCosts(leftTurnCosts);
+        return this;
+    }
+
+    @JsonProperty("left_turn_costs")
+    public double getLeftTurnCosts() {
+        return leftTurnCosts;
+    }
+
+    public TurnCostsConfig setSharpLeftTurnCosts(double sharpLeftTurnCosts) {
+        this.sharpLeftTurnCosts = checkTurnCosts(sharpLeftTurnCosts);
+        return this;
+    }
+
+    @JsonProperty("sharp_left_turn_costs")
+    public double getSharpLeftTurnCosts() {
+        return sharpLeftTurnCosts;
+    }
+
+    /**
+     * @return true if any of the turn costs that depend on the turn angle is set, in which case the turn angles need
+     * to be calculated during the import
+     */
+    @JsonIgnore
+    public boolean hasTurnAngleCosts() {
+        return rightTurnCosts > 0 || sharpRightTurnCosts > 0 || leftTurnCosts > 0 || sharpLeftTurnCosts > 0;
+    }
+
+    private static double checkTurnCosts(double turnCosts) {
+        if (!(turnCosts >= 0) || Double.isInfinite(turnCosts))
+            throw new IllegalArgumentException("turn costs must be finite and not negative, but were: " + turnCosts);
+        return turnCosts;
+    }
+
     @Override
     public String toString() {
-        return "vehicleTypes=" + vehicleTypes + ", uTurnCosts=" + uTurnCosts;
+        String str = "vehicleTypes=" + vehicleTypes + ", uTurnCosts=" + uTurnCosts;
+        if (hasTurnAngleCosts())
+            str += ", rightTurnCosts=" + rightTurnCosts + ", sharpRightTurnCosts=" + sharpRightTurnCosts
+                    + ", leftTurnCosts=" + leftTurnCosts + ", sharpLeftTurnCosts=" + sharpLeftTurnCosts;
+        return str;
     }
 }
@@ -0,0 +1,340 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.cursors.IntDoubleCursor;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+import org.locationtech.jts.algorithm.Orientation;
+import org.locationtech.jts.geom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An alternative to the {@link Triangulator} and the {@link ContourBuilder} that computes isolines on a regular grid.
+ * The edges between the nodes of the shortest path tree are sampled into the cells of the grid, where every cell keeps
+ * the smallest value of the edges crossing it. Every reached cell then spreads its value to the cells in a small neighbourhood, which
+ * closes the gaps between the roads, and finally the isolines are traced with marching squares. The cost only depends
+ * on the number of reached edges and on the number of cells, which is limited, so there is no limit for the size of
+ * the shortest path tree like for the triangulation.
+ */
+public class RasterContourBuilder {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final double minLon;
+    private final double minLat;
+    private final double cellWidth;
+    private final double cellHeight;
+    // the number of grid points in both directions, the values are stored row by row
+    private final int width;
+    private final int height;
+    private final double[] values;
+
+    private RasterContourBuilder(double minLon, double minLat, double cellWidth, double cellHeight, int width, int height) {
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.width = width;
+        this.height = height;
+        this.values = new double[width * height];
+        Arrays.fill(values, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs the search of the given shortest path tree and samples all edges between the reached nodes into a grid.
+     * Also the edges that are not part of the tree are included, otherwise there would be no closed blocks between the
+     * roads. The values along an edge are interpolated linearly between the values of its two nodes.
+     *
+     * @param weighting   only edges that are accessible in at least one direction for this weighting are included
+     * @param cellSize    the height of the cells in degrees. The width is adjusted to the latitude so that the cells are
+     *                    roughly square. Use 0 to derive it from the extent of the shortest path tree.
+     * @param maxCells    the maximum number of cells of the grid, the cells are enlarged if necessary
+     * @param bufferCells the number of cells around every reached cell that get its value as well. Gaps between roads
+     *                    that are narrower than twice this number of cells are closed.
+     */
+    public static RasterContourBuilder create(int startNode, QueryGraph queryGraph, Weighting weighting, ShortestPathTree shortestPathTree,
+                                              ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double cellSize,
+                                              int maxCells, int bufferCells) {
+        if (maxCells < 16)
+            throw new IllegalArgumentException("maxCells must be at least 16, but was: " + maxCells);
+        // for edge-based traversal a node can be reached multiple times, we keep the smallest value
+        IntDoubleHashMap nodeValues = new IntDoubleHashMap();
+        shortestPathTree.search(startNode, label -> {
+            double value = fz.applyAsDouble(label);
+            int index = nodeValues.indexOf(label.node);
+            if (index < 0)
+                nodeValues.indexInsert(index, label.node, value);
+            else if (value < nodeValues.indexGet(index))
+                nodeValues.indexReplace(index, value);
+        });
+        if (nodeValues.isEmpty())
+            throw new IllegalArgumentException("Too few points found. Please try a different 'point' or a larger 'time_limit'.");
+
+        final NodeAccess na = queryGraph.getNodeAccess();
+        List<PointList> geometries = new ArrayList<>();
+        List<double[]> fromAndToValues = new ArrayList<>();
+        double[] bbox = {Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE};
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        for (IntDoubleCursor cursor : nodeValues) {
+            PointList single = new PointList(1, false);
+            single.add(na.getLat(cursor.key), na.getLon(cursor.key));
+            geometries.add(single);
+            fromAndToValues.add(new double[]{cursor.value, cursor.value});
+            EdgeIterator iter = explorer.setBaseNode(cursor.key);
+            while (iter.next()) {
+                // every edge is visited from both of its nodes, but we only need it once
+                if (iter.getAdjNode() < cursor.key || !nodeValues.containsKey(iter.getAdjNode()))
+                    continue;
+                if (Double.isInfinite(weighting.calcEdgeWeight(iter, false)) && Double.isInfinite(weighting.calcEdgeWeight(iter, true)))
+                    continue;
+                geometries.add(iter.fetchWayGeometry(FetchMode.ALL));
+                fromAndToValues.add(new double[]{cursor.value, nodeValues.get(iter.getAdjNode())});
+            }
+        }
+        for (PointList geometry : geometries) {
+            for (int i = 0; i < geometry.size(); i++) {
+                bbox[0] = Math.min(bbox[0], geometry.getLon(i));
+                bbox[1] = Math.max(bbox[1], geometry.getLon(i));
+                bbox[2] = Math.min(bbox[2], geometry.getLat(i));
+                bbox[3] = Math.max(bbox[3], geometry.getLat(i));
+            }
+        }
+
+        // make the cells roughly square in meters
+        double lonFactor = 1 / Math.max(0.01, Math.cos(Math.toRadians((bbox[2] + bbox[3]) / 2)));
+        if (cellSize <= 0)
+            cellSize = Math.max((bbox[1] - bbox[0]) / lonFactor, bbox[3] - bbox[2]) / 128;
+        // avoid a degenerated grid if only a single point was reached
+        cellSize = Math.max(cellSize, 1e-6);
+        int pad = bufferCells + 1;
+        int width, height;
+        while (true) {
+            width = (int) Math.ceil((bbox[1] - bbox[0]) / (cellSize * lonFactor)) + 1 + 2 * pad;
+            height = (int) Math.ceil((bbox[3] - bbox[2]) / cellSize) + 1 + 2 * pad;
+            if ((long) width * height <= maxCells)
+                break;
+            cellSize *= Math.max(1.1, Math.sqrt((double) width * height / maxCells));
+        }
+        RasterContourBuilder builder = new RasterContourBuilder(bbox[0] - pad * cellSize * lonFactor, bbox[2] - pad * cellSize,
+                cellSize * lonFactor, cellSize, width, height);
+        for (int i = 0; i < geometries.size(); i++) {
+            builder.splat(geometries.get(i), fromAndToValues.get(i)[0], fromAndToValues.get(i)[1]);
+        }
+        builder.spread(bufferCells);
+        return builder;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Samples the given geometry into the grid, the value is interpolated linearly between the two ends.
+     */
+    private void splat(PointList geometry, double fromValue, double toValue) {
+        if (geometry.size() == 1) {
+            setMin(geometry.getLon(0), geometry.getLat(0), toValue);
+            return;
+        }
+        double totalLength = 0;
+        for (int i = 1; i < geometry.size(); i++) {
+            totalLength += segmentLength(geometry, i);
+        }
+        double length = 0;
+        for (int i = 1; i < geometry.size(); i++) {
+            double segmentLength = segmentLength(geometry, i);
+            // take two samples per cell, so we do not skip any cell
+            int steps = Math.max(1, (int) Math.ceil(2 * segmentLength));
+            for (int s = i == 1 ? 0 : 1; s <= steps; s++) {
+                double t = (double) s / steps;
+                double lon = geometry.getLon(i - 1) + t * (geometry.getLon(i) - geometry.getLon(i - 1));
+                double lat = geometry.getLat(i - 1) + t * (geometry.getLat(i) - geometry.getLat(i - 1));
+                double fraction = totalLength == 0 ? 1 : (length + t * segmentLength) / totalLength;
+                setMin(lon, lat, fromValue + fraction * (toValue - fromValue));
+            }
+            length += segmentLength;
+        }
+    }
+
+    /**
+     * @return the length of the segment ending at the given index in cells
+     */
+    private double segmentLength(PointList geometry, int index) {
+        double dx = (geometry.getLon(index) - geometry.getLon(index - 1)) / cellWidth;
+        double dy = (geometry.getLat(index) - geometry.getLat(index - 1)) / cellHeight;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void setMin(double lon, double lat, double value) {
+        int x = (int) Math.round((lon - minLon) / cellWidth);
+        int y = (int) Math.round((lat - minLat) / cellHeight);
+        int index = y * width + x;
+        values[index] = Math.min(values[index], value);
+    }
+
+    /**
+     * Sets the value of every cell to the minimum of its neighbourhood. The square filter is separable, so we do one
+     * pass per direction.
+     */
+    private void spread(int bufferCells) {
+        if (bufferCells <= 0)
+            return;
+        double[] tmp = new double[values.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double min = Double.POSITIVE_INFINITY;
+                for (int dx = Math.max(0, x - bufferCells); dx <= Math.min(width - 1, x + bufferCells); dx++) {
+                    min = Math.min(min, values[y * width + dx]);
+                }
+                tmp[y * width + x] = min;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double min = Double.POSITIVE_INFINITY;
+                for (int dy = Math.max(0, y - bufferCells); dy <= Math.min(height - 1, y + bufferCells); dy++) {
+                    min = Math.min(min, tmp[dy * width + x]);
+                }
+                values[y * width + x] = min;
+            }
+        }
+    }
+
+    /**
+     * Traces the isoline for the given value with marching squares. The grid points are the corners of the squares
+     * and every square that has corners on both sides of the isoline gets a segment between the crossing points on its
+     * sides. The segments are oriented such that the inside (the values below z) is on their left, so the segments form
+     * counter-clockwise shells and clockwise holes.
+     */
+    public MultiPolygon computeIsoline(double z) {
+        // the crossing points are identified by the side of the square they lie on: 2 * point for the side to the
+        // right of a grid point and 2 * point + 1 for the side above it. next maps every crossing point to the
+        // following one on its ring.
+        int[] next = new int[2 * values.length];
+        Arrays.fill(next, -1);
+        int[] sides = new int[4];
+        boolean[] inToOut = new boolean[4];
+        for (int y = 0; y < height - 1; y++) {
+            for (int x = 0; x < width - 1; x++) {
+                int bl = y * width + x, br = bl + 1, tr = br + width, tl = bl + width;
+                // walk around the square counter-clockwise and collect the sides where we cross the isoline
+                int count = 0;
+                count = addCrossing(z, bl, br, 2 * bl, count, sides, inToOut);
+                count = addCrossing(z, br, tr, 2 * br + 1, count, sides, inToOut);
+                count = addCrossing(z, tr, tl, 2 * tl, count, sides, inToOut);
+                count = addCrossing(z, tl, bl, 2 * bl + 1, count, sides, inToOut);
+                if (count == 0)
+                    continue;
+                // for a saddle the value in the center decides whether the two inside corners are connected or not
+                boolean centerInside = count == 4 && (values[bl] + values[br] + values[tr] + values[tl]) / 4 < z;
+                for (int i = 0; i < count; i++) {
+                    if (inToOut[i])
+                        next[sides[i]] = sides[(centerInside ? i + 1 : i + count - 1) % count];
+                }
+            }
+        }
+
+        List<LinearRing> shells = new ArrayList<>();
+        List<LinearRing> holes = new ArrayList<>();
+        for (int start = 0; start < next.length; start++) {
+            if (next[start] < 0)
+                continue;
+            List<Coordinate> coordinates = new ArrayList<>();
+            int side = start;
+            while (next[side] >= 0) {
+                coordinates.add(crossingPoint(side, z));
+                int tmp = next[side];
+                next[side] = -1;
+                side = tmp;
+            }
+            coordinates.add(coordinates.get(0));
+            if (coordinates.size() < 4)
+                continue;
+            Coordinate[] ring = coordinates.toArray(new Coordinate[0]);
+            if (Orientation.isCCW(ring))
+                shells.add(geometryFactory.createLinearRing(ring));
+            else
+                holes.add(geometryFactory.createLinearRing(ring));
+        }
+        return createMultiPolygon(shells, holes);
+    }
+
+    private int addCrossing(double z, int from, int to, int side, int count, int[] sides, boolean[] inToOut) {
+        boolean fromInside = values[from] < z;
+        if (fromInside != values[to] < z) {
+            sides[count] = side;
+            inToOut[count] = fromInside;
+            count++;
+        }
+        return count;
+    }
+
+    private Coordinate crossingPoint(int side, double z) {
+        int point = side / 2;
+        int other = side % 2 == 0 ? point + 1 : point + width;
+        double va = values[point], vb = values[other];
+        double t = Double.isInfinite(va) || Double.isInfinite(vb) ? 0.5 : Math.max(0, Math.min(1, (z - va) / (vb - va)));
+        double lon = minLon + (point % width) * cellWidth;
+        double lat = minLat + (point / width) * cellHeight;
+        if (side % 2 == 0)
+            lon += t * cellWidth;
+        else
+            lat += t * cellHeight;
+        return new Coordinate(lon, lat);
+    }
+
+    private MultiPolygon createMultiPolygon(List<LinearRing> shells, List<LinearRing> holes) {
+        List<Polygon> shellPolygons = new ArrayList<>(shells.size());
+        List<List<LinearRing>> holesPerShell = new ArrayList<>(shells.size());
+        for (LinearRing shell : shells) {
+            shellPolygons.add(geometryFactory.createPolygon(shell));
+            holesPerShell.add(new ArrayList<>());
+        }
+        for (LinearRing hole : holes) {
+            // shells can be nested inside the holes of other shells, so the hole belongs to the smallest shell around it
+            Point point = geometryFactory.createPoint(hole.getCoordinateN(0));
+            int best = -1;
+            for (int i = 0; i < shellPolygons.size(); i++) {
+                if (shellPolygons.get(i).getEnvelopeInternal().contains(point.getCoordinate()) && shellPolygons.get(i).contains(point)
+                        && (best < 0 || shellPolygons.get(i).getArea() < shellPolygons.get(best).getArea()))
+                    best = i;
+            }
+            if (best >= 0)
+                holesPerShell.get(best).add(hole);
+        }
+        Polygon[] polygons = new Polygon[shells.size()];
+        for (int i = 0; i < shells.size(); i++) {
+            polygons[i] = geometryFactory.createPolygon(shells.get(i), holesPerShell.get(i).toArray(new LinearRing[0]));
+        }
+        return geometryFactory.createMultiPolygon(polygons);
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.pbf.PbfBlobIndex;
 import com.graphhopper.reader.osm.pbf.PbfReader;
 import com.graphhopper.reader.osm.pbf.Sink;
 
@@ -43,6 +44,7 @@ import java.util.zip.ZipInputStream;
  */
 public class OSMInputFile implements Sink, OSMInput {
     private static final int MAX_BATCH_SIZE = 1_000;
+    private final File file;
     private final InputStream bis;
     private final BlockingQueue<ReaderElement> itemQueue;
     private final Queue<ReaderElement> itemBatch;
@@ -56,9 +58,12 @@ public class OSMInputFile implements Sink, OSMInput {
     private boolean hasIncomingData;
     private int workerThreads = -1;
     private SkipOptions skipOptions = SkipOptions.none();
+    private File blobIndexFile;
+    private PbfBlobIndex blobIndex;
     private OSMFileHeader fileheader;
 
     public OSMInputFile(File file) throws IOException {
+        this.file = file;
         bis = decode(file);
         itemQueue = new LinkedBlockingQueue<>(50_000);
         itemBatch = new ArrayDeque<>(MAX_BATCH_SIZE);
@@ -90,6 +95,16 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Only for pbf format. If the given file contains a blob index for the pbf file, the blobs that only contain
+     * skipped elements (see {@link #setSkipOptions(SkipOptions)}) are not decoded. If there is no such index (or if it
+     * is outdated) and no elements are skipped, the index is created while reading and written to this file.
+     */
+    public OSMInputFile setBlobIndexFile(File blobIndexFile) {
+        this.blobIndexFile = blobIndexFile;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode(File file) throws IOException {
         final String name = file.getName();
@@ -237,9 +252,12 @@ public class OSMInputFile implements Sink, OSMInput {
     @Override
     public void close() throws IOException {
         try {
-            if (binary)
+            if (binary) {
                 pbfReader.close();
-            else
+                // the index is only complete if we read the entire file
+                if (blobIndex != null && blobIndex.isComplete())
+                    blobIndex.store(blobIndexFile);
+            } else
                 xmlParser.close();
         } catch (XMLStreamException ex) {
             throw new IOException(ex);
@@ -258,6 +276,17 @@ public class OSMInputFile implements Sink, OSMInput {
             workerThreads = 1;
 
         pbfReader = new PbfReader(stream, this, workerThreads, skipOptions);
+        if (blobIndexFile != null) {
+            PbfBlobIndex existing = PbfBlobIndex.load(blobIndexFile, file);
+            boolean skipping = skipOptions.isSkipNodes() || skipOptions.isSkipWays() || skipOptions.isSkipRelations();
+            if (existing != null)
+                pbfReader.setBlobIndex(existing);
+            else if (!skipping) {
+                // there is no index or it is outdated, so we create a new one that replaces the old one
+                blobIndex = PbfBlobIndex.create(file);
+                pbfReader.setBlobIndex(blobIndex);
+            }
+        }
         pbfReaderThread = new Thread(pbfReader, "PBF Reader");
         pbfReaderThread.start();
     }
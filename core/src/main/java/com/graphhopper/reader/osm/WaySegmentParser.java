@@ -74,6 +74,7 @@ public class WaySegmentParser {
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
     private int workerThreads = 2;
+    private boolean pbfBlobIndex = false;
 
     private final OSMNodeData nodeData;
     private Date timestamp;
@@ -405,7 +406,15 @@ public class WaySegmentParser {
     }
 
     protected OSMInput openOsmInputFile(File osmFile, SkipOptions skipOptions) throws XMLStreamException, IOException {
-        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions).open();
+        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions)
+                .setBlobIndexFile(pbfBlobIndex ? getBlobIndexFile(osmFile) : null).open();
+    }
+
+    /**
+     * @return the file next to the given OSM file, where the index of its PBF blobs is stored
+     */
+    public static File getBlobIndexFile(File osmFile) {
+        return new File(osmFile.getPath() + ".blobs");
     }
 
     public static class Builder {
@@ -483,6 +492,16 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param pbfBlobIndex if true an index of the blobs of a PBF file is stored next to it. This way the blobs
+         *                     that only contain nodes do not need to be decoded in the first pass of the following
+         *                     imports of the same file.
+         */
+        public Builder setPbfBlobIndex(boolean pbfBlobIndex) {
+            waySegmentParser.pbfBlobIndex = pbfBlobIndex;
+            return this;
+        }
+
         public WaySegmentParser build() {
             return waySegmentParser;
         }
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import com.carrotsearch.hppc.ByteArrayList;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.SkipOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Stores which element types (nodes, ways, relations) are contained in each blob of a PBF file. With this index
+ * {@link PbfStreamSplitter} can skip the blobs that only contain skipped element types without decompressing them.
+ * When reading a PBF file for the first time the index is filled while the file is read without skipping anything,
+ * and it is stored next to the PBF file so it can be used for the following imports of the same file.
+ */
+public class PbfBlobIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PbfBlobIndex.class);
+    private static final int MAGIC = 0x50424649;
+    private static final int VERSION = 1;
+    static final byte NODES = 1;
+    static final byte WAYS = 2;
+    static final byte RELATIONS = 4;
+    // anything else, e.g. the file header, which is never skipped
+    static final byte OTHER = 8;
+
+    private final long fileLength;
+    private final long lastModified;
+    private final ByteArrayList types;
+    private volatile boolean complete;
+
+    private PbfBlobIndex(long fileLength, long lastModified, ByteArrayList types, boolean complete) {
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.types = types;
+        this.complete = complete;
+    }
+
+    /**
+     * Creates an empty index for the given PBF file, that needs to be filled while reading it.
+     */
+    public static PbfBlobIndex create(File pbfFile) {
+        return new PbfBlobIndex(pbfFile.length(), pbfFile.lastModified(), new ByteArrayList(), false);
+    }
+
+    /**
+     * @return the index stored in the given file or null if there is no such file or if it was created for a different
+     * version of the PBF file
+     */
+    public static PbfBlobIndex load(File indexFile, File pbfFile) {
+        if (!indexFile.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return null;
+            long fileLength = in.readLong();
+            long lastModified = in.readLong();
+            if (fileLength != pbfFile.length() || lastModified != pbfFile.lastModified()) {
+                LOGGER.info("Ignoring PBF blob index " + indexFile + ", because it was created for a different version of " + pbfFile);
+                return null;
+            }
+            int blobs = in.readInt();
+            ByteArrayList types = new ByteArrayList(blobs);
+            types.resize(blobs);
+            in.readFully(types.buffer, 0, blobs);
+            return new PbfBlobIndex(fileLength, lastModified, types, true);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read PBF blob index " + indexFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes this index to the given file. Failing to do so is not an error, because the index is only used to speed
+     * up reading the PBF file.
+     */
+    public void store(File indexFile) {
+        if (!complete)
+            throw new IllegalStateException("Cannot store incomplete PBF blob index");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            out.writeInt(types.size());
+            out.write(types.buffer, 0, types.size());
+        } catch (IOException e) {
+            LOGGER.warn("Could not write PBF blob index " + indexFile, e);
+        }
+    }
+
+    static byte getTypes(List<ReaderElement> elements) {
+        byte result = 0;
+        for (ReaderElement element : elements) {
+            switch (element.getType()) {
+                case NODE:
+                    result |= NODES;
+                    break;
+                case WAY:
+                    result |= WAYS;
+                    break;
+                case RELATION:
+                    result |= RELATIONS;
+                    break;
+                default:
+                    result |= OTHER;
+            }
+        }
+        return result;
+    }
+
+    synchronized void setTypes(int blob, byte blobTypes) {
+        if (blob >= types.size())
+            types.resize(blob + 1);
+        types.set(blob, blobTypes);
+    }
+
+    /**
+     * @return true if the given blob only contains elements that shall be skipped. Blobs that are not contained in
+     * this index are never skipped.
+     */
+    boolean canSkip(int blob, SkipOptions skipOptions) {
+        if (!complete || blob >= types.size())
+            return false;
+        int skipped = (skipOptions.isSkipNodes() ? NODES : 0)
+                | (skipOptions.isSkipWays() ? WAYS : 0)
+                | (skipOptions.isSkipRelations() ? RELATIONS : 0);
+        return (types.get(blob) & ~skipped) == 0;
+    }
+
+    void setComplete() {
+        complete = true;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getBlobs() {
+        return types.size();
+    }
+}
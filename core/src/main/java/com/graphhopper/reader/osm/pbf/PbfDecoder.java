@@ -28,6 +28,7 @@ public class PbfDecoder {
     private final Condition dataWaitCondition;
     private final Queue<PbfBlobResult> blobResults;
     private final SkipOptions skipOptions;
+    private final PbfBlobIndex blobIndex;
 
     /**
      * Creates a new instance.
@@ -40,6 +41,18 @@ public class PbfDecoder {
      */
     public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
                       Sink sink, SkipOptions skipOptions) {
+        this(streamSplitter, executorService, maxPendingBlobs, sink, skipOptions, null);
+    }
+
+    /**
+     * @param blobIndex If not null the element types of every decoded blob are recorded in this index. This requires
+     *                  that no elements are skipped.
+     */
+    public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+                      Sink sink, SkipOptions skipOptions, PbfBlobIndex blobIndex) {
+        if (blobIndex != null && (skipOptions.isSkipNodes() || skipOptions.isSkipWays() || skipOptions.isSkipRelations()))
+            throw new IllegalArgumentException("Cannot fill the blob index while skipping elements");
+        this.blobIndex = blobIndex;
         this.streamSplitter = streamSplitter;
         this.executorService = executorService;
         this.maxPendingBlobs = maxPendingBlobs;
@@ -131,6 +144,8 @@ public class PbfDecoder {
 
                 @Override
                 public void complete(List<ReaderElement> decodedEntities) {
+                    if (blobIndex != null)
+                        blobIndex.setTypes(rawBlob.getNumber(), PbfBlobIndex.getTypes(decodedEntities));
                     lock.lock();
                     try {
                         blobResult.storeSuccessResult(decodedEntities);
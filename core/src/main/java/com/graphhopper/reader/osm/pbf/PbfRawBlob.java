@@ -11,6 +11,7 @@ package com.graphhopper.reader.osm.pbf;
 public class PbfRawBlob {
     private String type;
     private byte[] data;
+    private int number;
 
     /**
      * Creates a new instance.
@@ -21,8 +22,16 @@ public class PbfRawBlob {
      * @param data The raw contents of the blob in binary undecoded form.
      */
     public PbfRawBlob(String type, byte[] data) {
+        this(type, data, -1);
+    }
+
+    /**
+     * @param number The position of this blob within the PBF stream, starting with 0.
+     */
+    public PbfRawBlob(String type, byte[] data, int number) {
         this.type = type;
         this.data = data;
+        this.number = number;
     }
 
     /**
@@ -45,4 +54,14 @@ public class PbfRawBlob {
     public byte[] getData() {
         return data;
     }
+
+    /**
+     * Gets the position of this blob within the PBF stream or -1 if it is unknown.
+     * <p>
+     *
+     * @return The blob number.
+     */
+    public int getNumber() {
+        return number;
+    }
 }
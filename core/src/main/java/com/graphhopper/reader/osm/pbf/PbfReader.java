@@ -20,6 +20,7 @@ public class PbfReader implements Runnable {
     private final Sink sink;
     private final int workers;
     private final SkipOptions skipOptions;
+    private PbfBlobIndex blobIndex;
 
     /**
      * Creates a new instance.
@@ -35,11 +36,21 @@ public class PbfReader implements Runnable {
         this.skipOptions = skipOptions;
     }
 
+    /**
+     * Sets the index of the blobs of the PBF file. If elements are skipped the blobs that only contain skipped elements
+     * are not decoded at all. If no elements are skipped the index is filled while reading the file instead.
+     */
+    public PbfReader setBlobIndex(PbfBlobIndex blobIndex) {
+        this.blobIndex = blobIndex;
+        return this;
+    }
+
     @Override
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
         // Create a stream splitter to break the PBF stream into blobs.
-        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+        boolean fillBlobIndex = blobIndex != null && !blobIndex.isComplete();
+        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream), fillBlobIndex ? null : blobIndex, skipOptions);
 
         try {
             // Process all blobs of data in the stream using threads from the
@@ -48,8 +59,10 @@ public class PbfReader implements Runnable {
             // immediately ready for processing when a worker thread completes.
             // The main thread is responsible for splitting blobs from the
             // request stream, and sending decoded entities to the sink.
-            PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink, skipOptions);
+            PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink, skipOptions, fillBlobIndex ? blobIndex : null);
             pbfDecoder.run();
+            if (fillBlobIndex)
+                blobIndex.setComplete();
 
         } catch (Throwable t) {
             // properly propagate exception inside Thread, #2269
@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
+import com.graphhopper.reader.osm.SkipOptions;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
 
 import java.io.DataInputStream;
@@ -23,6 +24,9 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     private int dataBlockCount;
     private boolean eof;
     private PbfRawBlob nextBlob;
+    private final PbfBlobIndex blobIndex;
+    private final SkipOptions skipOptions;
+    private int skippedBlobs;
 
     /**
      * Creates a new instance.
@@ -31,9 +35,20 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
      * @param pbfStream The PBF data stream to be parsed.
      */
     public PbfStreamSplitter(DataInputStream pbfStream) {
+        this(pbfStream, null, SkipOptions.none());
+    }
+
+    /**
+     * @param blobIndex   if not null the blobs that only contain elements skipped by the given skip options are
+     *                    skipped without even reading their data
+     * @param skipOptions the skip options used together with the blobIndex
+     */
+    public PbfStreamSplitter(DataInputStream pbfStream, PbfBlobIndex blobIndex, SkipOptions skipOptions) {
         dis = pbfStream;
         dataBlockCount = 0;
         eof = false;
+        this.blobIndex = blobIndex;
+        this.skipOptions = skipOptions;
     }
 
     private Fileformat.BlobHeader readHeader(int headerLength) throws IOException {
@@ -53,31 +68,55 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
         return rawBlob;
     }
 
+    private void skipRawBlob(Fileformat.BlobHeader blobHeader) throws IOException {
+        int remaining = blobHeader.getDatasize();
+        while (remaining > 0) {
+            int skipped = dis.skipBytes(remaining);
+            if (skipped <= 0) {
+                // skipBytes does not tell us if we reached the end of the stream, so we need to read
+                dis.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
     private void getNextBlob() {
         try {
-            // Read the length of the next header block. This is the only time
-            // we should expect to encounter an EOF exception. In all other
-            // cases it indicates a corrupt or truncated file.
-            int headerLength;
-            try {
-                headerLength = dis.readInt();
-            } catch (EOFException e) {
-                eof = true;
+            while (true) {
+                // Read the length of the next header block. This is the only time
+                // we should expect to encounter an EOF exception. In all other
+                // cases it indicates a corrupt or truncated file.
+                int headerLength;
+                try {
+                    headerLength = dis.readInt();
+                } catch (EOFException e) {
+                    eof = true;
+                    if (skippedBlobs > 0)
+                        log.fine("Skipped " + skippedBlobs + " of " + dataBlockCount + " blobs using the blob index");
+                    return;
+                }
+
+                int blobNumber = dataBlockCount++;
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("Reading header for blob " + blobNumber);
+                }
+                Fileformat.BlobHeader blobHeader = readHeader(headerLength);
+
+                if (blobIndex != null && blobIndex.canSkip(blobNumber, skipOptions)) {
+                    skipRawBlob(blobHeader);
+                    skippedBlobs++;
+                    continue;
+                }
+
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("Processing blob of type " + blobHeader.getType() + ".");
+                }
+                byte[] blobData = readRawBlob(blobHeader);
+
+                nextBlob = new PbfRawBlob(blobHeader.getType(), blobData, blobNumber);
                 return;
             }
-
-            if (log.isLoggable(Level.FINER)) {
-                log.finer("Reading header for blob " + dataBlockCount++);
-            }
-            Fileformat.BlobHeader blobHeader = readHeader(headerLength);
-
-            if (log.isLoggable(Level.FINER)) {
-                log.finer("Processing blob of type " + blobHeader.getType() + ".");
-            }
-            byte[] blobData = readRawBlob(blobHeader);
-
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
-
         } catch (IOException e) {
             throw new RuntimeException("Unable to get next blob from PBF stream.", e);
         }
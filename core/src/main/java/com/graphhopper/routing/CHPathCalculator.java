@@ -25,17 +25,26 @@ import com.graphhopper.util.exceptions.MaximumNodesExceededException;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
 
 public class CHPathCalculator implements PathCalculator {
-    private final CHRoutingAlgorithmFactory algoFactory;
+    private final Function<PMap, EdgeToEdgeRoutingAlgorithm> algoFactory;
     private final PMap algoOpts;
     private String debug;
     private int visitedNodes;
 
     public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts) {
+        this(algoFactory::createAlgo, algoOpts);
+    }
+
+    /**
+     * @param algoFactory creates the algorithm for the given options, e.g. for a preparation that is not a
+     *                    {@link CHRoutingAlgorithmFactory} like {@link com.graphhopper.routing.lm.CoreALT}
+     */
+    public CHPathCalculator(Function<PMap, EdgeToEdgeRoutingAlgorithm> algoFactory, PMap algoOpts) {
         this.algoFactory = algoFactory;
         this.algoOpts = algoOpts;
     }
@@ -50,7 +59,7 @@ public class CHPathCalculator implements PathCalculator {
 
     private EdgeToEdgeRoutingAlgorithm createAlgo() {
         StopWatch sw = new StopWatch().start();
-        EdgeToEdgeRoutingAlgorithm algo = algoFactory.createAlgo(algoOpts);
+        EdgeToEdgeRoutingAlgorithm algo = algoFactory.apply(algoOpts);
         debug = ", algoInit:" + (sw.stop().getNanos() / 1000) + " μs";
         return algo;
     }
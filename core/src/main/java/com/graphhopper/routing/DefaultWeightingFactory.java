@@ -20,9 +20,12 @@ package com.graphhopper.routing;
 
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.TurnAngle;
 import com.graphhopper.routing.ev.TurnRestriction;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.TurnAngleCostProvider;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
@@ -60,7 +63,15 @@ public class DefaultWeightingFactory implements WeightingFactory {
             if (turnRestrictionEnc == null)
                 throw new IllegalArgumentException("Cannot find turn restriction encoded value for " + profile.getName());
             int uTurnCosts = hints.getInt(Parameters.Routing.U_TURN_COSTS, profile.getTurnCostsConfig().getUTurnCosts());
-            turnCostProvider = new DefaultTurnCostProvider(turnRestrictionEnc, graph.getTurnCostStorage(), uTurnCosts);
+            DefaultTurnCostProvider defaultTurnCostProvider = new DefaultTurnCostProvider(turnRestrictionEnc, graph.getTurnCostStorage(), uTurnCosts);
+            if (profile.getTurnCostsConfig().hasTurnAngleCosts()) {
+                if (!encodingManager.hasTurnEncodedValue(TurnAngle.KEY))
+                    throw new IllegalArgumentException("Cannot find turn angle encoded value for " + profile.getName());
+                EnumEncodedValue<TurnAngle> turnAngleEnc = encodingManager.getTurnEncodedValue(TurnAngle.KEY, EnumEncodedValue.class);
+                turnCostProvider = new TurnAngleCostProvider(defaultTurnCostProvider, turnAngleEnc, graph.getTurnCostStorage(), profile.getTurnCostsConfig());
+            } else {
+                turnCostProvider = defaultTurnCostProvider;
+            }
         } else {
             turnCostProvider = NO_TURN_COST_PROVIDER;
         }
@@ -33,6 +33,7 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private boolean pbfBlobIndex = false;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +158,20 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public boolean isPbfBlobIndex() {
+        return pbfBlobIndex;
+    }
+
+    /**
+     * Enables an index of the blobs of the PBF file that is stored next to it (as &lt;file&gt;.blobs). With this index
+     * the blobs that only contain nodes are skipped without decoding them when the file is read the first time, which
+     * speeds up importing the same file again.
+     */
+    public OSMReaderConfig setPbfBlobIndex(boolean pbfBlobIndex) {
+        this.pbfBlobIndex = pbfBlobIndex;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
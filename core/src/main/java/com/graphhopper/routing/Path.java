@@ -51,6 +51,7 @@ public class Path {
     private List<String> description;
     private boolean found;
     private String debugInfo = "";
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.graph = graph;
@@ -104,7 +105,7 @@ public class Path {
     /**
      * @return the first node of this Path.
      */
-    private int getFromNode() {
+    public int getFromNode() {
         if (fromNode < 0)
             throw new IllegalStateException("fromNode < 0 should not happen");
 
@@ -189,6 +190,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree(s) of the algorithm
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.details.PathDetailsBuilder;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.details.PathDetailsFromEdges;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the points, the instructions and the path details of a found {@link Path} in a single iteration over
+ * its edges. The geometry of every edge is fetched only once and then fed to {@link InstructionsFromEdges} and
+ * {@link PathDetailsFromEdges}, which is the same as calling {@link Path#calcPoints()},
+ * {@link InstructionsFromEdges#calcInstructions} and {@link PathDetailsFromEdges#calcDetails} one after another.
+ */
+public class PathPostProcessor implements Path.EdgeVisitor {
+    private final Path path;
+    private final NodeAccess nodeAccess;
+    private final PointList points;
+    private final InstructionList instructions;
+    private final InstructionsFromEdges instructionsFromEdges;
+    private final List<PathDetailsBuilder> pathDetailsBuilders;
+    private final PathDetailsFromEdges pathDetailsFromEdges;
+    private boolean measureTimings;
+    private long instructionsNanos;
+    private long detailsNanos;
+
+    /**
+     * @param tr                   the translation used for the instructions or null if no instructions shall be
+     *                             calculated
+     * @param requestedPathDetails the path details to calculate, can be empty
+     * @param previousIndex        the index of the first point of this path within the points of the full response,
+     *                             which is used for the intervals of the path details
+     */
+    public PathPostProcessor(Path path, Graph graph, Weighting weighting, EncodedValueLookup evLookup, Translation tr,
+                             List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory, int previousIndex) {
+        if (!path.isFound())
+            throw new IllegalArgumentException("Cannot process a path that was not found");
+        this.path = path;
+        this.nodeAccess = graph.getNodeAccess();
+        this.points = new PointList(path.getEdgeCount() + 1, nodeAccess.is3D());
+        if (tr != null) {
+            instructions = new InstructionList(tr);
+            instructionsFromEdges = path.getEdgeCount() == 0 ? null : new InstructionsFromEdges(graph, weighting, evLookup, instructions);
+        } else {
+            instructions = null;
+            instructionsFromEdges = null;
+        }
+        pathDetailsBuilders = requestedPathDetails.isEmpty()
+                ? Collections.emptyList()
+                : PathDetailsFromEdges.createPathDetailsBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+        pathDetailsFromEdges = pathDetailsBuilders.isEmpty() ? null : new PathDetailsFromEdges(pathDetailsBuilders, previousIndex);
+    }
+
+    /**
+     * If true the time spent for the instructions and the path details is measured separately, see
+     * {@link #getInstructionsNanos()} and {@link #getDetailsNanos()}. This is disabled by default, because it requires
+     * reading the clock for every edge of the path.
+     */
+    public PathPostProcessor setMeasureTimings(boolean measureTimings) {
+        this.measureTimings = measureTimings;
+        return this;
+    }
+
+    /**
+     * Iterates over the edges of the path. Afterwards the results can be retrieved with {@link #getPoints()},
+     * {@link #getInstructions()} and {@link #getPathDetails()}.
+     */
+    public PathPostProcessor process() {
+        if (path.getEdgeCount() == 0) {
+            points.add(nodeAccess, path.getEndNode());
+            if (instructions != null)
+                instructions.add(new FinishInstruction(nodeAccess, path.getEndNode()));
+            if (pathDetailsFromEdges != null)
+                pathDetailsFromEdges.finish();
+            return this;
+        }
+        path.forEveryEdge(this);
+        return this;
+    }
+
+    @Override
+    public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        PointList wayGeo = edge.fetchWayGeometry(FetchMode.ALL);
+        // the base node was already added for the previous edge, unless this is the first edge
+        for (int i = index == 0 ? 0 : 1; i < wayGeo.size(); i++) {
+            points.add(wayGeo, i);
+        }
+        if (measureTimings) {
+            long start = System.nanoTime();
+            if (instructionsFromEdges != null)
+                instructionsFromEdges.next(edge, wayGeo);
+            long instructionsEnd = System.nanoTime();
+            if (pathDetailsFromEdges != null)
+                pathDetailsFromEdges.next(edge, wayGeo.size() - 1);
+            instructionsNanos += instructionsEnd - start;
+            detailsNanos += System.nanoTime() - instructionsEnd;
+            return;
+        }
+        if (instructionsFromEdges != null)
+            instructionsFromEdges.next(edge, wayGeo);
+        if (pathDetailsFromEdges != null)
+            pathDetailsFromEdges.next(edge, wayGeo.size() - 1);
+    }
+
+    @Override
+    public void finish() {
+        long start = System.nanoTime();
+        if (instructionsFromEdges != null)
+            instructionsFromEdges.finish();
+        long instructionsEnd = System.nanoTime();
+        if (pathDetailsFromEdges != null)
+            pathDetailsFromEdges.finish();
+        instructionsNanos += instructionsEnd - start;
+        detailsNanos += System.nanoTime() - instructionsEnd;
+    }
+
+    public PointList getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the instructions or null if they were not requested
+     */
+    public InstructionList getInstructions() {
+        return instructions;
+    }
+
+    public Map<String, List<PathDetail>> getPathDetails() {
+        return pathDetailsBuilders.isEmpty() ? Collections.emptyMap() : PathDetailsFromEdges.buildPathDetails(pathDetailsBuilders);
+    }
+
+    /**
+     * @return the time spent for the instructions, which is only measured for every edge if
+     * {@link #setMeasureTimings(boolean)} was enabled
+     */
+    public long getInstructionsNanos() {
+        return instructionsNanos;
+    }
+
+    /**
+     * @return the time spent for the path details, which is only measured for every edge if
+     * {@link #setMeasureTimings(boolean)} was enabled
+     */
+    public long getDetailsNanos() {
+        return detailsNanos;
+    }
+}
@@ -17,16 +17,22 @@
  */
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntDoubleHashMap;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.tour.MultiPointTour;
 import com.graphhopper.routing.util.tour.TourStrategy;
 import com.graphhopper.routing.weighting.AvoidEdgesWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters.Algorithms.RoundTrip;
 import com.graphhopper.util.PointList;
@@ -34,8 +40,10 @@ import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 
 /**
@@ -52,6 +60,7 @@ public class RoundTripRouting {
         final double initialHeading;
         final int roundTripPointCount;
         final int maxRetries;
+        final int candidates;
 
         public Params() {
             this(new PMap(), 0, 3);
@@ -61,27 +70,96 @@ public class RoundTripRouting {
             distanceInMeter = hints.getDouble(RoundTrip.DISTANCE, 10_000);
             seed = hints.getLong(RoundTrip.SEED, 0L);
             roundTripPointCount = Math.min(20, hints.getInt(RoundTrip.POINTS, 2 + (int) (distanceInMeter / 50000)));
+            candidates = Math.max(1, Math.min(20, hints.getInt(RoundTrip.CANDIDATES, 1)));
             this.initialHeading = initialHeading;
             this.maxRetries = maxRetries;
         }
     }
 
     public static List<Snap> lookup(List<GHPoint> points, EdgeFilter edgeFilter, LocationIndex locationIndex, Params params) {
+        Snap startSnap = lookupStart(points, edgeFilter, locationIndex);
+        return lookup(startSnap, params.seed, edgeFilter, locationIndex, params);
+    }
+
+    /**
+     * Same as {@link #lookup(List, EdgeFilter, LocationIndex, Params)}, but generates {@link Params#candidates} sets
+     * of waypoints (using consecutive seeds) concurrently and picks the one that fits the road network best. To score
+     * the candidates we run a single shortest path tree search from the start that is bounded by the round trip
+     * distance. A candidate is rejected if one of its waypoints cannot be reached within this bound, and otherwise
+     * the candidate with the smallest average detour factor (road distance from the start divided by the beeline
+     * distance) wins. This avoids waypoints that are e.g. on the other side of a river, which lead to long and
+     * repetitive round trips. The full paths are only calculated for the best candidate.
+     */
+    public static List<Snap> lookup(List<GHPoint> points, EdgeFilter edgeFilter, LocationIndex locationIndex, Params params,
+                                    Graph graph, Weighting weighting, ExecutorService executor, int parallelism) {
+        Snap startSnap = lookupStart(points, edgeFilter, locationIndex);
+        if (params.candidates == 1)
+            return lookup(startSnap, params.seed, edgeFilter, locationIndex, params);
+
+        List<List<Snap>> candidates = new ArrayList<>(Collections.nCopies(params.candidates, null));
+        IllegalArgumentException[] errors = new IllegalArgumentException[params.candidates];
+        GHUtility.runStriped(executor, params.candidates, parallelism, task -> c -> {
+            try {
+                candidates.set(c, lookup(startSnap, params.seed + c, edgeFilter, locationIndex, params));
+            } catch (IllegalArgumentException ex) {
+                errors[c] = ex;
+            }
+        });
+
+        // the waypoints are routed from and to their base nodes, see calcPaths
+        IntDoubleHashMap roadDistances = new IntDoubleHashMap();
+        for (List<Snap> candidate : candidates)
+            if (candidate != null)
+                for (int i = 1; i < candidate.size() - 1; i++)
+                    roadDistances.put(candidate.get(i).getClosestEdge().getBaseNode(), Double.POSITIVE_INFINITY);
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, TraversalMode.NODE_BASED);
+        tree.setDistanceLimit(params.distanceInMeter);
+        tree.search(startSnap.getClosestEdge().getBaseNode(), label -> {
+            if (roadDistances.containsKey(label.node))
+                roadDistances.put(label.node, Math.min(label.distance, roadDistances.get(label.node)));
+        });
+
+        List<Snap> best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (List<Snap> candidate : candidates) {
+            if (candidate == null)
+                continue;
+            double score = 0;
+            for (int i = 1; i < candidate.size() - 1; i++) {
+                Snap snap = candidate.get(i);
+                double beeline = DistanceCalcEarth.DIST_EARTH.calcDist(startSnap.getSnappedPoint().lat, startSnap.getSnappedPoint().lon,
+                        snap.getSnappedPoint().lat, snap.getSnappedPoint().lon);
+                score += roadDistances.get(snap.getClosestEdge().getBaseNode()) / Math.max(1, beeline);
+            }
+            score /= candidate.size() - 2;
+            if (best == null || score < bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        if (best == null)
+            throw errors[0];
+        return best;
+    }
+
+    private static Snap lookupStart(List<GHPoint> points, EdgeFilter edgeFilter, LocationIndex locationIndex) {
         // todo: no snap preventions for round trip so far
         if (points.size() != 1)
             throw new IllegalArgumentException("For round trip calculation exactly one point is required");
 
         final GHPoint start = points.get(0);
-
-        TourStrategy strategy = new MultiPointTour(new Random(params.seed), params.distanceInMeter, params.roundTripPointCount, params.initialHeading);
-        List<Snap> snaps = new ArrayList<>(2 + strategy.getNumberOfGeneratedPoints());
         Snap startSnap = locationIndex.findClosest(start.lat, start.lon, edgeFilter);
         if (!startSnap.isValid())
             throw new PointNotFoundException("Cannot find point 0: " + start, 0);
+        return startSnap;
+    }
 
+    private static List<Snap> lookup(Snap startSnap, long seed, EdgeFilter edgeFilter, LocationIndex locationIndex, Params params) {
+        TourStrategy strategy = new MultiPointTour(new Random(seed), params.distanceInMeter, params.roundTripPointCount, params.initialHeading);
+        List<Snap> snaps = new ArrayList<>(2 + strategy.getNumberOfGeneratedPoints());
         snaps.add(startSnap);
 
-        GHPoint last = start;
+        GHPoint last = startSnap.getQueryPoint();
         for (int i = 0; i < strategy.getNumberOfGeneratedPoints(); i++) {
             double heading = strategy.getHeadingForIteration(i);
             Snap result = generateValidPoint(last, strategy.getDistanceForIteration(i), heading, edgeFilter, locationIndex, params.maxRetries);
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.Graph;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the paths of via-routes so that repeated requests do not need to run the routing algorithm again. A route
+ * is identified by the snapped points and the parameters that influence the search, see {@link Router}. Only the
+ * edges of the paths (and their weight, distance and time) are stored: the geometry, the instructions and the path
+ * details are calculated from these edges for every request, because they depend on other request parameters.
+ * <p>
+ * The paths are only valid as long as the graph and the weightings do not change. Therefore, all entries are removed
+ * when a different graph version is set, see {@link #setGraphVersion(String)}. The cache is thread-safe and the least
+ * recently used entries are evicted once the maximum size is reached.
+ */
+public class RouteCache {
+    private final Map<List<Object>, CachedPath[]> cache;
+    private final int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private String graphVersion = "";
+
+    public RouteCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The maximum size of the route cache must be positive, but was: " + maxSize);
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedPath[]> eldest) {
+                return size() > RouteCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Removes all entries if the given version differs from the current one. The version should change whenever the
+     * routes could change, e.g. it can be built from the checksums of the weightings.
+     */
+    public void setGraphVersion(String graphVersion) {
+        synchronized (cache) {
+            if (!this.graphVersion.equals(graphVersion))
+                cache.clear();
+            this.graphVersion = graphVersion;
+        }
+    }
+
+    public String getGraphVersion() {
+        synchronized (cache) {
+            return graphVersion;
+        }
+    }
+
+    /**
+     * @param graph the query graph that was created from the same snaps as the graph the paths were calculated for,
+     *              so the ids of the virtual nodes and edges are the same
+     * @return the cached paths for the given key or null if there are none
+     */
+    public List<Path> get(List<Object> key, Graph graph) {
+        CachedPath[] cachedPaths;
+        synchronized (cache) {
+            cachedPaths = cache.get(key);
+        }
+        if (cachedPaths == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        List<Path> paths = new ArrayList<>(cachedPaths.length);
+        for (CachedPath cachedPath : cachedPaths) {
+            Path path = new Path(graph);
+            path.setEdges(IntArrayList.from(cachedPath.edges));
+            path.setFromNode(cachedPath.fromNode);
+            path.setEndNode(cachedPath.endNode);
+            path.setWeight(cachedPath.weight);
+            path.setDistance(cachedPath.distance);
+            path.setTime(cachedPath.time);
+            path.setFound(true);
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * Stores the given paths unless one of them was not found.
+     */
+    public void put(List<Object> key, List<Path> paths) {
+        CachedPath[] cachedPaths = new CachedPath[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            if (!path.isFound())
+                return;
+            cachedPaths[i] = new CachedPath(path.getEdges().toArray(), path.getFromNode(), path.getEndNode(),
+                    path.getWeight(), path.getDistance(), path.getTime());
+        }
+        synchronized (cache) {
+            cache.put(key, cachedPaths);
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private record CachedPath(int[] edges, int fromNode, int endNode, double weight, double distance, long time) {
+    }
+}
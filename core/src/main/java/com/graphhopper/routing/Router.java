@@ -18,15 +18,18 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.CustomizableCH;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.lm.CoreALT;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -48,6 +51,8 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ObjIntConsumer;
 
 import static com.graphhopper.config.TurnCostsConfig.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -56,6 +61,11 @@ import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
 import static com.graphhopper.util.Parameters.Routing.*;
 
 public class Router {
+    // the parameters that do not change the paths of a route, see createRouteCacheKey
+    private static final Set<String> ROUTE_CACHE_IGNORED_HINTS = Set.of(INSTRUCTIONS, CALC_POINTS, WAY_POINT_MAX_DISTANCE,
+            ELEVATION_WAY_POINT_MAX_DISTANCE, TIMINGS, MAX_VISITED_NODES, TIMEOUT_MS, "elevation", "locale",
+            "points_encoded", "points_encoded_multiplier", "type");
+
     protected final BaseGraph graph;
     protected final EncodingManager encodingManager;
     protected final LocationIndex locationIndex;
@@ -68,6 +78,10 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    protected ExecutorService viaExecutor;
+    protected CustomizableCH customizableCH;
+    protected Map<String, CoreALT> coreALTs = Collections.emptyMap();
+    protected RouteCache routeCache;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -94,15 +108,44 @@ public class Router {
         }
     }
 
+    /**
+     * Sets the executor used to snap the points and calculate the legs of via-routes concurrently, see
+     * {@link RouterConfig#setViaThreads(int)}. Use null to do everything in the calling thread.
+     */
+    public Router setViaExecutor(ExecutorService viaExecutor) {
+        this.viaExecutor = viaExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the customizable CH used for requests with a custom model (or for profiles without a CH preparation),
+     * which would otherwise need to disable CH. Use null to disable this.
+     */
+    public Router setCustomizableCH(CustomizableCH customizableCH) {
+        this.customizableCH = customizableCH;
+        return this;
+    }
+
+    /**
+     * Sets the Core-ALT preparations by profile name. They are used for the profiles without a CH preparation as
+     * long as the request does not require a flexible algorithm.
+     */
+    public Router setCoreALT(Map<String, CoreALT> coreALTs) {
+        this.coreALTs = coreALTs;
+        return this;
+    }
+
+    /**
+     * Sets the cache used for the paths of CH requests, see {@link RouteCache}. Use null to disable it.
+     */
+    public Router setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
-            checkNoLegacyParameters(request);
-            checkAtLeastOnePoint(request);
-            checkIfPointsAreInBounds(request.getPoints());
-            checkHeadings(request);
-            checkPointHints(request);
-            checkCurbsides(request);
-            checkNoBlockArea(request);
+            checkRequest(request);
 
             Solver solver = createSolver(request);
             solver.checkRequest();
@@ -118,11 +161,7 @@ public class Router {
                 return routeVia(request, solver);
             }
         } catch (MultiplePointsNotFoundException ex) {
-            GHResponse ghRsp = new GHResponse();
-            for (IntCursor p : ex.getPointsNotFound()) {
-                ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
-            }
-            return ghRsp;
+            return createPointsNotFoundResponse(request, ex);
         } catch (IllegalArgumentException ex) {
             GHResponse ghRsp = new GHResponse();
             ghRsp.addError(ex);
@@ -130,6 +169,130 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the routes for all the given requests and passes each response together with the index of its
+     * request to the given consumer as soon as it is ready. Requests with the same profile, algorithm and hints are
+     * snapped together into a single query graph and share the setup of their solver, which makes a batch much
+     * cheaper than routing the same requests one by one. Since the query graph contains the snapped points of all
+     * requests of a group the distances and times of these routes can differ slightly (rounding) from the ones
+     * {@link #route(GHRequest)} returns. Requests that cannot share a query graph (round trips, alternative routes,
+     * headings, pass_through or a custom model) are routed separately.
+     * <p>
+     * The routes are calculated by at most parallelism tasks of the given executor, so the consumer must be
+     * thread-safe. Use null as executor to calculate everything in the calling thread.
+     */
+    public void routeBatch(List<GHRequest> requests, ExecutorService executor, int parallelism, ObjIntConsumer<GHResponse> consumer) {
+        if (requests.size() > routerConfig.getMaxBatchRequests())
+            throw new IllegalArgumentException("Too many requests in batch: " + requests.size() + ", the maximum is: " + routerConfig.getMaxBatchRequests());
+        Map<List<Object>, IntArrayList> groups = new LinkedHashMap<>();
+        IntArrayList separate = new IntArrayList();
+        for (int i = 0; i < requests.size(); i++) {
+            GHRequest request = requests.get(i);
+            if (canShareQueryGraph(request))
+                groups.computeIfAbsent(Arrays.asList(request.getProfile(), request.getAlgorithm(),
+                        request.getHints().toMap(), request.getCurbsides().isEmpty()), k -> new IntArrayList()).add(i);
+            else
+                separate.add(i);
+        }
+        GHUtility.runStriped(executor, separate.size(), parallelism, task -> i ->
+                consumer.accept(route(requests.get(separate.get(i))), separate.get(i)));
+        for (IntArrayList group : groups.values())
+            routeBatchGroup(requests, group, executor, parallelism, consumer);
+    }
+
+    private static boolean canShareQueryGraph(GHRequest request) {
+        // headings and pass_through are enforced by marking edges of the query graph, and custom models require
+        // their own weighting
+        return request.getPoints().size() >= 2
+                && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())
+                && !ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())
+                && request.getHeadings().isEmpty()
+                && !getPassThrough(request.getHints())
+                && request.getCustomModel() == null;
+    }
+
+    private void routeBatchGroup(List<GHRequest> requests, IntArrayList group, ExecutorService executor, int parallelism,
+                                 ObjIntConsumer<GHResponse> consumer) {
+        // all requests of the group only differ in their points and in parameters that do not affect the solver, so
+        // we can use a single solver for all of them
+        Solver solver = createSolver(requests.get(group.get(0)));
+        try {
+            solver.init();
+        } catch (IllegalArgumentException ex) {
+            for (IntCursor c : group) {
+                GHResponse ghRsp = new GHResponse();
+                ghRsp.addError(ex);
+                consumer.accept(ghRsp, c.value);
+            }
+            return;
+        }
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
+        List<List<Snap>> snaps = new ArrayList<>(Collections.nCopies(group.size(), null));
+        long[] snapNanos = new long[group.size()];
+        GHUtility.runStriped(executor, group.size(), parallelism, task -> k -> {
+            GHRequest request = requests.get(group.get(k));
+            try {
+                checkRequest(request);
+                createSolver(request).checkRequest();
+                long start = System.nanoTime();
+                snaps.set(k, ViaRouting.lookup(encodingManager, request.getPoints(), snapFilter, locationIndex,
+                        request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings()));
+                snapNanos[k] = System.nanoTime() - start;
+            } catch (MultiplePointsNotFoundException ex) {
+                consumer.accept(createPointsNotFoundResponse(request, ex), group.get(k));
+            } catch (IllegalArgumentException ex) {
+                GHResponse ghRsp = new GHResponse();
+                ghRsp.addError(ex);
+                consumer.accept(ghRsp, group.get(k));
+            }
+        });
+
+        List<Snap> allSnaps = new ArrayList<>();
+        for (List<Snap> requestSnaps : snaps)
+            if (requestSnaps != null)
+                allSnaps.addAll(requestSnaps);
+        QueryGraph queryGraph = QueryGraph.create(graph, allSnaps);
+        GHUtility.runStriped(executor, group.size(), parallelism, task -> {
+            PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+            return k -> {
+                if (snaps.get(k) == null)
+                    return;
+                GHRequest request = requests.get(group.get(k));
+                GHResponse ghRsp = new GHResponse();
+                PhaseTimings timings = initTimings(ghRsp, request, solver).add(PhaseTimings.SNAPPING, snapNanos[k]);
+                try {
+                    long start = System.nanoTime();
+                    ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps.get(k), directedEdgeFilter,
+                            pathCalculator, request.getCurbsides(), getCurbsideStrictness(request.getHints()), request.getHeadings(), false);
+                    addSearchTimings(timings, result.paths, System.nanoTime() - start, result.visitedNodes);
+                    addViaResult(ghRsp, request, solver.weighting, queryGraph, snaps.get(k), result);
+                } catch (IllegalArgumentException ex) {
+                    ghRsp.addError(ex);
+                }
+                consumer.accept(ghRsp, group.get(k));
+            };
+        });
+    }
+
+    private void checkRequest(GHRequest request) {
+        checkNoLegacyParameters(request);
+        checkAtLeastOnePoint(request);
+        checkIfPointsAreInBounds(request.getPoints());
+        checkHeadings(request);
+        checkPointHints(request);
+        checkCurbsides(request);
+        checkNoBlockArea(request);
+    }
+
+    private static GHResponse createPointsNotFoundResponse(GHRequest request, MultiplePointsNotFoundException ex) {
+        GHResponse ghRsp = new GHResponse();
+        for (IntCursor p : ex.getPointsNotFound()) {
+            ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
+        }
+        return ghRsp;
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -183,7 +346,11 @@ public class Router {
     protected Solver createSolver(GHRequest request) {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
-        if (chEnabled && !disableCH) {
+        if (customizableCH != null && !disableCH && isCustomizable(request)) {
+            return createCCHSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, customizableCH);
+        } else if (!disableCH && isCoreALT(request)) {
+            return new CoreALTSolver(request, profilesByName, routerConfig, encodingManager, coreALTs.get(request.getProfile()));
+        } else if (chEnabled && !disableCH) {
             return createCHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
         } else if (lmEnabled && !disableLM) {
             return createLMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
@@ -197,6 +364,37 @@ public class Router {
         return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
     }
 
+    protected Solver createCCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
+                                     EncodingManager encodingManager, WeightingFactory weightingFactory, CustomizableCH customizableCH) {
+        return new CCHSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, customizableCH);
+    }
+
+    /**
+     * The customizable CH is used for node-based custom profiles if the request cannot be served by the regular CH,
+     * i.e. if it specifies a custom model or if there is no CH preparation for its profile.
+     */
+    private boolean isCustomizable(GHRequest request) {
+        Profile profile = profilesByName.get(request.getProfile());
+        if (profile == null || profile.hasTurnCosts() || !CustomWeighting.NAME.equals(profile.getWeighting()))
+            return false;
+        if (request.getCustomModel() == null && chGraphs.containsKey(profile.getName()))
+            return false;
+        return request.getHeadings().isEmpty() && !getPassThrough(request.getHints())
+                && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm());
+    }
+
+    /**
+     * Core-ALT is used for the profiles without a CH preparation, but just like CH it does not support query-time
+     * changes of the weighting. The core is not re-weighted per request, so requests with a custom model are not
+     * routed via Core-ALT.
+     */
+    private boolean isCoreALT(GHRequest request) {
+        if (!coreALTs.containsKey(request.getProfile()) || chGraphs.containsKey(request.getProfile()))
+            return false;
+        return request.getCustomModel() == null && request.getHeadings().isEmpty() && !getPassThrough(request.getHints())
+                && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) && !ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm());
+    }
+
     protected Solver createLMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
                                     EncodingManager encodingManager, WeightingFactory weightingFactory, BaseGraph baseGraph,
                                     LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks) {
@@ -211,20 +409,27 @@ public class Router {
 
     protected GHResponse routeRoundTrip(GHRequest request, FlexSolver solver) {
         GHResponse ghRsp = new GHResponse();
+        PhaseTimings timings = initTimings(ghRsp, request, solver);
         StopWatch sw = new StopWatch().start();
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
-        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
+        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params,
+                graph, solver.weighting, viaExecutor, routerConfig.getViaThreads());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        timings.add(PhaseTimings.SNAPPING, sw.getNanos());
 
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        timings.add(PhaseTimings.QUERY_GRAPH, sw.stop().getNanos());
+        sw = new StopWatch().start();
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        addSearchTimings(timings, result.paths, sw.stop().getNanos(), result.visitedNodes);
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
-        ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, result.wayPoints);
+        ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, result.wayPoints, timings);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
@@ -235,12 +440,17 @@ public class Router {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
         GHResponse ghRsp = new GHResponse();
+        PhaseTimings timings = initTimings(ghRsp, request, solver);
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        timings.add(PhaseTimings.SNAPPING, sw.getNanos());
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        timings.add(PhaseTimings.QUERY_GRAPH, sw.stop().getNanos());
+        sw = new StopWatch().start();
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
@@ -251,11 +461,12 @@ public class Router {
 
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
                 pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+        addSearchTimings(timings, result.paths, sw.stop().getNanos(), result.visitedNodes);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
 
         // each path represents a different alternative and we do the path merging for each of them
-        PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
+        PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph, timings);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
@@ -268,33 +479,84 @@ public class Router {
 
     protected GHResponse routeVia(GHRequest request, Solver solver) {
         GHResponse ghRsp = new GHResponse();
+        PhaseTimings timings = initTimings(ghRsp, request, solver);
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+        final boolean parallel = viaExecutor != null && routerConfig.getViaThreads() > 1 && request.getPoints().size() > 2;
+        List<Snap> snaps = parallel
+                ? ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings(),
+                viaExecutor, routerConfig.getViaThreads())
+                : ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        timings.add(PhaseTimings.SNAPPING, sw.getNanos());
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        timings.add(PhaseTimings.QUERY_GRAPH, sw.stop().getNanos());
+        sw = new StopWatch().start();
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+        // the weighting of CH cannot change per request, so the paths only depend on the snaps and a few parameters
+        List<Object> cacheKey = routeCache != null && solver instanceof CHSolver ? createRouteCacheKey(request, solver, snaps) : null;
+        List<Path> cachedPaths = cacheKey == null ? null : routeCache.get(cacheKey, queryGraph);
+        ViaRouting.Result result;
+        if (cachedPaths != null) {
+            result = new ViaRouting.Result(cachedPaths.size());
+            result.paths.addAll(cachedPaths);
+            result.debug = "route cache hit";
+        } else {
+            result = parallel
+                    ? ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                    () -> solver.createPathCalculator(queryGraph), request.getCurbsides(), curbsideStrictness,
+                    request.getHeadings(), passThrough, viaExecutor, routerConfig.getViaThreads())
+                    : ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                    solver.createPathCalculator(queryGraph), request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+            if (cacheKey != null)
+                routeCache.put(cacheKey, result.paths);
+        }
+        // for parallel via-routes this is the wall clock time of all legs, but the extraction times are summed up
+        addSearchTimings(timings, result.paths, sw.stop().getNanos(), result.visitedNodes);
+
+        addViaResult(ghRsp, request, solver.weighting, queryGraph, snaps, result);
+        return ghRsp;
+    }
 
+    /**
+     * The key identifies the query graph (the virtual nodes and edges only depend on the snaps) and the parameters
+     * that influence the search, but not the parameters that only influence the output like instructions or details.
+     */
+    private static List<Object> createRouteCacheKey(GHRequest request, Solver solver, List<Snap> snaps) {
+        Map<String, Object> hints = new HashMap<>(request.getHints().toMap());
+        hints.keySet().removeAll(ROUTE_CACHE_IGNORED_HINTS);
+        List<Object> key = new ArrayList<>(snaps.size() + 4);
+        key.add(solver.profile.getName());
+        key.add(request.getAlgorithm());
+        key.add(request.getCurbsides());
+        key.add(hints);
+        for (Snap snap : snaps) {
+            EdgeIteratorState edge = snap.getClosestEdge();
+            key.add(Arrays.asList(edge.getEdge(), edge.getBaseNode(), snap.getClosestNode(), snap.getWayIndex(),
+                    snap.getSnappedPosition(), snap.getSnappedPoint().lat, snap.getSnappedPoint().lon));
+        }
+        return key;
+    }
+
+    private void addViaResult(GHResponse ghRsp, GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Snap> snaps, ViaRouting.Result result) {
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
-        ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
+        ResponsePath responsePath = concatenatePaths(request, weighting, queryGraph, result.paths, getWaypoints(snaps), ghRsp.getTimings());
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
-        return ghRsp;
     }
 
-    private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
+    private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph, PhaseTimings timings) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
         double wayPointMaxDistance = request.getHints().getDouble(Parameters.Routing.WAY_POINT_MAX_DISTANCE, 0.5);
@@ -308,18 +570,38 @@ public class Router {
                 setRamerDouglasPeucker(peucker).
                 setEnableInstructions(enableInstructions).
                 setPathDetailsBuilders(pathDetailsBuilderFactory, request.getPathDetails()).
-                setSimplifyResponse(routerConfig.isSimplifyResponse() && wayPointMaxDistance > 0);
+                setSimplifyResponse(routerConfig.isSimplifyResponse() && wayPointMaxDistance > 0).
+                setTimings(timings);
 
         if (!request.getHeadings().isEmpty())
             pathMerger.setFavoredHeading(request.getHeadings().get(0));
         return pathMerger;
     }
 
-    private ResponsePath concatenatePaths(GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Path> paths, PointList waypoints) {
-        PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
+    private ResponsePath concatenatePaths(GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Path> paths,
+                                          PointList waypoints, PhaseTimings timings) {
+        PathMerger pathMerger = createPathMerger(request, weighting, queryGraph, timings);
         return pathMerger.doWork(waypoints, paths, encodingManager, translationMap.getWithFallBack(request.getLocale()));
     }
 
+    private static PhaseTimings initTimings(GHResponse ghRsp, GHRequest request, Solver solver) {
+        return ghRsp.getTimings().
+                setMode(solver.getMode()).
+                setDetailed(request.getHints().getBool(Parameters.Routing.TIMINGS, false));
+    }
+
+    /**
+     * @param searchNanos the time it took to calculate the given paths, which includes their extraction
+     */
+    private static void addSearchTimings(PhaseTimings timings, List<Path> paths, long searchNanos, long visitedNodes) {
+        long extractionNanos = 0;
+        for (Path path : paths)
+            extractionNanos += path.getExtractionNanos();
+        timings.add(PhaseTimings.SEARCH, searchNanos - extractionNanos).
+                add(PhaseTimings.PATH_EXTRACTION, extractionNanos).
+                addVisitedNodes(visitedNodes);
+    }
+
     private PointList getWaypoints(List<Snap> snaps) {
         PointList pointList = new PointList(snaps.size(), graph.getNodeAccess().is3D());
         for (Snap snap : snaps) {
@@ -417,6 +699,12 @@ public class Router {
 
         protected abstract PathCalculator createPathCalculator(QueryGraph queryGraph);
 
+        /**
+         * @return a short name for the kind of routing this solver does, which is used to group the timings of
+         * requests
+         */
+        protected abstract String getMode();
+
         private List<String> getTurnCostProfiles() {
             List<String> turnCostProfiles = new ArrayList<>();
             for (Profile p : profilesByName.values()) {
@@ -473,6 +761,11 @@ public class Router {
             return getRoutingCHGraph(profile.getName()).getWeighting();
         }
 
+        @Override
+        protected String getMode() {
+            return "ch";
+        }
+
         @Override
         protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
             PMap opts = new PMap(request.getHints());
@@ -492,6 +785,71 @@ public class Router {
         }
     }
 
+    private static class CCHSolver extends Solver {
+        private final WeightingFactory weightingFactory;
+        private final CustomizableCH customizableCH;
+
+        CCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                  WeightingFactory weightingFactory, CustomizableCH customizableCH) {
+            super(request, profilesByName, routerConfig, lookup);
+            this.weightingFactory = weightingFactory;
+            this.customizableCH = customizableCH;
+        }
+
+        @Override
+        protected Weighting createWeighting() {
+            PMap requestHints = new PMap(request.getHints());
+            requestHints.putObject(CustomModel.KEY, request.getCustomModel());
+            return weightingFactory.createWeighting(profile, requestHints, false);
+        }
+
+        @Override
+        protected String getMode() {
+            return "cch";
+        }
+
+        @Override
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
+            PMap opts = new PMap(request.getHints());
+            opts.putObject(ALGORITHM, request.getAlgorithm());
+            opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
+            // the weighting only depends on the profile and the custom model of the request
+            String key = profile.getName() + "|" + request.getCustomModel();
+            RoutingCHGraph chGraph = customizableCH.getCustomizedGraph(key, weighting);
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(chGraph, queryGraph), opts);
+        }
+    }
+
+    private static class CoreALTSolver extends Solver {
+        private final CoreALT coreALT;
+
+        CoreALTSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                      CoreALT coreALT) {
+            super(request, profilesByName, routerConfig, lookup);
+            this.coreALT = coreALT;
+        }
+
+        @Override
+        protected Weighting createWeighting() {
+            // just like for CH the weighting must be the one used for the preparation
+            return coreALT.getWeighting();
+        }
+
+        @Override
+        protected String getMode() {
+            return "core_alt";
+        }
+
+        @Override
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
+            PMap opts = new PMap(request.getHints());
+            opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
+            return new CHPathCalculator(algoOpts -> coreALT.createAlgo(queryGraph, algoOpts), opts);
+        }
+    }
+
     public static class FlexSolver extends Solver {
         protected final RouterConfig routerConfig;
         private final WeightingFactory weightingFactory;
@@ -520,6 +878,11 @@ public class Router {
             return weightingFactory.createWeighting(profile, requestHints, false);
         }
 
+        @Override
+        protected String getMode() {
+            return "flex";
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
@@ -572,6 +935,11 @@ public class Router {
             this.landmarks = landmarks;
         }
 
+        @Override
+        protected String getMode() {
+            return "lm";
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             // for now do not allow mixing CH&LM #1082,#1889
@@ -31,6 +31,9 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int viaThreads = 1;
+    private int batchThreads = 1;
+    private int maxBatchRequests = 1000;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -119,4 +122,39 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getViaThreads() {
+        return viaThreads;
+    }
+
+    /**
+     * Sets the number of threads used to snap the points and calculate the legs of via-routes concurrently. The
+     * threads are shared between all requests. Use 1 (the default) to calculate everything in the request thread.
+     */
+    public void setViaThreads(int viaThreads) {
+        this.viaThreads = viaThreads;
+    }
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    /**
+     * Sets the number of threads shared by all batch requests, see {@link Router#routeBatch}. Use 1 (the default) to
+     * calculate the routes of a batch in the request thread.
+     */
+    public void setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    public int getMaxBatchRequests() {
+        return maxBatchRequests;
+    }
+
+    /**
+     * Sets the maximum number of routing requests that can be sent in a single batch.
+     */
+    public void setMaxBatchRequests(int maxBatchRequests) {
+        this.maxBatchRequests = maxBatchRequests;
+    }
 }
@@ -29,11 +29,15 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -63,35 +67,99 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? snapFilter
                 : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
-        List<Snap> snaps = new ArrayList<>(points.size());
-        IntArrayList pointsNotFound = new IntArrayList();
+        Snap[] snaps = new Snap[points.size()];
+        IntArrayList unsnappedIndices = new IntArrayList();
+        List<GHPoint> unsnappedPoints = new ArrayList<>();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
-            GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex))) {
-                if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
-                    throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
-                            "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
-                snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, headings.get(placeIndex), point));
-            } else if (!pointHints.isEmpty()) {
-                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
-                        pointHints.get(placeIndex), point, 170));
-            } else if (!snapPreventions.isEmpty()) {
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+            Snap snap = snapWithHints(points, placeIndex, strictEdgeFilter, locationIndex, snapPreventions, pointHints, directedSnapFilter, headings);
+            if (snap == null || !snap.isValid()) {
+                unsnappedIndices.add(placeIndex);
+                unsnappedPoints.add(points.get(placeIndex));
+            } else {
+                snaps[placeIndex] = snap;
             }
+        }
+        // all remaining points use the same filter, so we can snap them at once
+        List<Snap> remainingSnaps = locationIndex.findClosest(unsnappedPoints, snapFilter);
+        for (int i = 0; i < unsnappedIndices.size(); i++)
+            snaps[unsnappedIndices.get(i)] = remainingSnaps.get(i);
 
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
-            if (!snap.isValid())
+        IntArrayList pointsNotFound = new IntArrayList();
+        for (int placeIndex = 0; placeIndex < snaps.length; placeIndex++)
+            if (!snaps[placeIndex].isValid())
                 pointsNotFound.add(placeIndex);
 
-            snaps.add(snap);
-        }
+        if (!pointsNotFound.isEmpty())
+            throw new MultiplePointsNotFoundException(pointsNotFound);
+
+        return Arrays.asList(snaps);
+    }
+
+    /**
+     * Same as {@link #lookup(EncodedValueLookup, List, EdgeFilter, LocationIndex, List, List, DirectedEdgeFilter, List)},
+     * but the points are snapped concurrently using the given executor. The points are split into at most
+     * {@code parallelism} tasks and the returned snaps are in the same order as the given points.
+     *
+     * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
+                                    LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
+                                    DirectedEdgeFilter directedSnapFilter, List<Double> headings,
+                                    ExecutorService executor, int parallelism) {
+        if (points.size() < 2)
+            throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
+
+        final EnumEncodedValue<RoadClass> roadClassEnc = lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final EnumEncodedValue<RoadEnvironment> roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
+                ? snapFilter
+                : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        Snap[] snaps = new Snap[points.size()];
+        GHUtility.runStriped(executor, points.size(), parallelism, task -> placeIndex ->
+                snaps[placeIndex] = snap(points, placeIndex, snapFilter, strictEdgeFilter, locationIndex, snapPreventions, pointHints, directedSnapFilter, headings));
+
+        IntArrayList pointsNotFound = new IntArrayList();
+        for (int placeIndex = 0; placeIndex < snaps.length; placeIndex++)
+            if (!snaps[placeIndex].isValid())
+                pointsNotFound.add(placeIndex);
 
         if (!pointsNotFound.isEmpty())
             throw new MultiplePointsNotFoundException(pointsNotFound);
 
-        return snaps;
+        return Arrays.asList(snaps);
+    }
+
+    private static Snap snap(List<GHPoint> points, int placeIndex, EdgeFilter snapFilter, EdgeFilter strictEdgeFilter,
+                             LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
+                             DirectedEdgeFilter directedSnapFilter, List<Double> headings) {
+        Snap snap = snapWithHints(points, placeIndex, strictEdgeFilter, locationIndex, snapPreventions, pointHints, directedSnapFilter, headings);
+        if (snap == null || !snap.isValid())
+            snap = locationIndex.findClosest(points.get(placeIndex).lat, points.get(placeIndex).lon, snapFilter);
+        return snap;
+    }
+
+    /**
+     * Snaps the point using its heading, point hint or the snap preventions.
+     *
+     * @return null if none of these is given for this point
+     */
+    private static Snap snapWithHints(List<GHPoint> points, int placeIndex, EdgeFilter strictEdgeFilter,
+                                      LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
+                                      DirectedEdgeFilter directedSnapFilter, List<Double> headings) {
+        GHPoint point = points.get(placeIndex);
+        Snap snap = null;
+        if (placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex))) {
+            if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
+                throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
+                        "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
+            snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, headings.get(placeIndex), point));
+        } else if (!pointHints.isEmpty()) {
+            snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                    pointHints.get(placeIndex), point, 170));
+        } else if (!snapPreventions.isEmpty()) {
+            snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+        }
+        return snap;
     }
 
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
@@ -105,17 +173,6 @@ public class ViaRouting {
         final int legs = snaps.size() - 1;
         Result result = new Result(legs);
         for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
-
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
-
             // enforce pass-through
             int incomingEdge = NO_EDGE;
             if (leg != 0) {
@@ -124,38 +181,94 @@ public class ViaRouting {
                 if (prevRoute.getEdgeCount() > 0)
                     incomingEdge = prevRoute.getFinalEdge().getEdge();
             }
+            Result legResult = calcLeg(leg, queryGraph, snaps, directedEdgeFilter, pathCalculator, curbsides,
+                    curbsideStrictness, headings, incomingEdge, passThrough);
+            result.paths.addAll(legResult.paths);
+            result.visitedNodes += legResult.visitedNodes;
+            result.debug += legResult.debug + ", visited nodes sum: " + result.visitedNodes;
+        }
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
-
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, directedEdgeFilter);
-
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
+        return result;
+    }
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
+    /**
+     * Same as {@link #calcPaths(List, QueryGraph, List, DirectedEdgeFilter, PathCalculator, List, String, List, boolean)},
+     * but the legs are calculated concurrently using the given executor. Since {@link PathCalculator}s are not
+     * thread-safe, each of the at most {@code parallelism} tasks obtains its own calculator from the given supplier.
+     * The legs only depend on each other if pass_through is enabled, and headings are enforced by marking edges of the
+     * query graph, which cannot be shared between concurrent searches. In both cases we fall back to the
+     * sequential calculation.
+     */
+    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
+                                   DirectedEdgeFilter directedEdgeFilter, Supplier<PathCalculator> pathCalculatorSupplier,
+                                   List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough,
+                                   ExecutorService executor, int parallelism) {
+        final int legs = snaps.size() - 1;
+        if (passThrough || !headings.isEmpty() || legs < 2 || parallelism < 2)
+            return calcPaths(points, queryGraph, snaps, directedEdgeFilter, pathCalculatorSupplier.get(), curbsides,
+                    curbsideStrictness, headings, passThrough);
+        if (!curbsides.isEmpty() && curbsides.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+        Result[] legResults = new Result[legs];
+        GHUtility.runStriped(executor, legs, parallelism, task -> {
+            PathCalculator pathCalculator = pathCalculatorSupplier.get();
+            return leg -> legResults[leg] = calcLeg(leg, queryGraph, snaps, directedEdgeFilter, pathCalculator, curbsides,
+                    curbsideStrictness, headings, NO_EDGE, false);
+        });
 
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
-            }
+        Result result = new Result(legs);
+        for (Result legResult : legResults) {
+            result.paths.addAll(legResult.paths);
+            result.visitedNodes += legResult.visitedNodes;
+            result.debug += legResult.debug + ", visited nodes sum: " + result.visitedNodes;
+        }
+        return result;
+    }
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += ", visited nodes sum: " + result.visitedNodes;
+    private static Result calcLeg(int leg, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter,
+                                  PathCalculator pathCalculator, List<String> curbsides, String curbsideStrictness,
+                                  List<Double> headings, int incomingEdge, boolean passThrough) {
+        Result result = new Result(1);
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
+
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, directedEdgeFilter);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
+
+        // calculate paths
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+        result.debug += pathCalculator.getDebugString();
+
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
         }
 
+        result.visitedNodes = pathCalculator.getVisitedNodes();
         return result;
     }
 
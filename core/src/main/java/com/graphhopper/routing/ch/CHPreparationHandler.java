@@ -46,6 +46,7 @@ public class CHPreparationHandler {
     // the actual Weightings)
     private final List<CHProfile> chProfiles = new ArrayList<>();
     private int preparationThreads;
+    private boolean sharedNodeOrdering;
     private PMap pMap = new PMap();
 
     public CHPreparationHandler() {
@@ -62,6 +63,7 @@ public class CHPreparationHandler {
             throw new IllegalStateException("Use profiles_ch instead of prepare.ch.edge_based, see #1922 and docs/core/profiles.md");
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        setSharedNodeOrdering(ghConfig.getBool(CH.PREPARE + "shared_node_ordering", isSharedNodeOrdering()));
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -97,6 +99,22 @@ public class CHPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    public boolean isSharedNodeOrdering() {
+        return sharedNodeOrdering;
+    }
+
+    /**
+     * If enabled only the first node-based and the first edge-based CH profile are prepared with the usual heuristic
+     * node ordering. All the other profiles then re-use the node ordering of the first profile with the same traversal
+     * mode, so they only need to add their shortcuts, which is a lot faster and is done in parallel. This works well
+     * for similar profiles (e.g. different car profiles), but the queries of the other profiles can be slower if
+     * their weightings differ a lot from the first one. Default is false.
+     */
+    public CHPreparationHandler setSharedNodeOrdering(boolean sharedNodeOrdering) {
+        this.sharedNodeOrdering = sharedNodeOrdering;
+        return this;
+    }
+
     public Map<String, RoutingCHGraph> load(BaseGraph graph, List<CHConfig> chConfigs) {
         Map<String, RoutingCHGraph> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
         Stream<Runnable> runnables = chConfigs.stream()
@@ -124,6 +142,36 @@ public class CHPreparationHandler {
                 .map(c -> createCHPreparation(baseGraph, c))
                 .collect(Collectors.toList());
         Map<String, PrepareContractionHierarchies.Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
+        if (!sharedNodeOrdering) {
+            runPreparations(preparations, results, properties, closeEarly, null);
+            LOGGER.info("Finished CH preparation, {}", getMemInfo());
+            return results;
+        }
+
+        // the first preparation of each traversal mode determines the node ordering, the others just follow it
+        Map<Boolean, PrepareContractionHierarchies> leaders = new LinkedHashMap<>();
+        List<PrepareContractionHierarchies> followers = new ArrayList<>();
+        for (PrepareContractionHierarchies prepare : preparations)
+            if (leaders.putIfAbsent(prepare.getCHConfig().isEdgeBased(), prepare) != null)
+                followers.add(prepare);
+        Map<Boolean, NodeOrderingProvider> nodeOrderings = Collections.synchronizedMap(new HashMap<>());
+        runPreparations(new ArrayList<>(leaders.values()), results, properties, closeEarly, nodeOrderings);
+        for (PrepareContractionHierarchies prepare : followers) {
+            LOGGER.info("Using the node ordering of profile '" + leaders.get(prepare.getCHConfig().isEdgeBased()).getCHConfig().getName()
+                    + "' for profile '" + prepare.getCHConfig().getName() + "'");
+            prepare.useFixedNodeOrdering(nodeOrderings.get(prepare.getCHConfig().isEdgeBased()));
+        }
+        runPreparations(followers, results, properties, closeEarly, null);
+        LOGGER.info("Finished CH preparation, {}", getMemInfo());
+        return results;
+    }
+
+    /**
+     * @param nodeOrderings if not null the node orderings resulting from the preparations are put into this map, using
+     *                      the traversal mode (edge-based or not) as key
+     */
+    private void runPreparations(List<PrepareContractionHierarchies> preparations, Map<String, PrepareContractionHierarchies.Result> results,
+                                 StorableProperties properties, boolean closeEarly, Map<Boolean, NodeOrderingProvider> nodeOrderings) {
         List<Runnable> runnables = new ArrayList<>(preparations.size());
         for (int i = 0; i < preparations.size(); ++i) {
             PrepareContractionHierarchies prepare = preparations.get(i);
@@ -135,6 +183,8 @@ public class CHPreparationHandler {
                 Thread.currentThread().setName(name);
                 PrepareContractionHierarchies.Result result = prepare.doWork();
                 results.put(name, result);
+                if (nodeOrderings != null)
+                    nodeOrderings.put(prepare.getCHConfig().isEdgeBased(), result.getCHStorage().getNodeOrderingProvider());
                 prepare.flush();
                 if (closeEarly)
                     prepare.close();
@@ -142,8 +192,6 @@ public class CHPreparationHandler {
             });
         }
         GHUtility.runConcurrently(runnables.stream(), preparationThreads);
-        LOGGER.info("Finished CH preparation, {}", getMemInfo());
-        return results;
     }
 
     private PrepareContractionHierarchies createCHPreparation(BaseGraph graph, CHConfig chConfig) {
@@ -0,0 +1,573 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * A customizable contraction hierarchy (CCH). In contrast to {@link PrepareContractionHierarchies} the node ordering
+ * and the shortcuts are calculated without looking at any weighting: the nodes are ordered by a geometric nested
+ * dissection and every shortcut that could be needed for this ordering is added. This topology is calculated once per
+ * base graph. The weights of the shortcuts are then filled in for a specific {@link Weighting} by
+ * {@link #customize(Weighting)}, which is much faster than a full CH preparation and yields a node-based
+ * {@link RoutingCHGraph} that can be used with the usual CH algorithms. This way even weightings that are only known
+ * at request time (like those of custom models) can be used for fast queries.
+ * <p>
+ * Only node-based routing is supported, i.e. weightings with turn costs cannot be customized.
+ * <p>
+ * See Dibbelt, Strasser and Wagner: Customizable Contraction Hierarchies, https://arxiv.org/abs/1402.0402
+ */
+public class CustomizableCH {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomizableCH.class);
+    // sub-graphs with at most this many nodes are not dissected any further
+    private static final int LEAF_SIZE = 8;
+    private final BaseGraph graph;
+    // within the arrays below nodes are identified by their rank, which is also their CH level
+    private final int[] rankByNode;
+    private final int[] nodeByRank;
+    // the upward arcs of every rank sorted by the rank of their head. the arc ids are the indices into upHeads
+    private final int[] upFirst;
+    private final int[] upHeads;
+    // the downward arcs of every rank sorted by the rank of their tail, downArcs holds the ids of the upward arcs
+    private final int[] downFirst;
+    private final int[] downTails;
+    private final int[] downArcs;
+    // the ranks grouped by their height in the elimination tree. the arcs of ranks with equal height do not depend on
+    // each other and can be customized concurrently
+    private final int[] heightFirst;
+    private final int[] ranksByHeight;
+    private final Map<String, CompletableFuture<RoutingCHGraph>> cache;
+    private ExecutorService executor;
+    private int threads = 1;
+    private int cacheSize = 8;
+
+    /**
+     * Calculates the node ordering and the shortcut topology for the given graph, which must not change afterwards.
+     */
+    public CustomizableCH(BaseGraph graph) {
+        if (!graph.isFrozen())
+            throw new IllegalStateException("graph must be frozen before we can create a customizable CH");
+        this.graph = graph;
+        int nodes = graph.getNodes();
+        StopWatch sw = new StopWatch().start();
+        rankByNode = new int[nodes];
+        nodeByRank = new int[nodes];
+        int[] adjFirst = new int[nodes + 1];
+        int[] adjNodes = createAdjacency(adjFirst);
+        new NestedDissection(adjFirst, adjNodes).run();
+        float orderingSeconds = sw.stop().getSeconds();
+
+        sw = new StopWatch().start();
+        upFirst = new int[nodes + 1];
+        upHeads = createUpwardArcs(adjFirst, adjNodes);
+        downFirst = new int[nodes + 1];
+        downTails = new int[upHeads.length];
+        downArcs = new int[upHeads.length];
+        createDownwardArcs();
+        int[] heights = new int[nodes];
+        int maxHeight = -1;
+        for (int rank = 0; rank < nodes; rank++) {
+            maxHeight = Math.max(maxHeight, heights[rank]);
+            for (int arc = upFirst[rank]; arc < upFirst[rank + 1]; arc++)
+                heights[upHeads[arc]] = Math.max(heights[upHeads[arc]], heights[rank] + 1);
+        }
+        heightFirst = new int[maxHeight + 2];
+        ranksByHeight = new int[nodes];
+        for (int rank = 0; rank < nodes; rank++)
+            heightFirst[heights[rank] + 1]++;
+        for (int h = 0; h <= maxHeight; h++)
+            heightFirst[h + 1] += heightFirst[h];
+        int[] pos = Arrays.copyOf(heightFirst, heightFirst.length);
+        for (int rank = 0; rank < nodes; rank++)
+            ranksByHeight[pos[heights[rank]]++] = rank;
+        LOGGER.info("Created customizable CH for " + nf(nodes) + " nodes, arcs: " + nf(upHeads.length)
+                + ", edges: " + nf(graph.getEdges()) + ", height: " + (maxHeight + 1) + ", ordering: " + orderingSeconds
+                + "s, topology: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
+
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RoutingCHGraph>> eldest) {
+                // evicted graphs might still be used by running queries, so we do not close them but leave them to
+                // the garbage collector
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Sets the executor used to customize the shortcuts of independent nodes concurrently. Use null to do everything
+     * in the calling thread.
+     */
+    public CustomizableCH setExecutor(ExecutorService executor, int threads) {
+        this.executor = executor;
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * The maximum number of customized graphs kept by {@link #getCustomizedGraph}.
+     */
+    public CustomizableCH setCacheSize(int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("cache size must not be negative, but was: " + cacheSize);
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public int getLevel(int node) {
+        return rankByNode[node];
+    }
+
+    /**
+     * @return the number of node pairs that might be connected by a shortcut (or an original edge)
+     */
+    public int getArcs() {
+        return upHeads.length;
+    }
+
+    /**
+     * Returns the graph customized for the given weighting. The last few customized graphs are cached by the given
+     * key, which must uniquely identify the weighting. Concurrent calls for the same key customize the graph only once.
+     */
+    public RoutingCHGraph getCustomizedGraph(String key, Weighting weighting) {
+        CompletableFuture<RoutingCHGraph> future;
+        boolean customize = false;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(key, future);
+                customize = true;
+            }
+        }
+        if (customize) {
+            try {
+                future.complete(customize(weighting));
+            } catch (RuntimeException e) {
+                synchronized (cache) {
+                    cache.remove(key, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates the shortcut weights for the given weighting. Afterwards the upward arcs of every node are weighted
+     * with the weight of the shortest path that only uses nodes of lower levels, so a bidirectional upward search
+     * finds the shortest path just like for a regular CH.
+     */
+    public RoutingCHGraph customize(Weighting weighting) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable CH does not support turn costs, weighting: " + weighting);
+        StopWatch sw = new StopWatch().start();
+        Customization customization = new Customization(weighting);
+        for (int h = 0; h < heightFirst.length - 1; h++) {
+            final int from = heightFirst[h];
+            GHUtility.runStriped(executor, heightFirst[h + 1] - from, threads, task -> {
+                EdgeExplorer explorer = graph.createEdgeExplorer();
+                return i -> customization.customize(ranksByHeight[from + i], explorer);
+            });
+        }
+        float customizationSeconds = sw.stop().getSeconds();
+        sw = new StopWatch().start();
+        CHStorage chStorage = customization.createCHStorage();
+        LOGGER.info("Customized CH for " + weighting + ", shortcuts: " + nf(chStorage.getShortcuts())
+                + ", customization: " + customizationSeconds + "s, storage: " + sw.stop().getSeconds() + "s");
+        return new RoutingCHGraphImpl(graph, chStorage, weighting);
+    }
+
+    private int[] createAdjacency(int[] adjFirst) {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            adjFirst[iter.getBaseNode() + 1]++;
+            adjFirst[iter.getAdjNode() + 1]++;
+        }
+        for (int node = 0; node < graph.getNodes(); node++)
+            adjFirst[node + 1] += adjFirst[node];
+        int[] adjNodes = new int[adjFirst[graph.getNodes()]];
+        int[] pos = Arrays.copyOf(adjFirst, adjFirst.length);
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            adjNodes[pos[iter.getBaseNode()]++] = iter.getAdjNode();
+            adjNodes[pos[iter.getAdjNode()]++] = iter.getBaseNode();
+        }
+        return adjNodes;
+    }
+
+    /**
+     * Eliminates the nodes in the order of their rank: the upward neighbors of every node are connected pairwise.
+     * Instead of adding all these pairs directly we only add them to the lowest upward neighbor, which then passes
+     * them on when it is eliminated itself.
+     */
+    private int[] createUpwardArcs(int[] adjFirst, int[] adjNodes) {
+        int nodes = graph.getNodes();
+        IntArrayList[] upNeighbors = new IntArrayList[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int rank = rankByNode[node];
+            for (int i = adjFirst[node]; i < adjFirst[node + 1]; i++) {
+                int adjRank = rankByNode[adjNodes[i]];
+                if (adjRank > rank)
+                    addUpNeighbor(upNeighbors, rank, adjRank);
+            }
+        }
+        IntArrayList heads = new IntArrayList();
+        for (int rank = 0; rank < nodes; rank++) {
+            IntArrayList neighbors = upNeighbors[rank];
+            upNeighbors[rank] = null;
+            if (neighbors != null) {
+                Arrays.sort(neighbors.buffer, 0, neighbors.size());
+                int prev = -1;
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int neighbor = neighbors.get(i);
+                    if (neighbor == prev)
+                        continue;
+                    heads.add(neighbor);
+                    prev = neighbor;
+                }
+            }
+            upFirst[rank + 1] = heads.size();
+            if (upFirst[rank + 1] - upFirst[rank] > 1) {
+                int parent = heads.get(upFirst[rank]);
+                for (int arc = upFirst[rank] + 1; arc < upFirst[rank + 1]; arc++)
+                    addUpNeighbor(upNeighbors, parent, heads.get(arc));
+            }
+        }
+        return heads.toArray();
+    }
+
+    private static void addUpNeighbor(IntArrayList[] upNeighbors, int rank, int neighbor) {
+        if (upNeighbors[rank] == null)
+            upNeighbors[rank] = new IntArrayList(4);
+        upNeighbors[rank].add(neighbor);
+    }
+
+    private void createDownwardArcs() {
+        int nodes = graph.getNodes();
+        for (int head : upHeads)
+            downFirst[head + 1]++;
+        for (int rank = 0; rank < nodes; rank++)
+            downFirst[rank + 1] += downFirst[rank];
+        int[] pos = Arrays.copyOf(downFirst, downFirst.length);
+        // we iterate the tails in ascending order, so the downward arcs of every rank end up sorted by their tail
+        for (int rank = 0; rank < nodes; rank++) {
+            for (int arc = upFirst[rank]; arc < upFirst[rank + 1]; arc++) {
+                int p = pos[upHeads[arc]]++;
+                downTails[p] = rank;
+                downArcs[p] = arc;
+            }
+        }
+    }
+
+    private int findArc(int tail, int head) {
+        int arc = Arrays.binarySearch(upHeads, upFirst[tail], upFirst[tail + 1], head);
+        assert arc >= 0 : "there is no arc from rank " + tail + " to rank " + head;
+        return arc;
+    }
+
+    /**
+     * Orders the nodes by recursively splitting them into two halves along their longer geographic extent. The
+     * nodes of the smaller side of the boundary between the halves form a separator, which gets higher ranks than
+     * all the nodes of the two halves, so no shortcuts will ever cross it.
+     */
+    private class NestedDissection {
+        private final int[] adjFirst;
+        private final int[] adjNodes;
+        private final int[] lats;
+        private final int[] lons;
+        private final int[] nodes;
+        private final int[] marks;
+        private final long[] sortKeys;
+        private int lastMark;
+        private int nextRank;
+
+        NestedDissection(int[] adjFirst, int[] adjNodes) {
+            this.adjFirst = adjFirst;
+            this.adjNodes = adjNodes;
+            int nodeCount = graph.getNodes();
+            NodeAccess nodeAccess = graph.getNodeAccess();
+            lats = new int[nodeCount];
+            lons = new int[nodeCount];
+            nodes = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                lats[node] = Helper.degreeToInt(nodeAccess.getLat(node));
+                lons[node] = Helper.degreeToInt(nodeAccess.getLon(node));
+                nodes[node] = node;
+            }
+            marks = new int[nodeCount];
+            sortKeys = new long[nodeCount];
+        }
+
+        void run() {
+            dissect(0, nodes.length);
+            if (nextRank != nodes.length)
+                throw new IllegalStateException("Not all nodes were ranked: " + nextRank + " vs. " + nodes.length);
+        }
+
+        private void dissect(int from, int to) {
+            if (to - from <= LEAF_SIZE) {
+                assignRanks(from, to);
+                return;
+            }
+            sortAlongLongerExtent(from, to);
+            int mid = (from + to) >>> 1;
+            int markA = ++lastMark;
+            int markB = ++lastMark;
+            int separatorMark = ++lastMark;
+            for (int i = from; i < mid; i++)
+                marks[nodes[i]] = markA;
+            for (int i = mid; i < to; i++)
+                marks[nodes[i]] = markB;
+            int boundaryA = countBoundary(from, mid, markB);
+            int boundaryB = countBoundary(mid, to, markA);
+            // the separator is moved to the end of the side it is taken from
+            int separatorFrom;
+            if (boundaryA <= boundaryB) {
+                separatorFrom = extractSeparator(from, mid, markB, separatorMark);
+                dissect(from, separatorFrom);
+                dissect(mid, to);
+                assignRanks(separatorFrom, mid);
+            } else {
+                separatorFrom = extractSeparator(mid, to, markA, separatorMark);
+                dissect(from, mid);
+                dissect(mid, separatorFrom);
+                assignRanks(separatorFrom, to);
+            }
+        }
+
+        private void sortAlongLongerExtent(int from, int to) {
+            int minLat = Integer.MAX_VALUE, maxLat = Integer.MIN_VALUE, minLon = Integer.MAX_VALUE, maxLon = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int node = nodes[i];
+                minLat = Math.min(minLat, lats[node]);
+                maxLat = Math.max(maxLat, lats[node]);
+                minLon = Math.min(minLon, lons[node]);
+                maxLon = Math.max(maxLon, lons[node]);
+            }
+            int[] coordinates = (long) maxLat - minLat >= (long) maxLon - minLon ? lats : lons;
+            for (int i = from; i < to; i++)
+                sortKeys[i] = ((long) coordinates[nodes[i]] << 32) | nodes[i];
+            Arrays.sort(sortKeys, from, to);
+            for (int i = from; i < to; i++)
+                nodes[i] = (int) sortKeys[i];
+        }
+
+        private int countBoundary(int from, int to, int otherMark) {
+            int count = 0;
+            for (int i = from; i < to; i++)
+                if (hasNeighborWithMark(nodes[i], otherMark))
+                    count++;
+            return count;
+        }
+
+        private int extractSeparator(int from, int to, int otherMark, int separatorMark) {
+            for (int i = from; i < to; i++)
+                if (hasNeighborWithMark(nodes[i], otherMark))
+                    marks[nodes[i]] = separatorMark;
+            int end = to;
+            int i = from;
+            while (i < end) {
+                if (marks[nodes[i]] == separatorMark) {
+                    end--;
+                    int tmp = nodes[i];
+                    nodes[i] = nodes[end];
+                    nodes[end] = tmp;
+                } else {
+                    i++;
+                }
+            }
+            return end;
+        }
+
+        private boolean hasNeighborWithMark(int node, int mark) {
+            for (int i = adjFirst[node]; i < adjFirst[node + 1]; i++)
+                if (marks[adjNodes[i]] == mark)
+                    return true;
+            return false;
+        }
+
+        private void assignRanks(int from, int to) {
+            for (int i = from; i < to; i++) {
+                rankByNode[nodes[i]] = nextRank;
+                nodeByRank[nextRank] = nodes[i];
+                nextRank++;
+            }
+        }
+    }
+
+    /**
+     * The arc weights for one weighting. For every arc and direction we keep track of the original edge or the lower
+     * node (the 'via' rank) of the triangle that yields the smallest weight.
+     */
+    private class Customization {
+        private final Weighting weighting;
+        private final double[] fwdWeights;
+        private final double[] bwdWeights;
+        private final int[] fwdEdges;
+        private final int[] bwdEdges;
+        private final int[] fwdVia;
+        private final int[] bwdVia;
+
+        Customization(Weighting weighting) {
+            this.weighting = weighting;
+            int arcs = upHeads.length;
+            fwdWeights = new double[arcs];
+            bwdWeights = new double[arcs];
+            Arrays.fill(fwdWeights, Double.POSITIVE_INFINITY);
+            Arrays.fill(bwdWeights, Double.POSITIVE_INFINITY);
+            fwdEdges = new int[arcs];
+            bwdEdges = new int[arcs];
+            Arrays.fill(fwdEdges, -1);
+            Arrays.fill(bwdEdges, -1);
+            fwdVia = new int[arcs];
+            bwdVia = new int[arcs];
+            Arrays.fill(fwdVia, -1);
+            Arrays.fill(bwdVia, -1);
+        }
+
+        /**
+         * Calculates the final weights of all upward arcs of the given rank. This requires that the arcs of all
+         * lower ranks in its elimination subtree are final already.
+         */
+        void customize(int rank, EdgeExplorer explorer) {
+            EdgeIterator iter = explorer.setBaseNode(nodeByRank[rank]);
+            while (iter.next()) {
+                int adjRank = rankByNode[iter.getAdjNode()];
+                if (adjRank <= rank)
+                    continue;
+                int arc = findArc(rank, adjRank);
+                double fwdWeight = weighting.calcEdgeWeight(iter, false);
+                if (fwdWeight < fwdWeights[arc]) {
+                    fwdWeights[arc] = fwdWeight;
+                    fwdEdges[arc] = iter.getEdge();
+                }
+                double bwdWeight = weighting.calcEdgeWeight(iter, true);
+                if (bwdWeight < bwdWeights[arc]) {
+                    bwdWeights[arc] = bwdWeight;
+                    bwdEdges[arc] = iter.getEdge();
+                }
+            }
+            for (int arc = upFirst[rank]; arc < upFirst[rank + 1]; arc++) {
+                int head = upHeads[arc];
+                // every common lower neighbor of rank and head forms a lower triangle rank <- via -> head
+                int i = downFirst[rank], j = downFirst[head];
+                while (i < downFirst[rank + 1] && j < downFirst[head + 1]) {
+                    if (downTails[i] < downTails[j]) {
+                        i++;
+                    } else if (downTails[i] > downTails[j]) {
+                        j++;
+                    } else {
+                        int viaToTail = downArcs[i];
+                        int viaToHead = downArcs[j];
+                        double fwdWeight = bwdWeights[viaToTail] + fwdWeights[viaToHead];
+                        if (fwdWeight < fwdWeights[arc]) {
+                            fwdWeights[arc] = fwdWeight;
+                            fwdVia[arc] = downTails[i];
+                        }
+                        double bwdWeight = bwdWeights[viaToHead] + fwdWeights[viaToTail];
+                        if (bwdWeight < bwdWeights[arc]) {
+                            bwdWeights[arc] = bwdWeight;
+                            bwdVia[arc] = downTails[i];
+                        }
+                        i++;
+                        j++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stores every arc whose weight is given by a triangle as a shortcut. Arcs that are given by an original edge
+         * need no shortcut, because the original edges are part of the CH graph anyway.
+         */
+        CHStorage createCHStorage() {
+            CHStorage chStorage = new CHStorage(new RAMDirectory(), "cch", -1, false);
+            chStorage.create(graph.getNodes(), upHeads.length / 2);
+            CHStorageBuilder builder = new CHStorageBuilder(chStorage);
+            for (int node = 0; node < graph.getNodes(); node++)
+                builder.setLevel(node, rankByNode[node]);
+            // the CH edge ids of the arcs in both directions, shortcuts ids are offset by the number of original edges
+            int[] fwdCHEdges = new int[upHeads.length];
+            int[] bwdCHEdges = new int[upHeads.length];
+            for (int rank = 0; rank < nodeByRank.length; rank++) {
+                for (int arc = upFirst[rank]; arc < upFirst[rank + 1]; arc++) {
+                    int head = upHeads[arc];
+                    fwdCHEdges[arc] = fwdEdges[arc];
+                    bwdCHEdges[arc] = bwdEdges[arc];
+                    boolean fwdShortcut = fwdVia[arc] >= 0;
+                    boolean bwdShortcut = bwdVia[arc] >= 0;
+                    int fwdSkip1 = -1, fwdSkip2 = -1, bwdSkip1 = -1, bwdSkip2 = -1;
+                    if (fwdShortcut) {
+                        int viaToTail = findArc(fwdVia[arc], rank);
+                        int viaToHead = findArc(fwdVia[arc], head);
+                        fwdSkip1 = bwdCHEdges[viaToTail];
+                        fwdSkip2 = fwdCHEdges[viaToHead];
+                    }
+                    if (bwdShortcut) {
+                        int viaToTail = findArc(bwdVia[arc], rank);
+                        int viaToHead = findArc(bwdVia[arc], head);
+                        bwdSkip1 = bwdCHEdges[viaToHead];
+                        bwdSkip2 = fwdCHEdges[viaToTail];
+                    }
+                    int tailNode = nodeByRank[rank];
+                    int headNode = nodeByRank[head];
+                    // node-based unpacking does not depend on the order of the skipped edges, so a single shortcut
+                    // can be used for both directions if they skip the same edges
+                    if (fwdShortcut && bwdShortcut && fwdWeights[arc] == bwdWeights[arc]
+                            && fwdSkip1 == bwdSkip2 && fwdSkip2 == bwdSkip1) {
+                        int shortcut = builder.addShortcutNodeBased(tailNode, headNode, PrepareEncoder.getScDirMask(), fwdWeights[arc], fwdSkip1, fwdSkip2);
+                        fwdCHEdges[arc] = bwdCHEdges[arc] = graph.getEdges() + shortcut;
+                        continue;
+                    }
+                    if (fwdShortcut)
+                        fwdCHEdges[arc] = graph.getEdges() + builder.addShortcutNodeBased(tailNode, headNode, PrepareEncoder.getScFwdDir(), fwdWeights[arc], fwdSkip1, fwdSkip2);
+                    if (bwdShortcut)
+                        bwdCHEdges[arc] = graph.getEdges() + builder.addShortcutNodeBased(tailNode, headNode, PrepareEncoder.getScBwdDir(), bwdWeights[arc], bwdSkip1, bwdSkip2);
+                }
+            }
+            return chStorage;
+        }
+    }
+}
@@ -151,6 +151,13 @@ class EdgeBasedNodeContractor implements NodeContractor {
         return neighbors;
     }
 
+    @Override
+    public void keepUncontracted(int node) {
+        // the core search would have to handle the turn costs between the stored shortcuts, which it does not do
+        throw new UnsupportedOperationException("Keeping nodes uncontracted is not supported for edge-based CH, " +
+                "because the core search does not take turn costs into account");
+    }
+
     @Override
     public void finishContraction() {
         chBuilder.replaceSkippedEdges(prepareGraph::getShortcutForPrepareEdge);
@@ -37,6 +37,12 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Stores the shortcuts between the given node and the other remaining nodes without contracting it. Afterwards the
+     * node is removed from the graph just like a contracted node.
+     */
+    void keepUncontracted(int node);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
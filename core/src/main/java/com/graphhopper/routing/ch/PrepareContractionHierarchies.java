@@ -70,16 +70,26 @@ public class PrepareContractionHierarchies {
     private PMap pMap = new PMap();
     private int checkCounter;
     private boolean prepared = false;
+    private boolean storeCore = false;
+    private int coreLevel;
 
     public static PrepareContractionHierarchies fromGraph(BaseGraph graph, CHConfig chConfig) {
-        return new PrepareContractionHierarchies(graph.getBaseGraph(), chConfig);
+        return fromGraph(graph, chConfig, graph.getBaseGraph().getDirectory());
     }
 
-    private PrepareContractionHierarchies(BaseGraph graph, CHConfig chConfig) {
+    /**
+     * Like {@link #fromGraph(BaseGraph, CHConfig)}, but the shortcuts are stored in the given directory, e.g. a
+     * {@link RAMDirectory} for a preparation that shall only be kept in memory.
+     */
+    public static PrepareContractionHierarchies fromGraph(BaseGraph graph, CHConfig chConfig, Directory dir) {
+        return new PrepareContractionHierarchies(graph.getBaseGraph(), chConfig, dir);
+    }
+
+    private PrepareContractionHierarchies(BaseGraph graph, CHConfig chConfig, Directory dir) {
         if (!graph.isFrozen())
             throw new IllegalStateException("BaseGraph must be frozen before creating CHs");
         this.graph = graph;
-        chStore = CHStorage.fromGraph(graph, chConfig);
+        chStore = CHStorage.fromGraph(graph, chConfig, dir);
         chBuilder = new CHStorageBuilder(chStore);
         this.chConfig = chConfig;
         params = Params.forTraversalMode(chConfig.getTraversalMode());
@@ -103,6 +113,19 @@ public class PrepareContractionHierarchies {
         return this;
     }
 
+    /**
+     * If enabled the nodes that remain uncontracted because of {@link CHParameters#CONTRACTED_NODES} (the core) get
+     * the highest levels and the shortcuts between them are stored as well, so the core can be searched without the
+     * level restriction, see {@link com.graphhopper.routing.lm.CoreALT}. Otherwise these shortcuts are dropped and all
+     * core nodes share the maximum level. Only supported for node-based CH with the heuristic node ordering.
+     */
+    public PrepareContractionHierarchies setStoreCore(boolean storeCore) {
+        if (storeCore && isEdgeBased())
+            throw new IllegalArgumentException("Storing the core is only supported for node-based CH");
+        this.storeCore = storeCore;
+        return this;
+    }
+
     /**
      * Instead of heuristically determining a node ordering for the graph contraction it is also possible
      * to use a fixed ordering. For example this allows re-using a previously calculated node ordering.
@@ -128,13 +151,15 @@ public class PrepareContractionHierarchies {
         if (chStore.getShortcuts() > 0) {
             throw new IllegalStateException("Given CHStore already contains shortcuts");
         }
+        if (storeCore && nodeOrderingProvider != null)
+            throw new IllegalStateException("Storing the core is not supported for a fixed node ordering");
         allSW.start();
         initFromGraph();
         runGraphContraction();
         allSW.stop();
         logFinalGraphStats();
         return new Result(
-                chConfig, chStore,
+                chConfig, chStore, coreLevel,
                 nodeContractor.getAddedShortcutsCount(),
                 lazyUpdateSW.getCurrentSeconds(),
                 periodicUpdateSW.getCurrentSeconds(),
@@ -154,6 +179,7 @@ public class PrepareContractionHierarchies {
     }
 
     private void runGraphContraction() {
+        coreLevel = nodes;
         if (nodes < 1)
             return;
         setMaxLevelOnAllNodes();
@@ -285,9 +311,12 @@ public class PrepareContractionHierarchies {
             IntContainer neighbors = contractNode(polledNode, level);
             level++;
 
-            if (sortedNodes.size() < nodesToAvoidContract)
-                // skipped nodes are already set to maxLevel
+            if (sortedNodes.size() < nodesToAvoidContract) {
+                if (storeCore)
+                    storeCore(level);
+                // skipped nodes are already set to maxLevel, unless we stored the core
                 break;
+            }
 
             int neighborCount = 0;
             // there might be multiple edges going to the same neighbor nodes -> only calculate priority once per node
@@ -322,6 +351,16 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    private void storeCore(int level) {
+        coreLevel = level;
+        while (!sortedNodes.isEmpty()) {
+            int node = sortedNodes.poll();
+            chBuilder.setLevel(node, level++);
+            nodeContractor.keepUncontracted(node);
+        }
+        logger.info("stored core with {} nodes, shortcuts: {}", nf(nodes - coreLevel), nf(chStore.getShortcuts()));
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -435,14 +474,16 @@ public class PrepareContractionHierarchies {
     public static class Result {
         private final CHConfig chConfig;
         private final CHStorage chStorage;
+        private final int coreLevel;
         private final long shortcuts;
         private final double lazyTime;
         private final double periodTime;
         private final double neighborTime;
         private final long totalPrepareTime;
 
-        private Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
+        private Result(CHConfig chConfig, CHStorage chStorage, int coreLevel, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
             this.chStorage = chStorage;
+            this.coreLevel = coreLevel;
             this.shortcuts = shortcuts;
             this.lazyTime = lazyTime;
             this.periodTime = periodTime;
@@ -459,6 +500,14 @@ public class PrepareContractionHierarchies {
             return chStorage;
         }
 
+        /**
+         * @return the lowest level of the core nodes or the number of nodes if all nodes were contracted, see
+         * {@link #setStoreCore(boolean)}
+         */
+        public int getCoreLevel() {
+            return coreLevel;
+        }
+
         public long getShortcuts() {
             return shortcuts;
         }
@@ -68,6 +68,9 @@ public class DefaultImportRegistry implements ImportRegistry {
         else if (UrbanDensity.KEY.equals(name))
             return ImportUnit.create(name, props -> UrbanDensity.create(),
                     null);
+        else if (TrafficSpeed.KEY.equals(name))
+            return ImportUnit.create(name, props -> TrafficSpeed.create(props.getDouble("speed_factor", 1)),
+                    null);
         else if (MaxWeight.KEY.equals(name))
             return ImportUnit.create(name, props -> MaxWeight.create(),
                     (lookup, props) -> new OSMMaxWeightParser(
@@ -0,0 +1,196 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.ev;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+
+/**
+ * Works like a normal decimal encoded value, but the underlying data is not stored within the graph and can be changed
+ * while routing requests are running. Every value uses a single byte, i.e. the values are quantised to multiples of
+ * the factor between 0 and 254 * factor, and the byte 255 is reserved for edges without value, which read as
+ * {@link Double#POSITIVE_INFINITY}. So this is meant to be used with limit_to in a custom model.
+ * <p>
+ * The values are changed in batches: {@link #createUpdate} copies the current values, the copy can be modified without
+ * any effect on running requests and {@link Update#publish} replaces all values at once. Readers never block, they only see
+ * either the old or the new values. The updates should be created by a single thread, because values published by
+ * another thread in the meantime would be overwritten.
+ */
+public class ExternalDecimalEncodedValue implements DecimalEncodedValue {
+    private static final int UNSET = 0xFF;
+    private static final byte[] EMPTY = new byte[0];
+    private final String name;
+    private final double factor;
+    private final boolean storeTwoDirections;
+    // not serialized, the values are only kept in memory
+    private transient volatile byte[] values = EMPTY;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    public ExternalDecimalEncodedValue(
+            @JsonProperty("name") String name,
+            @JsonProperty("factor") double factor,
+            @JsonProperty("store_two_directions") boolean storeTwoDirections
+    ) {
+        if (factor <= 0)
+            throw new IllegalArgumentException("factor must be positive but was " + factor + " for " + name);
+        this.name = name;
+        this.factor = factor;
+        this.storeTwoDirections = storeTwoDirections;
+    }
+
+    /**
+     * Changes a single value. This copies all values and is therefore slow, use {@link #createUpdate} to change many
+     * values at once.
+     */
+    @Override
+    public synchronized void setDecimal(boolean reverse, int edgeId, EdgeIntAccess edgeIntAccess, double value) {
+        createUpdate(true).set(edgeId, reverse, value).publish();
+    }
+
+    @Override
+    public double getDecimal(boolean reverse, int edgeId, EdgeIntAccess edgeIntAccess) {
+        // read the field only once, so we do not mix two different versions
+        byte[] current = values;
+        int index = getIndex(edgeId, reverse);
+        if (index >= current.length)
+            return Double.POSITIVE_INFINITY;
+        int value = current[index] & 0xFF;
+        return value == UNSET ? Double.POSITIVE_INFINITY : value * factor;
+    }
+
+    /**
+     * @param keepValues true if the update shall start with the current values, false if it shall start without any
+     *                   values
+     */
+    public Update createUpdate(boolean keepValues) {
+        return new Update(keepValues ? values.clone() : EMPTY);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        values = EMPTY;
+    }
+
+    private int getIndex(int edgeId, boolean reverse) {
+        return storeTwoDirections ? (2 * edgeId + (reverse ? 1 : 0)) : edgeId;
+    }
+
+    private int toStoredValue(double value) {
+        if (Double.isInfinite(value) && value > 0)
+            return UNSET;
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("NaN value for " + name + " not allowed!");
+        long stored = Math.round(value / factor);
+        if (stored < 0)
+            throw new IllegalArgumentException(name + " value too small for encoding " + value);
+        // larger values are stored as the maximum
+        return (int) Math.min(stored, UNSET - 1);
+    }
+
+    @Override
+    public double getMaxStorableDecimal() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double getMinStorableDecimal() {
+        return 0;
+    }
+
+    @Override
+    public double getMaxOrMaxStorableDecimal() {
+        // the values can change at any time, so we cannot use the maximum value
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double getNextStorableValue(double value) {
+        if (value > (UNSET - 1) * factor)
+            return Double.POSITIVE_INFINITY;
+        return factor * Math.ceil(value / factor);
+    }
+
+    @Override
+    public double getSmallestNonZeroValue() {
+        return factor;
+    }
+
+    @Override
+    public int init(InitializerConfig init) {
+        return 0;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isStoreTwoDirections() {
+        return storeTwoDirections;
+    }
+
+    /**
+     * A modifiable copy of the values, see {@link #createUpdate}.
+     */
+    public class Update {
+        private byte[] values;
+
+        private Update(byte[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @param value the new value or {@link Double#POSITIVE_INFINITY} to remove the value
+         */
+        public Update set(int edgeId, boolean reverse, double value) {
+            if (values == null)
+                throw new IllegalStateException("The update for " + name + " was already published");
+            int index = getIndex(edgeId, reverse);
+            if (index < 0)
+                throw new IllegalArgumentException("Invalid edge " + edgeId + " for " + name);
+            if (index >= values.length) {
+                int oldLength = values.length;
+                values = Arrays.copyOf(values, Math.max(index + 1, oldLength + oldLength / 2));
+                Arrays.fill(values, oldLength, values.length, (byte) UNSET);
+            }
+            values[index] = (byte) toStoredValue(value);
+            return this;
+        }
+
+        public Update remove(int edgeId, boolean reverse) {
+            return set(edgeId, reverse, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Replaces all values with the values of this update. Requests that run concurrently use the new values from
+         * the next edge on. The update cannot be changed afterwards.
+         */
+        public void publish() {
+            if (values == null)
+                throw new IllegalStateException("The update for " + name + " was already published");
+            ExternalDecimalEncodedValue.this.values = values;
+            values = null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+/**
+ * This EncodedValue stores live traffic speeds in km/h per edge and direction. The values are not filled during the
+ * import, but can be changed at any time via {@link ExternalDecimalEncodedValue#createUpdate}. Edges without a traffic
+ * speed return {@link Double#POSITIVE_INFINITY}, so use it like "limit_to": "traffic_speed" in a custom model.
+ */
+public class TrafficSpeed {
+    public static final String KEY = "traffic_speed";
+
+    public static ExternalDecimalEncodedValue create(double factor) {
+        return new ExternalDecimalEncodedValue(KEY, factor, true);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.EdgeToEdgeRoutingAlgorithm;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+import static com.graphhopper.routing.ch.CHParameters.CONTRACTED_NODES;
+import static com.graphhopper.util.Helper.nf;
+import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
+import static com.graphhopper.util.Parameters.Routing.TIMEOUT_MS;
+
+/**
+ * Core-ALT combines contraction hierarchies with landmarks: the unimportant nodes are contracted by
+ * {@link PrepareContractionHierarchies} as usual, but the contraction stops before the most important nodes (the
+ * core) are contracted. The landmark weights are then calculated for the core nodes only. A query searches upwards
+ * from the start and the destination until it reaches the core and then continues with a bidirectional A* search
+ * within the core that is guided by the landmarks, see {@link CoreALTAlgo}. Compared to LM the queries are much
+ * faster and the landmark weights need much less memory, while the core still allows to use a goal-directed search
+ * where a full contraction would create too many shortcuts.
+ * <p>
+ * Only node-based routing is supported. Everything is kept in memory, so the preparation is done whenever the graph
+ * is loaded.
+ * <p>
+ * See Bauer, Delling, Sanders, Schieferdecker, Schultes and Wagner: Combining Hierarchical and Goal-Directed Speed-Up
+ * Techniques for Dijkstra's Algorithm, https://doi.org/10.1145/1671970.1671976
+ */
+public class CoreALT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoreALT.class);
+    static final int INFINITY = Integer.MAX_VALUE;
+    private final RoutingCHGraph chGraph;
+    // the index of every core node within the arrays below or -1 for nodes outside of the core
+    private final int[] coreIdByNode;
+    private final int[] nodeByCoreId;
+    // the arcs between the core nodes, i.e. original edges and shortcuts, grouped by their tail (out) or head (in)
+    private final int[] outFirst;
+    private final int[] outHeads;
+    private final int[] outEdges;
+    private final double[] outWeights;
+    private final int[] inFirst;
+    private final int[] inTails;
+    private final int[] inEdges;
+    private final double[] inWeights;
+    private final int landmarks;
+    // the weights from every landmark to every core node and back, stored as multiples of factor in the order
+    // coreId * landmarks + landmarkIndex. unreachable nodes are marked with INFINITY
+    private final int[] fromLandmarkWeights;
+    private final int[] toLandmarkWeights;
+    private final double factor;
+
+    /**
+     * @param corePercentage the percentage of the nodes that are not contracted and form the core
+     * @param landmarks      the number of landmarks that are placed within the core
+     */
+    public CoreALT(BaseGraph graph, CHConfig chConfig, int corePercentage, int landmarks) {
+        if (chConfig.isEdgeBased())
+            throw new IllegalArgumentException("Core-ALT does not support edge-based routing, " + chConfig.getName());
+        if (corePercentage <= 0 || corePercentage > 100)
+            throw new IllegalArgumentException("The core percentage must be in (0, 100], but was: " + corePercentage);
+        if (landmarks < 1)
+            throw new IllegalArgumentException("At least one landmark is required, but was: " + landmarks);
+        StopWatch sw = new StopWatch().start();
+        PrepareContractionHierarchies.Result result = PrepareContractionHierarchies.fromGraph(graph, chConfig, new RAMDirectory())
+                .setParams(new PMap().putObject(CONTRACTED_NODES, 100 - corePercentage))
+                .setStoreCore(true)
+                .doWork();
+        chGraph = RoutingCHGraphImpl.fromGraph(graph, result.getCHStorage(), chConfig);
+        float contractionSeconds = sw.stop().getSeconds();
+
+        sw = new StopWatch().start();
+        int nodes = graph.getNodes();
+        coreIdByNode = new int[nodes];
+        Arrays.fill(coreIdByNode, -1);
+        nodeByCoreId = new int[nodes - result.getCoreLevel()];
+        for (int node = 0; node < nodes; node++) {
+            int level = chGraph.getLevel(node);
+            if (level >= result.getCoreLevel()) {
+                coreIdByNode[node] = level - result.getCoreLevel();
+                nodeByCoreId[level - result.getCoreLevel()] = node;
+            }
+        }
+
+        IntArrayList tails = new IntArrayList();
+        IntArrayList heads = new IntArrayList();
+        IntArrayList edges = new IntArrayList();
+        DoubleArrayList weights = new DoubleArrayList();
+        RoutingCHEdgeExplorer outExplorer = chGraph.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer inExplorer = chGraph.createInEdgeExplorer();
+        for (int coreId = 0; coreId < nodeByCoreId.length; coreId++) {
+            // the original edges and the shortcuts that are stored at this node. shortcuts are only stored at their
+            // lower level node, so we need the incoming ones as well to get all arcs between the core nodes
+            RoutingCHEdgeIterator iter = outExplorer.setBaseNode(nodeByCoreId[coreId]);
+            while (iter.next()) {
+                int adjCoreId = coreIdByNode[iter.getAdjNode()];
+                double weight = iter.getWeight(false);
+                if (adjCoreId < 0 || adjCoreId == coreId || Double.isInfinite(weight))
+                    continue;
+                tails.add(coreId);
+                heads.add(adjCoreId);
+                edges.add(iter.getEdge());
+                weights.add(weight);
+            }
+            iter = inExplorer.setBaseNode(nodeByCoreId[coreId]);
+            while (iter.next()) {
+                int adjCoreId = coreIdByNode[iter.getAdjNode()];
+                double weight = iter.getWeight(true);
+                if (!iter.isShortcut() || adjCoreId < 0 || adjCoreId == coreId || Double.isInfinite(weight))
+                    continue;
+                tails.add(adjCoreId);
+                heads.add(coreId);
+                edges.add(iter.getEdge());
+                weights.add(weight);
+            }
+        }
+        int arcs = tails.size();
+        outFirst = new int[nodeByCoreId.length + 1];
+        outHeads = new int[arcs];
+        outEdges = new int[arcs];
+        outWeights = new double[arcs];
+        inFirst = new int[nodeByCoreId.length + 1];
+        inTails = new int[arcs];
+        inEdges = new int[arcs];
+        inWeights = new double[arcs];
+        for (int arc = 0; arc < arcs; arc++) {
+            outFirst[tails.get(arc) + 1]++;
+            inFirst[heads.get(arc) + 1]++;
+        }
+        for (int coreId = 0; coreId < nodeByCoreId.length; coreId++) {
+            outFirst[coreId + 1] += outFirst[coreId];
+            inFirst[coreId + 1] += inFirst[coreId];
+        }
+        int[] outPos = Arrays.copyOf(outFirst, outFirst.length);
+        int[] inPos = Arrays.copyOf(inFirst, inFirst.length);
+        for (int arc = 0; arc < arcs; arc++) {
+            int out = outPos[tails.get(arc)]++;
+            outHeads[out] = heads.get(arc);
+            outEdges[out] = edges.get(arc);
+            outWeights[out] = weights.get(arc);
+            int in = inPos[heads.get(arc)]++;
+            inTails[in] = tails.get(arc);
+            inEdges[in] = edges.get(arc);
+            inWeights[in] = weights.get(arc);
+        }
+
+        // choose the landmarks: every landmark is the core node that is farthest away from the previous landmarks
+        int coreNodes = nodeByCoreId.length;
+        this.landmarks = Math.min(landmarks, coreNodes);
+        double[][] fromWeights = new double[this.landmarks][];
+        double[][] toWeights = new double[this.landmarks][];
+        double[] minWeights = new double[coreNodes];
+        Arrays.fill(minWeights, Double.POSITIVE_INFINITY);
+        double maxWeight = 0;
+        int landmark = coreNodes == 0 ? -1 : findFarthest(calcWeights(0, false), null);
+        for (int i = 0; i < this.landmarks && landmark >= 0; i++) {
+            fromWeights[i] = calcWeights(landmark, false);
+            toWeights[i] = calcWeights(landmark, true);
+            for (int coreId = 0; coreId < coreNodes; coreId++) {
+                // nodes that cannot be reached from this landmark (e.g. on islands) are not used as landmarks
+                minWeights[coreId] = Math.min(minWeights[coreId], Double.isInfinite(fromWeights[i][coreId]) ? 0 : fromWeights[i][coreId]);
+                maxWeight = Math.max(maxWeight, Double.isInfinite(fromWeights[i][coreId]) ? 0 : fromWeights[i][coreId]);
+                maxWeight = Math.max(maxWeight, Double.isInfinite(toWeights[i][coreId]) ? 0 : toWeights[i][coreId]);
+            }
+            landmark = findFarthest(minWeights, minWeights);
+        }
+        // the weights are stored as integers just like for LM, but with a much finer resolution. the remaining
+        // rounding error is taken into account when the landmark weights are used
+        factor = Math.max(maxWeight, 1) / (INFINITY - 2);
+        fromLandmarkWeights = new int[coreNodes * this.landmarks];
+        toLandmarkWeights = new int[coreNodes * this.landmarks];
+        for (int i = 0; i < this.landmarks; i++) {
+            for (int coreId = 0; coreId < coreNodes; coreId++) {
+                fromLandmarkWeights[coreId * this.landmarks + i] = toInt(fromWeights[i] == null ? Double.POSITIVE_INFINITY : fromWeights[i][coreId]);
+                toLandmarkWeights[coreId * this.landmarks + i] = toInt(toWeights[i] == null ? Double.POSITIVE_INFINITY : toWeights[i][coreId]);
+            }
+        }
+        LOGGER.info("Created core-ALT for " + chConfig.getName() + ", core nodes: " + nf(coreNodes) + " of " + nf(nodes)
+                + ", core arcs: " + nf(arcs) + ", shortcuts: " + nf(chGraph.getShortcuts()) + ", landmarks: " + this.landmarks
+                + ", contraction: " + contractionSeconds + "s, landmarks: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
+    }
+
+    private int toInt(double weight) {
+        return Double.isInfinite(weight) ? INFINITY : (int) Math.min(INFINITY - 2, Math.floor(weight / factor));
+    }
+
+    /**
+     * @return the core node with the largest finite weight that was not chosen already, i.e. has a positive weight in
+     * minWeights, or -1 if there is no such node
+     */
+    private static int findFarthest(double[] weights, double[] minWeights) {
+        int farthest = -1;
+        for (int coreId = 0; coreId < weights.length; coreId++) {
+            if (Double.isInfinite(weights[coreId]) || minWeights != null && minWeights[coreId] <= 0)
+                continue;
+            if (farthest < 0 || weights[coreId] > weights[farthest])
+                farthest = coreId;
+        }
+        return farthest;
+    }
+
+    /**
+     * Calculates the weights from the given core node to all other core nodes (or from all core nodes to the given
+     * one if reverse is true) within the core graph.
+     */
+    private double[] calcWeights(int coreId, boolean reverse) {
+        int[] first = reverse ? inFirst : outFirst;
+        int[] adj = reverse ? inTails : outHeads;
+        double[] arcWeights = reverse ? inWeights : outWeights;
+        double[] weights = new double[nodeByCoreId.length];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        weights[coreId] = 0;
+        // the heap only supports float priorities, so we correct the resulting weights by re-inserting nodes whose
+        // weight improved after they were polled
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(nodeByCoreId.length);
+        heap.push(coreId, 0);
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            for (int arc = first[curr]; arc < first[curr + 1]; arc++) {
+                double weight = weights[curr] + arcWeights[arc];
+                if (weight >= weights[adj[arc]])
+                    continue;
+                weights[adj[arc]] = weight;
+                if (heap.contains(adj[arc]))
+                    heap.update(adj[arc], (float) weight);
+                else
+                    heap.push(adj[arc], (float) weight);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Creates the algorithm for a route calculation on the given query graph. The options can specify the maximum
+     * number of visited nodes and a timeout.
+     */
+    public EdgeToEdgeRoutingAlgorithm createAlgo(QueryGraph queryGraph, PMap opts) {
+        CoreALTAlgo algo = new CoreALTAlgo(this, new QueryRoutingCHGraph(chGraph, queryGraph));
+        if (opts.has(MAX_VISITED_NODES))
+            algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
+        if (opts.has(TIMEOUT_MS))
+            algo.setTimeoutMillis(opts.getLong(TIMEOUT_MS, Long.MAX_VALUE));
+        return algo;
+    }
+
+    public Weighting getWeighting() {
+        return chGraph.getWeighting();
+    }
+
+    public RoutingCHGraph getRoutingCHGraph() {
+        return chGraph;
+    }
+
+    public int getCoreNodes() {
+        return nodeByCoreId.length;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks;
+    }
+
+    /**
+     * @return the index of the given node within the core or -1 if it is not a core node
+     */
+    int getCoreId(int node) {
+        return node < coreIdByNode.length ? coreIdByNode[node] : -1;
+    }
+
+    int getNode(int coreId) {
+        return nodeByCoreId[coreId];
+    }
+
+    int[] getFirst(boolean reverse) {
+        return reverse ? inFirst : outFirst;
+    }
+
+    int[] getAdjCoreIds(boolean reverse) {
+        return reverse ? inTails : outHeads;
+    }
+
+    int[] getEdges(boolean reverse) {
+        return reverse ? inEdges : outEdges;
+    }
+
+    double[] getWeights(boolean reverse) {
+        return reverse ? inWeights : outWeights;
+    }
+
+    /**
+     * @return the rounding error of the landmark weights
+     */
+    double getFactor() {
+        return factor;
+    }
+
+    /**
+     * @return a lower bound of the weight from the given landmark to the given core node
+     */
+    double getFromWeightLowerBound(int landmark, int coreId) {
+        int value = fromLandmarkWeights[coreId * landmarks + landmark];
+        return value == INFINITY ? Double.POSITIVE_INFINITY : value * factor;
+    }
+
+    /**
+     * @return an upper bound of the weight from the given landmark to the given core node
+     */
+    double getFromWeightUpperBound(int landmark, int coreId) {
+        int value = fromLandmarkWeights[coreId * landmarks + landmark];
+        return value == INFINITY ? Double.POSITIVE_INFINITY : (value + 1) * factor;
+    }
+
+    /**
+     * @return a lower bound of the weight from the given core node to the given landmark
+     */
+    double getToWeightLowerBound(int landmark, int coreId) {
+        int value = toLandmarkWeights[coreId * landmarks + landmark];
+        return value == INFINITY ? Double.POSITIVE_INFINITY : value * factor;
+    }
+
+    /**
+     * @return an upper bound of the weight from the given core node to the given landmark
+     */
+    double getToWeightUpperBound(int landmark, int coreId) {
+        int value = toLandmarkWeights[coreId * landmarks + landmark];
+        return value == INFINITY ? Double.POSITIVE_INFINITY : (value + 1) * factor;
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.routing.AStar.AStarEntry;
+import com.graphhopper.routing.EdgeToEdgeRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+
+/**
+ * The query algorithm for {@link CoreALT}. First we search upwards from the start and the destination like for CH,
+ * but stop at the core nodes. All core nodes that were reached this way are then used as the start and destination
+ * nodes of a bidirectional A* search within the core.
+ * <p>
+ * The landmark weights are only known for the core nodes, so unlike for {@link LMApproximator} the A* heuristic has to
+ * estimate the weight to a set of nodes: the core nodes reached by the backward search (and from the core nodes
+ * reached by the forward search). We use the weights of the upward searches to these nodes to get lower bounds of the
+ * weight to the destination (or from the start). Both searches use the balanced (average) potential of the forward
+ * and backward heuristic, so the search can stop as soon as the sum of both queue heads exceeds the best weight found
+ * so far.
+ */
+public class CoreALTAlgo implements EdgeToEdgeRoutingAlgorithm {
+    private final CoreALT coreALT;
+    private final RoutingCHGraph graph;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final int maxNodes;
+    private final int landmarks;
+    private final double factor;
+    // the bounds used to estimate the weight to the core nodes reached by the backward search (fwd...) and the weight
+    // from the core nodes reached by the forward search (bwd...) per landmark
+    private final double[] fwdMaxTo;
+    private final double[] fwdMinFrom;
+    private final double[] bwdMinTo;
+    private final double[] bwdMaxFrom;
+    private IntObjectMap<AStarEntry> bestWeightMapFrom;
+    private IntObjectMap<AStarEntry> bestWeightMapTo;
+    private SPTEntry bestFwdEntry;
+    private SPTEntry bestBwdEntry;
+    private double bestWeight = Double.POSITIVE_INFINITY;
+    private int visitedNodes;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private long timeoutMillis = Long.MAX_VALUE;
+    private long finishTimeMillis = Long.MAX_VALUE;
+    private boolean alreadyRun;
+
+    CoreALTAlgo(CoreALT coreALT, RoutingCHGraph graph) {
+        this.coreALT = coreALT;
+        this.graph = graph;
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        landmarks = coreALT.getLandmarkCount();
+        factor = coreALT.getFactor();
+        fwdMaxTo = new double[landmarks];
+        fwdMinFrom = new double[landmarks];
+        bwdMinTo = new double[landmarks];
+        bwdMaxFrom = new double[landmarks];
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, EdgeIterator.ANY_EDGE, EdgeIterator.ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if (fromOutEdge != EdgeIterator.ANY_EDGE || toInEdge != EdgeIterator.ANY_EDGE)
+            throw new IllegalArgumentException("Restricting the start/target edges is not supported by " + getName());
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+        alreadyRun = true;
+        try {
+            finishTimeMillis = Math.addExact(System.currentTimeMillis(), timeoutMillis);
+        } catch (ArithmeticException e) {
+            finishTimeMillis = Long.MAX_VALUE;
+        }
+        bestWeightMapFrom = searchUpwards(from, false);
+        bestWeightMapTo = searchUpwards(to, true);
+        IntObjectMap<AStarEntry> smaller = bestWeightMapFrom.size() < bestWeightMapTo.size() ? bestWeightMapFrom : bestWeightMapTo;
+        for (IntObjectCursor<AStarEntry> c : smaller) {
+            AStarEntry fwdEntry = bestWeightMapFrom.get(c.key);
+            AStarEntry bwdEntry = bestWeightMapTo.get(c.key);
+            if (fwdEntry != null && bwdEntry != null)
+                updateBestPath(fwdEntry, bwdEntry);
+        }
+        if (!isMaxVisitedNodesExceeded() && !isTimeoutExceeded())
+            searchCore();
+        if (bestFwdEntry == null)
+            return new Path(graph.getBaseGraph());
+        return new NodeBasedCHBidirPathExtractor(graph).extract(bestFwdEntry, bestBwdEntry, bestWeight);
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    /**
+     * Runs a Dijkstra search that only follows the edges towards nodes with a higher level and stops at the core nodes.
+     */
+    private IntObjectMap<AStarEntry> searchUpwards(int node, boolean reverse) {
+        IntObjectMap<AStarEntry> bestWeightMap = new IntObjectHashMap<>();
+        PriorityQueue<AStarEntry> queue = new PriorityQueue<>();
+        AStarEntry start = new AStarEntry(EdgeIterator.NO_EDGE, node, 0, 0);
+        bestWeightMap.put(node, start);
+        queue.add(start);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!queue.isEmpty()) {
+            AStarEntry curr = queue.poll();
+            if (curr.isDeleted())
+                continue;
+            visitedNodes++;
+            if (coreALT.getCoreId(curr.adjNode) >= 0)
+                continue;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (iter.getEdge() == curr.edge || !acceptUpwards(iter.getBaseNode(), iter.getAdjNode(), iter.isShortcut()))
+                    continue;
+                double weight = curr.getWeightOfVisitedPath() + iter.getWeight(reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                AStarEntry entry = bestWeightMap.get(iter.getAdjNode());
+                if (entry != null && entry.getWeightOfVisitedPath() <= weight)
+                    continue;
+                if (entry != null)
+                    entry.setDeleted();
+                entry = new AStarEntry(iter.getEdge(), iter.getAdjNode(), weight, weight, curr);
+                bestWeightMap.put(iter.getAdjNode(), entry);
+                queue.add(entry);
+            }
+        }
+        return bestWeightMap;
+    }
+
+    private boolean acceptUpwards(int base, int adj, boolean shortcut) {
+        // always accept virtual edges and shortcuts, see AbstractBidirCHAlgo
+        if (base >= maxNodes || adj >= maxNodes || shortcut)
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * Runs the bidirectional A* search between the core nodes that were reached by the upward searches.
+     */
+    private void searchCore() {
+        IntObjectMap<AStarEntry> coreMapFrom = new IntObjectHashMap<>();
+        IntObjectMap<AStarEntry> coreMapTo = new IntObjectHashMap<>();
+        collectCoreEntries(bestWeightMapFrom, coreMapFrom);
+        collectCoreEntries(bestWeightMapTo, coreMapTo);
+        if (coreMapFrom.isEmpty() || coreMapTo.isEmpty())
+            return;
+        initBounds(coreMapFrom, coreMapTo);
+
+        PriorityQueue<AStarEntry> queueFrom = new PriorityQueue<>();
+        PriorityQueue<AStarEntry> queueTo = new PriorityQueue<>();
+        initQueue(coreMapFrom, queueFrom, false);
+        initQueue(coreMapTo, queueTo, true);
+        while (!isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            pollDeleted(queueFrom);
+            pollDeleted(queueTo);
+            if (queueFrom.isEmpty() || queueTo.isEmpty())
+                return;
+            // the keys are the weights plus/minus the same potential, so their sum is a lower bound of any path that
+            // was not found yet. we add the factor to account for the rounding of the landmark weights
+            if (queueFrom.peek().weight + queueTo.peek().weight >= bestWeight + factor)
+                return;
+            if (queueFrom.peek().weight <= queueTo.peek().weight)
+                expand(queueFrom.poll(), queueFrom, coreMapFrom, coreMapTo, false);
+            else
+                expand(queueTo.poll(), queueTo, coreMapTo, coreMapFrom, true);
+        }
+    }
+
+    private void collectCoreEntries(IntObjectMap<AStarEntry> bestWeightMap, IntObjectMap<AStarEntry> coreMap) {
+        for (IntObjectCursor<AStarEntry> c : bestWeightMap) {
+            int coreId = coreALT.getCoreId(c.key);
+            if (coreId >= 0)
+                coreMap.put(coreId, c.value);
+        }
+    }
+
+    private void initQueue(IntObjectMap<AStarEntry> coreMap, PriorityQueue<AStarEntry> queue, boolean reverse) {
+        for (IntObjectCursor<AStarEntry> c : coreMap) {
+            double potential = calcPotential(c.key);
+            if (Double.isInfinite(potential))
+                continue;
+            AStarEntry e = c.value;
+            double weight = e.getWeightOfVisitedPath();
+            AStarEntry entry = new AStarEntry(e.edge, e.adjNode, reverse ? weight - potential : weight + potential, weight, e.parent);
+            // the map still contains the entry from the upward search, replacing the value does not modify the keys
+            coreMap.put(c.key, entry);
+            queue.add(entry);
+        }
+    }
+
+    private void expand(AStarEntry curr, PriorityQueue<AStarEntry> queue, IntObjectMap<AStarEntry> coreMap,
+                        IntObjectMap<AStarEntry> otherCoreMap, boolean reverse) {
+        visitedNodes++;
+        int coreId = coreALT.getCoreId(curr.adjNode);
+        int[] first = coreALT.getFirst(reverse);
+        int[] adjCoreIds = coreALT.getAdjCoreIds(reverse);
+        int[] edges = coreALT.getEdges(reverse);
+        double[] weights = coreALT.getWeights(reverse);
+        for (int arc = first[coreId]; arc < first[coreId + 1]; arc++) {
+            if (edges[arc] == curr.edge)
+                continue;
+            int adjCoreId = adjCoreIds[arc];
+            double weight = curr.getWeightOfVisitedPath() + weights[arc];
+            AStarEntry entry = coreMap.get(adjCoreId);
+            if (entry != null && entry.getWeightOfVisitedPath() <= weight)
+                continue;
+            double potential = calcPotential(adjCoreId);
+            if (Double.isInfinite(potential))
+                continue;
+            if (entry != null)
+                entry.setDeleted();
+            entry = new AStarEntry(edges[arc], coreALT.getNode(adjCoreId), reverse ? weight - potential : weight + potential, weight, curr);
+            coreMap.put(adjCoreId, entry);
+            queue.add(entry);
+            AStarEntry otherEntry = otherCoreMap.get(adjCoreId);
+            if (otherEntry != null) {
+                if (reverse)
+                    updateBestPath(otherEntry, entry);
+                else
+                    updateBestPath(entry, otherEntry);
+            }
+        }
+    }
+
+    private static void pollDeleted(PriorityQueue<AStarEntry> queue) {
+        while (!queue.isEmpty() && queue.peek().isDeleted())
+            queue.poll();
+    }
+
+    private void updateBestPath(AStarEntry fwdEntry, AStarEntry bwdEntry) {
+        double weight = fwdEntry.getWeightOfVisitedPath() + bwdEntry.getWeightOfVisitedPath();
+        if (weight < bestWeight) {
+            bestWeight = weight;
+            bestFwdEntry = fwdEntry;
+            bestBwdEntry = bwdEntry;
+        }
+    }
+
+    private void initBounds(IntObjectMap<AStarEntry> coreMapFrom, IntObjectMap<AStarEntry> coreMapTo) {
+        for (int lm = 0; lm < landmarks; lm++) {
+            // for the forward search: d(v, t) >= d(v, L) - max_b (d(b, L) - d(b, t)) and
+            // d(v, t) >= min_b (d(L, b) + d(b, t)) - d(L, v), where b are the core nodes reached from t
+            fwdMaxTo[lm] = Double.NEGATIVE_INFINITY;
+            fwdMinFrom[lm] = Double.POSITIVE_INFINITY;
+            for (IntObjectCursor<AStarEntry> c : coreMapTo) {
+                double weight = c.value.getWeightOfVisitedPath();
+                fwdMaxTo[lm] = Math.max(fwdMaxTo[lm], coreALT.getToWeightUpperBound(lm, c.key) - weight);
+                fwdMinFrom[lm] = Math.min(fwdMinFrom[lm], coreALT.getFromWeightLowerBound(lm, c.key) + weight);
+            }
+            // for the backward search: d(s, v) >= min_a (d(s, a) + d(a, L)) - d(v, L) and
+            // d(s, v) >= d(L, v) - max_a (d(L, a) - d(s, a)), where a are the core nodes reached from s
+            bwdMinTo[lm] = Double.POSITIVE_INFINITY;
+            bwdMaxFrom[lm] = Double.NEGATIVE_INFINITY;
+            for (IntObjectCursor<AStarEntry> c : coreMapFrom) {
+                double weight = c.value.getWeightOfVisitedPath();
+                bwdMinTo[lm] = Math.min(bwdMinTo[lm], weight + coreALT.getToWeightLowerBound(lm, c.key));
+                bwdMaxFrom[lm] = Math.max(bwdMaxFrom[lm], coreALT.getFromWeightUpperBound(lm, c.key) - weight);
+            }
+        }
+    }
+
+    /**
+     * @return the balanced potential of the given core node, i.e. the average of the estimated weight to the
+     * destination and the negative estimated weight from the start, or infinity if the node can be skipped, because
+     * it cannot be on a path between the start and the destination
+     */
+    private double calcPotential(int coreId) {
+        double fwd = 0;
+        double bwd = 0;
+        for (int lm = 0; lm < landmarks; lm++) {
+            double lowTo = coreALT.getToWeightLowerBound(lm, coreId);
+            double upTo = coreALT.getToWeightUpperBound(lm, coreId);
+            double lowFrom = coreALT.getFromWeightLowerBound(lm, coreId);
+            double upFrom = coreALT.getFromWeightUpperBound(lm, coreId);
+            // infinite upper bounds in the subtrahend make a bound useless, infinite lower bounds in the minuend show
+            // that the node cannot reach the destination (or cannot be reached from the start)
+            if (!Double.isInfinite(fwdMaxTo[lm])) {
+                if (Double.isInfinite(lowTo))
+                    return Double.POSITIVE_INFINITY;
+                fwd = Math.max(fwd, lowTo - fwdMaxTo[lm]);
+            }
+            if (!Double.isInfinite(upFrom))
+                fwd = Math.max(fwd, fwdMinFrom[lm] - upFrom);
+            if (!Double.isInfinite(upTo))
+                bwd = Math.max(bwd, bwdMinTo[lm] - upTo);
+            if (!Double.isInfinite(bwdMaxFrom[lm])) {
+                if (Double.isInfinite(lowFrom))
+                    return Double.POSITIVE_INFINITY;
+                bwd = Math.max(bwd, lowFrom - bwdMaxFrom[lm]);
+            }
+        }
+        if (Double.isInfinite(fwd) || Double.isInfinite(bwd))
+            return Double.POSITIVE_INFINITY;
+        return (fwd - bwd) / 2;
+    }
+
+    private boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < visitedNodes;
+    }
+
+    private boolean isTimeoutExceeded() {
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    @Override
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String getName() {
+        return ASTAR_BI + "|core_alt";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
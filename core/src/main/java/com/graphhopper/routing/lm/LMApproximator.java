@@ -45,7 +45,7 @@ public class LMApproximator implements WeightApproximator {
     private int towerNodeNextToT = -1;
     private double weightFromTToTowerNode;
     private boolean recalculateActiveLandmarks = true;
-    private final double factor;
+    private double factor;
     private final boolean reverse;
     private final int maxBaseNodes;
     private final Graph graph;
@@ -109,6 +109,8 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
+                // the weights might be stored with a factor specific to the subnetwork of t
+                factor = lms.getFactor(towerNodeNextToT);
                 for (int i = 0; i < activeLandmarkIndices.length; i++) {
                     weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
                     weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
@@ -60,6 +60,8 @@ public class LMPreparationHandler {
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private boolean logDetails = false;
+    private int weightBits = 16;
+    private boolean subnetworkFactors = false;
     private AreaIndex<SplitArea> areaIndex;
 
     public LMPreparationHandler() {
@@ -78,6 +80,10 @@ public class LMPreparationHandler {
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
+        weightBits = ghConfig.getInt(Landmark.PREPARE + "weight_bits", weightBits);
+        if (weightBits != 8 && weightBits != 16)
+            throw new IllegalArgumentException(Landmark.PREPARE + "weight_bits must be 8 or 16, but was " + weightBits);
+        subnetworkFactors = ghConfig.getBool(Landmark.PREPARE + "subnetwork_factors", subnetworkFactors);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
             if (!loc.trim().isEmpty())
@@ -220,6 +226,8 @@ public class LMPreparationHandler {
             PrepareLandmarks prepareLandmarks = new PrepareLandmarks(graph.getDirectory(), graph, encodedValueLookup,
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
+                    setWeightBits(weightBits).
+                    setSubnetworkFactors(subnetworkFactors).
                     setMaximumWeight(maximumWeight).
                     setLogDetails(logDetails);
             if (minNodes > 1)
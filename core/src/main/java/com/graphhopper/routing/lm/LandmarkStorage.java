@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.lm;
 
+import com.carrotsearch.hppc.DoubleArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntObjectMap;
@@ -75,11 +76,19 @@ public class LandmarkStorage {
     private long LM_ROW_LENGTH;
     private int landmarks;
     private final int FROM_OFFSET;
-    private final int TO_OFFSET;
+    private int TO_OFFSET;
+    // the number of bytes per stored weight, either 2 (the default) or 1
+    private int weightBytes = 2;
     private final DataAccess landmarkWeightDA;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
     private double factor = -1;
+    private double maximumWeight = -1;
+    // the factor of every subnetwork, see setSubnetworkFactors
+    private final DoubleArrayList subnetworkFactors = new DoubleArrayList();
+    private boolean useSubnetworkFactors = false;
+    // the factor of the subnetwork for which the weights are currently calculated
+    private double currentFactor;
     private final static double DOUBLE_MLTPL = 1e6;
     private final BaseGraph graph;
     private final NodeAccess na;
@@ -138,7 +147,7 @@ public class LandmarkStorage {
         // one short per landmark and two directions => 2*2 byte
         this.LM_ROW_LENGTH = landmarks * 4;
         this.FROM_OFFSET = 0;
-        this.TO_OFFSET = 2;
+        this.TO_OFFSET = weightBytes;
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -155,13 +164,62 @@ public class LandmarkStorage {
      */
     public LandmarkStorage setMaximumWeight(double maxWeight) {
         if (maxWeight > 0) {
-            this.factor = maxWeight / PRECISION;
+            this.maximumWeight = maxWeight;
+            this.factor = maxWeight / getPrecision();
+            this.currentFactor = factor;
             if (Double.isInfinite(factor) || Double.isNaN(factor))
                 throw new IllegalStateException("Illegal factor " + factor + " calculated from maximum weight " + maxWeight);
         }
         return this;
     }
 
+    /**
+     * Specifies how many bits are used to store a weight: 16 (the default) or 8. With 8 bits the landmark data needs only
+     * half of the memory, so more landmarks or more LM profiles fit into the same RAM. The weights are rounded much more
+     * coarsely, so the approximation gets worse, but it still never overestimates the real weight.
+     */
+    public LandmarkStorage setWeightBits(int bits) {
+        if (isInitialized())
+            throw new IllegalStateException("Cannot change the weight bits after the landmarks were created or loaded");
+        if (bits != 8 && bits != 16)
+            throw new IllegalArgumentException("Landmark weights can be stored with 8 or 16 bits, but not with " + bits);
+        weightBytes = bits / 8;
+        LM_ROW_LENGTH = landmarks * 2L * weightBytes;
+        TO_OFFSET = weightBytes;
+        if (maximumWeight > 0)
+            setMaximumWeight(maximumWeight);
+        return this;
+    }
+
+    public int getWeightBits() {
+        return weightBytes * 8;
+    }
+
+    /**
+     * If enabled the maximum weight is estimated for every subnetwork separately instead of once for the whole graph.
+     * This keeps the stored weights precise in small subnetworks (or regions, see {@link #setAreaIndex}) even if there
+     * are other subnetworks with much longer routes. This has no effect if the maximum weight is specified explicitly.
+     */
+    public LandmarkStorage setSubnetworkFactors(boolean useSubnetworkFactors) {
+        this.useSubnetworkFactors = useSubnetworkFactors;
+        return this;
+    }
+
+    /**
+     * @return the number of distinct values that can be stored for a weight, including the infinity marker
+     */
+    private long getPrecision() {
+        return 1L << (8 * weightBytes);
+    }
+
+    private int getInfinity() {
+        return (int) getPrecision() - 1;
+    }
+
+    private int getMaxWeightValue() {
+        return getInfinity() - 1;
+    }
+
     /**
      * By default do not log many details.
      */
@@ -235,13 +293,21 @@ public class LandmarkStorage {
         this.landmarkWeightDA.create(2000);
         this.landmarkWeightDA.ensureCapacity(maxBytes);
 
-        for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+        if (weightBytes == 1) {
+            for (long pointer = 0; pointer < maxBytes; pointer++) {
+                landmarkWeightDA.setByte(pointer, (byte) getInfinity());
+            }
+        } else {
+            for (long pointer = 0; pointer < maxBytes; pointer += 2) {
+                landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+            }
         }
 
         int[] empty = new int[landmarks];
         Arrays.fill(empty, UNSET_SUBNETWORK);
         landmarkIDs.add(empty);
+        // the factor of the first (unclear) subnetwork is set at the end
+        subnetworkFactors.add(-1);
 
         byte[] subnetworks = new byte[graph.getNodes()];
         Arrays.fill(subnetworks, (byte) UNSET_SUBNETWORK);
@@ -277,6 +343,7 @@ public class LandmarkStorage {
             LOGGER.info("Calculated " + graphComponents.getComponents().size() + " subnetworks via tarjan in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
 
         String additionalInfo = "";
+        double[] maxWeightPerComponent = null;
         // guess the factor
         if (factor <= 0) {
             // A 'factor' is necessary to store the weight in just a short value but without losing too much precision.
@@ -284,22 +351,27 @@ public class LandmarkStorage {
             // see estimateMaxWeight. If we pick the distance too big for small areas this could lead to (slightly)
             // suboptimal routes as there will be too big rounding errors. But picking it too small is bad for performance
             // e.g. for Germany at least 1500km is very important otherwise speed is at least twice as slow e.g. for 1000km
-            double maxWeight = estimateMaxWeight(graphComponents.getComponents(), accessFilter);
+            maxWeightPerComponent = estimateMaxWeight(graphComponents.getComponents(), accessFilter);
+            double maxWeight = Arrays.stream(maxWeightPerComponent).max().orElse(0);
             setMaximumWeight(maxWeight);
-            additionalInfo = ", maxWeight:" + maxWeight + " from quick estimation";
+            additionalInfo = ", maxWeight:" + maxWeight + " from quick estimation" + (useSubnetworkFactors ? " (per subnetwork)" : "");
         }
 
         if (logDetails)
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
         int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+        for (int component = 0; component < graphComponents.getComponents().size(); component++) {
+            IntArrayList subnetworkIds = graphComponents.getComponents().get(component);
             nodes += subnetworkIds.size();
             if (subnetworkIds.size() < minimumNodes)
                 continue;
             if (factor <= 0)
                 throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
                         + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+            currentFactor = useSubnetworkFactors && maxWeightPerComponent != null && maxWeightPerComponent[component] > 0
+                    ? maxWeightPerComponent[component] / getPrecision()
+                    : factor;
 
             int index = subnetworkIds.size() - 1;
             // ensure start node is reachable from both sides and no subnetwork is associated
@@ -321,8 +393,10 @@ public class LandmarkStorage {
         }
 
         int subnetworkCount = landmarkIDs.size();
-        // store all landmark node IDs and one int for the factor itself.
-        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */);
+        subnetworkFactors.set(0, factor);
+        // store all landmark node IDs and the factor of every subnetwork
+        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks * 4 /* landmark mapping per subnetwork */
+                + (long) subnetworkCount * 8 /* factor per subnetwork */);
 
         // calculate offset to point into landmark mapping
         long bytePos = maxBytes;
@@ -332,13 +406,19 @@ public class LandmarkStorage {
                 bytePos += 4L;
             }
         }
+        for (int subnetwork = 0; subnetwork < subnetworkCount; subnetwork++) {
+            long bits = Double.doubleToLongBits(subnetworkFactors.get(subnetwork));
+            landmarkWeightDA.setInt(bytePos, (int) (bits >>> 32));
+            landmarkWeightDA.setInt(bytePos + 4, (int) bits);
+            bytePos += 8L;
+        }
 
         landmarkWeightDA.setHeader(0 * 4, graph.getNodes());
         landmarkWeightDA.setHeader(1 * 4, landmarks);
         landmarkWeightDA.setHeader(2 * 4, subnetworkCount);
-        if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
-            throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
-        landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        // the exact factors are stored per subnetwork, this rounded value is only kept for older readers
+        landmarkWeightDA.setHeader(3 * 4, (int) Math.min(Integer.MAX_VALUE, Math.round(factor * DOUBLE_MLTPL)));
+        landmarkWeightDA.setHeader(4 * 4, weightBytes);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -352,17 +432,20 @@ public class LandmarkStorage {
     }
 
     /**
-     * This method returns the maximum weight for the graph starting from the landmarks
+     * This method returns the maximum weight for every component of the graph starting from the landmarks. It is zero
+     * for components that are too small or could not be explored.
      */
-    private double estimateMaxWeight(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
+    private double[] estimateMaxWeight(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
         double maxWeight = 0;
+        double[] maxWeightPerComponent = new double[graphComponents.size()];
         int searchedSubnetworks = 0;
         Random random = new Random(0);
         // the maximum weight can only be an approximation so there is only a tiny improvement when we would do this for
         // all landmarks. See #2027 (1st commit) where only 1 landmark was sufficient when multiplied with 1.01 at the end
         // TODO instead of calculating the landmarks again here we could store them in landmarkIDs and do this for all here
         int[] tmpLandmarkNodeIds = new int[3];
-        for (IntArrayList subnetworkIds : graphComponents) {
+        for (int component = 0; component < graphComponents.size(); component++) {
+            IntArrayList subnetworkIds = graphComponents.get(component);
             if (subnetworkIds.size() < minimumNodes)
                 continue;
 
@@ -384,8 +467,9 @@ public class LandmarkStorage {
                     explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
                     explorer.setStartNode(lmNodeId);
                     explorer.runAlgo();
-                    maxWeight = Math.max(maxWeight, explorer.getLastEntry().weight);
+                    maxWeightPerComponent[component] = Math.max(maxWeightPerComponent[component], explorer.getLastEntry().weight);
                 }
+                maxWeight = Math.max(maxWeight, maxWeightPerComponent[component]);
                 break;
             }
         }
@@ -395,7 +479,10 @@ public class LandmarkStorage {
 
         // we have to increase maxWeight slightly as it is only an approximation towards the maximum weight,
         // especially when external landmarks are provided, but also because we do not traverse all landmarks
-        return maxWeight * 1.008;
+        for (int component = 0; component < maxWeightPerComponent.length; component++) {
+            maxWeightPerComponent[component] *= 1.008;
+        }
+        return maxWeightPerComponent;
     }
 
     /**
@@ -453,7 +540,7 @@ public class LandmarkStorage {
             LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, FROM_OFFSET);
 
             // set subnetwork id to all explored nodes, but do this only for the first landmark
             if (lmIdx == 0) {
@@ -464,7 +551,7 @@ public class LandmarkStorage {
             explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, TO_OFFSET);
 
             if (lmIdx == 0) {
                 if (explorer.setSubnetworks(subnetworks, subnetworkId))
@@ -478,6 +565,7 @@ public class LandmarkStorage {
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
         landmarkIDs.add(tmpLandmarkNodeIds);
+        subnetworkFactors.add(currentFactor);
         return true;
     }
 
@@ -512,24 +600,32 @@ public class LandmarkStorage {
     }
 
     /**
-     * The factor is used to convert double values into more compact int values.
+     * The factor is used to convert double values into more compact int values. If the factors are calculated per
+     * subnetwork this is the largest of them.
      */
     double getFactor() {
         return factor;
     }
 
+    /**
+     * @return the factor of the subnetwork of the given node, which has to be used for the weights of this node
+     */
+    double getFactor(int node) {
+        int subnetwork = subnetworkStorage.getSubnetwork(node);
+        return subnetwork <= UNCLEAR_SUBNETWORK || subnetwork >= subnetworkFactors.size() ? factor : subnetworkFactors.get(subnetwork);
+    }
+
     /**
      * @return the weight from the landmark to the specified node. Where the landmark integer is not
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
+        int res = getWeight(getPointer(landmarkIndex, node, FROM_OFFSET));
+        if (res == getInfinity())
             // TODO can happen if endstanding oneway
             // we should set a 'from' value to SHORT_MAX if the 'to' value was already set to find real bugs
             // and what to return? Integer.MAX_VALUE i.e. convert to Double.pos_infinity upstream?
-            return SHORT_MAX;
+            return getMaxWeightValue();
         // throw new IllegalStateException("Do not call getFromWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
         // TODO if(res == MAX) fallback to beeline approximation!?
 
@@ -540,33 +636,42 @@ public class LandmarkStorage {
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
-            return SHORT_MAX;
+        int res = getWeight(getPointer(landmarkIndex, node, TO_OFFSET));
+        if (res == getInfinity())
+            return getMaxWeightValue();
 
         return res;
     }
 
+    private long getPointer(int landmarkIndex, int node, int offset) {
+        return (long) node * LM_ROW_LENGTH + (long) landmarkIndex * 2 * weightBytes + offset;
+    }
+
+    private int getWeight(long pointer) {
+        return weightBytes == 1
+                ? (int) landmarkWeightDA.getByte(pointer) & 0xFF
+                : (int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF;
+    }
+
     /**
-     * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
+     * @return false if the value capacity was reached and instead of the real value the maximum value was stored.
      */
     final boolean setWeight(long pointer, double value) {
-        double tmpVal = value / factor;
+        double tmpVal = value / currentFactor;
         if (tmpVal > Integer.MAX_VALUE)
-            throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
+            throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + currentFactor);
 
-        if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
-            return false;
-        } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
-            return true;
-        }
+        boolean maxedOut = tmpVal >= getMaxWeightValue();
+        int intVal = maxedOut ? getMaxWeightValue() : (int) tmpVal;
+        if (weightBytes == 1)
+            landmarkWeightDA.setByte(pointer, (byte) intVal);
+        else
+            landmarkWeightDA.setShort(pointer, (short) intVal);
+        return !maxedOut;
     }
 
     boolean isInfinity(long pointer) {
-        return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
+        return getWeight(pointer) == getInfinity();
     }
 
     // From all available landmarks pick just a few active ones
@@ -689,7 +794,11 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
-            LM_ROW_LENGTH = landmarks * 4;
+            // older files do not store the weight bytes and the factors per subnetwork
+            int storedWeightBytes = landmarkWeightDA.getHeader(4 * 4);
+            weightBytes = storedWeightBytes == 0 ? 2 : storedWeightBytes;
+            TO_OFFSET = weightBytes;
+            LM_ROW_LENGTH = landmarks * 2L * weightBytes;
             long maxBytes = LM_ROW_LENGTH * nodes;
             long bytePos = maxBytes;
 
@@ -702,6 +811,17 @@ public class LandmarkStorage {
                 }
                 landmarkIDs.add(tmpLandmarks);
             }
+            for (int j = 0; j < subnetworks; j++) {
+                if (storedWeightBytes == 0) {
+                    subnetworkFactors.add(factor);
+                } else {
+                    long bits = ((long) landmarkWeightDA.getInt(bytePos) << 32) | (landmarkWeightDA.getInt(bytePos + 4) & 0xFFFFFFFFL);
+                    subnetworkFactors.add(Double.longBitsToDouble(bits));
+                    bytePos += 8;
+                }
+            }
+            if (storedWeightBytes != 0)
+                factor = subnetworkFactors.get(0);
 
             initialized = true;
             return true;
@@ -858,7 +978,7 @@ public class LandmarkStorage {
             return failed.get();
         }
 
-        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final long rowSize, final int offset) {
+        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final int offset) {
             IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
             final AtomicInteger maxedout = new AtomicInteger(0);
             final Map.Entry<Double, Double> finalMaxWeight = new MapEntry<>(0d, 0d);
@@ -866,7 +986,7 @@ public class LandmarkStorage {
             map.forEach(new IntObjectProcedure<SPTEntry>() {
                 @Override
                 public void apply(int nodeId, SPTEntry b) {
-                    if (!lms.setWeight(nodeId * rowSize + lmIdx * 4 + offset, b.weight)) {
+                    if (!lms.setWeight(lms.getPointer(lmIdx, nodeId, offset), b.weight)) {
                         maxedout.incrementAndGet();
                         finalMaxWeight.setValue(Math.max(b.weight, finalMaxWeight.getValue()));
                     }
@@ -875,7 +995,7 @@ public class LandmarkStorage {
 
             if ((double) maxedout.get() / map.size() > 0.1) {
                 LOGGER.warn("landmark " + lmIdx + " (" + nodeAccess.getLat(lmNodeId) + "," + nodeAccess.getLon(lmNodeId) + "): " +
-                        "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + lms.factor
+                        "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + lms.currentFactor
                         + ". For example use maximum_lm_weight: " + finalMaxWeight.getValue() * 1.2 + " in your LM profile definition");
             }
         }
@@ -74,6 +74,22 @@ public class PrepareLandmarks {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setWeightBits(int)
+     */
+    public PrepareLandmarks setWeightBits(int weightBits) {
+        lms.setWeightBits(weightBits);
+        return this;
+    }
+
+    /**
+     * @see LandmarkStorage#setSubnetworkFactors(boolean)
+     */
+    public PrepareLandmarks setSubnetworkFactors(boolean subnetworkFactors) {
+        lms.setSubnetworkFactors(subnetworkFactors);
+        return this;
+    }
+
     /**
      * @see LandmarkStorage#setLMSelectionWeighting(Weighting)
      */
@@ -144,6 +144,10 @@ public class QueryGraph implements Graph {
      * Removes the 'unfavored' status of all virtual edges.
      */
     public void clearUnfavoredStatus() {
+        // do not touch the set if there is nothing to clear. this way concurrent searches on the same query graph are
+        // safe as long as none of them unfavors edges
+        if (unfavoredEdges.isEmpty())
+            return;
         for (VirtualEdgeIteratorState edge : unfavoredEdges) {
             edge.setUnfavored(false);
         }
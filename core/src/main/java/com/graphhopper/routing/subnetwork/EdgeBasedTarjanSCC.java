@@ -29,6 +29,7 @@ import com.graphhopper.util.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntPredicate;
 
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
@@ -55,6 +56,7 @@ public class EdgeBasedTarjanSCC {
     private final IntArrayDeque dfsStackAdj;
     private final ConnectedComponents components;
     private final boolean excludeSingleEdgeComponents;
+    private IntPredicate edgeKeyFilter = edgeKey -> true;
     private TarjanIntIntMap edgeKeyIndex;
     private TarjanIntIntMap edgeKeyLowLink;
     private TarjanIntSet edgeKeyOnStack;
@@ -89,6 +91,23 @@ public class EdgeBasedTarjanSCC {
         return new EdgeBasedTarjanSCC(graph, edgeTransitionFilter, true).findComponentsForStartEdges(edges);
     }
 
+    /**
+     * Like {@link #findComponents(Graph, EdgeTransitionFilter, boolean)}, but only the edge keys accepted by the given
+     * edgeKeyFilter are considered. This is used by {@link ParallelEdgeBasedSCC} to search the partitions of the graph
+     * that remain after the parallel steps.
+     *
+     * @param expectedEdgeKeys the (approximate) number of edge keys accepted by the edgeKeyFilter, which is used to
+     *                         size the internal data structures
+     */
+    static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents,
+                                              IntPredicate edgeKeyFilter, int expectedEdgeKeys) {
+        EdgeBasedTarjanSCC tarjan = new EdgeBasedTarjanSCC(graph,
+                (prev, edge) -> edgeTransitionFilter.accept(prev, edge) && edgeKeyFilter.test(createEdgeKey(edge, false)),
+                excludeSingleEdgeComponents);
+        tarjan.edgeKeyFilter = edgeKeyFilter;
+        return tarjan.findComponentsForEdgeKeyFilter(expectedEdgeKeys);
+    }
+
     /**
      * Runs Tarjan's algorithm in a recursive way. Doing it like this requires a large stack size for large graphs,
      * which can be set like `-Xss1024M`. Usually the version using an explicit stack ({@link #findComponents()}) should be
@@ -214,6 +233,19 @@ public class EdgeBasedTarjanSCC {
         return components;
     }
 
+    private ConnectedComponents findComponentsForEdgeKeyFilter(int expectedEdgeKeys) {
+        // for small parts of the graph the hash based data structures need much less memory
+        if (expectedEdgeKeys < graph.getEdges() / 8)
+            initForStartEdges(expectedEdgeKeys / 2);
+        else
+            initForEntireGraph();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            findComponentsForEdgeState(iter);
+        }
+        return components;
+    }
+
     private ConnectedComponents findComponentsForStartEdges(IntContainer startEdges) {
         initForStartEdges(startEdges.size());
         for (IntCursor edge : startEdges) {
@@ -228,13 +260,13 @@ public class EdgeBasedTarjanSCC {
 
     private void findComponentsForEdgeState(EdgeIteratorState edge) {
         int edgeKeyFwd = createEdgeKey(edge, false);
-        if (!edgeKeyIndex.has(edgeKeyFwd))
+        if (!edgeKeyIndex.has(edgeKeyFwd) && edgeKeyFilter.test(edgeKeyFwd))
             pushFindComponentForEdgeKey(edgeKeyFwd, edge.getAdjNode());
         startSearch();
         // We need to start the search for both edge keys of this edge, but its important to check if the second
         // has already been found by the first search. So we cannot simply push them both and start the search once.
         int edgeKeyBwd = createEdgeKey(edge, true);
-        if (!edgeKeyIndex.has(edgeKeyBwd))
+        if (!edgeKeyIndex.has(edgeKeyBwd) && edgeKeyFilter.test(edgeKeyBwd))
             pushFindComponentForEdgeKey(edgeKeyBwd, edge.getAdjNode());
         startSearch();
     }
@@ -394,6 +426,35 @@ public class EdgeBasedTarjanSCC {
         public int getEdgeKeys() {
             return numEdgeKeys;
         }
+
+        void addSingleEdgeComponent(int edgeKey, boolean excludeSingleEdgeComponents) {
+            numComponents++;
+            numEdgeKeys++;
+            if (!excludeSingleEdgeComponents)
+                singleEdgeComponents.set(edgeKey);
+        }
+
+        void addComponent(IntArrayList component) {
+            numComponents++;
+            numEdgeKeys += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
+
+        /**
+         * Adds the components with more than one edge key and the counts of the given components, but not their
+         * single edge components.
+         */
+        void addAllExceptSingleEdgeComponents(ConnectedComponents other) {
+            numComponents += other.numComponents;
+            numEdgeKeys += other.numEdgeKeys;
+            for (IntArrayList component : other.components) {
+                components.add(component);
+                if (component.size() > biggestComponent.size())
+                    biggestComponent = component;
+            }
+        }
     }
 
     private interface TarjanIntIntMap {
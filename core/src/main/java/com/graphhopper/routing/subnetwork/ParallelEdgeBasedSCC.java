@@ -0,0 +1,258 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.createEdgeKey;
+
+/**
+ * Finds the same strongly connected components as {@link EdgeBasedTarjanSCC}, i.e. it works on edge keys and takes
+ * into account turn restrictions, but uses multiple threads. It follows the 'multistep' approach by Slota et al:
+ * <ol>
+ * <li>trim: edge keys without incoming or without outgoing transitions form their own component. For road networks
+ * this quickly removes e.g. all edges that are not accessible at all. We do this for a few rounds in parallel.</li>
+ * <li>forward-backward: the edge keys that can be reached from a pivot edge key and that can reach the pivot form the
+ * component of the pivot, usually the biggest one. Both searches are parallel breadth-first searches. All other edge
+ * keys are split into three partitions (only reached forward, only reached backward or not reached at all) and no
+ * component can span two partitions. This is repeated for the largest partition a few times.</li>
+ * <li>the remaining partitions are searched using Tarjan's algorithm, and the partitions are searched concurrently.</li>
+ * </ol>
+ * The components are the same as the ones found by {@link EdgeBasedTarjanSCC}, but their order is different. If there
+ * are multiple components with the biggest size {@link ConnectedComponents#getBiggestComponent()} can be a different
+ * one of them.
+ */
+public class ParallelEdgeBasedSCC {
+    private static final int TRIM_ROUNDS = 3;
+    private static final int FORWARD_BACKWARD_STEPS = 3;
+    // partitions smaller than this are not split further but searched with Tarjan's algorithm directly
+    private static final int MIN_FORWARD_BACKWARD_SIZE = 10_000;
+    // the number of edge keys of a search frontier that are expanded by a single task
+    private static final int CHUNK_SIZE = 256;
+    private static final int TRIMMED = -1;
+    private static final int FOUND = -2;
+
+    private final Graph graph;
+    private final EdgeTransitionFilter edgeTransitionFilter;
+    private final boolean excludeSingleEdgeComponents;
+    private final ThreadLocal<EdgeExplorer> explorers;
+    // the partition of every edge key, or TRIMMED/FOUND if we already know the component of the edge key
+    private final AtomicIntegerArray partitions;
+    private final int[] partitionSizes = new int[1 + 3 * FORWARD_BACKWARD_STEPS];
+    private final int minForwardBackwardSize;
+    private int partitionCount = 1;
+
+    /**
+     * @param threads the number of threads used for the search
+     * @see EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)
+     */
+    public static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter,
+                                                     boolean excludeSingleEdgeComponents, int threads) {
+        return findComponents(graph, edgeTransitionFilter, excludeSingleEdgeComponents, threads, MIN_FORWARD_BACKWARD_SIZE);
+    }
+
+    static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter,
+                                              boolean excludeSingleEdgeComponents, int threads, int minForwardBackwardSize) {
+        // all parallel streams we use run in this pool
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> new ParallelEdgeBasedSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents,
+                    minForwardBackwardSize).findComponents()).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ParallelEdgeBasedSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents,
+                                 int minForwardBackwardSize) {
+        this.graph = graph;
+        this.edgeTransitionFilter = edgeTransitionFilter;
+        this.excludeSingleEdgeComponents = excludeSingleEdgeComponents;
+        this.explorers = ThreadLocal.withInitial(graph::createEdgeExplorer);
+        this.partitions = new AtomicIntegerArray(2 * graph.getEdges());
+        this.minForwardBackwardSize = minForwardBackwardSize;
+    }
+
+    private ConnectedComponents findComponents() {
+        ConnectedComponents components = new ConnectedComponents(excludeSingleEdgeComponents ? -1 : partitions.length());
+        trim(components);
+        for (int step = 0; step < FORWARD_BACKWARD_STEPS; step++) {
+            int largest = 0;
+            for (int p = 1; p < partitionCount; p++)
+                if (partitionSizes[p] > partitionSizes[largest])
+                    largest = p;
+            if (partitionSizes[largest] < minForwardBackwardSize)
+                break;
+            forwardBackward(largest, components);
+        }
+
+        List<ConnectedComponents> results = IntStream.range(0, partitionCount).parallel()
+                .filter(p -> partitionSizes[p] > 0)
+                .mapToObj(p -> EdgeBasedTarjanSCC.findComponents(graph, edgeTransitionFilter, true,
+                        edgeKey -> partitions.get(edgeKey) == p, partitionSizes[p]))
+                .collect(Collectors.toList());
+        for (ConnectedComponents result : results) {
+            components.addAllExceptSingleEdgeComponents(result);
+            for (IntArrayList component : result.getComponents())
+                for (IntCursor c : component)
+                    partitions.set(c.value, FOUND);
+        }
+        // all edge keys of the partitions that do not belong to a bigger component are single edge components, and
+        // they were already counted by Tarjan
+        if (!excludeSingleEdgeComponents)
+            for (int edgeKey = 0; edgeKey < partitions.length(); edgeKey++)
+                if (partitions.get(edgeKey) >= 0)
+                    components.getSingleEdgeComponents().set(edgeKey);
+        return components;
+    }
+
+    private void trim(ConnectedComponents components) {
+        // trimming an edge key can only make others trimmable, so it is fine if the neighbors change while we check
+        for (int round = 0; round < TRIM_ROUNDS; round++) {
+            int trimmed = IntStream.range(0, partitions.length()).parallel().map(edgeKey -> {
+                if (partitions.get(edgeKey) != 0 || (hasNeighborInPartition(edgeKey, false) && hasNeighborInPartition(edgeKey, true)))
+                    return 0;
+                partitions.set(edgeKey, TRIMMED);
+                return 1;
+            }).sum();
+            if (trimmed == 0)
+                break;
+        }
+        for (int edgeKey = 0; edgeKey < partitions.length(); edgeKey++) {
+            if (partitions.get(edgeKey) == TRIMMED)
+                components.addSingleEdgeComponent(edgeKey, excludeSingleEdgeComponents);
+            else
+                partitionSizes[0]++;
+        }
+    }
+
+    private boolean hasNeighborInPartition(int edgeKey, boolean reverse) {
+        int partition = partitions.get(edgeKey);
+        boolean[] found = {false};
+        forEachNeighbor(edgeKey, reverse, neighbor -> found[0] |= neighbor != edgeKey && partitions.get(neighbor) == partition);
+        return found[0];
+    }
+
+    private void forwardBackward(int partition, ConnectedComponents components) {
+        int pivot = IntStream.range(0, partitions.length()).filter(edgeKey -> partitions.get(edgeKey) == partition).findFirst().getAsInt();
+        final int fwdPartition = partitionCount++;
+        final int bwdPartition = partitionCount++;
+        final int otherPartition = partitionCount++;
+
+        partitions.set(pivot, fwdPartition);
+        int[] forward = {0};
+        search(pivot, false, edgeKey -> partitions.compareAndSet(edgeKey, partition, fwdPartition), frontier -> forward[0] += frontier.size());
+
+        // the edge keys that are reached in both directions form the component of the pivot
+        partitions.set(pivot, FOUND);
+        IntArrayList component = new IntArrayList();
+        int[] backward = {0};
+        search(pivot, true, edgeKey -> partitions.compareAndSet(edgeKey, fwdPartition, FOUND) || partitions.compareAndSet(edgeKey, partition, bwdPartition), frontier -> {
+            backward[0] += frontier.size();
+            for (IntCursor c : frontier)
+                if (partitions.get(c.value) == FOUND)
+                    component.add(c.value);
+        });
+        if (component.size() == 1)
+            components.addSingleEdgeComponent(pivot, excludeSingleEdgeComponents);
+        else
+            components.addComponent(component);
+
+        // we keep the edge keys that were not reached at all in the old partition, but move them to a new one so the
+        // partition ids stay unique
+        int other = partitionSizes[partition] - forward[0] - backward[0] + component.size();
+        if (other > 0)
+            IntStream.range(0, partitions.length()).parallel().forEach(edgeKey -> partitions.compareAndSet(edgeKey, partition, otherPartition));
+        partitionSizes[partition] = 0;
+        partitionSizes[fwdPartition] = forward[0] - component.size();
+        partitionSizes[bwdPartition] = backward[0] - component.size();
+        partitionSizes[otherPartition] = other;
+    }
+
+    /**
+     * Runs a parallel breadth-first search starting from the given edge key. Every edge key that is reached is
+     * passed to claim and only if this returns true it is added to the next frontier. Every frontier (including the
+     * first one that only contains the start) is passed to the given consumer.
+     */
+    private void search(int start, boolean reverse, IntPredicate claim, Consumer<IntArrayList> frontiers) {
+        IntArrayList frontier = IntArrayList.from(start);
+        while (!frontier.isEmpty()) {
+            frontiers.accept(frontier);
+            IntArrayList current = frontier;
+            int chunks = (current.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            frontier = chunks == 1
+                    ? expand(current, 0, current.size(), reverse, claim)
+                    : IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> expand(current, c * CHUNK_SIZE, Math.min(current.size(), (c + 1) * CHUNK_SIZE), reverse, claim))
+                    .reduce((a, b) -> {
+                        a.addAll(b);
+                        return a;
+                    }).get();
+        }
+    }
+
+    private IntArrayList expand(IntArrayList frontier, int from, int to, boolean reverse, IntPredicate claim) {
+        IntArrayList next = new IntArrayList();
+        for (int i = from; i < to; i++)
+            forEachNeighbor(frontier.get(i), reverse, neighbor -> {
+                if (claim.test(neighbor))
+                    next.add(neighbor);
+            });
+        return next;
+    }
+
+    /**
+     * Passes all edge keys that can follow the given edge key (or that can precede it if reverse is true) to the
+     * given consumer.
+     */
+    private void forEachNeighbor(int edgeKey, boolean reverse, IntConsumer consumer) {
+        EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(edgeKey);
+        EdgeExplorer explorer = explorers.get();
+        if (reverse) {
+            EdgeIterator iter = explorer.setBaseNode(edgeState.getBaseNode());
+            while (iter.next())
+                // the edge key of iter in reverse direction is the one that leads to the base node
+                if (edgeTransitionFilter.accept(iter.getEdge(), edgeState))
+                    consumer.accept(createEdgeKey(iter, true));
+        } else {
+            EdgeIterator iter = explorer.setBaseNode(edgeState.getAdjNode());
+            while (iter.next())
+                if (edgeTransitionFilter.accept(edgeState.getEdge(), iter))
+                    consumer.accept(createEdgeKey(iter, false));
+        }
+    }
+}
@@ -58,6 +58,9 @@ import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
  * We always run an edge-based connected component search, because this way we retrieve the edges (not the nodes) that
  * belong to each component and can include turn restrictions as well. Node-based component search is faster, but since
  * the subnetwork search goes relatively fast anyway using it has no real benefit.
+ * <p>
+ * The jobs are run concurrently. If there are more threads than jobs the component search of each job uses multiple
+ * threads as well, see {@link ParallelEdgeBasedSCC}.
  *
  * @author Peter Karich
  * @author easbar
@@ -102,10 +105,12 @@ public class PrepareRoutingSubnetworks {
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", nodes: " +
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
         AtomicInteger total = new AtomicInteger(0);
+        // if there are fewer jobs than threads the remaining threads are used to search the components of each job
+        final int threadsPerJob = Math.max(1, threads / Math.max(1, prepareJobs.size()));
         List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
         Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
             PrepareJob job = prepareJobs.get(i);
-            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
+            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i), threadsPerJob));
         });
         GHUtility.runConcurrently(runnables, threads);
         AllEdgesIterator iter = graph.getAllEdges();
@@ -119,12 +124,13 @@ public class PrepareRoutingSubnetworks {
         return total.get();
     }
 
-    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
-        // partition graph into strongly connected components using Tarjan's algorithm
+    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags, int threads) {
+        // partition graph into strongly connected components using Tarjan's algorithm (or its parallel variant)
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev));
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = threads > 1
+                ? ParallelEdgeBasedSCC.findComponents(graph, filter, false, threads)
+                : EdgeBasedTarjanSCC.findComponents(graph, filter, false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
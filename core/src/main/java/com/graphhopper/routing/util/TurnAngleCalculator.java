@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.TurnAngle;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.graphhopper.util.AngleCalc.ANGLE_CALC;
+
+/**
+ * Calculates the angle of all turns at junctions at import time and stores it as {@link TurnAngle} in the
+ * {@link TurnCostStorage}. This way turn costs that depend on the turn angle can be calculated without fetching the
+ * geometry of the edges when routing, see TurnAngleCostProvider.
+ */
+public class TurnAngleCalculator {
+    private static final Logger logger = LoggerFactory.getLogger(TurnAngleCalculator.class);
+    // use the same angles as the turn instructions, see InstructionsHelper.calculateSign. slight turns are straight.
+    static final double MIN_TURN_ANGLE = 0.8;
+    static final double MIN_SHARP_TURN_ANGLE = 1.8;
+    // the number of turns grows quadratically with the number of edges and the turn cost entries per node are limited
+    static final int MAX_DEGREE = 16;
+
+    /**
+     * Stores the turn angle for all turns at nodes with at least three edges, i.e. junctions. Nodes with only two
+     * edges are skipped, because there is no choice and they are often just the point where a way is split. Turns
+     * that are STRAIGHT are not stored, as this is the default value.
+     */
+    public static void calcTurnAngles(BaseGraph graph, EnumEncodedValue<TurnAngle> turnAngleEnc) {
+        TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
+        if (turnCostStorage == null)
+            throw new IllegalArgumentException("Turn angles require a graph with turn cost support");
+        logger.info("Calculating turn angles for {} nodes", graph.getNodes());
+        StopWatch sw = StopWatch.started();
+        NodeAccess nodeAccess = graph.getNodeAccess();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntArrayList edges = new IntArrayList(MAX_DEGREE);
+        // the orientations of the first segment of the edges when entering and when leaving the node
+        DoubleArrayList inOrientations = new DoubleArrayList(MAX_DEGREE);
+        DoubleArrayList outOrientations = new DoubleArrayList(MAX_DEGREE);
+        long turns = 0;
+        int skippedNodes = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            double lat = nodeAccess.getLat(node);
+            double lon = nodeAccess.getLon(node);
+            edges.clear();
+            inOrientations.clear();
+            outOrientations.clear();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                // skip loops, their orientation is not well-defined
+                if (iter.getAdjNode() == node)
+                    continue;
+                if (edges.size() == MAX_DEGREE) {
+                    edges.clear();
+                    skippedNodes++;
+                    break;
+                }
+                PointList geometry = iter.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+                edges.add(iter.getEdge());
+                inOrientations.add(ANGLE_CALC.calcOrientation(geometry.getLat(0), geometry.getLon(0), lat, lon));
+                outOrientations.add(ANGLE_CALC.calcOrientation(lat, lon, geometry.getLat(0), geometry.getLon(0)));
+            }
+            if (edges.size() < 3)
+                continue;
+            for (int i = 0; i < edges.size(); i++) {
+                for (int j = 0; j < edges.size(); j++) {
+                    if (i == j)
+                        continue;
+                    TurnAngle turnAngle = getTurnAngle(inOrientations.get(i), outOrientations.get(j));
+                    if (turnAngle != TurnAngle.STRAIGHT) {
+                        turnCostStorage.set(turnAngleEnc, edges.get(i), node, edges.get(j), turnAngle.ordinal());
+                        turns++;
+                    }
+                }
+            }
+        }
+        logger.info("Finished calculating turn angles, stored {} turns, skipped {} nodes with more than {} edges, took: {}s",
+                turns, skippedNodes, MAX_DEGREE, sw.stop().getSeconds());
+    }
+
+    static TurnAngle getTurnAngle(double inOrientation, double outOrientation) {
+        // a positive delta means the orientation increases counterclockwise, i.e. we turn left
+        double delta = ANGLE_CALC.alignOrientation(inOrientation, outOrientation) - inOrientation;
+        double absDelta = Math.abs(delta);
+        if (absDelta < MIN_TURN_ANGLE)
+            return TurnAngle.STRAIGHT;
+        else if (absDelta < MIN_SHARP_TURN_ANGLE)
+            return delta > 0 ? TurnAngle.LEFT : TurnAngle.RIGHT;
+        else
+            return delta > 0 ? TurnAngle.SHARP_LEFT : TurnAngle.SHARP_RIGHT;
+    }
+}
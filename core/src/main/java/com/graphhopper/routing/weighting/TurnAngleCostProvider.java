@@ -0,0 +1,74 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.config.TurnCostsConfig;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.TurnAngle;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * A TurnCostProvider that adds costs depending on the angle of a turn to the turn restrictions and u-turn costs of
+ * the {@link DefaultTurnCostProvider}. The angles are calculated at import time, see
+ * {@link com.graphhopper.routing.util.TurnAngleCalculator}, so this provider only needs to read the turn cost entry
+ * of the turn and does not have to fetch any geometry.
+ */
+public class TurnAngleCostProvider implements TurnCostProvider {
+    private final DefaultTurnCostProvider defaultTurnCostProvider;
+    private final EnumEncodedValue<TurnAngle> turnAngleEnc;
+    private final TurnCostStorage turnCostStorage;
+    // the costs in seconds indexed by the ordinal of the TurnAngle
+    private final double[] turnAngleCosts;
+
+    public TurnAngleCostProvider(DefaultTurnCostProvider defaultTurnCostProvider, EnumEncodedValue<TurnAngle> turnAngleEnc,
+                                 TurnCostStorage turnCostStorage, TurnCostsConfig turnCostsConfig) {
+        if (turnCostStorage == null)
+            throw new IllegalArgumentException("No storage set to calculate turn weight");
+        this.defaultTurnCostProvider = defaultTurnCostProvider;
+        this.turnAngleEnc = turnAngleEnc;
+        this.turnCostStorage = turnCostStorage;
+        turnAngleCosts = new double[TurnAngle.values().length];
+        turnAngleCosts[TurnAngle.RIGHT.ordinal()] = turnCostsConfig.getRightTurnCosts();
+        turnAngleCosts[TurnAngle.SHARP_RIGHT.ordinal()] = turnCostsConfig.getSharpRightTurnCosts();
+        turnAngleCosts[TurnAngle.LEFT.ordinal()] = turnCostsConfig.getLeftTurnCosts();
+        turnAngleCosts[TurnAngle.SHARP_LEFT.ordinal()] = turnCostsConfig.getSharpLeftTurnCosts();
+    }
+
+    @Override
+    public double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
+        double tCost = defaultTurnCostProvider.calcTurnWeight(inEdge, viaNode, outEdge);
+        // u-turns are handled by the default provider only
+        if (Double.isInfinite(tCost) || inEdge == outEdge || !EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge))
+            return tCost;
+        return tCost + turnAngleCosts[turnCostStorage.get(turnAngleEnc, inEdge, viaNode, outEdge)];
+    }
+
+    @Override
+    public long calcTurnMillis(int inEdge, int viaNode, int outEdge) {
+        return (long) (1000 * calcTurnWeight(inEdge, viaNode, outEdge));
+    }
+
+    @Override
+    public String toString() {
+        return defaultTurnCostProvider + "_angle_" + turnAngleCosts[TurnAngle.RIGHT.ordinal()]
+                + "_" + turnAngleCosts[TurnAngle.SHARP_RIGHT.ordinal()]
+                + "_" + turnAngleCosts[TurnAngle.LEFT.ordinal()]
+                + "_" + turnAngleCosts[TurnAngle.SHARP_LEFT.ordinal()];
+    }
+}
@@ -204,6 +204,33 @@ public class CustomModelParser {
         }
     }
 
+    /**
+     * @return true if the given variable is used in the priority, in a condition or in the value of a speed statement
+     * other than limit_to. I.e. false if it is only used to limit the speed (or not at all).
+     */
+    public static boolean isUsedOutsideOfSpeedLimits(CustomModel model, String variable) {
+        boolean[] used = {false};
+        NameValidator nameValidator = s -> {
+            if (s.equals(variable))
+                used[0] = true;
+            return true;
+        };
+        findVariables(model.getPriority(), true, nameValidator);
+        findVariables(model.getSpeed(), false, nameValidator);
+        return used[0];
+    }
+
+    private static void findVariables(List<Statement> statements, boolean includeLimitValues, NameValidator nameValidator) {
+        for (Statement statement : statements) {
+            if (!statement.condition().isEmpty())
+                ConditionalExpressionVisitor.parse(statement.condition(), nameValidator, s -> "");
+            if (statement.isBlock())
+                findVariables(statement.doBlock(), includeLimitValues, nameValidator);
+            else if (includeLimitValues || statement.operation() != Statement.Op.LIMIT)
+                ValueExpressionVisitor.parse(statement.value(), nameValidator);
+        }
+    }
+
     /**
      * Splits the specified list into several lists of statements starting with if.
      * I.e. a group consists of one 'if' and zero or more 'else_if' and 'else' statements.
@@ -164,6 +164,8 @@ public class BaseGraph implements Graph, Closeable {
     public synchronized void freeze() {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
+        if (supportsTurnCosts())
+            turnCostStorage.sortEntries();
         store.setFrozen(true);
     }
 
@@ -389,6 +391,20 @@ public class BaseGraph implements Graph, Closeable {
         return edge;
     }
 
+    /**
+     * Same as {@link #getEdgeIteratorStateForKey(int)}, but if the given edge state was returned by this method before
+     * it is re-initialized instead of creating a new one. This is useful when many edges are visited one after another.
+     * The returned state changes with the next call, so it needs to be detached if it is kept.
+     *
+     * @param reuse the edge state returned by the previous call or null
+     */
+    public EdgeIteratorState getEdgeIteratorStateForKey(int edgeKey, EdgeIteratorState reuse) {
+        EdgeIteratorStateImpl edge = reuse != null && reuse.getClass() == EdgeIteratorStateImpl.class && ((EdgeIteratorStateImpl) reuse).baseGraph == this
+                ? (EdgeIteratorStateImpl) reuse : new EdgeIteratorStateImpl(this);
+        edge.init(edgeKey);
+        return edge;
+    }
+
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
         return new EdgeIteratorImpl(this, filter);
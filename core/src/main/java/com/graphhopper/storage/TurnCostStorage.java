@@ -20,6 +20,7 @@ package com.graphhopper.storage;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntEncodedValue;
 import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.EdgeIterator;
@@ -28,6 +29,11 @@ import com.graphhopper.util.GHUtility;
 /**
  * A key/value store, where the unique keys are triples (fromEdge, viaNode, toEdge) and the values
  * are integers that can be used to store encoded values.
+ * <p>
+ * The entries of each via node form a linked list. While importing the entries are simply appended, so the entries
+ * of one node are scattered over the entire storage. Once all entries are written {@link #sortEntries()} should be
+ * called, which puts the entries of each node next to each other and sorts them by (fromEdge, toEdge), so the
+ * lookup only needs to scan a small consecutive block of memory.
  *
  * @author Karl Hübner
  * @author Peter Karich
@@ -44,7 +50,22 @@ public class TurnCostStorage {
 
     private final BaseGraph baseGraph;
     private final DataAccess turnCosts;
+    // the 'edge id' that is passed to the encoded values is the index of the turn cost entry
+    private final EdgeIntAccess edgeIntAccess = new EdgeIntAccess() {
+        @Override
+        public int getInt(int entryIndex, int index) {
+            return entryIndex == NO_TURN_ENTRY ? 0 : turnCosts.getInt((long) entryIndex * BYTES_PER_ENTRY + TC_FLAGS);
+        }
+
+        @Override
+        public void setInt(int entryIndex, int index, int value) {
+            if (entryIndex == NO_TURN_ENTRY)
+                throw new IllegalStateException("entry index must not be negative: " + entryIndex);
+            turnCosts.setInt((long) entryIndex * BYTES_PER_ENTRY + TC_FLAGS, value);
+        }
+    };
     private int turnCostsCount;
+    private boolean sorted;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -60,6 +81,7 @@ public class TurnCostStorage {
         turnCosts.setHeader(0, Constants.VERSION_TURN_COSTS);
         turnCosts.setHeader(4, BYTES_PER_ENTRY);
         turnCosts.setHeader(2 * 4, turnCostsCount);
+        turnCosts.setHeader(3 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -80,71 +102,76 @@ public class TurnCostStorage {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(8);
+        sorted = turnCosts.getHeader(12) == 1;
         return true;
     }
 
     public void set(BooleanEncodedValue bev, int fromEdge, int viaNode, int toEdge, boolean value) {
-        long pointer = findOrCreateTurnCostEntry(fromEdge, viaNode, toEdge);
-        if (pointer < 0)
-            throw new IllegalStateException("Invalid pointer: " + pointer + " at (" + fromEdge + ", " + viaNode + ", " + toEdge + ")");
-        bev.setBool(false, -1, createIntAccess(pointer), value);
+        int index = findOrCreateTurnCostEntry(fromEdge, viaNode, toEdge);
+        if (index < 0)
+            throw new IllegalStateException("Invalid index: " + index + " at (" + fromEdge + ", " + viaNode + ", " + toEdge + ")");
+        bev.setBool(false, index, edgeIntAccess, value);
     }
 
     /**
      * Sets the turn cost at the viaNode when going from "fromEdge" to "toEdge"
      */
     public void set(DecimalEncodedValue turnCostEnc, int fromEdge, int viaNode, int toEdge, double cost) {
-        long pointer = findOrCreateTurnCostEntry(fromEdge, viaNode, toEdge);
-        if (pointer < 0)
-            throw new IllegalStateException("Invalid pointer: " + pointer + " at (" + fromEdge + ", " + viaNode + ", " + toEdge + ")");
-        turnCostEnc.setDecimal(false, -1, createIntAccess(pointer), cost);
+        int index = findOrCreateTurnCostEntry(fromEdge, viaNode, toEdge);
+        if (index < 0)
+            throw new IllegalStateException("Invalid index: " + index + " at (" + fromEdge + ", " + viaNode + ", " + toEdge + ")");
+        turnCostEnc.setDecimal(false, index, edgeIntAccess, cost);
     }
 
-    private long findOrCreateTurnCostEntry(int fromEdge, int viaNode, int toEdge) {
-        long pointer = findPointer(fromEdge, viaNode, toEdge);
-        if (pointer < 0) {
-            // create a new entry
+    /**
+     * Sets an integer value like the {@link com.graphhopper.routing.ev.TurnAngle} for the turn at the viaNode when
+     * going from "fromEdge" to "toEdge"
+     */
+    public void set(IntEncodedValue turnEnc, int fromEdge, int viaNode, int toEdge, int value) {
+        int index = findOrCreateTurnCostEntry(fromEdge, viaNode, toEdge);
+        if (index < 0)
+            throw new IllegalStateException("Invalid index: " + index + " at (" + fromEdge + ", " + viaNode + ", " + toEdge + ")");
+        turnEnc.setInt(false, index, edgeIntAccess, value);
+    }
+
+    private int findOrCreateTurnCostEntry(int fromEdge, int viaNode, int toEdge) {
+        int index = findIndex(fromEdge, viaNode, toEdge);
+        if (index < 0) {
+            // create a new entry, it is added to the front of the list so the list is no longer sorted
             ensureTurnCostIndex(turnCostsCount);
             int prevIndex = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
             baseGraph.getNodeAccess().setTurnCostIndex(viaNode, turnCostsCount);
-            pointer = (long) turnCostsCount * BYTES_PER_ENTRY;
+            long pointer = (long) turnCostsCount * BYTES_PER_ENTRY;
             turnCosts.setInt(pointer + TC_FROM, fromEdge);
             turnCosts.setInt(pointer + TC_TO, toEdge);
             turnCosts.setInt(pointer + TC_NEXT, prevIndex);
+            index = turnCostsCount;
             turnCostsCount++;
+            sorted = false;
         }
-        return pointer;
+        return index;
     }
 
     public double get(DecimalEncodedValue dev, int fromEdge, int viaNode, int toEdge) {
-        return dev.getDecimal(false, -1, createIntAccess(findPointer(fromEdge, viaNode, toEdge)));
+        return dev.getDecimal(false, findIndex(fromEdge, viaNode, toEdge), edgeIntAccess);
     }
 
     public boolean get(BooleanEncodedValue bev, int fromEdge, int viaNode, int toEdge) {
-        return bev.getBool(false, -1, createIntAccess(findPointer(fromEdge, viaNode, toEdge)));
+        return bev.getBool(false, findIndex(fromEdge, viaNode, toEdge), edgeIntAccess);
     }
 
-    private EdgeIntAccess createIntAccess(long pointer) {
-        return new EdgeIntAccess() {
-            @Override
-            public int getInt(int edgeId, int index) {
-                return pointer < 0 ? 0 : turnCosts.getInt(pointer + TC_FLAGS);
-            }
-
-            @Override
-            public void setInt(int edgeId, int index, int value) {
-                if (pointer < 0)
-                    throw new IllegalStateException("pointer must not be negative: " + pointer);
-                turnCosts.setInt(pointer + TC_FLAGS, value);
-            }
-        };
+    public int get(IntEncodedValue iev, int fromEdge, int viaNode, int toEdge) {
+        return iev.getInt(false, findIndex(fromEdge, viaNode, toEdge), edgeIntAccess);
     }
 
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * BYTES_PER_ENTRY);
     }
 
-    private long findPointer(int fromEdge, int viaNode, int toEdge) {
+    /**
+     * @return the index of the entry for the given turn or {@link #NO_TURN_ENTRY} if there is none
+     */
+    private int findIndex(int fromEdge, int viaNode, int toEdge) {
         if (!EdgeIterator.Edge.isValid(fromEdge) || !EdgeIterator.Edge.isValid(toEdge))
             throw new IllegalArgumentException("from and to edge cannot be NO_EDGE");
         if (viaNode < 0)
@@ -153,15 +180,83 @@ public class TurnCostStorage {
         final int maxEntries = 1000;
         int index = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
         for (int i = 0; i < maxEntries; ++i) {
-            if (index == NO_TURN_ENTRY) return -1;
+            if (index == NO_TURN_ENTRY) return NO_TURN_ENTRY;
             long pointer = (long) index * BYTES_PER_ENTRY;
-            if (fromEdge == turnCosts.getInt(pointer + TC_FROM) && toEdge == turnCosts.getInt(pointer + TC_TO))
-                return pointer;
+            int from = turnCosts.getInt(pointer + TC_FROM);
+            if (fromEdge == from) {
+                int to = turnCosts.getInt(pointer + TC_TO);
+                if (toEdge == to)
+                    return index;
+                if (sorted && to > toEdge)
+                    return NO_TURN_ENTRY;
+            } else if (sorted && from > fromEdge)
+                return NO_TURN_ENTRY;
             index = turnCosts.getInt(pointer + TC_NEXT);
         }
         throw new IllegalStateException("Turn cost list for node: " + viaNode + " is longer than expected, max: " + maxEntries);
     }
 
+    /**
+     * Re-arranges the entries such that the entries of each via node are stored consecutively (in the order of the
+     * nodes) and sorted by (fromEdge, toEdge). This way a lookup reads a single block of memory instead of following
+     * the list through the entire storage and can stop early if there is no entry for a turn. Entries can still be
+     * added afterwards, but then the lookup is slower again until this method is called another time.
+     */
+    public void sortEntries() {
+        if (sorted)
+            return;
+        int[] from = new int[turnCostsCount];
+        int[] to = new int[turnCostsCount];
+        int[] flags = new int[turnCostsCount];
+        int[] blockEnds = new int[turnCostsCount];
+        NodeAccess nodeAccess = baseGraph.getNodeAccess();
+        int count = 0;
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int index = nodeAccess.getTurnCostIndex(node);
+            if (index == NO_TURN_ENTRY)
+                continue;
+            int start = count;
+            while (index != NO_TURN_ENTRY) {
+                long pointer = (long) index * BYTES_PER_ENTRY;
+                from[count] = turnCosts.getInt(pointer + TC_FROM);
+                to[count] = turnCosts.getInt(pointer + TC_TO);
+                flags[count] = turnCosts.getInt(pointer + TC_FLAGS);
+                count++;
+                index = turnCosts.getInt(pointer + TC_NEXT);
+            }
+            // the lists are short, so a simple insertion sort is good enough
+            for (int i = start + 1; i < count; i++) {
+                int f = from[i], t = to[i], fl = flags[i];
+                int j = i - 1;
+                for (; j >= start && (from[j] > f || (from[j] == f && to[j] > t)); j--) {
+                    from[j + 1] = from[j];
+                    to[j + 1] = to[j];
+                    flags[j + 1] = flags[j];
+                }
+                from[j + 1] = f;
+                to[j + 1] = t;
+                flags[j + 1] = fl;
+            }
+            for (int i = start; i < count; i++)
+                blockEnds[i] = count;
+            nodeAccess.setTurnCostIndex(node, start);
+        }
+        if (count != turnCostsCount)
+            throw new IllegalStateException("Not all turn cost entries are referenced by a node: " + count + " vs. " + turnCostsCount);
+        for (int i = 0; i < count; i++) {
+            long pointer = (long) i * BYTES_PER_ENTRY;
+            turnCosts.setInt(pointer + TC_FROM, from[i]);
+            turnCosts.setInt(pointer + TC_TO, to[i]);
+            turnCosts.setInt(pointer + TC_FLAGS, flags[i]);
+            turnCosts.setInt(pointer + TC_NEXT, i + 1 < blockEnds[i] ? i + 1 : NO_TURN_ENTRY);
+        }
+        sorted = true;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
     public int getTurnCostsCount() {
         return turnCostsCount;
     }
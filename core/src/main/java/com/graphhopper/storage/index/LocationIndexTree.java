@@ -18,17 +18,23 @@
 package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -67,6 +73,8 @@ public class LocationIndexTree implements LocationIndex {
      * algorithm can stop search.
      */
     private final double equalNormedDelta = DIST_PLANE.calcNormalizedDist(0.1); // 0.1 meters
+    private static final int MAX_REUSED_SEEN_EDGES = 10_000;
+    private final ThreadLocal<IntHashSet> seenEdgesPerThread = ThreadLocal.withInitial(IntHashSet::new);
     private IndexStructureInfo indexStructureInfo;
 
     /**
@@ -274,21 +282,35 @@ public class LocationIndexTree implements LocationIndex {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, new EdgeIteratorState[1]);
+    }
+
+    /**
+     * @param edgeState holds the edge state that is reused for all visited edges, see
+     *                  {@link BaseGraph#getEdgeIteratorStateForKey(int, EdgeIteratorState)}
+     */
+    private Snap findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter, final EdgeIteratorState[] edgeState) {
         final Snap closestMatch = new Snap(queryLat, queryLon);
-        IntHashSet seenEdges = new IntHashSet();
+        final BaseGraph baseGraph = graph.getBaseGraph();
+        IntHashSet seenEdges = getSeenEdges();
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
-                EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
-                if (seenEdges.add(edgeId) && edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
+                if (!seenEdges.add(edgeId))
+                    return;
+                EdgeIteratorState edgeIteratorState = edgeState[0] = baseGraph.getEdgeIteratorStateForKey(edgeId * 2, edgeState[0]);
+                if (edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
+                    double prevQueryDistance = closestMatch.getQueryDistance();
                     traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
                         if (normedDist < closestMatch.getQueryDistance()) {
                             closestMatch.setQueryDistance(normedDist);
                             closestMatch.setClosestNode(node);
-                            closestMatch.setClosestEdge(edgeIteratorState.detach(false));
                             closestMatch.setWayIndex(wayIndex);
                             closestMatch.setSnappedPosition(pos);
                         }
                     });
+                    // the edge state is reused for the next edge, so we need to detach it if we keep it
+                    if (closestMatch.getQueryDistance() < prevQueryDistance)
+                        closestMatch.setClosestEdge(edgeIteratorState.detach(false));
                 }
             });
             if (closestMatch.isValid()) {
@@ -308,6 +330,122 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    /**
+     * Like {@link #findClosest(double, double, EdgeFilter)}, but for many points at once. The points are looked up in
+     * the order of their spatial keys, so points that are close to each other are looked up one after another, which
+     * is more cache friendly when the points are scattered. This is useful e.g. for matrix requests or map matching.
+     *
+     * @return the snaps in the same order as the given points
+     */
+    @Override
+    public List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        // we sort the spatial keys together with the point indices, which are stored in the lowest bits. if there are
+        // not enough bits left we drop the lowest bits of the keys, which only makes the order a bit less local
+        SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, points.size() - 1));
+        int keyShift = Math.max(0, keyAlgo.getBits() + indexBits - 63);
+        long[] keysAndIndices = new long[points.size()];
+        for (int i = 0; i < points.size(); i++)
+            keysAndIndices[i] = ((keyAlgo.encodeLatLon(points.get(i).lat, points.get(i).lon) >>> keyShift) << indexBits) | i;
+        Arrays.sort(keysAndIndices);
+        Snap[] snaps = new Snap[points.size()];
+        EdgeIteratorState[] edgeState = new EdgeIteratorState[1];
+        for (long keyAndIndex : keysAndIndices) {
+            int i = (int) (keyAndIndex & ((1L << indexBits) - 1));
+            snaps[i] = findClosest(points.get(i).lat, points.get(i).lon, edgeFilter, edgeState);
+        }
+        return Arrays.asList(snaps);
+    }
+
+    /**
+     * Finds the closest snap for every edge accepted by the given filter that is within the given radius around the
+     * query point. At most one snap is returned per edge and per tower node, so the snaps can be used as (distinct)
+     * candidates e.g. when matching a GPS point to the road network. Just like {@link #findClosest} this searches at
+     * most {@link #setMaxRegionSearch(int) maxRegionSearch} tiles in each direction, so for a radius larger than this
+     * some edges might be missing.
+     *
+     * @param maxCandidates the maximum number of snaps that are returned
+     * @param radius        the maximum distance in meters between the query point and the snapped point
+     * @return the snaps ordered by their distance to the query point (closest first)
+     */
+    public List<Snap> findClosestCandidates(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                                            int maxCandidates, double radius) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (maxCandidates < 1)
+            throw new IllegalArgumentException("maxCandidates must be at least 1, but was: " + maxCandidates);
+
+        final double normedRadius = DIST_PLANE.calcNormalizedDist(radius);
+        final List<Snap> candidates = new ArrayList<>();
+        final BaseGraph baseGraph = graph.getBaseGraph();
+        final EdgeIteratorState[] edgeState = new EdgeIteratorState[1];
+        IntHashSet seenEdges = getSeenEdges();
+        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+            lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+                if (!seenEdges.add(edgeId))
+                    return;
+                EdgeIteratorState edgeIteratorState = edgeState[0] = baseGraph.getEdgeIteratorStateForKey(edgeId * 2, edgeState[0]);
+                if (!edgeFilter.accept(edgeIteratorState))
+                    return;
+                Snap snap = new Snap(queryLat, queryLon);
+                traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance()) {
+                        snap.setQueryDistance(normedDist);
+                        snap.setClosestNode(node);
+                        snap.setWayIndex(wayIndex);
+                        snap.setSnappedPosition(pos);
+                    }
+                });
+                if (snap.getQueryDistance() <= normedRadius) {
+                    snap.setClosestEdge(edgeIteratorState.detach(false));
+                    candidates.add(snap);
+                }
+            });
+            double rMin = calculateRMin(queryLat, queryLon, iteration);
+            if (radius < rMin)
+                // all edges within the radius were found
+                break;
+            if (candidates.size() >= maxCandidates) {
+                candidates.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+                if (DIST_PLANE.calcDenormalizedDist(candidates.get(maxCandidates - 1).getQueryDistance()) < rMin)
+                    // there cannot be closer edges in the tiles we did not search yet
+                    break;
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        List<Snap> result = new ArrayList<>(Math.min(maxCandidates, candidates.size()));
+        IntHashSet seenTowerNodes = new IntHashSet();
+        for (Snap snap : candidates) {
+            if (result.size() >= maxCandidates)
+                break;
+            if (snap.getSnappedPosition() == Snap.Position.TOWER && !seenTowerNodes.add(snap.getClosestNode()))
+                continue;
+            snap.calcSnappedPoint(DIST_PLANE);
+            snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, queryLat, queryLon));
+            result.add(snap);
+        }
+        return result;
+    }
+
+    /**
+     * @return an empty set that can be used to keep track of the visited edges of a single search. The set is reused
+     * for all searches of the current thread, because allocating it for every search is expensive.
+     */
+    private IntHashSet getSeenEdges() {
+        IntHashSet seenEdges = seenEdgesPerThread.get();
+        // we do not want to keep a huge set after a search that visited many edges, because clearing it is expensive
+        if (seenEdges.size() > MAX_REUSED_SEEN_EDGES) {
+            seenEdges = new IntHashSet();
+            seenEdgesPerThread.set(seenEdges);
+        } else {
+            seenEdges.clear();
+        }
+        return seenEdges;
+    }
+
     @Override
     public void query(TileFilter tileFilter, Visitor function) {
         lineIntIndex.query(tileFilter, function);
@@ -46,7 +46,11 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -538,6 +542,45 @@ public class GHUtility {
         }
     }
 
+    /**
+     * Runs the given work for the indices 0..count-1 using at most parallelism tasks of the given executor. Each task
+     * first creates its worker (which can hold task-local state) and then processes every parallelism-th index, which
+     * distributes long and short units of work more evenly than contiguous chunks would. Exceptions thrown by the
+     * workers are rethrown unchanged. If the executor is null everything is done in the calling thread.
+     */
+    public static void runStriped(ExecutorService executor, int count, int parallelism, IntFunction<IntConsumer> workerFactory) {
+        if (executor == null) {
+            IntConsumer worker = workerFactory.apply(0);
+            for (int i = 0; i < count; i++)
+                worker.accept(i);
+            return;
+        }
+        final int tasks = Math.max(1, Math.min(count, parallelism));
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int task = t;
+            futures.add(executor.submit(() -> {
+                IntConsumer worker = workerFactory.apply(task);
+                for (int i = task; i < count; i += tasks)
+                    worker.accept(i);
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<?> future : futures)
+                future.cancel(true);
+        }
+    }
+
     public static BBox createBBox(EdgeIteratorState edgeState) {
         PointList towerNodes = edgeState.fetchWayGeometry(FetchMode.TOWER_ONLY);
         int secondIndex = towerNodes.size() == 1 ? 0 : 1;
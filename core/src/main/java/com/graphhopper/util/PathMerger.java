@@ -18,13 +18,12 @@
 package com.graphhopper.util;
 
 import com.graphhopper.ResponsePath;
-import com.graphhopper.routing.InstructionsFromEdges;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathPostProcessor;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
-import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 
 import java.util.ArrayList;
@@ -56,6 +55,7 @@ public class PathMerger {
     private PathDetailsBuilderFactory pathBuilderFactory;
     private List<String> requestedPathDetails = Collections.emptyList();
     private double favoredHeading = Double.NaN;
+    private PhaseTimings timings;
 
     public PathMerger(Graph graph, Weighting weighting) {
         this.graph = graph;
@@ -88,7 +88,17 @@ public class PathMerger {
         return this;
     }
 
+    /**
+     * Adds the time spent to calculate the points, instructions and path details to the given timings.
+     */
+    public PathMerger setTimings(PhaseTimings timings) {
+        this.timings = timings;
+        return this;
+    }
+
     public ResponsePath doWork(PointList waypoints, List<Path> paths, EncodedValueLookup evLookup, Translation tr) {
+        StopWatch sw = new StopWatch().start();
+        boolean detailedTimings = timings != null && timings.isDetailed();
         ResponsePath responsePath = new ResponsePath();
         int origPoints = 0;
         long fullTimeInMillis = 0;
@@ -110,8 +120,14 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
+            if (!calcPoints && !enableInstructions)
+                continue;
+
+            // points, instructions and path details are calculated in a single pass over the edges of the path
+            PathPostProcessor processor = new PathPostProcessor(path, graph, weighting, evLookup, enableInstructions ? tr : null,
+                    requestedPathDetails, pathBuilderFactory, origPoints).setMeasureTimings(detailedTimings).process();
             if (enableInstructions) {
-                InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
+                InstructionList il = processor.getInstructions();
 
                 if (!il.isEmpty()) {
                     fullInstructions.addAll(il);
@@ -125,25 +141,26 @@ public class PathMerger {
                 }
 
             }
-            if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
-                if (fullPoints.isEmpty())
-                    fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
-
-                // Remove duplicated points, see #1138
-                if (pathIndex + 1 < paths.size()) {
-                    tmpPoints.removeLastPoint();
-                }
+            PointList tmpPoints = processor.getPoints();
+            if (fullPoints.isEmpty())
+                fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
 
-                fullPoints.add(tmpPoints);
-                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph));
-                wayPointIndices.add(origPoints);
-                if (pathIndex == paths.size() - 1)
-                    wayPointIndices.add(fullPoints.size() - 1);
-                origPoints = fullPoints.size();
+            // Remove duplicated points, see #1138
+            if (pathIndex + 1 < paths.size()) {
+                tmpPoints.removeLastPoint();
             }
 
-            allFound = allFound && path.isFound();
+            fullPoints.add(tmpPoints);
+            long detailsStart = System.nanoTime();
+            responsePath.addPathDetails(processor.getPathDetails());
+            if (detailedTimings) {
+                timings.add(PhaseTimings.INSTRUCTIONS, processor.getInstructionsNanos());
+                timings.add(PhaseTimings.DETAILS, processor.getDetailsNanos() + System.nanoTime() - detailsStart);
+            }
+            wayPointIndices.add(origPoints);
+            if (pathIndex == paths.size() - 1)
+                wayPointIndices.add(fullPoints.size() - 1);
+            origPoints = fullPoints.size();
         }
 
         if (!fullPoints.isEmpty() && fullPoints.is3D)
@@ -178,6 +195,8 @@ public class PathMerger {
         if (allFound && simplifyResponse && (calcPoints || enableInstructions)) {
             PathSimplification.simplify(responsePath, ramerDouglasPeucker, enableInstructions);
         }
+        if (timings != null)
+            timings.add(PhaseTimings.PATH_PROCESSING, sw.stop().getNanos());
         return responsePath;
     }
 
@@ -58,17 +58,32 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
                                                             int previousIndex, Graph graph) {
         if (!path.isFound() || requestedPathDetails.isEmpty())
             return Collections.emptyMap();
+        List<PathDetailsBuilder> pathBuilders = createPathDetailsBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+        if (pathBuilders.isEmpty())
+            return Collections.emptyMap();
+
+        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return buildPathDetails(pathBuilders);
+    }
+
+    /**
+     * Creates the PathDetailsBuilders for the requested path details and rejects duplicates.
+     */
+    public static List<PathDetailsBuilder> createPathDetailsBuilders(Path path, EncodedValueLookup evLookup, Weighting weighting,
+                                                                     List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
+                                                                     Graph graph) {
         HashSet<String> uniquePD = new HashSet<>(requestedPathDetails.size());
         Collection<String> res = requestedPathDetails.stream().filter(pd -> !uniquePD.add(pd)).toList();
         if (!res.isEmpty())
             throw new IllegalArgumentException("Do not use duplicate path details: " + res);
 
-        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
-        if (pathBuilders.isEmpty())
-            return Collections.emptyMap();
-
-        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
+    }
 
+    /**
+     * @return the PathDetails collected by the given builders, which must have seen all edges of the path
+     */
+    public static Map<String, List<PathDetail>> buildPathDetails(List<PathDetailsBuilder> pathBuilders) {
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
             Map.Entry<String, List<PathDetail>> entry = builder.build();
@@ -76,19 +91,26 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
             if (existing != null)
                 throw new IllegalStateException("Some PathDetailsBuilders use duplicate key: " + entry.getKey());
         }
-
         return pathDetails;
     }
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size());
+    }
+
+    /**
+     * Same as {@link #next(EdgeIteratorState, int, int)}, but uses the given number of points of the edge (without
+     * the base node) instead of fetching its geometry again.
+     */
+    public void next(EdgeIteratorState edge, int points) {
         for (PathDetailsBuilder calc : calculators) {
             if (calc.isEdgeDifferentToLastEdge(edge)) {
                 calc.endInterval(lastIndex);
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
+        lastIndex += points;
     }
 
     @Override
@@ -24,6 +24,7 @@ import com.graphhopper.config.TurnCostsConfig;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -43,6 +44,7 @@ import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.MaximumNodesExceededException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
+import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
@@ -1037,6 +1039,93 @@ public class GraphHopperTest {
         assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testMonacoViaParallel(boolean withCH) {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car").setTurnCostsConfig(TurnCostsConfig.car())).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest().
+                addPoint(new GHPoint(43.727687, 7.418737)).
+                addPoint(new GHPoint(43.74958, 7.436566)).
+                addPoint(new GHPoint(43.739213, 7.427806)).
+                addPoint(new GHPoint(43.732022, 7.422114)).
+                addPoint(new GHPoint(43.744, 7.431)).
+                addPoint(new GHPoint(43.727687, 7.418737)).
+                setCurbsides(asList("any", "right", "any", "left", "any", "any")).
+                setProfile(profile);
+        req.putHint(CH.DISABLE, !withCH);
+        GHResponse sequentialRsp = hopper.route(req);
+        assertFalse(sequentialRsp.hasErrors(), sequentialRsp.getErrors().toString());
+
+        hopper.getRouterConfig().setViaThreads(3);
+        GHResponse parallelRsp = hopper.route(req);
+        assertFalse(parallelRsp.hasErrors(), parallelRsp.getErrors().toString());
+        ResponsePath sequential = sequentialRsp.getBest();
+        ResponsePath parallel = parallelRsp.getBest();
+        assertEquals(sequential.getDistance(), parallel.getDistance(), 1.e-6);
+        assertEquals(sequential.getTime(), parallel.getTime());
+        assertEquals(sequential.getPoints(), parallel.getPoints());
+        assertEquals(sequential.getWaypoints(), parallel.getWaypoints());
+        assertEquals(sequentialRsp.getHints().getLong("visited_nodes.sum", 0), parallelRsp.getHints().getLong("visited_nodes.sum", -1));
+        hopper.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testMonacoBatch(boolean withCH) {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car").setTurnCostsConfig(TurnCostsConfig.car())).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+        hopper.getRouterConfig().setBatchThreads(3);
+
+        List<GHPoint> points = asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.739213, 7.427806), new GHPoint(43.732022, 7.422114), new GHPoint(43.744, 7.431));
+        List<GHRequest> requests = new ArrayList<>();
+        for (GHPoint from : points)
+            for (GHPoint to : points)
+                if (from != to)
+                    requests.add(new GHRequest(from, to).setProfile(profile).putHint(CH.DISABLE, !withCH));
+        // a request with a heading cannot share the query graph
+        requests.add(new GHRequest(points.get(0), points.get(1)).setHeadings(asList(90.0, Double.NaN)).setProfile(profile).putHint(CH.DISABLE, true));
+        // errors are reported per request
+        requests.add(new GHRequest(points.get(0), new GHPoint(42.0, 7.0)).setProfile(profile).putHint(CH.DISABLE, !withCH));
+        requests.add(new GHRequest(points.get(0), points.get(1)).setProfile("unknown"));
+
+        GHResponse[] responses = new GHResponse[requests.size()];
+        hopper.routeBatch(requests, (rsp, index) -> {
+            synchronized (responses) {
+                assertNull(responses[index]);
+                responses[index] = rsp;
+            }
+        });
+        for (int i = 0; i < requests.size() - 2; i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            assertFalse(expected.hasErrors(), expected.getErrors().toString());
+            assertFalse(responses[i].hasErrors(), responses[i].getErrors().toString());
+            // the shared query graph contains the snapped points of the other requests, which only changes the rounding
+            assertEquals(expected.getBest().getDistance(), responses[i].getBest().getDistance(), 1.e-3);
+            assertEquals(expected.getBest().getTime(), responses[i].getBest().getTime(), 10);
+            assertEquals(expected.getBest().getWaypoints(), responses[i].getBest().getWaypoints());
+        }
+        assertTrue(responses[requests.size() - 2].getErrors().get(0) instanceof PointOutOfBoundsException);
+        assertTrue(responses[requests.size() - 1].getErrors().get(0).getMessage().contains("'unknown' does not exist"), responses[requests.size() - 1].getErrors().toString());
+        hopper.close();
+    }
+
     @Test
     public void testMonacoStraightVia() {
         final String profile = "profile";
@@ -1500,6 +1589,48 @@ public class GraphHopperTest {
         assertEquals(68, res.getPoints().size());
     }
 
+    @Test
+    public void testRoundTourCandidates() {
+        final String profile = "profile";
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("foot_access, foot_priority, foot_average_speed").
+                setProfiles(TestProfiles.accessSpeedAndPriority(profile, "foot")).
+                setStoreOnFlush(true).
+                importOrLoad();
+
+        GHRequest rq = new GHRequest().
+                addPoint(new GHPoint(43.741069, 7.426854)).
+                setProfile(profile).
+                setAlgorithm(ROUND_TRIP);
+        rq.putHint(RoundTrip.DISTANCE, 2000);
+        rq.putHint(RoundTrip.SEED, 0);
+        rq.putHint(RoundTrip.CANDIDATES, 6);
+
+        GHResponse sequentialRsp = hopper.route(rq);
+        assertFalse(sequentialRsp.hasErrors(), sequentialRsp.getErrors().toString());
+        ResponsePath sequential = sequentialRsp.getBest();
+        assertEquals(sequential.getWaypoints().get(0), sequential.getWaypoints().get(sequential.getWaypoints().size() - 1));
+
+        // the best candidate does not depend on the number of threads
+        hopper.getRouterConfig().setViaThreads(3);
+        ResponsePath parallel = hopper.route(rq).getBest();
+        assertEquals(sequential.getWaypoints(), parallel.getWaypoints());
+        assertEquals(sequential.getDistance(), parallel.getDistance(), 1.e-6);
+
+        // the chosen candidate is one of the single candidates we get for the consecutive seeds
+        boolean found = false;
+        for (int seed = 0; seed < 6; seed++) {
+            rq.putHint(RoundTrip.SEED, seed);
+            rq.putHint(RoundTrip.CANDIDATES, 1);
+            found |= hopper.route(rq).getBest().getWaypoints().equals(sequential.getWaypoints());
+        }
+        assertTrue(found);
+        hopper.close();
+    }
+
     @Test
     public void testPathDetails1216() {
         final String profile = "profile";
@@ -1705,6 +1836,203 @@ public class GraphHopperTest {
         assertEquals(3587, response.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testCustomizableCH() {
+        Profile profile = TestProfiles.accessAndSpeed("car");
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, road_class").
+                setProfiles(profile).
+                setCustomizableCH(true, 2, 2).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        assertNotNull(hopper.getCustomizableCH());
+
+        CustomModel customModel = new CustomModel().setDistanceInfluence(0d);
+        customModel.addToPriority(If("road_class == PRIMARY", MULTIPLY, "0.1"));
+        for (CustomModel cm : Arrays.asList(customModel, new CustomModel().setDistanceInfluence(200d))) {
+            GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                    setCustomModel(cm).setProfile("car");
+            GHResponse cchResponse = hopper.route(req);
+            assertFalse(cchResponse.hasErrors(), cchResponse.getErrors().toString());
+            assertEquals("cch", cchResponse.getTimings().getMode());
+
+            req.putHint(CH.DISABLE, true);
+            GHResponse flexResponse = hopper.route(req);
+            assertFalse(flexResponse.hasErrors(), flexResponse.getErrors().toString());
+            assertEquals("flex", flexResponse.getTimings().getMode());
+            assertEquals(flexResponse.getBest().getRouteWeight(), cchResponse.getBest().getRouteWeight(), 1.e-2);
+            assertEquals(flexResponse.getBest().getDistance(), cchResponse.getBest().getDistance(), 1);
+        }
+
+        // requests without a custom model still use the regular CH
+        GHResponse response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car"));
+        assertEquals("ch", response.getTimings().getMode());
+    }
+
+    @Test
+    public void testCoreALT() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setCoreALT(List.of("car"), 10, 8).
+                setStoreOnFlush(true);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        assertEquals(8, hopper.getCoreALTs().get("car").getLandmarkCount());
+
+        Random rnd = new Random(123);
+        BBox bounds = hopper.getBaseGraph().getBounds();
+        for (int i = 0; i < 50; i++) {
+            GHRequest req = new GHRequest(
+                    bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat), bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon),
+                    bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat), bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon)).
+                    setProfile("car");
+            GHResponse coreALTResponse = hopper.route(req);
+            req.putHint(CH.DISABLE, true);
+            GHResponse flexResponse = hopper.route(req);
+            assertEquals(flexResponse.hasErrors(), coreALTResponse.hasErrors(), coreALTResponse.getErrors().toString());
+            if (flexResponse.hasErrors())
+                continue;
+            assertEquals("core_alt", coreALTResponse.getTimings().getMode());
+            assertEquals("flex", flexResponse.getTimings().getMode());
+            assertEquals(flexResponse.getBest().getRouteWeight(), coreALTResponse.getBest().getRouteWeight(), 1.e-2);
+            assertEquals(flexResponse.getBest().getDistance(), coreALTResponse.getBest().getDistance(), 1);
+        }
+    }
+
+    @Test
+    public void testRouteCache() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car")).
+                setRouteCache(new RouteCache(10)).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        RouteCache cache = hopper.getRouteCache();
+
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.size());
+
+        // the same snapped points lead to the same path
+        GHResponse cachedRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car"));
+        assertFalse(cachedRsp.hasErrors(), cachedRsp.getErrors().toString());
+        assertEquals(1, cache.getHits());
+        assertEquals(rsp.getBest().getDistance(), cachedRsp.getBest().getDistance(), 1.e-6);
+        assertEquals(rsp.getBest().getTime(), cachedRsp.getBest().getTime());
+        assertEquals(rsp.getBest().getRouteWeight(), cachedRsp.getBest().getRouteWeight(), 1.e-6);
+        assertEquals(rsp.getBest().getPoints(), cachedRsp.getBest().getPoints());
+        assertEquals(rsp.getBest().getInstructions().size(), cachedRsp.getBest().getInstructions().size());
+
+        // the output parameters are not part of the key and the details are calculated for the cached path
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                setPathDetails(List.of("street_name"));
+        req.putHint(Parameters.Routing.INSTRUCTIONS, false);
+        GHResponse rspWithDetails = hopper.route(req);
+        assertEquals(2, cache.getHits());
+        assertEquals(rsp.getBest().getDistance(), rspWithDetails.getBest().getDistance(), 1.e-6);
+        assertFalse(rspWithDetails.getBest().getPathDetails().get("street_name").isEmpty());
+
+        // other points and requests without CH are not cached
+        hopper.route(new GHRequest(43.727687, 7.418737, 43.74, 7.43).setProfile("car"));
+        hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").putHint(CH.DISABLE, true));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.size());
+
+        // a new graph version clears the cache
+        cache.setGraphVersion("other");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTrafficSpeed() {
+        Profile profile = TestProfiles.accessAndSpeed("car");
+        profile.getCustomModel().addToSpeed(If("true", LIMIT, TrafficSpeed.KEY));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, " + TrafficSpeed.KEY).
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                setPathDetails(List.of(Parameters.Details.EDGE_ID));
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        double time = rsp.getBest().getTime();
+
+        // a traffic jam on the route: the new routes must avoid it and LM must find the same route as flexible routing
+        ExternalDecimalEncodedValue trafficSpeedEnc = (ExternalDecimalEncodedValue) hopper.getEncodingManager().getDecimalEncodedValue(TrafficSpeed.KEY);
+        ExternalDecimalEncodedValue.Update update = trafficSpeedEnc.createUpdate(false);
+        List<PathDetail> edgeIds = rsp.getBest().getPathDetails().get(Parameters.Details.EDGE_ID);
+        for (PathDetail detail : edgeIds.subList(edgeIds.size() / 3, 2 * edgeIds.size() / 3)) {
+            update.set((int) detail.getValue(), false, 5);
+            update.set((int) detail.getValue(), true, 5);
+        }
+        update.publish();
+        GHResponse lmRsp = hopper.route(req);
+        assertFalse(lmRsp.hasErrors(), lmRsp.getErrors().toString());
+        assertTrue(lmRsp.getBest().getDebugInfo().contains("landmarks-routing"), lmRsp.getBest().getDebugInfo());
+        GHResponse flexRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                putHint(Landmark.DISABLE, true));
+        assertEquals(flexRsp.getBest().getRouteWeight(), lmRsp.getBest().getRouteWeight(), 1.e-3);
+        assertEquals(flexRsp.getBest().getDistance(), lmRsp.getBest().getDistance(), 1.e-3);
+        assertTrue(lmRsp.getBest().getTime() > time, lmRsp.getBest().getTime() + " vs. " + time);
+
+        // without traffic we get the original route again
+        trafficSpeedEnc.clear();
+        assertEquals(time, hopper.route(req).getBest().getTime(), 1);
+    }
+
+    @Test
+    public void testTrafficSpeedNotAllowedForCH() {
+        Profile profile = TestProfiles.accessAndSpeed("car");
+        profile.getCustomModel().addToSpeed(If("true", LIMIT, TrafficSpeed.KEY));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, " + TrafficSpeed.KEY).
+                setProfiles(profile);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, hopper::importOrLoad);
+        assertTrue(e.getMessage().contains("CH profile 'car' cannot use traffic_speed"), e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"speed_condition", "priority", "nested_condition"})
+    public void testTrafficSpeedOnlyAsSpeedLimitForLM(String usage) {
+        Profile profile = TestProfiles.accessAndSpeed("car");
+        profile.getCustomModel().addToSpeed(If("true", LIMIT, TrafficSpeed.KEY));
+        switch (usage) {
+            case "speed_condition" -> profile.getCustomModel().addToSpeed(If(TrafficSpeed.KEY + " < 30", MULTIPLY, "0.5"));
+            case "priority" -> profile.getCustomModel().addToPriority(If(TrafficSpeed.KEY + " < 30", MULTIPLY, "0.5"));
+            case "nested_condition" -> profile.getCustomModel().addToSpeed(If("road_class == PRIMARY",
+                    List.of(If(TrafficSpeed.KEY + " < 30", MULTIPLY, "0.5"))));
+        }
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, road_class, " + TrafficSpeed.KEY).
+                setProfiles(profile);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, hopper::importOrLoad);
+        assertTrue(e.getMessage().contains("LM profile 'car' can use traffic_speed only as the value of limit_to statements for the speed"), e.getMessage());
+    }
+
     @Test
     public void testCreateWeightingHintsMerging() {
         GraphHopper hopper = new GraphHopper().
@@ -1927,6 +2255,42 @@ public class GraphHopperTest {
         consistenceCheck(best);
     }
 
+    @Test
+    public void testTurnAngleCosts() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MOSCOW).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(
+                        TestProfiles.accessAndSpeed("turn_costs", "car").
+                                setTurnCostsConfig(new TurnCostsConfig(List.of("motorcar", "motor_vehicle"), 30)),
+                        TestProfiles.accessAndSpeed("turn_angle_costs", "car").
+                                setTurnCostsConfig(new TurnCostsConfig(List.of("motorcar", "motor_vehicle"), 30).
+                                        setLeftTurnCosts(30).setSharpLeftTurnCosts(60).setRightTurnCosts(10).setSharpRightTurnCosts(20))
+                ).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+        assertTrue(hopper.getEncodingManager().hasTurnEncodedValue(TurnAngle.KEY));
+
+        GHRequest req = new GHRequest(55.813357, 37.5958585, 55.811042, 37.594689).setProfile("turn_costs");
+        req.setPathDetails(Arrays.asList("distance", "time"));
+        ResponsePath withoutAngleCosts = hopper.route(req).getBest();
+        consistenceCheck(withoutAngleCosts);
+        req.setProfile("turn_angle_costs");
+        ResponsePath withAngleCosts = hopper.route(req).getBest();
+        consistenceCheck(withAngleCosts);
+        assertTrue(withAngleCosts.getTime() > withoutAngleCosts.getTime());
+        hopper.close();
+
+        // the turn angles are loaded with the graph
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(hopper.getProfiles());
+        hopper.importOrLoad();
+        assertEquals(withAngleCosts.getTime(), hopper.route(req).getBest().getTime());
+    }
+
     @Test
     public void testTurnCostsOnOffCH() {
         final String profile1 = "profile_turn_costs";
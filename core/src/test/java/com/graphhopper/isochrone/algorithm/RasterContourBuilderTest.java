@@ -0,0 +1,141 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.json.Statement;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.graphhopper.json.Statement.If;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterContourBuilderTest {
+
+    private static final int SIZE = 21;
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private BaseGraph graph;
+    private Weighting weighting;
+
+    @BeforeEach
+    public void setUp() {
+        // a regular grid of roads with a spacing of roughly 110m
+        graph = new BaseGraph.Builder(encodingManager).create();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                graph.getNodeAccess().setNode(row * SIZE + col, 50 + row * 0.001, 10 + col * 0.0015);
+            }
+        }
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (col + 1 < SIZE)
+                    addEdge(row * SIZE + col, row * SIZE + col + 1);
+                if (row + 1 < SIZE)
+                    addEdge(row * SIZE + col, (row + 1) * SIZE + col);
+            }
+        }
+        graph.freeze();
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(If("!" + accessEnc.getName(), Statement.Op.MULTIPLY, "0"));
+        customModel.addToSpeed(If("true", Statement.Op.LIMIT, speedEnc.getName()));
+        weighting = CustomModelParser.createWeighting(encodingManager, TurnCostProvider.NO_TURN_COST_PROVIDER, customModel);
+    }
+
+    private void addEdge(int from, int to) {
+        double dist = DistanceCalcEarth.DIST_EARTH.calcDist(graph.getNodeAccess().getLat(from), graph.getNodeAccess().getLon(from),
+                graph.getNodeAccess().getLat(to), graph.getNodeAccess().getLon(to));
+        GHUtility.setSpeed(30, true, true, accessEnc, speedEnc, graph.edge(from, to).setDistance(dist));
+    }
+
+    private Map<Integer, Long> calcTimes(int start) {
+        Map<Integer, Long> times = new HashMap<>();
+        createTree().search(start, label -> times.merge(label.node, label.time, Math::min));
+        return times;
+    }
+
+    private ShortestPathTree createTree() {
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, TraversalMode.NODE_BASED);
+        tree.setTimeLimit(200_000);
+        return tree;
+    }
+
+    private Point point(int node) {
+        return geometryFactory.createPoint(new Coordinate(graph.getNodeAccess().getLon(node), graph.getNodeAccess().getLat(node)));
+    }
+
+    @Test
+    public void testIsolineContainsReachedNodes() {
+        int start = SIZE * SIZE / 2;
+        Map<Integer, Long> times = calcTimes(start);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        // cells of roughly 55m, so the gaps between the roads are closed
+        RasterContourBuilder builder = RasterContourBuilder.create(start, queryGraph, weighting, createTree(), l -> l.time, 0.0005, 1_000_000, 2);
+        double z = 100_000;
+        MultiPolygon isoline = builder.computeIsoline(z);
+        assertTrue(isoline.isValid());
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        assertEquals(0, polygon.getNumInteriorRing());
+        assertTrue(polygon.contains(point(start)));
+        int inside = 0;
+        for (Map.Entry<Integer, Long> e : times.entrySet()) {
+            if (e.getValue() < 0.8 * z) {
+                assertTrue(polygon.contains(point(e.getKey())), "node " + e.getKey() + " should be inside");
+                inside++;
+            } else if (e.getValue() > 1.3 * z) {
+                assertFalse(polygon.contains(point(e.getKey())), "node " + e.getKey() + " should be outside");
+            }
+        }
+        assertTrue(inside > 20, "" + inside);
+
+        // the isolines grow with z
+        MultiPolygon smaller = builder.computeIsoline(z / 2);
+        assertTrue(isoline.contains(smaller));
+        assertTrue(smaller.getArea() < isoline.getArea());
+    }
+
+    @Test
+    public void testHoles() {
+        int start = SIZE * SIZE / 2;
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        // with cells of roughly 5m the blocks between the roads stay empty and become holes
+        RasterContourBuilder builder = RasterContourBuilder.create(start, queryGraph, weighting, createTree(), l -> l.time, 0.00005, 1_000_000, 2);
+        MultiPolygon isoline = builder.computeIsoline(100_000);
+        assertTrue(isoline.isValid());
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        assertTrue(polygon.getNumInteriorRing() > 10, "" + polygon.getNumInteriorRing());
+        assertTrue(polygon.contains(point(start)));
+        // the center of a block is not covered
+        Point blockCenter = geometryFactory.createPoint(new Coordinate(10 + 10.5 * 0.0015, 50 + 10.5 * 0.001));
+        assertFalse(polygon.contains(blockCenter));
+    }
+
+    @Test
+    public void testMaxCells() {
+        int start = SIZE * SIZE / 2;
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        // the requested cells are far too small, so they are enlarged
+        RasterContourBuilder builder = RasterContourBuilder.create(start, queryGraph, weighting, createTree(), l -> l.time, 0.000001, 10_000, 2);
+        assertTrue(builder.getWidth() * builder.getHeight() <= 10_000);
+        MultiPolygon isoline = builder.computeIsoline(100_000);
+        assertTrue(isoline.isValid());
+        assertTrue(isoline.contains(point(start)));
+    }
+}
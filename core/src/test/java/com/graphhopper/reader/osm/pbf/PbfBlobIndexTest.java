@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.OSMInputFile;
+import com.graphhopper.reader.osm.SkipOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PbfBlobIndexTest {
+
+    @Test
+    void createAndUseIndex(@TempDir Path dir) throws Exception {
+        File pbfFile = dir.resolve("andorra.osm.pbf").toFile();
+        Files.copy(new File("./files/andorra.osm.pbf").toPath(), pbfFile.toPath());
+        File indexFile = dir.resolve("andorra.osm.pbf.blobs").toFile();
+
+        // reading the file with skipped elements does not create the index
+        Map<ReaderElement.Type, Integer> withoutIndex = count(pbfFile, new SkipOptions(true, false, false), indexFile);
+        assertFalse(indexFile.exists());
+
+        // reading the entire file does
+        Map<ReaderElement.Type, Integer> all = count(pbfFile, SkipOptions.none(), indexFile);
+        assertTrue(indexFile.exists());
+        PbfBlobIndex index = PbfBlobIndex.load(indexFile, pbfFile);
+        assertNotNull(index);
+        assertTrue(index.getBlobs() > 1);
+        SkipOptions skipNodes = new SkipOptions(true, false, false);
+        assertTrue(IntStream.range(0, index.getBlobs()).anyMatch(blob -> index.canSkip(blob, skipNodes)));
+        assertFalse(IntStream.range(0, index.getBlobs()).allMatch(blob -> index.canSkip(blob, skipNodes)));
+        assertFalse(IntStream.range(0, index.getBlobs()).anyMatch(blob -> index.canSkip(blob, SkipOptions.none())));
+
+        // with the index we get the same elements, but skip the blobs that only contain nodes
+        Map<ReaderElement.Type, Integer> withIndex = count(pbfFile, skipNodes, indexFile);
+        assertEquals(withoutIndex, withIndex);
+        assertNull(withIndex.get(ReaderElement.Type.NODE));
+        assertEquals(all.get(ReaderElement.Type.WAY), withIndex.get(ReaderElement.Type.WAY));
+        assertEquals(all.get(ReaderElement.Type.RELATION), withIndex.get(ReaderElement.Type.RELATION));
+        assertTrue(all.get(ReaderElement.Type.NODE) > 0);
+    }
+
+    @Test
+    void outdatedIndexIsIgnored(@TempDir Path dir) throws Exception {
+        File pbfFile = dir.resolve("andorra.osm.pbf").toFile();
+        Files.copy(new File("./files/andorra.osm.pbf").toPath(), pbfFile.toPath());
+        File indexFile = dir.resolve("andorra.osm.pbf.blobs").toFile();
+        count(pbfFile, SkipOptions.none(), indexFile);
+        assertNotNull(PbfBlobIndex.load(indexFile, pbfFile));
+        assertTrue(pbfFile.setLastModified(pbfFile.lastModified() - 10_000));
+        assertNull(PbfBlobIndex.load(indexFile, pbfFile));
+        // the index is replaced when we read the entire file again
+        count(pbfFile, SkipOptions.none(), indexFile);
+        assertNotNull(PbfBlobIndex.load(indexFile, pbfFile));
+    }
+
+    private Map<ReaderElement.Type, Integer> count(File pbfFile, SkipOptions skipOptions, File indexFile) throws Exception {
+        Map<ReaderElement.Type, Integer> counts = new EnumMap<>(ReaderElement.Type.class);
+        try (OSMInputFile in = new OSMInputFile(pbfFile).setWorkerThreads(2).setSkipOptions(skipOptions).setBlobIndexFile(indexFile).open()) {
+            ReaderElement elem;
+            while ((elem = in.getNext()) != null)
+                counts.merge(elem.getType(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
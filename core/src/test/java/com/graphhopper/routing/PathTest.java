@@ -279,6 +279,42 @@ public class PathTest {
         roundaboutGraph.inverse3to9();
     }
 
+    @Test
+    public void testPathPostProcessorMatchesSeparatePasses() {
+        Weighting weighting = new SpeedWeighting(mixedCarSpeedEnc);
+        List<String> requestedDetails = List.of(STREET_NAME, EDGE_ID, DISTANCE, TIME);
+        for (int[] fromTo : new int[][]{{1, 8}, {1, 7}, {2, 8}, {6, 8}, {3, 3}}) {
+            Path p = new Dijkstra(roundaboutGraph.g, weighting, TraversalMode.NODE_BASED).calcPath(fromTo[0], fromTo[1]);
+            assertTrue(p.isFound());
+            PathPostProcessor processor = new PathPostProcessor(p, p.graph, weighting, mixedEncodingManager, tr,
+                    requestedDetails, new PathDetailsBuilderFactory(), 5).process();
+
+            assertEquals(p.calcPoints(), processor.getPoints());
+            InstructionList expectedInstructions = InstructionsFromEdges.calcInstructions(p, p.graph, weighting, mixedEncodingManager, tr);
+            assertEquals(expectedInstructions.size(), processor.getInstructions().size());
+            for (int i = 0; i < expectedInstructions.size(); i++) {
+                Instruction expected = expectedInstructions.get(i);
+                Instruction given = processor.getInstructions().get(i);
+                assertEquals(expected.getTurnDescription(tr), given.getTurnDescription(tr));
+                assertEquals(expected.getPoints(), given.getPoints());
+                assertEquals(expected.getDistance(), given.getDistance(), 1.e-6);
+                assertEquals(expected.getTime(), given.getTime());
+                assertEquals(expected.getExtraInfoJSON(), given.getExtraInfoJSON());
+            }
+            Map<String, List<PathDetail>> expectedDetails = PathDetailsFromEdges.calcDetails(p, mixedEncodingManager, weighting,
+                    requestedDetails, new PathDetailsBuilderFactory(), 5, p.graph);
+            assertEquals(expectedDetails.toString(), processor.getPathDetails().toString());
+        }
+
+        // instructions and details are optional
+        Path p = new Dijkstra(roundaboutGraph.g, weighting, TraversalMode.NODE_BASED).calcPath(1, 8);
+        PathPostProcessor processor = new PathPostProcessor(p, p.graph, weighting, mixedEncodingManager, null,
+                List.of(), new PathDetailsBuilderFactory(), 0).process();
+        assertEquals(p.calcPoints(), processor.getPoints());
+        assertNull(processor.getInstructions());
+        assertTrue(processor.getPathDetails().isEmpty());
+    }
+
     @Test
     public void testCalcAverageSpeedDetails() {
         Weighting weighting = new SpeedWeighting(carAvSpeedEnc);
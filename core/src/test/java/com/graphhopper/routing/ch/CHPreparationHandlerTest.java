@@ -18,10 +18,25 @@
 package com.graphhopper.routing.ch;
 
 import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -36,4 +51,52 @@ public class CHPreparationHandlerTest {
         assertTrue(instance.isEnabled());
     }
 
+    @Test
+    public void testSharedNodeOrdering() {
+        DecimalEncodedValue car1SpeedEnc = new DecimalEncodedValueImpl("car1_speed", 5, 5, true);
+        DecimalEncodedValue car2SpeedEnc = new DecimalEncodedValueImpl("car2_speed", 5, 5, true);
+        DecimalEncodedValue car3SpeedEnc = new DecimalEncodedValueImpl("car3_speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(car1SpeedEnc).add(car2SpeedEnc).add(car3SpeedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 1.3, true, null, null, 0.9, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            for (DecimalEncodedValue speedEnc : Arrays.asList(car1SpeedEnc, car2SpeedEnc, car3SpeedEnc))
+                iter.set(speedEnc, rnd.nextDouble() < 0.05 ? 0 : rnd.nextDouble() * 100, rnd.nextDouble() * 100);
+        }
+        graph.freeze();
+
+        List<CHConfig> chConfigs = Arrays.asList(
+                CHConfig.nodeBased("c1", new SpeedWeighting(car1SpeedEnc)),
+                CHConfig.nodeBased("c2", new SpeedWeighting(car2SpeedEnc)),
+                CHConfig.nodeBased("c3", new SpeedWeighting(car3SpeedEnc)));
+        CHPreparationHandler handler = new CHPreparationHandler().setSharedNodeOrdering(true);
+        handler.setPreparationThreads(2);
+        Map<String, PrepareContractionHierarchies.Result> results =
+                handler.prepare(graph, new StorableProperties(new RAMDirectory()), chConfigs, false);
+        assertEquals(3, results.size());
+
+        // the other profiles use the node ordering of the first one
+        CHStorage leaderStorage = results.get("c1").getCHStorage();
+        for (String name : Arrays.asList("c2", "c3")) {
+            CHStorage chStorage = results.get(name).getCHStorage();
+            for (int node = 0; node < numNodes; node++)
+                assertEquals(leaderStorage.getLevel(leaderStorage.toNodePointer(node)), chStorage.getLevel(chStorage.toNodePointer(node)));
+        }
+
+        for (CHConfig chConfig : chConfigs) {
+            RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, results.get(chConfig.getName()).getCHStorage(), chConfig);
+            for (int i = 0; i < 50; i++) {
+                int from = rnd.nextInt(numNodes);
+                int to = rnd.nextInt(numNodes);
+                double dijkstraWeight = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+                RoutingAlgorithm chAlgo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+                assertEquals(dijkstraWeight, chAlgo.calcPath(from, to).getWeight(), 1.e-1, "seed: " + seed);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomizableCHTest {
+
+    @Test
+    public void testSameRoutesAsDijkstra() {
+        DecimalEncodedValue car1SpeedEnc = new DecimalEncodedValueImpl("car1_speed", 5, 5, true);
+        DecimalEncodedValue car2SpeedEnc = new DecimalEncodedValueImpl("car2_speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(car1SpeedEnc).add(car2SpeedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 1.3, true, null, null, 0.9, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            for (DecimalEncodedValue speedEnc : Arrays.asList(car1SpeedEnc, car2SpeedEnc))
+                iter.set(speedEnc, rnd.nextDouble() < 0.05 ? 0 : rnd.nextDouble() * 100, rnd.nextDouble() * 100);
+        }
+        graph.freeze();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CustomizableCH cch = new CustomizableCH(graph).setExecutor(executor, 3);
+            assertTrue(cch.getArcs() >= graph.getEdges() / 2, "seed: " + seed);
+            // every node gets a unique level
+            boolean[] levels = new boolean[numNodes];
+            for (int node = 0; node < numNodes; node++) {
+                assertFalse(levels[cch.getLevel(node)]);
+                levels[cch.getLevel(node)] = true;
+            }
+
+            // the same topology is customized for different weightings
+            for (Weighting weighting : Arrays.asList(new SpeedWeighting(car1SpeedEnc), new SpeedWeighting(car2SpeedEnc))) {
+                RoutingCHGraph chGraph = cch.customize(weighting);
+                for (int i = 0; i < 100; i++) {
+                    int from = rnd.nextInt(numNodes);
+                    int to = rnd.nextInt(numNodes);
+                    Path dijkstraPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                    RoutingAlgorithm chAlgo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+                    Path chPath = chAlgo.calcPath(from, to);
+                    assertEquals(dijkstraPath.isFound(), chPath.isFound(), "seed: " + seed);
+                    if (!dijkstraPath.isFound())
+                        continue;
+                    assertEquals(dijkstraPath.getWeight(), chPath.getWeight(), 1.e-1, "seed: " + seed);
+                    assertEquals(dijkstraPath.getDistance(), chPath.getDistance(), 1.e-1, "seed: " + seed);
+                    assertEquals(from, chPath.calcNodes().get(0), "seed: " + seed);
+                    assertEquals(to, chPath.calcNodes().get(chPath.calcNodes().size() - 1), "seed: " + seed);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCache() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 1.3, true, speedEnc, 60d, 0.9, 0.8);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph).setCacheSize(1);
+        SpeedWeighting weighting = new SpeedWeighting(speedEnc);
+        RoutingCHGraph a = cch.getCustomizedGraph("a", weighting);
+        assertSame(a, cch.getCustomizedGraph("a", weighting));
+        RoutingCHGraph b = cch.getCustomizedGraph("b", weighting);
+        assertNotSame(a, b);
+        // a was evicted
+        assertNotSame(a, cch.getCustomizedGraph("a", weighting));
+
+        assertThrows(IllegalArgumentException.class, () -> cch.setCacheSize(-1));
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.graphhopper.routing.ev;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalDecimalEncodedValueTest {
+
+    @Test
+    public void testSetAndGet() {
+        ExternalDecimalEncodedValue ev = new ExternalDecimalEncodedValue("test", 2, true);
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 10, null));
+        ev.setDecimal(false, 10, null, 31);
+        ev.setDecimal(true, 10, null, 0);
+        assertEquals(32, ev.getDecimal(false, 10, null));
+        assertEquals(0, ev.getDecimal(true, 10, null));
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 9, null));
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 11, null));
+
+        // too large values are stored as the maximum
+        ev.setDecimal(false, 10, null, 1000);
+        assertEquals(508, ev.getDecimal(false, 10, null));
+        ev.setDecimal(false, 10, null, Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> ev.setDecimal(false, 10, null, -2));
+        assertThrows(IllegalArgumentException.class, () -> ev.setDecimal(false, 10, null, Double.NaN));
+    }
+
+    @Test
+    public void testUpdate() {
+        ExternalDecimalEncodedValue ev = new ExternalDecimalEncodedValue("test", 1, false);
+        ev.createUpdate(false).set(3, false, 50).set(5, true, 60).publish();
+        assertEquals(50, ev.getDecimal(false, 3, null));
+        assertEquals(50, ev.getDecimal(true, 3, null));
+        assertEquals(60, ev.getDecimal(false, 5, null));
+
+        ExternalDecimalEncodedValue.Update update = ev.createUpdate(true).set(3, false, 20).remove(5, false);
+        // the values do not change before the update is published
+        assertEquals(50, ev.getDecimal(false, 3, null));
+        assertEquals(60, ev.getDecimal(false, 5, null));
+        update.publish();
+        assertEquals(20, ev.getDecimal(false, 3, null));
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 5, null));
+
+        // an update without the current values replaces all of them
+        ev.createUpdate(false).set(4, false, 10).publish();
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 3, null));
+        assertEquals(10, ev.getDecimal(false, 4, null));
+        ev.clear();
+        assertEquals(Double.POSITIVE_INFINITY, ev.getDecimal(false, 4, null));
+    }
+
+    @Test
+    public void testSerialization() {
+        ExternalDecimalEncodedValue ev = TrafficSpeed.create(2);
+        ev.setDecimal(false, 1, null, 30);
+        ExternalDecimalEncodedValue deserialized = (ExternalDecimalEncodedValue) EncodedValueSerializer.deserializeEncodedValue(
+                EncodedValueSerializer.serializeEncodedValue(ev));
+        assertEquals(TrafficSpeed.KEY, deserialized.getName());
+        assertTrue(deserialized.isStoreTwoDirections());
+        assertEquals(2, deserialized.getSmallestNonZeroValue());
+        // the values are not stored
+        assertEquals(Double.POSITIVE_INFINITY, deserialized.getDecimal(false, 1, null));
+    }
+}
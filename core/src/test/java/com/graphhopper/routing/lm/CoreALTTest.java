@@ -0,0 +1,102 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.EdgeToEdgeRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoreALTTest {
+
+    @RepeatedTest(10)
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager encodingManager = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(seed);
+        // no offset, because otherwise the virtual edges are not as long as the original ones
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        CoreALT coreALT = new CoreALT(graph, chConfig, 20, 4);
+        assertTrue(coreALT.getCoreNodes() > 0 && coreALT.getCoreNodes() < graph.getNodes(), "core nodes: " + coreALT.getCoreNodes());
+
+        for (int j = 0; j < 5; j++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+            for (int i = 0; i < 100; i++) {
+                int from = rnd.nextInt(queryGraph.getNodes());
+                int to = rnd.nextInt(queryGraph.getNodes());
+                Path refPath = new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path path = coreALT.createAlgo(queryGraph, new PMap()).calcPath(from, to);
+                assertEquals(refPath.isFound(), path.isFound(), "seed: " + seed + ", " + from + "->" + to);
+                if (!refPath.isFound())
+                    continue;
+                assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, "seed: " + seed + ", " + from + "->" + to);
+                assertEquals(refPath.getDistance(), path.getDistance(), 1.e-1, "seed: " + seed + ", " + from + "->" + to);
+                assertEquals(from, path.calcNodes().get(0));
+                assertEquals(to, path.calcNodes().get(path.calcNodes().size() - 1));
+            }
+        }
+    }
+
+    @Test
+    public void unsupported() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager encodingManager = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 20, 2.2, true, speedEnc, null, 0.8, 0);
+        graph.freeze();
+        assertThrows(IllegalArgumentException.class, () -> new CoreALT(graph, CHConfig.nodeBased("p", new SpeedWeighting(speedEnc)), 0, 4));
+
+        CoreALT coreALT = new CoreALT(graph, CHConfig.nodeBased("p", new SpeedWeighting(speedEnc)), 50, 4);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        EdgeToEdgeRoutingAlgorithm algo = coreALT.createAlgo(queryGraph, new PMap());
+        assertThrows(IllegalArgumentException.class, () -> algo.calcPath(0, 1, 2, 3));
+        EdgeToEdgeRoutingAlgorithm algo2 = coreALT.createAlgo(queryGraph, new PMap());
+        algo2.calcPath(0, 1);
+        assertThrows(IllegalStateException.class, () -> algo2.calcPath(0, 1));
+    }
+}
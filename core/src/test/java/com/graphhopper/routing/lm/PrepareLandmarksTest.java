@@ -19,6 +19,7 @@ package com.graphhopper.routing.lm;
 
 import com.graphhopper.routing.AStar;
 import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.RoutingAlgorithm;
 import com.graphhopper.routing.ev.*;
@@ -214,4 +215,74 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testWeightBitsAndSubnetworkFactors() {
+        // a big grid where neighbouring nodes are 10km apart and a small one with 100m between the nodes
+        Random rand = new Random(1);
+        createGrid(0, 10, 10_000, rand);
+        createGrid(100, 5, 100, rand);
+        String fileStr = "./target/tmp-lm-bits";
+        Helper.removeDir(new File(fileStr));
+
+        Directory dir = new RAMDirectory(fileStr, true).create();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        PrepareLandmarks plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 4).
+                setWeightBits(8).
+                setSubnetworkFactors(true);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+        LandmarkStorage lms = plm.getLandmarkStorage();
+        assertEquals(8, lms.getWeightBits());
+        assertEquals(3, lms.getSubnetworksWithLandmarks());
+        double smallFactor = lms.getFactor(100);
+        assertEquals(lms.getFactor(), lms.getFactor(0), 1e-6);
+        assertTrue(smallFactor < lms.getFactor() / 50, smallFactor + " vs. " + lms.getFactor());
+        // weights are stored with 8 bits, but even in the small grid they use most of the range
+        int maxFromWeight = 0;
+        for (int node = 100; node < 125; node++) {
+            maxFromWeight = Math.max(maxFromWeight, lms.getFromWeight(0, node));
+        }
+        assertTrue(maxFromWeight > 100 && maxFromWeight <= 254, "max weight " + maxFromWeight);
+        assertRoutesEqualDijkstra(lms, weighting, rand, 0, 10);
+        assertRoutesEqualDijkstra(lms, weighting, rand, 100, 5);
+
+        dir = new RAMDirectory(fileStr, true);
+        plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 4);
+        assertTrue(plm.loadExisting());
+        lms = plm.getLandmarkStorage();
+        assertEquals(8, lms.getWeightBits());
+        assertEquals(smallFactor, lms.getFactor(100), 1e-12);
+        assertRoutesEqualDijkstra(lms, weighting, rand, 100, 5);
+
+        Helper.removeDir(new File(fileStr));
+    }
+
+    private void createGrid(int offset, int size, double distance, Random rand) {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = offset + col + row * size;
+                if (col + 1 < size)
+                    graph.edge(node, node + 1).setDistance(distance).set(speedEnc, 20 + rand.nextInt(30));
+                if (row + 1 < size)
+                    graph.edge(node, node + size).setDistance(distance).set(speedEnc, 20 + rand.nextInt(30));
+            }
+        }
+    }
+
+    private void assertRoutesEqualDijkstra(LandmarkStorage lms, Weighting weighting, Random rand, int offset, int size) {
+        PMap hints = new PMap().putObject(Parameters.Landmark.ACTIVE_COUNT, 2);
+        for (int i = 0; i < 50; i++) {
+            int from = offset + rand.nextInt(size * size);
+            int to = offset + rand.nextInt(size * size);
+            Path expectedPath = new Dijkstra(graph, weighting, tm).calcPath(from, to);
+            for (String algo : Arrays.asList(ASTAR, ASTAR_BI)) {
+                RoutingAlgorithm lmAlgo = new LMRoutingAlgorithmFactory(lms).createAlgo(graph, weighting,
+                        new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(tm).setHints(hints));
+                Path path = lmAlgo.calcPath(from, to);
+                assertEquals(expectedPath.getWeight(), path.getWeight(), 1.e-6, algo + " " + from + "->" + to);
+            }
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelEdgeBasedSCCTest {
+
+    private final DecimalEncodedValue speedEnc;
+    private final BaseGraph g;
+    private final EdgeBasedTarjanSCC.EdgeTransitionFilter fwdAccessFilter;
+
+    public ParallelEdgeBasedSCCTest() {
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodedValue.InitializerConfig evConf = new EncodedValue.InitializerConfig();
+        speedEnc.init(evConf);
+        g = new BaseGraph.Builder(evConf.getRequiredBytes()).create();
+        fwdAccessFilter = (prev, edge) -> edge.get(speedEnc) > 0;
+    }
+
+    @Test
+    public void withTurnRestriction() {
+        // 0->1
+        // |  |
+        // 3<-2->4
+        g.edge(0, 1).setDistance(1).set(speedEnc, 10, 0); // edge-keys 0,1
+        g.edge(1, 2).setDistance(1).set(speedEnc, 10, 0); // edge-keys 2,3
+        g.edge(2, 3).setDistance(1).set(speedEnc, 10, 0); // edge-keys 4,5
+        g.edge(3, 0).setDistance(1).set(speedEnc, 10, 0); // edge-keys 6,7
+        g.edge(2, 4).setDistance(1).set(speedEnc, 10, 0); // edge-keys 8,9
+
+        ConnectedComponents result = ParallelEdgeBasedSCC.findComponents(g, fwdAccessFilter, false, 2, 1);
+        assertEquals(7, result.getTotalComponents());
+        assertEquals(1, result.getComponents().size());
+        assertEquals(4, result.getBiggestComponent().size());
+        assertEquals(6, result.getSingleEdgeComponents().cardinality());
+
+        // the restricted turn 0->2->3 splits the circle
+        result = ParallelEdgeBasedSCC.findComponents(g,
+                (prev, edge) -> fwdAccessFilter.accept(prev, edge) && !(prev == 1 && edge.getBaseNode() == 2 && edge.getEdge() == 2), false, 2, 1);
+        assertEquals(10, result.getTotalComponents());
+        assertEquals(0, result.getComponents().size());
+        assertEquals(IntArrayList.from(), result.getBiggestComponent());
+        assertEquals(10, result.getSingleEdgeComponents().cardinality());
+    }
+
+    @RepeatedTest(20)
+    public void compareWithTarjan() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(g, new Random(seed), 500, 2, true, speedEnc, 60d, 0.7, 0);
+        // with a min size of 1 we always run the forward-backward steps, even though the graph is small
+        for (int minForwardBackwardSize : new int[]{1, 100, Integer.MAX_VALUE}) {
+            compareResults(seed, EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, false),
+                    ParallelEdgeBasedSCC.findComponents(g, fwdAccessFilter, false, 4, minForwardBackwardSize));
+            compareResults(seed, EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, true),
+                    ParallelEdgeBasedSCC.findComponents(g, fwdAccessFilter, true, 4, minForwardBackwardSize));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    public void compareWithTarjanBiggerGraph(int threads) {
+        long seed = System.nanoTime();
+        // a bigger and denser graph, so the search frontiers are expanded in parallel
+        GHUtility.buildRandomGraph(g, new Random(seed), 5_000, 2.5, true, speedEnc, 60d, 0.9, 0);
+        compareResults(seed, EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, false),
+                ParallelEdgeBasedSCC.findComponents(g, fwdAccessFilter, false, threads, 500));
+    }
+
+    private void compareResults(long seed, ConnectedComponents expected, ConnectedComponents given) {
+        assertEquals(expected.getEdgeKeys(), given.getEdgeKeys(), "seed: " + seed);
+        assertEquals(expected.getTotalComponents(), given.getTotalComponents(), "seed: " + seed);
+        assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), "seed: " + seed);
+        assertEquals(expected.getSingleEdgeComponents(), given.getSingleEdgeComponents(), "seed: " + seed);
+        assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), "seed: " + seed);
+    }
+}
@@ -27,6 +27,8 @@ import com.graphhopper.storage.TurnCostStorage;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -72,13 +74,15 @@ public class PrepareRoutingSubnetworksTest {
         return g;
     }
 
-    @Test
-    public void testPrepareSubnetworks_oneVehicle() {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void testPrepareSubnetworks_oneVehicle(int threads) {
         DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
         BooleanEncodedValue subnetworkEnc = Subnetwork.create("car");
         EncodingManager em = EncodingManager.start().add(speedEnc).add(subnetworkEnc).build();
         BaseGraph g = createSubnetworkTestStorage(em, speedEnc, null);
         PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Collections.singletonList(createJob(subnetworkEnc, speedEnc)));
+        instance.setThreads(threads);
         // this will make the upper small network a subnetwork
         instance.setMinNetworkSize(4);
         assertEquals(3, instance.doWork());
@@ -87,6 +91,7 @@ public class PrepareRoutingSubnetworksTest {
         // this time we lower the threshold and the upper network won't be set to be a subnetwork
         g = createSubnetworkTestStorage(em, speedEnc, null);
         instance = new PrepareRoutingSubnetworks(g, Collections.singletonList(createJob(subnetworkEnc, speedEnc)));
+        instance.setThreads(threads);
         instance.setMinNetworkSize(3);
         assertEquals(0, instance.doWork());
         assertEquals(IntArrayList.from(), getSubnetworkEdges(g, subnetworkEnc));
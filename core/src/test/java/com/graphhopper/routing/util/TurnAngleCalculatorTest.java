@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.config.TurnCostsConfig;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.TurnAngleCostProvider;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.graphhopper.routing.ev.TurnAngle.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TurnAngleCalculatorTest {
+    private EnumEncodedValue<TurnAngle> turnAngleEnc;
+    private BooleanEncodedValue turnRestrictionEnc;
+    private BaseGraph graph;
+
+    @BeforeEach
+    void setup() {
+        turnAngleEnc = TurnAngle.create();
+        turnRestrictionEnc = TurnRestriction.create("car");
+        EncodingManager em = EncodingManager.start().add(new DecimalEncodedValueImpl("speed", 5, 5, true))
+                .addTurnCostEncodedValue(turnRestrictionEnc).addTurnCostEncodedValue(turnAngleEnc).build();
+        graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+    }
+
+    @Test
+    void junction() {
+        //      3   5
+        //      |  /
+        //  1 - 0 - 2 - 6 - 7
+        //      |
+        //      4
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.000, 9.990);
+        na.setNode(2, 50.000, 10.010);
+        na.setNode(3, 50.010, 10.000);
+        na.setNode(4, 49.990, 10.000);
+        na.setNode(5, 50.010, 10.010);
+        na.setNode(6, 50.000, 10.020);
+        na.setNode(7, 50.000, 10.030);
+        int e1 = graph.edge(1, 0).setDistance(100).getEdge();
+        int e2 = graph.edge(0, 2).setDistance(100).getEdge();
+        int e3 = graph.edge(0, 3).setDistance(100).getEdge();
+        int e4 = graph.edge(0, 4).setDistance(100).getEdge();
+        // the first pillar node is used for the orientation: coming from the west this is a sharp left turn, even
+        // though node 5 is in the north-east
+        int e5 = graph.edge(0, 5).setDistance(100).setWayGeometry(Helper.createPointList(50.001, 9.995)).getEdge();
+        int e6 = graph.edge(2, 6).setDistance(100).getEdge();
+        int e7 = graph.edge(6, 7).setDistance(100).getEdge();
+
+        TurnAngleCalculator.calcTurnAngles(graph, turnAngleEnc);
+        assertEquals(STRAIGHT, get(e1, 0, e2));
+        assertEquals(LEFT, get(e1, 0, e3));
+        assertEquals(RIGHT, get(e1, 0, e4));
+        assertEquals(SHARP_LEFT, get(e1, 0, e5));
+        assertEquals(LEFT, get(e4, 0, e1));
+        assertEquals(RIGHT, get(e3, 0, e1));
+        assertEquals(STRAIGHT, get(e3, 0, e4));
+        assertEquals(SHARP_RIGHT, get(e5, 0, e1));
+        // u-turns are not stored
+        assertEquals(STRAIGHT, get(e1, 0, e1));
+        // node 2 has only two edges, so we do not store anything even though it is a sharp turn
+        assertEquals(0, graph.getTurnCostStorage().getTurnCostsCount(2));
+        assertEquals(0, graph.getTurnCostStorage().getTurnCostsCount(6));
+        assertEquals(STRAIGHT, get(e6, 6, e7));
+        // straight turns are not stored either: 5 edges -> 20 turns, of which 6 are straight (including 0-5 <-> 0-2)
+        assertEquals(14, graph.getTurnCostStorage().getTurnCostsCount(0));
+    }
+
+    @Test
+    void turnAngleCostProvider() {
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.000, 9.990);
+        na.setNode(2, 50.000, 10.010);
+        na.setNode(3, 50.010, 10.000);
+        na.setNode(4, 49.990, 10.000);
+        int e1 = graph.edge(1, 0).setDistance(100).getEdge();
+        int e2 = graph.edge(0, 2).setDistance(100).getEdge();
+        int e3 = graph.edge(0, 3).setDistance(100).getEdge();
+        int e4 = graph.edge(0, 4).setDistance(100).getEdge();
+        TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
+        turnCostStorage.set(turnRestrictionEnc, e4, 0, e1, true);
+        TurnAngleCalculator.calcTurnAngles(graph, turnAngleEnc);
+        turnCostStorage.sortEntries();
+
+        TurnCostsConfig config = new TurnCostsConfig(List.of("motorcar"), 40).setLeftTurnCosts(8).setRightTurnCosts(2);
+        TurnAngleCostProvider provider = new TurnAngleCostProvider(new DefaultTurnCostProvider(turnRestrictionEnc,
+                turnCostStorage, config.getUTurnCosts()), turnAngleEnc, turnCostStorage, config);
+        assertEquals(0, provider.calcTurnWeight(e1, 0, e2));
+        assertEquals(8, provider.calcTurnWeight(e1, 0, e3));
+        assertEquals(8_000, provider.calcTurnMillis(e1, 0, e3));
+        assertEquals(2, provider.calcTurnWeight(e1, 0, e4));
+        // restrictions and u-turns are not affected
+        assertEquals(Double.POSITIVE_INFINITY, provider.calcTurnWeight(e4, 0, e1));
+        assertEquals(40, provider.calcTurnWeight(e1, 0, e1));
+        assertEquals(8, provider.calcTurnWeight(e2, 0, e4));
+    }
+
+    private TurnAngle get(int fromEdge, int viaNode, int toEdge) {
+        return TurnAngle.values()[graph.getTurnCostStorage().get(turnAngleEnc, fromEdge, viaNode, toEdge)];
+    }
+}
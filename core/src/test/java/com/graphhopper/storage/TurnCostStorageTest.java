@@ -24,15 +24,13 @@ import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.IntStream;
 
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TurnCostStorageTest {
 
@@ -175,6 +173,48 @@ public class TurnCostStorageTest {
         assertEquals(0, turnCostStorage.get(carEnc, edge32, 2, edge20));
     }
 
+    @Test
+    public void sortEntries() {
+        BaseGraph g = new BaseGraph.Builder(manager).withTurnCosts(true).create();
+        Random rnd = new Random(123);
+        GHUtility.buildRandomGraph(g, rnd, 100, 2.5, true, null, null, 0.9, 0);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        Map<List<Integer>, Double> expected = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            int viaNode = rnd.nextInt(g.getNodes());
+            int fromEdge = rnd.nextInt(g.getEdges());
+            int toEdge = rnd.nextInt(g.getEdges());
+            double cost = rnd.nextInt(3);
+            turnCostStorage.set(carTurnCostEnc, fromEdge, viaNode, toEdge, cost);
+            expected.put(Arrays.asList(fromEdge, viaNode, toEdge), cost);
+        }
+        assertFalse(turnCostStorage.isSorted());
+        turnCostStorage.sortEntries();
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(expected.size(), turnCostStorage.getTurnCostsCount());
+        assertEquals(turnCostStorage.getTurnCostsCount(), IntStream.range(0, g.getNodes()).map(turnCostStorage::getTurnCostsCount).sum());
+        checkTurnCosts(g, turnCostStorage, expected);
+
+        // adding entries is still possible after sorting
+        turnCostStorage.set(carTurnCostEnc, 0, 0, 0, 2);
+        expected.put(Arrays.asList(0, 0, 0), 2.0);
+        assertFalse(turnCostStorage.isSorted());
+        checkTurnCosts(g, turnCostStorage, expected);
+    }
+
+    private void checkTurnCosts(BaseGraph g, TurnCostStorage turnCostStorage, Map<List<Integer>, Double> expected) {
+        for (int viaNode = 0; viaNode < g.getNodes(); viaNode++)
+            for (int fromEdge = 0; fromEdge < g.getEdges(); fromEdge++)
+                for (int toEdge = 0; toEdge < g.getEdges(); toEdge++)
+                    assertEquals(expected.getOrDefault(Arrays.asList(fromEdge, viaNode, toEdge), 0.0),
+                            turnCostStorage.get(carTurnCostEnc, fromEdge, viaNode, toEdge), 1.e-6);
+        Map<List<Integer>, Double> turnCosts = new HashMap<>();
+        TurnCostStorage.Iterator iterator = turnCostStorage.getAllTurnCosts();
+        while (iterator.next())
+            turnCosts.put(Arrays.asList(iterator.getFromEdge(), iterator.getViaNode(), iterator.getToEdge()), iterator.getCost(carTurnCostEnc));
+        assertEquals(expected, turnCosts);
+    }
+
     @Test
     public void testIterateEmptyStore() {
         BaseGraph g = new BaseGraph.Builder(manager).withTurnCosts(true).create();
@@ -127,6 +127,58 @@ public class LocationIndexTreeTest {
         assertEquals(new GHPoint(-0.441624, 0.317259), res.getSnappedPoint());
     }
 
+    @Test
+    public void testFindClosestCandidates() {
+        Graph graph = createTestGraph(encodingManager, speedEnc);
+        LocationIndexTree index = (LocationIndexTree) createIndexNoPrepare(graph, 500000).prepareIndex();
+        Snap closest = index.findClosest(-0.2, 0.3, EdgeFilter.ALL_EDGES);
+        List<Snap> candidates = index.findClosestCandidates(-0.2, 0.3, EdgeFilter.ALL_EDGES, 10, 200_000);
+        assertTrue(candidates.size() > 2);
+        assertEquals(closest.getClosestEdge().getEdge(), candidates.get(0).getClosestEdge().getEdge());
+        assertEquals(closest.getQueryDistance(), candidates.get(0).getQueryDistance(), 1.e-6);
+        assertEquals(closest.getSnappedPoint(), candidates.get(0).getSnappedPoint());
+        for (int i = 1; i < candidates.size(); i++) {
+            assertTrue(candidates.get(i - 1).getQueryDistance() <= candidates.get(i).getQueryDistance());
+            assertTrue(candidates.get(i).getQueryDistance() <= 200_000);
+        }
+
+        // the number of candidates is limited
+        List<Snap> twoCandidates = index.findClosestCandidates(-0.2, 0.3, EdgeFilter.ALL_EDGES, 2, 200_000);
+        assertEquals(2, twoCandidates.size());
+        assertEquals(candidates.get(1).getQueryDistance(), twoCandidates.get(1).getQueryDistance(), 1.e-6);
+
+        // the edge (0,4) has 27674 as distance, so it is not within the radius
+        List<Snap> closeCandidates = index.findClosestCandidates(-0.2, 0.3, EdgeFilter.ALL_EDGES, 10, 27_000);
+        assertEquals(1, closeCandidates.size());
+        assertEquals(26936, closeCandidates.get(0).getQueryDistance(), 1);
+
+        // three edges snap to tower node 3, but we only want one candidate for it
+        candidates = index.findClosestCandidates(-0.4, 0.9, EdgeFilter.ALL_EDGES, 10, 200_000);
+        assertEquals(1, candidates.stream().filter(s -> s.getSnappedPosition() == Snap.Position.TOWER && s.getClosestNode() == 3).count());
+        assertEquals(0, candidates.get(0).getQueryDistance(), 1.e-6);
+    }
+
+    @Test
+    public void testFindClosestBatch() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree index = (LocationIndexTree) createIndexNoPrepare(graph, 50).prepareIndex();
+        BBox bounds = graph.getBounds();
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            points.add(new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon)));
+        List<Snap> snaps = index.findClosest(points, EdgeFilter.ALL_EDGES);
+        assertEquals(points.size(), snaps.size());
+        for (int i = 0; i < points.size(); i++) {
+            Snap snap = index.findClosest(points.get(i).lat, points.get(i).lon, EdgeFilter.ALL_EDGES);
+            assertEquals(snap.getClosestEdge().getEdge(), snaps.get(i).getClosestEdge().getEdge());
+            assertEquals(snap.getSnappedPoint(), snaps.get(i).getSnappedPoint());
+            assertEquals(snap.getQueryDistance(), snaps.get(i).getQueryDistance(), 1.e-6);
+        }
+    }
+
     @Test
     public void testBoundingBoxQuery2() {
         Graph graph = createTestGraph2();
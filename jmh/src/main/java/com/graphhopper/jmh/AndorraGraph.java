@@ -0,0 +1,56 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jmh;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.TestProfiles;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+
+/**
+ * The graph of the small OSM file that is bundled with the core tests. It is imported once and then loaded from
+ * target/jmh-graph-cache for all following benchmarks and forks. Run the benchmarks from the root directory of the
+ * project or specify the OSM file with -p osmFile=...
+ */
+@State(Scope.Benchmark)
+public class AndorraGraph {
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    GraphHopper hopper;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        File file = new File(osmFile);
+        if (!file.exists())
+            throw new IllegalArgumentException("OSM file " + file.getAbsolutePath() + " does not exist, run the "
+                    + "benchmarks from the root directory or set the osmFile parameter");
+        hopper = new GraphHopper().
+                setOSMFile(osmFile).
+                setGraphHopperLocation("target/jmh-graph-cache/" + file.getName()).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car", "car"));
+        hopper.importOrLoad();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hopper.close();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jmh;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomWeightingBenchmark {
+    private BaseGraph graph;
+    private Weighting weighting;
+
+    @Setup
+    public void setup(AndorraGraph andorra) {
+        graph = andorra.hopper.getBaseGraph();
+        weighting = andorra.hopper.createWeighting(andorra.hopper.getProfile("car"), new PMap());
+    }
+
+    @Benchmark
+    public double calcEdgeWeight() {
+        double sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            double weight = weighting.calcEdgeWeight(iter, false);
+            if (Double.isFinite(weight))
+                sum += weight;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long calcEdgeMillis() {
+        long sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (Double.isFinite(weighting.calcEdgeWeight(iter, true)))
+                sum += weighting.calcEdgeMillis(iter, true);
+        }
+        return sum;
+    }
+}
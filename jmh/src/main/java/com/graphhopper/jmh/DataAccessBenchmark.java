@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jmh;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataAccessBenchmark {
+    private static final String LOCATION = "target/jmh-data-access";
+    // 4MB, i.e. multiple segments
+    private static final int INTS = 1 << 20;
+
+    @Param({"RAM", "RAM_INT", "MMAP"})
+    public String type;
+
+    private DataAccess dataAccess;
+    private long[] randomPositions;
+
+    @Setup
+    public void setup() {
+        DAType daType = switch (type) {
+            case "RAM" -> DAType.RAM;
+            case "RAM_INT" -> DAType.RAM_INT;
+            case "MMAP" -> DAType.MMAP;
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        };
+        dataAccess = new GHDirectory(LOCATION, daType).create().create("benchmark_" + type.toLowerCase(), daType);
+        dataAccess.create(4L * INTS);
+        dataAccess.ensureCapacity(4L * INTS);
+        Random random = new Random(123);
+        for (int i = 0; i < INTS; i++) {
+            dataAccess.setInt(4L * i, random.nextInt());
+        }
+        randomPositions = new long[INTS];
+        for (int i = 0; i < INTS; i++) {
+            randomPositions[i] = 4L * random.nextInt(INTS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataAccess.close();
+        Helper.removeDir(new File(LOCATION));
+    }
+
+    @Benchmark
+    public long sequentialGet() {
+        long sum = 0;
+        for (int i = 0; i < INTS; i++) {
+            sum += dataAccess.getInt(4L * i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomGet() {
+        long sum = 0;
+        for (long pos : randomPositions) {
+            sum += dataAccess.getInt(pos);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void sequentialSet() {
+        for (int i = 0; i < INTS; i++) {
+            dataAccess.setInt(4L * i, i);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jmh;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LocationIndexBenchmark {
+    private static final int POINTS = 1000;
+    private LocationIndexTree index;
+    private List<GHPoint> points;
+
+    @Setup
+    public void setup(AndorraGraph andorra) {
+        index = (LocationIndexTree) andorra.hopper.getLocationIndex();
+        BBox bounds = andorra.hopper.getBaseGraph().getBounds();
+        Random random = new Random(123);
+        points = new ArrayList<>(POINTS);
+        for (int i = 0; i < POINTS; i++) {
+            points.add(new GHPoint(bounds.minLat + random.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + random.nextDouble() * (bounds.maxLon - bounds.minLon)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int findClosest() {
+        int sum = 0;
+        for (GHPoint point : points) {
+            Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+            sum += snap.getClosestNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public List<Snap> findClosestBatch() {
+        return index.findClosest(points, EdgeFilter.ALL_EDGES);
+    }
+}
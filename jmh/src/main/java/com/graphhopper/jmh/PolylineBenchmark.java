@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jmh;
+
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.PointList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PolylineBenchmark {
+    @Param({"100", "10000"})
+    public int points;
+
+    private PointList pointList;
+    private PointList pointList3D;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(123);
+        pointList = new PointList(points, false);
+        pointList3D = new PointList(points, true);
+        // a random walk, so the deltas are small like for real routes
+        double lat = 42.5, lon = 1.5, ele = 1000;
+        for (int i = 0; i < points; i++) {
+            lat += (random.nextDouble() - 0.5) * 0.001;
+            lon += (random.nextDouble() - 0.5) * 0.001;
+            ele += (random.nextDouble() - 0.5) * 2;
+            pointList.add(lat, lon);
+            pointList3D.add(lat, lon, ele);
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return ResponsePathSerializer.encodePolyline(pointList, false, 1e5);
+    }
+
+    @Benchmark
+    public String encode3D() {
+        return ResponsePathSerializer.encodePolyline(pointList3D, true, 1e5);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the matched states and the transitions between them into a list of directed edges (EdgeIteratorState
+ * instances turned the right way), each associated with 0 or more of the observations.
+ * These directed edges are edges of the real street graph, where nodes are intersections.
+ * So in _this_ representation, the path that you get when you just look at the edges goes from
+ * an intersection to an intersection.
+ * <p>
+ * Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
+ * or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
+ * but these states still happen on an edge, and for this representation, we want to have that edge.
+ * (Whereas in the ResponsePath representation, we would just see an empty path.)
+ * <p>
+ * Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
+ * edges, and when all observations are on the same node, we get no edge at all.
+ * But apart from that corner case, all observations that go in here are also in the result.
+ * <p>
+ * (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
+ * edges, then that corner case goes away.)
+ * <p>
+ * The states and transitions do not need to come from the same query graph, so this can also be used for matches
+ * that are calculated piece by piece.
+ */
+class EdgeMatchCollector {
+    private final BaseGraph graph;
+    private List<EdgeMatch> edgeMatches = new ArrayList<>();
+    private List<State> states = new ArrayList<>();
+    private EdgeIteratorState currentDirectedRealEdge = null;
+
+    EdgeMatchCollector(BaseGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Adds the next matched state and the transition leading to it (null for the first state).
+     */
+    void add(State state, Path transition) {
+        if (transition != null) {
+            for (EdgeIteratorState edge : transition.calcEdges())
+                nextEdge(resolveToRealEdge(edge));
+        }
+        if (state.isOnDirectedEdge()) // as opposed to on a node
+            nextEdge(resolveToRealEdge(state.getOutgoingVirtualEdge()));
+        states.add(state);
+    }
+
+    /**
+     * Completes the edge match of the last added state. No more states must be added afterwards.
+     */
+    void finish() {
+        if (currentDirectedRealEdge != null) {
+            edgeMatches.add(new EdgeMatch(currentDirectedRealEdge, states));
+            currentDirectedRealEdge = null;
+            states = new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return the edge matches that were completed since the last call
+     */
+    List<EdgeMatch> poll() {
+        List<EdgeMatch> result = edgeMatches;
+        edgeMatches = new ArrayList<>();
+        return result;
+    }
+
+    private void nextEdge(EdgeIteratorState newDirectedRealEdge) {
+        if (currentDirectedRealEdge != null && !equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+            edgeMatches.add(new EdgeMatch(currentDirectedRealEdge, states));
+            states = new ArrayList<>();
+        }
+        currentDirectedRealEdge = newDirectedRealEdge;
+    }
+
+    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+        return edge1.getEdge() == edge2.getEdge()
+                && edge1.getBaseNode() == edge2.getBaseNode()
+                && edge1.getAdjNode() == edge2.getAdjNode();
+    }
+
+    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+        // virtual nodes come after the nodes of the base graph in every query graph
+        if (edgeIteratorState.getBaseNode() >= graph.getNodes() || edgeIteratorState.getAdjNode() >= graph.getNodes()) {
+            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
+        } else {
+            return edgeIteratorState;
+        }
+    }
+}
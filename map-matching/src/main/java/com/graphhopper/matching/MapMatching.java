@@ -294,9 +294,13 @@ public class MapMatching {
         List<Snap> snaps = new ArrayList<>();
         IntHashSet seenEdges = new IntHashSet();
         IntHashSet seenNodes = new IntHashSet();
+        // one edge state is re-pointed at every visited edge and only detached for the snaps we keep
+        EdgeIteratorState[] reusableEdge = new EdgeIteratorState[1];
         locationIndex.query(queryShape, edgeId -> {
-            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
-            if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
+            if (!seenEdges.add(edgeId))
+                return;
+            EdgeIteratorState edge = reusableEdge[0] = graph.getEdgeIteratorStateForKey(edgeId * 2, reusableEdge[0]);
+            if (edgeFilter.accept(edge)) {
                 Snap snap = new Snap(queryLat, queryLon);
                 locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
                     if (normedDist < snap.getQueryDistance()) {
@@ -312,6 +316,7 @@ public class MapMatching {
                 if (snap.isValid() && (snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))) {
                     snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
                     if (queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon)) {
+                        snap.setClosestEdge(edge.detach(false));
                         snaps.add(snap);
                     }
                 }
@@ -337,38 +342,45 @@ public class MapMatching {
             Observation observation = filteredObservations.get(i);
             Collection<Snap> splits = splitsPerObservation.get(i);
             List<State> candidates = new ArrayList<>();
-            for (Snap split : splits) {
-                if (queryGraph.isVirtualNode(split.getClosestNode())) {
-                    List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
-                    EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
-                    while (iter.next()) {
-                        if (!queryGraph.isVirtualEdge(iter.getEdge())) {
-                            throw new RuntimeException("Virtual nodes must only have virtual edges "
-                                    + "to adjacent nodes.");
-                        }
-                        virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
-                    }
-                    if (virtualEdges.size() != 2) {
-                        throw new RuntimeException("Each virtual node must have exactly 2 "
-                                + "virtual edges (reverse virtual edges are not returned by the "
-                                + "EdgeIterator");
-                    }
+            for (Snap split : splits)
+                addCandidates(queryGraph, observation, split, candidates);
 
-                    // Create a directed candidate for each of the two possible directions through
-                    // the virtual node. We need to add candidates for both directions because
-                    // we don't know yet which is the correct one. This will be figured
-                    // out by the Viterbi algorithm.
-                    candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
-                    candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
-                } else {
-                    // Create an undirected candidate for the real node.
-                    candidates.add(new State(observation, split));
+            timeSteps.add(new ObservationWithCandidateStates(observation, candidates));
+        }
+        return timeSteps;
+    }
+
+    /**
+     * Adds the candidates for the given Snap, which must be part of the given query graph: two directed candidates if
+     * it was snapped to a virtual node or one undirected candidate if it was snapped to a real node.
+     */
+    static void addCandidates(QueryGraph queryGraph, Observation observation, Snap split, List<State> candidates) {
+        if (queryGraph.isVirtualNode(split.getClosestNode())) {
+            List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
+            EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
+            while (iter.next()) {
+                if (!queryGraph.isVirtualEdge(iter.getEdge())) {
+                    throw new RuntimeException("Virtual nodes must only have virtual edges "
+                            + "to adjacent nodes.");
                 }
+                virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
+            }
+            if (virtualEdges.size() != 2) {
+                throw new RuntimeException("Each virtual node must have exactly 2 "
+                        + "virtual edges (reverse virtual edges are not returned by the "
+                        + "EdgeIterator");
             }
 
-            timeSteps.add(new ObservationWithCandidateStates(observation, candidates));
+            // Create a directed candidate for each of the two possible directions through
+            // the virtual node. We need to add candidates for both directions because
+            // we don't know yet which is the correct one. This will be figured
+            // out by the Viterbi algorithm.
+            candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
+            candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
+        } else {
+            // Create an undirected candidate for the real node.
+            candidates.add(new State(observation, split));
         }
-        return timeSteps;
     }
 
     static class Label {
@@ -385,10 +397,12 @@ public class MapMatching {
         }
 
         final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+        // the latest label of every state. it is the only entry for this state in the queue that is not deleted
+        // (unless it was polled already), which is why we never need to search the queue for it
         final Map<State, Label> labels = new HashMap<>();
         Map<Transition<State>, Path> roadPaths = new HashMap<>();
 
-        PriorityQueue<Label> q = new PriorityQueue<>(Comparator.comparing(qe -> qe.minusLogProbability));
+        PriorityQueue<Label> q = new PriorityQueue<>(Comparator.comparingDouble(qe -> qe.minusLogProbability));
         for (State candidate : timeSteps.get(0).candidates) {
             // distance from observation to road in meters
             final double distance = candidate.getSnap().getQueryDistance();
@@ -426,7 +440,8 @@ public class MapMatching {
                     double minusLogProbability = qe.minusLogProbability - probabilities.emissionLogProbability(to.getSnap().getQueryDistance()) - transitionLogProbability;
                     Label label1 = labels.get(to);
                     if (label1 == null || minusLogProbability < label1.minusLogProbability) {
-                        q.stream().filter(oldQe -> !oldQe.isDeleted && oldQe.state == to).findFirst().ifPresent(oldQe -> oldQe.isDeleted = true);
+                        if (label1 != null)
+                            label1.isDeleted = true;
                         Label label = new Label();
                         label.state = to;
                         label.timeStep = qe.timeStep + 1;
@@ -456,60 +471,11 @@ public class MapMatching {
     }
 
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
-        // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
-        // each associated with 0 or more of the observations.
-        // These directed edges are edges of the real street graph, where nodes are intersections.
-        // So in _this_ representation, the path that you get when you just look at the edges goes from
-        // an intersection to an intersection.
-
-        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
-        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
-        // but these states still happen on an edge, and for this representation, we want to have that edge.
-        // (Whereas in the ResponsePath representation, we would just see an empty path.)
-
-        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
-        // edges, and when all observations are on the same node, we get no edge at all.
-        // But apart from that corner case, all observations that go in here are also in the result.
-
-        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
-        // edges, then that corner case goes away.)
-        List<EdgeMatch> edgeMatches = new ArrayList<>();
-        List<State> states = new ArrayList<>();
-        EdgeIteratorState currentDirectedRealEdge = null;
-        for (SequenceState<State, Observation, Path> transitionAndState : seq) {
-            // transition (except before the first state)
-            if (transitionAndState.transitionDescriptor != null) {
-                for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
-                    if (currentDirectedRealEdge != null) {
-                        if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                            edgeMatches.add(edgeMatch);
-                            states = new ArrayList<>();
-                        }
-                    }
-                    currentDirectedRealEdge = newDirectedRealEdge;
-                }
-            }
-            // state
-            if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
-                if (currentDirectedRealEdge != null) {
-                    if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                        EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                        edgeMatches.add(edgeMatch);
-                        states = new ArrayList<>();
-                    }
-                }
-                currentDirectedRealEdge = newDirectedRealEdge;
-            }
-            states.add(transitionAndState.state);
-        }
-        if (currentDirectedRealEdge != null) {
-            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-            edgeMatches.add(edgeMatch);
-        }
-        return edgeMatches;
+        EdgeMatchCollector collector = new EdgeMatchCollector(graph);
+        for (SequenceState<State, Observation, Path> transitionAndState : seq)
+            collector.add(transitionAndState.state, transitionAndState.transitionDescriptor);
+        collector.finish();
+        return collector.poll();
     }
 
     private double gpxLength(List<Observation> gpxList) {
@@ -527,20 +493,6 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
-        return edge1.getEdge() == edge2.getEdge()
-                && edge1.getBaseNode() == edge2.getBaseNode()
-                && edge1.getAdjNode() == edge2.getAdjNode();
-    }
-
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
-        if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
-            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
-        } else {
-            return edgeIteratorState;
-        }
-    }
-
     public Map<String, Object> getStatistics() {
         return statistics;
     }
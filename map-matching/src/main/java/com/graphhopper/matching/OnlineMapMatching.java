@@ -0,0 +1,318 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.PMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches a stream of observations, like the positions a vehicle sends every few seconds, while they arrive. This
+ * uses the same hidden Markov model as {@link MapMatching}, but instead of calculating the most likely sequence for
+ * the complete trace we only keep the candidates of the last {@link #setLag(int) lag} observations. Every new
+ * observation is routed to from the candidates of the previous one, using a query graph that only contains the
+ * candidates of these two observations. Once an observation is lag observations old its candidate on the currently
+ * most likely sequence is fixed for good and the according edge matches are returned (fixed-lag smoothing). This
+ * way the memory usage does not grow with the length of the trace and the matched edges are available with a short
+ * delay.
+ * <p>
+ * The result can differ from {@link MapMatching#match} for the same trace if the most likely sequence changes more
+ * than lag observations after the fact. Observations without any candidate are skipped and if no candidate of an
+ * observation can be reached from the previous one the sequence is restarted at this observation. Use one instance
+ * per trace, this class is not thread-safe.
+ */
+public class OnlineMapMatching {
+    private final BaseGraph graph;
+    private final MapMatching mapMatching;
+    private final MapMatching.Router router;
+    private final DistanceCalc distanceCalc = new DistancePlaneProjection();
+    private final EdgeMatchCollector collector;
+    private double measurementErrorSigma = 10.0;
+    private double transitionProbabilityBeta = 2.0;
+    private int lag = 10;
+
+    // the observations that are filtered like in MapMatching#filterObservations
+    private Observation prevFilteredObservation;
+    private Observation prevObservation;
+    private double skippedDistance;
+    // the candidates of the last filtered observation and the most likely sequences that end at them
+    private List<Snap> prevSnaps = Collections.emptyList();
+    private List<Label> labels = new ArrayList<>();
+    private int timeStep = -1;
+    private int sequenceStart;
+
+    public static OnlineMapMatching fromGraphHopper(GraphHopper graphHopper, PMap hints) {
+        MapMatching.Router router = MapMatching.routerFromGraphHopper(graphHopper, hints);
+        return new OnlineMapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), router);
+    }
+
+    public OnlineMapMatching(BaseGraph graph, LocationIndexTree locationIndex, MapMatching.Router router) {
+        this.graph = graph;
+        this.mapMatching = new MapMatching(graph, locationIndex, router);
+        this.router = router;
+        this.collector = new EdgeMatchCollector(graph);
+    }
+
+    /**
+     * Beta parameter of the exponential distribution for modeling transition
+     * probabilities.
+     */
+    public void setTransitionProbabilityBeta(double transitionProbabilityBeta) {
+        this.transitionProbabilityBeta = transitionProbabilityBeta;
+    }
+
+    /**
+     * Standard deviation of the normal distribution [m] used for modeling the
+     * GPS error.
+     */
+    public void setMeasurementErrorSigma(double measurementErrorSigma) {
+        this.measurementErrorSigma = measurementErrorSigma;
+        mapMatching.setMeasurementErrorSigma(measurementErrorSigma);
+    }
+
+    /**
+     * The number of (filtered) observations after which the candidate of an observation is fixed. Larger values
+     * yield results closer to {@link MapMatching#match}, smaller values yield the edge matches earlier.
+     */
+    public void setLag(int lag) {
+        if (lag < 0)
+            throw new IllegalArgumentException("lag must not be negative, but was: " + lag);
+        this.lag = lag;
+    }
+
+    /**
+     * Adds the next observation of the trace.
+     *
+     * @return the edge matches that were fixed due to this observation, can be empty
+     */
+    public List<EdgeMatch> add(Observation observation) {
+        Observation prev = prevObservation;
+        prevObservation = observation;
+        if (prev == null) {
+            observation.setAccumulatedLinearDistanceToPrevious(0);
+            addFiltered(observation);
+            return collector.poll();
+        }
+        double distToPrev = calcDist(prev, observation);
+        if (calcDist(prevFilteredObservation, observation) > 2 * measurementErrorSigma) {
+            // see MapMatching#filterObservations
+            observation.setAccumulatedLinearDistanceToPrevious(skippedDistance + distToPrev - calcDist(prevFilteredObservation, observation));
+            skippedDistance = 0;
+            addFiltered(observation);
+        } else {
+            skippedDistance += distToPrev;
+        }
+        return collector.poll();
+    }
+
+    /**
+     * Fixes the most likely candidates of all remaining observations. The last observation is always used, even if it
+     * is close to the previous one. This instance can be used for a new trace afterwards.
+     *
+     * @return the remaining edge matches
+     */
+    public List<EdgeMatch> finish() {
+        if (prevObservation != null && prevObservation != prevFilteredObservation) {
+            prevObservation.setAccumulatedLinearDistanceToPrevious(skippedDistance - calcDist(prevFilteredObservation, prevObservation));
+            addFiltered(prevObservation);
+        }
+        if (!labels.isEmpty())
+            fix(getBest(), timeStep);
+        collector.finish();
+        prevFilteredObservation = null;
+        prevObservation = null;
+        skippedDistance = 0;
+        prevSnaps = Collections.emptyList();
+        labels = new ArrayList<>();
+        timeStep = -1;
+        sequenceStart = 0;
+        return collector.poll();
+    }
+
+    private void addFiltered(Observation observation) {
+        prevFilteredObservation = observation;
+        List<Snap> snaps = mapMatching.findCandidateSnaps(observation.getPoint().lat, observation.getPoint().lon);
+        if (snaps.isEmpty())
+            return;
+        timeStep++;
+        HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+        List<Label> newLabels = labels.isEmpty() ? Collections.emptyList() : calcTransitions(observation, snaps, probabilities);
+        if (newLabels.isEmpty()) {
+            // this is either the first observation or the sequence is broken. either way we fix what we have and
+            // start a new sequence here
+            if (!labels.isEmpty())
+                fix(getBest(), timeStep - 1);
+            sequenceStart = timeStep;
+            newLabels = new ArrayList<>();
+            List<Snap> copies = copy(snaps);
+            QueryGraph queryGraph = QueryGraph.create(graph, copies);
+            for (int i = 0; i < copies.size(); i++) {
+                List<State> candidates = new ArrayList<>(2);
+                MapMatching.addCandidates(queryGraph, observation, copies.get(i), candidates);
+                for (State candidate : candidates)
+                    newLabels.add(new Label(timeStep, i, candidate, null, null,
+                            -probabilities.emissionLogProbability(candidate.getSnap().getQueryDistance())));
+            }
+        }
+        prevSnaps = snaps;
+        labels = newLabels;
+        if (timeStep - lag >= sequenceStart)
+            fix(getBest(), timeStep - lag);
+    }
+
+    /**
+     * One step of the Viterbi algorithm: routes from the candidates of the previous observation to the ones of the
+     * given observation and keeps the most likely sequence for each of the latter.
+     */
+    private List<Label> calcTransitions(Observation observation, List<Snap> snaps, HmmProbabilities probabilities) {
+        // snapping the points of the query graph modifies the snaps, so we have to use copies
+        List<Snap> fromSnaps = copy(prevSnaps);
+        List<Snap> toSnaps = copy(snaps);
+        List<Snap> allSnaps = new ArrayList<>(fromSnaps);
+        allSnaps.addAll(toSnaps);
+        QueryGraph queryGraph = QueryGraph.create(graph, allSnaps);
+
+        List<Label> newLabels = new ArrayList<>();
+        for (int i = 0; i < toSnaps.size(); i++) {
+            List<State> candidates = new ArrayList<>(2);
+            MapMatching.addCandidates(queryGraph, observation, toSnaps.get(i), candidates);
+            for (State candidate : candidates)
+                newLabels.add(new Label(timeStep, i, candidate, null, null, Double.POSITIVE_INFINITY));
+        }
+        int[] toNodes = newLabels.stream().mapToInt(l -> l.state.getSnap().getClosestNode()).toArray();
+        int[] toInEdges = newLabels.stream().mapToInt(l -> l.state.isOnDirectedEdge() ? l.state.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
+        Observation prevFiltered = labels.get(0).state.getEntry();
+        double linearDistance = calcDist(prevFiltered, observation) + observation.getAccumulatedLinearDistanceToPrevious();
+        for (Label from : labels) {
+            // the candidate of the previous observation within the new query graph
+            List<State> fromCandidates = new ArrayList<>(2);
+            MapMatching.addCandidates(queryGraph, prevFiltered, fromSnaps.get(from.snapIndex), fromCandidates);
+            State fromState = fromCandidates.stream().filter(c -> getDirection(c) == getDirection(from.state)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Could not find candidate " + from.state + " in the query graph"));
+            int fromOutEdge = fromState.isOnDirectedEdge() ? fromState.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+            List<Path> paths = router.calcPaths(queryGraph, fromState.getSnap().getClosestNode(), fromOutEdge, toNodes, toInEdges);
+            for (int i = 0; i < newLabels.size(); i++) {
+                Path path = paths.get(i);
+                if (!path.isFound())
+                    continue;
+                Label to = newLabels.get(i);
+                double minusLogProbability = from.minusLogProbability
+                        - probabilities.emissionLogProbability(to.state.getSnap().getQueryDistance())
+                        - probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                if (minusLogProbability < to.minusLogProbability) {
+                    to.minusLogProbability = minusLogProbability;
+                    to.back = from;
+                    to.transition = path;
+                }
+            }
+        }
+        newLabels.removeIf(l -> l.back == null);
+        return newLabels;
+    }
+
+    /**
+     * Fixes the candidates of the most likely sequence ending at the given label up to the given time step and
+     * drops all sequences that do not agree with them.
+     */
+    private void fix(Label best, int fixedTimeStep) {
+        Label fixed = best;
+        while (fixed.timeStep > fixedTimeStep)
+            fixed = fixed.back;
+        List<Label> sequence = new ArrayList<>();
+        for (Label label = fixed; label != null && !label.fixed; label = label.back)
+            sequence.add(label);
+        Collections.reverse(sequence);
+        for (Label label : sequence) {
+            collector.add(label.state, label.transition);
+            label.fixed = true;
+        }
+        // the fixed label is the new start of all remaining sequences
+        fixed.back = null;
+        fixed.transition = null;
+        final Label fixedLabel = fixed;
+        labels.removeIf(l -> {
+            Label label = l;
+            while (label.timeStep > fixedTimeStep)
+                label = label.back;
+            return label != fixedLabel;
+        });
+    }
+
+    private Label getBest() {
+        return labels.stream().min(Comparator.comparingDouble(l -> l.minusLogProbability)).get();
+    }
+
+    /**
+     * @return the original edge key in the direction of the given candidate or -1 for undirected candidates. Unlike
+     * the virtual edges this does not depend on the query graph.
+     */
+    private static int getDirection(State state) {
+        return state.isOnDirectedEdge() ? ((VirtualEdgeIteratorState) state.getOutgoingVirtualEdge()).getOriginalEdgeKey() : -1;
+    }
+
+    private static List<Snap> copy(List<Snap> snaps) {
+        List<Snap> result = new ArrayList<>(snaps.size());
+        for (Snap snap : snaps) {
+            Snap copy = new Snap(snap.getQueryPoint().lat, snap.getQueryPoint().lon);
+            copy.setClosestEdge(snap.getClosestEdge());
+            copy.setClosestNode(snap.getClosestNode());
+            copy.setQueryDistance(snap.getQueryDistance());
+            copy.setWayIndex(snap.getWayIndex());
+            copy.setSnappedPosition(snap.getSnappedPosition());
+            copy.setSnappedPoint(snap.getSnappedPoint());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private double calcDist(Observation a, Observation b) {
+        return distanceCalc.calcDist(a.getPoint().lat, a.getPoint().lon, b.getPoint().lat, b.getPoint().lon);
+    }
+
+    private static class Label {
+        final int timeStep;
+        final int snapIndex;
+        final State state;
+        Label back;
+        Path transition;
+        double minusLogProbability;
+        boolean fixed;
+
+        Label(int timeStep, int snapIndex, State state, Label back, Path transition, double minusLogProbability) {
+            this.timeStep = timeStep;
+            this.snapIndex = snapIndex;
+            this.state = state;
+            this.back = back;
+            this.transition = transition;
+            this.minusLogProbability = minusLogProbability;
+        }
+    }
+}
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.navigation;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
@@ -26,6 +28,7 @@ import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.TranslationMap;
 import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jackson.Jackson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +39,7 @@ import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.util.*;
 
@@ -59,6 +63,7 @@ public class NavigateResource {
 
     private static final Logger logger = LoggerFactory.getLogger(NavigateResource.class);
 
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
     private final GraphHopper graphHopper;
     private final TranslationMap translationMap;
     private final Map<String, String> resolverMap;
@@ -156,7 +161,15 @@ public class NavigateResource {
                     build();
         } else {
             logger.info(logStr);
-            return Response.ok(NavigateResponseConverter.convertFromGHResponse(ghResponse, translationMap, locale, config)).
+            // write the json directly into the response instead of building the json tree first
+            StreamingOutput out = output -> {
+                try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output).
+                        disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                    NavigateResponseSerializer.write(ghResponse, translationMap, locale, config, gen);
+                }
+            };
+            return Response.ok(out).
+                    type(MediaType.APPLICATION_JSON).
                     header("X-GH-Took", "" + Math.round(took * 1000)).
                     build();
         }
@@ -0,0 +1,623 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.navigation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.IntersectionValues;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint3D;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.graphhopper.util.Parameters.Details.INTERSECTION;
+
+/**
+ * Writes a GHResponse as json that follows the Mapbox API specification directly into a {@link JsonGenerator}. The
+ * legs, the steps, their geometry and the voice and banner instructions are all created in a single iteration over
+ * the instructions of every path, without building a json tree first. The turn descriptions are calculated only once
+ * per instruction, even though every instruction is also announced in the steps before it.
+ */
+public class NavigateResponseSerializer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NavigateResponseSerializer.class);
+    private static final int VOICE_INSTRUCTION_MERGE_TRESHHOLD = 100;
+
+    private final JsonGenerator gen;
+    private final Translation tr;
+    private final Locale locale;
+    private final DistanceConfig distanceConfig;
+    // the buffers for the polylines and the intersections are reused for all steps
+    private final StringBuilder polyline = new StringBuilder();
+    private char[] polylineChars = new char[64];
+    private int prevLat;
+    private int prevLon;
+    private final List<PathDetail> stepIntersections = new ArrayList<>();
+    private InstructionList instructions;
+    private String[] turnDescriptions;
+
+    private NavigateResponseSerializer(JsonGenerator gen, TranslationMap translationMap, Locale locale,
+                                       DistanceConfig distanceConfig) {
+        this.gen = gen;
+        this.tr = translationMap.getWithFallBack(locale);
+        this.locale = locale;
+        this.distanceConfig = distanceConfig;
+    }
+
+    /**
+     * Writes the response as json object into the specified generator. The generator is neither flushed nor closed.
+     */
+    public static void write(GHResponse ghResponse, TranslationMap translationMap, Locale locale,
+                             DistanceConfig distanceConfig, JsonGenerator gen) throws IOException {
+        if (ghResponse.hasErrors())
+            throw new IllegalStateException(
+                    "If the response has errors, you should use the method NavigateResponseConverter#convertFromGHResponseError");
+        new NavigateResponseSerializer(gen, translationMap, locale, distanceConfig).writeResponse(ghResponse);
+    }
+
+    private void writeResponse(GHResponse ghResponse) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("routes");
+        List<ResponsePath> paths = ghResponse.getAll();
+        for (int i = 0; i < paths.size(); i++) {
+            writeRoute(paths.get(i), i);
+        }
+        gen.writeEndArray();
+
+        PointList waypoints = ghResponse.getBest().getWaypoints();
+        gen.writeArrayFieldStart("waypoints");
+        for (int i = 0; i < waypoints.size(); i++) {
+            gen.writeStartObject();
+            // TODO get names
+            gen.writeStringField("name", "");
+            writeLocation(waypoints.getLat(i), waypoints.getLon(i));
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeStringField("code", "Ok");
+        // TODO: Maybe we need a different format... uuid: "cji4ja4f8004o6xrsta8w4p4h"
+        gen.writeStringField("uuid", UUID.randomUUID().toString().replace("-", ""));
+        gen.writeEndObject();
+    }
+
+    private void writeRoute(ResponsePath path, int routeNr) throws IOException {
+        instructions = path.getInstructions();
+        turnDescriptions = new String[instructions.size()];
+        PointList points = path.getPoints();
+
+        gen.writeStartObject();
+        startPolyline();
+        for (int i = 0; i < points.size(); i++) {
+            addToPolyline(points.getLat(i), points.getLon(i));
+        }
+        writePolyline("geometry");
+
+        gen.writeArrayFieldStart("legs");
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("steps");
+
+        long time = 0;
+        double distance = 0;
+        boolean isFirstInstructionOfLeg = true;
+        int pointIndexFrom = 0;
+        List<PathDetail> intersectionDetails = path.getPathDetails().getOrDefault(INTERSECTION, Collections.emptyList());
+        int intersectionIndex = 0;
+
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i);
+            int pointIndexTo = pointIndexFrom;
+            if (instruction.getSign() != Instruction.REACHED_VIA && instruction.getSign() != Instruction.FINISH) {
+                pointIndexTo += instruction.getPoints().size();
+            }
+            // the intersections are sorted by their point index, so we can continue where the previous step stopped
+            while (intersectionIndex < intersectionDetails.size() && intersectionDetails.get(intersectionIndex).getFirst() < pointIndexFrom) {
+                intersectionIndex++;
+            }
+            stepIntersections.clear();
+            while (intersectionIndex < intersectionDetails.size() && intersectionDetails.get(intersectionIndex).getFirst() < pointIndexTo) {
+                stepIntersections.add(intersectionDetails.get(intersectionIndex));
+                intersectionIndex++;
+            }
+            writeStep(points, i, isFirstInstructionOfLeg);
+            pointIndexFrom = pointIndexTo;
+            time += instruction.getTime();
+            distance += instruction.getDistance();
+            isFirstInstructionOfLeg = false;
+            if (instruction.getSign() == Instruction.REACHED_VIA || instruction.getSign() == Instruction.FINISH) {
+                gen.writeEndArray();
+                writeLegInformation(path, routeNr, time, distance);
+                gen.writeEndObject();
+                isFirstInstructionOfLeg = true;
+                time = 0;
+                distance = 0;
+
+                if (instruction.getSign() == Instruction.REACHED_VIA) {
+                    // Create new leg and steps after a via points
+                    gen.writeStartObject();
+                    gen.writeArrayFieldStart("steps");
+                }
+            }
+        }
+        gen.writeEndArray();
+
+        gen.writeStringField("weight_name", "routability");
+        gen.writeNumberField("weight", Helper.round(path.getRouteWeight(), 1));
+        gen.writeNumberField("duration", convertToSeconds(path.getTime()));
+        gen.writeNumberField("distance", Helper.round(path.getDistance(), 1));
+        gen.writeStringField("voiceLocale", locale.toLanguageTag());
+        gen.writeEndObject();
+    }
+
+    private void writeLegInformation(ResponsePath path, int i, long time, double distance) throws IOException {
+        // TODO: Improve path descriptions, so that every path has a description, not
+        // just alternative routes
+        String summary;
+        if (!path.getDescription().isEmpty())
+            summary = String.join(",", path.getDescription());
+        else
+            summary = "GraphHopper Route " + i;
+        gen.writeStringField("summary", summary);
+
+        // TODO there is no weight per instruction, let's use time
+        gen.writeNumberField("weight", convertToSeconds(time));
+        gen.writeNumberField("duration", convertToSeconds(time));
+        gen.writeNumberField("distance", Helper.round(distance, 1));
+    }
+
+    private void writeStep(PointList points, int instructionIndex, boolean isFirstInstructionOfLeg) throws IOException {
+        Instruction instruction = instructions.get(instructionIndex);
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("intersections");
+        mergeColocatedIntersections(points, stepIntersections);
+        for (PathDetail intersectionDetail : stepIntersections) {
+            gen.writeStartObject();
+            Map<String, Object> intersectionValue = (Map<String, Object>) intersectionDetail.getValue();
+            // Location
+            writeLocation(points.getLat(intersectionDetail.getFirst()), points.getLon(intersectionDetail.getFirst()));
+            // Entry
+            gen.writeArrayFieldStart("entry");
+            for (Boolean entry : (List<Boolean>) intersectionValue.getOrDefault("entries", Collections.emptyList())) {
+                gen.writeBoolean(entry);
+            }
+            gen.writeEndArray();
+            // Bearings
+            gen.writeArrayFieldStart("bearings");
+            for (Integer bearing : (List<Integer>) intersectionValue.getOrDefault("bearings", Collections.emptyList())) {
+                gen.writeNumber(bearing);
+            }
+            gen.writeEndArray();
+            // in
+            if (intersectionValue.containsKey("in"))
+                gen.writeNumberField("in", (int) intersectionValue.get("in"));
+            // out
+            if (intersectionValue.containsKey("out"))
+                gen.writeNumberField("out", (int) intersectionValue.get("out"));
+            gen.writeEndObject();
+        }
+
+        PointList instructionPoints = instruction.getPoints();
+        if (stepIntersections.isEmpty()) {
+            // this is the fallback if we don't have any intersections.
+            // this can happen for via points or finish instructions or when no intersection
+            // details have been requested
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("entry");
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("bearings");
+            gen.writeEndArray();
+            writeLocation(instructionPoints.getLat(0), instructionPoints.getLon(0));
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeStringField("driving_side", "right");
+
+        // Does not include elevation
+        startPolyline();
+        for (int i = 0; i < instructionPoints.size(); i++) {
+            addToPolyline(instructionPoints.getLat(i), instructionPoints.getLon(i));
+        }
+        if (instructionIndex + 1 < instructions.size()) {
+            // Add the first point of the next instruction
+            PointList nextPoints = instructions.get(instructionIndex + 1).getPoints();
+            addToPolyline(nextPoints.getLat(0), nextPoints.getLon(0));
+        } else if (instructionPoints.size() == 1) {
+            // Duplicate the last point in the arrive instruction, if the size is 1
+            addToPolyline(instructionPoints.getLat(0), instructionPoints.getLon(0));
+        }
+        writePolyline("geometry");
+
+        // TODO: how about other modes?
+        gen.writeStringField("mode", "driving");
+
+        writeManeuver(instructionIndex, isFirstInstructionOfLeg);
+
+        // TODO distance = weight, is weight even important?
+        double distance = Helper.round(instruction.getDistance(), 1);
+        gen.writeNumberField("weight", distance);
+        gen.writeNumberField("duration", convertToSeconds(instruction.getTime()));
+        gen.writeStringField("name", instruction.getName());
+        gen.writeNumberField("distance", distance);
+
+        gen.writeArrayFieldStart("voiceInstructions");
+        // Voice and banner instructions are empty for the last element
+        if (instructionIndex + 1 < instructions.size())
+            writeVoiceInstructions(distance, instructionIndex);
+        gen.writeEndArray();
+        gen.writeArrayFieldStart("bannerInstructions");
+        if (instructionIndex + 1 < instructions.size())
+            writeBannerInstruction(distance, instructionIndex);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Mapbox chokes on geometries with intersections lying ontop of each other. These type of intersections is used
+     * for barrier nodes.
+     * <p>
+     * We look for intersections in the list and merge these adjacent, colocated intersection into each other taking
+     * the edges from both intersections and removing the connecting zero length edge. Care has to be taken that the
+     * result is sorted by bearing.
+     */
+    private static void mergeColocatedIntersections(PointList points, List<PathDetail> list) {
+        // nothing to be done. Either no entry or only one
+        if (list.size() < 2)
+            return;
+
+        // Now look for adjacent intersections colocated
+        GHPoint3D intersectionPoint = points.get(list.get(0).getFirst());
+        List<Integer> duplicates = new ArrayList<>();
+        for (int i = 1; i < list.size(); i++) {
+            GHPoint3D currentIntersectionPoint = points.get(list.get(i).getFirst());
+            if (intersectionPoint.equals(currentIntersectionPoint)) {
+                duplicates.add(i - 1); // store the first index of the duplicate
+            }
+            intersectionPoint = currentIntersectionPoint;
+        }
+
+        // now iterate backwards over all duplicates, since we will remove entries from list
+        for (int dup = duplicates.size() - 1; dup >= 0; dup--) {
+            int i = duplicates.get(dup);
+            // member i and i+1 are on the same point
+            // out edge of (i) points to in edge of (i+1)
+            // ... -------> intersection[i].out --------> intersection[i+1].in ----------->
+            //
+            // Create a new PathDetail for merging both intersections into one
+            // ... -------> intersection[i] ------>
+            try {
+                final Map<String, Object> intersectionMap = (Map<String, Object>) list.get(i).getValue();
+                final List<IntersectionValues> intersectionValueList = IntersectionValues.createList(intersectionMap);
+
+                final Map<String, Object> nextIntersectionMap = (Map<String, Object>) list.get(i + 1).getValue();
+                final List<IntersectionValues> nextIntersectionValueList = IntersectionValues
+                        .createList(nextIntersectionMap);
+
+                // merge both Lists while
+                final List<IntersectionValues> mergedInterSectionValueList = Stream.concat(
+                        // removing out from Intersection
+                        intersectionValueList.stream().filter(x -> !x.out),
+                        // removing in from nextIntersection
+                        nextIntersectionValueList.stream().filter(x -> !x.in)).
+                        // sort the merged list by bearing
+                        sorted((x, y) -> Integer.compare(x.bearing, y.bearing)).
+                        // create the result list
+                        collect(Collectors.toList());
+
+                // remove the duplicate Intersection from the Path (we are at "i" currently)
+                list.remove(i + 1);
+
+                Map<String, Object> mergedIntersection = IntersectionValues
+                        .createIntersection(mergedInterSectionValueList);
+                PathDetail mergedPathDetail = new PathDetail(mergedIntersection);
+                mergedPathDetail.setFirst(list.get(i).getFirst());
+                // and replace the intersection with the merged one
+                list.set(i, mergedPathDetail);
+            } catch (ClassCastException e) {
+                LOGGER.warn("Exception :" + e);
+            }
+        }
+    }
+
+    private void writeVoiceInstructions(double distance, int index) throws IOException {
+        /*
+         * A VoiceInstruction Object looks like this
+         * {
+         * distanceAlongGeometry: 40.9,
+         * announcement: "Exit the traffic circle",
+         * ssmlAnnouncement: "<speak><amazon:effect name="drc"><prosody rate="1.
+         * 08">Exit the traffic circle</prosody></amazon:effect></speak>",
+         * }
+         */
+        String turnDescription = getTurnDescription(index + 1);
+        String thenVoiceInstruction = getThenVoiceInstructionPart(index);
+
+        for (VoiceInstructionConfig voiceConfig : distanceConfig.voiceInstructions) {
+            VoiceInstructionConfig.VoiceInstructionValue voiceValue = voiceConfig.getConfigForDistance(distance, turnDescription, thenVoiceInstruction);
+            if (voiceValue != null)
+                writeSingleVoiceInstruction(voiceValue.spokenDistance, voiceValue.turnDescription);
+        }
+
+        // Speak 80m instructions 80 before the turn
+        // Note: distanceAlongGeometry: "how far from the upcoming maneuver the voice
+        // instruction should begin"
+        double distanceAlongGeometry = Helper.round(Math.min(distance, 80), 1);
+
+        // Special case for the arrive instruction
+        if (index + 2 == instructions.size())
+            distanceAlongGeometry = Helper.round(Math.min(distance, 25), 1);
+
+        writeSingleVoiceInstruction(distanceAlongGeometry, turnDescription + thenVoiceInstruction);
+    }
+
+    private void writeSingleVoiceInstruction(double distanceAlongGeometry, String turnDescription) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("distanceAlongGeometry", distanceAlongGeometry);
+        // TODO: ideally, we would even generate instructions including the instructions
+        // after the next like turn left **then** turn right
+        gen.writeStringField("announcement", turnDescription);
+        gen.writeStringField("ssmlAnnouncement", "<speak><amazon:effect name=\"drc\"><prosody rate=\"1.08\">"
+                + turnDescription + "</prosody></amazon:effect></speak>");
+        gen.writeEndObject();
+    }
+
+    /**
+     * For close turns, it is important to announce the next turn in the earlier
+     * instruction.
+     * e.g.: instruction i+1= turn right, instruction i+2=turn left, with
+     * instruction i+1 distance < VOICE_INSTRUCTION_MERGE_TRESHHOLD
+     * The voice instruction should be like "turn right, then turn left"
+     * <p>
+     * For instruction i+1 distance > VOICE_INSTRUCTION_MERGE_TRESHHOLD an empty
+     * String will be returned
+     */
+    private String getThenVoiceInstructionPart(int index) {
+        if (instructions.size() > index + 2 && instructions.get(index + 1).getDistance() < VOICE_INSTRUCTION_MERGE_TRESHHOLD
+                && instructions.get(index + 2).getSign() != Instruction.REACHED_VIA)
+            return ", " + tr.tr("navigate.then") + " " + getTurnDescription(index + 2);
+        return "";
+    }
+
+    /**
+     * Banner instructions are the turn instructions that are shown to the user in
+     * the top bar.
+     * <p>
+     * Between two instructions we can show multiple banner instructions, you can
+     * control when they pop up using distanceAlongGeometry.
+     */
+    private void writeBannerInstruction(double distance, int index) throws IOException {
+        /*
+         * A BannerInstruction looks like this
+         * distanceAlongGeometry: 107,
+         * primary: {
+         * text: "Lichtensteinstraße",
+         * components: [
+         * {
+         * text: "Lichtensteinstraße",
+         * type: "text",
+         * }
+         * ],
+         * type: "turn",
+         * modifier: "right",
+         * },
+         * secondary: null,
+         */
+        gen.writeStartObject();
+        // Show from the beginning
+        gen.writeNumberField("distanceAlongGeometry", distance);
+
+        gen.writeFieldName("primary");
+        writeSingleBannerInstruction(index + 1);
+
+        gen.writeNullField("secondary");
+
+        if (instructions.size() > index + 2 && instructions.get(index + 2).getSign() != Instruction.REACHED_VIA) {
+            // Sub shows the instruction after the current one
+            gen.writeFieldName("sub");
+            writeSingleBannerInstruction(index + 2);
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeSingleBannerInstruction(int index) throws IOException {
+        Instruction instruction = instructions.get(index);
+        String bannerInstructionName = instruction.getName();
+        if (bannerInstructionName.isEmpty()) {
+            // Fix for final instruction and for instructions without name
+            // Uppercase first letter
+            // TODO: should we do this for all cases? Then we might change the spelling of
+            // street names though
+            bannerInstructionName = Helper.firstBig(getTurnDescription(index));
+        }
+
+        gen.writeStartObject();
+        gen.writeStringField("text", bannerInstructionName);
+
+        gen.writeArrayFieldStart("components");
+        gen.writeStartObject();
+        gen.writeStringField("text", bannerInstructionName);
+        gen.writeStringField("type", "text");
+        gen.writeEndObject();
+        gen.writeEndArray();
+
+        gen.writeStringField("type", getTurnType(instruction, false));
+        String modifier = getModifier(instruction);
+        if (modifier != null)
+            gen.writeStringField("modifier", modifier);
+
+        if (instruction.getSign() == Instruction.USE_ROUNDABOUT && instruction instanceof RoundaboutInstruction) {
+            double turnAngle = ((RoundaboutInstruction) instruction).getTurnAngle();
+            if (Double.isNaN(turnAngle))
+                gen.writeNullField("degrees");
+            else
+                gen.writeNumberField("degrees", (Math.abs(turnAngle) * 180) / Math.PI);
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeManeuver(int index, boolean isFirstInstructionOfLeg) throws IOException {
+        Instruction instruction = instructions.get(index);
+        gen.writeObjectFieldStart("maneuver");
+        gen.writeNumberField("bearing_after", 0);
+        gen.writeNumberField("bearing_before", 0);
+
+        PointList points = instruction.getPoints();
+        writeLocation(points.getLat(0), points.getLon(0));
+
+        String modifier = getModifier(instruction);
+        if (modifier != null)
+            gen.writeStringField("modifier", modifier);
+
+        gen.writeStringField("type", getTurnType(instruction, isFirstInstructionOfLeg));
+        // exit number
+        if (instruction instanceof RoundaboutInstruction)
+            gen.writeNumberField("exit", ((RoundaboutInstruction) instruction).getExitNumber());
+
+        gen.writeStringField("instruction", getTurnDescription(index));
+        gen.writeEndObject();
+    }
+
+    /**
+     * Every turn description is used up to four times: for the maneuver of its own step, for the voice and banner
+     * instructions of the previous step and for the 'then' part of the step before. So we calculate it only once.
+     */
+    private String getTurnDescription(int index) {
+        String turnDescription = turnDescriptions[index];
+        if (turnDescription == null) {
+            turnDescription = instructions.get(index).getTurnDescription(tr);
+            turnDescriptions[index] = turnDescription;
+        }
+        return turnDescription;
+    }
+
+    /**
+     * Relevant maneuver types are:
+     * depart (firs instruction)
+     * turn (regular turns)
+     * roundabout (enter roundabout, maneuver contains also the exit number)
+     * arrive (last instruction and waypoints)
+     * <p>
+     * You can find all maneuver types at:
+     * https://www.mapbox.com/api-documentation/#maneuver-types
+     */
+    private static String getTurnType(Instruction instruction, boolean isFirstInstructionOfLeg) {
+        if (isFirstInstructionOfLeg) {
+            return "depart";
+        } else {
+            switch (instruction.getSign()) {
+                case Instruction.FINISH:
+                case Instruction.REACHED_VIA:
+                    return "arrive";
+                case Instruction.USE_ROUNDABOUT:
+                    return "roundabout";
+                default:
+                    return "turn";
+            }
+        }
+    }
+
+    /**
+     * No modifier values for arrive and depart
+     * <p>
+     * Find modifier values here:
+     * https://www.mapbox.com/api-documentation/#stepmaneuver-object
+     */
+    private static String getModifier(Instruction instruction) {
+        switch (instruction.getSign()) {
+            case Instruction.CONTINUE_ON_STREET:
+                return "straight";
+            case Instruction.U_TURN_LEFT:
+            case Instruction.U_TURN_RIGHT:
+            case Instruction.U_TURN_UNKNOWN:
+                return "uturn";
+            case Instruction.KEEP_LEFT:
+            case Instruction.TURN_SLIGHT_LEFT:
+                return "slight left";
+            case Instruction.TURN_LEFT:
+                return "left";
+            case Instruction.TURN_SHARP_LEFT:
+                return "sharp left";
+            case Instruction.KEEP_RIGHT:
+            case Instruction.TURN_SLIGHT_RIGHT:
+                return "slight right";
+            case Instruction.TURN_RIGHT:
+                return "right";
+            case Instruction.TURN_SHARP_RIGHT:
+                return "sharp right";
+            case Instruction.USE_ROUNDABOUT:
+                // TODO: This might be an issue in left-handed traffic, because there it schould
+                // be left
+                return "right";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Writes a location array in GeoJson format
+     */
+    private void writeLocation(double lat, double lon) throws IOException {
+        gen.writeArrayFieldStart("location");
+        // GeoJson lon,lat
+        gen.writeNumber(Helper.round6(lon));
+        gen.writeNumber(Helper.round6(lat));
+        gen.writeEndArray();
+    }
+
+    private void startPolyline() {
+        polyline.setLength(0);
+        prevLat = 0;
+        prevLon = 0;
+    }
+
+    /**
+     * Encodes the point with a precision of six digits like {@link ResponsePathSerializer#encodePolyline}, but
+     * allows us to add points from different point lists without copying them first.
+     */
+    private void addToPolyline(double lat, double lon) {
+        int num = (int) Math.round(lat * 1e6);
+        ResponsePathSerializer.encodeNumber(polyline, num - prevLat);
+        prevLat = num;
+        num = (int) Math.round(lon * 1e6);
+        ResponsePathSerializer.encodeNumber(polyline, num - prevLon);
+        prevLon = num;
+    }
+
+    private void writePolyline(String fieldName) throws IOException {
+        int length = polyline.length();
+        if (polylineChars.length < length)
+            polylineChars = new char[Math.max(length, polylineChars.length * 2)];
+        polyline.getChars(0, length, polylineChars, 0);
+        gen.writeFieldName(fieldName);
+        gen.writeString(polylineChars, 0, length);
+    }
+
+    /**
+     * Mapbox uses seconds instead of milliSeconds
+     */
+    static double convertToSeconds(double milliSeconds) {
+        return Helper.round(milliSeconds / 1000, 1);
+    }
+}
@@ -1,10 +1,13 @@
 package com.graphhopper.navigation;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
@@ -18,6 +21,8 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collections;
 import java.util.Locale;
 
@@ -401,6 +406,39 @@ public class NavigateResponseConverterTest {
         assertEquals(route.get("distance").asDouble(), distance, 1);
     }
 
+    @Test
+    public void testStreamingSerializer() throws IOException {
+        GHRequest request = new GHRequest();
+        request.addPoint(new GHPoint(42.504606, 1.522438));
+        request.addPoint(new GHPoint(42.504776, 1.527209));
+        request.addPoint(new GHPoint(42.505144, 1.526113));
+        request.setProfile(profile);
+        request.setPathDetails(Collections.singletonList(Parameters.Details.INTERSECTION));
+        GHResponse rsp = hopper.route(request);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(writer)) {
+            NavigateResponseSerializer.write(rsp, trMap, Locale.ENGLISH, distanceConfig, gen);
+        }
+        ObjectNode json = (ObjectNode) objectMapper.readTree(writer.toString());
+        assertNotNull(json.get("uuid"));
+        json.remove("uuid");
+        // the output of the tree based converter before it was replaced by the serializer
+        JsonNode expected = objectMapper.readTree(getClass().getResourceAsStream("navigate-response.json"));
+        assertEquals(expected, json);
+
+        // the polylines are encoded step by step, but must be the same as the regular ones
+        ResponsePath path = rsp.getBest();
+        JsonNode route = json.get("routes").get(0);
+        assertEquals(ResponsePathSerializer.encodePolyline(path.getPoints(), false, 1e6), route.get("geometry").asText());
+        PointList stepPoints = path.getInstructions().get(0).getPoints().clone(false);
+        PointList nextPoints = path.getInstructions().get(1).getPoints();
+        stepPoints.add(nextPoints.getLat(0), nextPoints.getLon(0));
+        assertEquals(ResponsePathSerializer.encodePolyline(stepPoints, false, 1e6),
+                route.get("legs").get(0).get("steps").get(0).get("geometry").asText());
+    }
+
     @Test
     public void testError() {
         GHResponse rsp = hopper.route(new GHRequest(42.554851, 111.536198, 42.510071, 1.548128).setProfile(profile));
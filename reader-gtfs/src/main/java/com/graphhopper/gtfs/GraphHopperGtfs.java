@@ -30,6 +30,7 @@ import com.graphhopper.storage.index.IndexStructureInfo;
 import com.graphhopper.storage.index.LineIntIndex;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -113,6 +114,29 @@ public class GraphHopperGtfs extends GraphHopper {
         }
         gtfsStorage.setStopIndex(stopIndex);
         gtfsStorage.setPtGraph(ptGraph);
+        if (ghConfig.has("gtfs.isochrone_tables.departure_windows"))
+            gtfsStorage.setStationTravelTimeTable(loadOrBuildStationTravelTimeTable());
+    }
+
+    private StationTravelTimeTable loadOrBuildStationTravelTimeTable() {
+        List<StationTravelTimeTable.Window> windows = Arrays.stream(ghConfig.getString("gtfs.isochrone_tables.departure_windows", "").split(","))
+                .map(StationTravelTimeTable.Window::parse).collect(Collectors.toList());
+        long stepMillis = Duration.ofSeconds(ghConfig.getInt("gtfs.isochrone_tables.step_seconds", 600)).toMillis();
+        long maxTravelTimeMillis = Duration.ofSeconds(ghConfig.getInt("gtfs.isochrone_tables.max_travel_time_seconds", 4 * 60 * 60)).toMillis();
+        StationTravelTimeTable table = new StationTravelTimeTable(getBaseGraph().getDirectory(), getGtfsStorage(), windows, stepMillis, maxTravelTimeMillis);
+        if (table.loadExisting())
+            return table;
+        ensureWriteAccess();
+        int threads = ghConfig.getInt("gtfs.isochrone_tables.threads", 1);
+        long maxBytes = ghConfig.getLong("gtfs.isochrone_tables.max_size_mb", 2048) << 20;
+        LOGGER.info("Precomputing station travel times for departure windows {}", windows);
+        StopWatch sw = new StopWatch().start();
+        QueryGraph queryGraph = QueryGraph.create(getBaseGraph(), Collections.emptyList());
+        Weighting weighting = createWeighting(getProfile("foot"), new PMap());
+        table.build(queryGraph, ptGraph, weighting, getGtfsStorage(), threads, maxBytes);
+        table.flush();
+        LOGGER.info("Finished precomputing station travel times, took: {}s", sw.stop().getSeconds());
+        return table;
     }
 
     private void interpolateTransfers(HashMap<String, GtfsReader> readers, Map<String, Transfers> allTransfers) {
@@ -43,6 +43,7 @@ public class GtfsStorage {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GtfsStorage.class);
 	private LineIntIndex stopIndex;
 	private PtGraph ptGraph;
+	private StationTravelTimeTable stationTravelTimeTable;
 
 	public void setStopIndex(LineIntIndex stopIndex) {
 		this.stopIndex = stopIndex;
@@ -60,6 +61,17 @@ public class GtfsStorage {
         this.ptGraph = ptGraph;
     }
 
+    /**
+     * @return the precomputed station travel times or null if they were not configured
+     */
+    public StationTravelTimeTable getStationTravelTimeTable() {
+        return stationTravelTimeTable;
+    }
+
+    public void setStationTravelTimeTable(StationTravelTimeTable stationTravelTimeTable) {
+        this.stationTravelTimeTable = stationTravelTimeTable;
+    }
+
 	public IntObjectHashMap<int[]> getSkippedEdgesForTransfer() {
 		return skippedEdgesForTransfer;
 	}
@@ -0,0 +1,304 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.CharArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.GHUtility;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Earliest arrival times between pairs of stations, precomputed for a fixed set of departure time windows. Within
+ * each window the departure time is sampled in fixed steps. A journey leaving station s at time d is answered with the
+ * first sampled departure at or after d, i.e. the traveller waits at s. So every arrival time returned here belongs to
+ * a feasible journey, but it can be a bit later than the one a full {@link MultiCriteriaLabelSetting} search would find.
+ * <p>
+ * Walking between stations is only possible via the transfers of the transit graph (including the interpolated ones).
+ * Walking to the first and from the last station has to be done by the caller.
+ * <p>
+ * Only the stations that can be reached within the maximum travel time are stored, as one row of (station, travel
+ * time) entries per sampled departure and start station. The rows are kept in two {@link DataAccess}es of the graph
+ * directory, so the table is only computed once and loaded together with the rest of the transit data afterwards.
+ * The travel times are stored in seconds as unsigned 16 bit values, which limits the maximum travel time to about 18h.
+ */
+public class StationTravelTimeTable {
+    private static final long MAX_TRAVEL_TIME_MILLIS = (Character.MAX_VALUE - 1) * 1000L;
+    // every row has a pointer into the entries (8 bytes) and the number of entries (4 bytes)
+    private static final int ROW_BYTES = 12;
+
+    public static class Window {
+        final Instant start;
+        final Duration duration;
+
+        public Window(Instant start, Duration duration) {
+            if (duration.isNegative())
+                throw new IllegalArgumentException("Departure window must not have a negative duration: " + duration);
+            this.start = start;
+            this.duration = duration;
+        }
+
+        /**
+         * Parses an ISO 8601 time interval in the start/duration form, e.g. 2007-01-01T08:00:00Z/PT2H
+         */
+        public static Window parse(String interval) {
+            String[] parts = interval.split("/");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Departure window must be given as <start>/<duration>, e.g. 2007-01-01T08:00:00Z/PT2H, but was: " + interval);
+            return new Window(Instant.parse(parts[0].trim()), Duration.parse(parts[1].trim()));
+        }
+
+        boolean contains(long time) {
+            return time >= start.toEpochMilli() && time <= start.toEpochMilli() + duration.toMillis();
+        }
+
+        @Override
+        public String toString() {
+            return start + "/" + duration;
+        }
+    }
+
+    private final List<Window> windows;
+    private final long stepMillis;
+    private final long maxTravelTimeMillis;
+    private final int[] stationNodes;
+    private final GtfsStorage.FeedIdWithStopId[] stationIds;
+    private final IntIntHashMap stationIndexByNode;
+    // the index of the first row of every window
+    private final long[] firstDepartures;
+    private final long rowCount;
+    private final DataAccess rows;
+    private final DataAccess entries;
+    private long entryBytes;
+
+    /**
+     * @param stepMillis          the time between two sampled departures within a window
+     * @param maxTravelTimeMillis travel times above this limit are not stored
+     */
+    public StationTravelTimeTable(Directory dir, GtfsStorage gtfsStorage, List<Window> windows, long stepMillis, long maxTravelTimeMillis) {
+        if (windows.isEmpty())
+            throw new IllegalArgumentException("At least one departure window is required");
+        if (stepMillis <= 0)
+            throw new IllegalArgumentException("The departure step must be positive: " + stepMillis);
+        if (maxTravelTimeMillis > MAX_TRAVEL_TIME_MILLIS)
+            throw new IllegalArgumentException("The maximum travel time must be at most " + MAX_TRAVEL_TIME_MILLIS / 1000 + "s, but was: " + maxTravelTimeMillis / 1000 + "s");
+        this.windows = windows;
+        this.stepMillis = stepMillis;
+        this.maxTravelTimeMillis = maxTravelTimeMillis;
+        // a station can be used by multiple stops, we keep the first one (in a stable order) for each station node
+        Map<Integer, GtfsStorage.FeedIdWithStopId> stations = new TreeMap<>();
+        gtfsStorage.getStationNodes().entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<GtfsStorage.FeedIdWithStopId, Integer> e) -> e.getKey().feedId).thenComparing(e -> e.getKey().stopId))
+                .forEach(e -> stations.putIfAbsent(e.getValue(), e.getKey()));
+        this.stationNodes = stations.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.stationIds = stations.values().toArray(new GtfsStorage.FeedIdWithStopId[0]);
+        this.stationIndexByNode = new IntIntHashMap(stationNodes.length);
+        for (int i = 0; i < stationNodes.length; i++)
+            stationIndexByNode.put(stationNodes[i], i);
+        this.firstDepartures = new long[windows.size()];
+        long departures = 0;
+        for (int w = 0; w < windows.size(); w++) {
+            firstDepartures[w] = departures;
+            departures += getDepartures(windows.get(w));
+        }
+        this.rowCount = departures * stationNodes.length;
+        this.rows = dir.create("pt_travel_time_rows", dir.getDefaultType("pt_travel_time_rows", true), -1);
+        this.entries = dir.create("pt_travel_time_entries", dir.getDefaultType("pt_travel_time_entries", true), -1);
+    }
+
+    /**
+     * Loads a table that was built before. Throws if it was built for a different configuration.
+     *
+     * @return false if there is no stored table
+     */
+    public boolean loadExisting() {
+        if (!rows.loadExisting() || !entries.loadExisting())
+            return false;
+        if (rows.getHeader(0) != stationNodes.length || rows.getHeader(4) != windows.toString().hashCode()
+                || rows.getHeader(8) != (int) (stepMillis / 1000) || rows.getHeader(12) != (int) (maxTravelTimeMillis / 1000))
+            throw new IllegalStateException("The station travel time table in " + rows.getName() + " was built for different stations, " +
+                    "departure windows, step or maximum travel time. Change the graph folder or remove it to build a new one.");
+        entryBytes = bitsToLong(entries.getHeader(0), entries.getHeader(4));
+        return true;
+    }
+
+    /**
+     * Computes the travel times for all stations and departures. Fails before starting the computation if the row
+     * index alone does not fit into maxBytes, and aborts as soon as the stored rows exceed maxBytes.
+     *
+     * @param graph     the street graph, only used to enter and leave the stations
+     * @param weighting the weighting used to explore the street graph
+     * @param threads   the number of threads used for the precomputation
+     */
+    public void build(Graph graph, PtGraph ptGraph, Weighting weighting, GtfsStorage gtfsStorage, int threads, long maxBytes) {
+        if (rowCount > Long.MAX_VALUE / ROW_BYTES || rowCount * ROW_BYTES > maxBytes)
+            throw new IllegalArgumentException("The station travel time table needs " + toMB(rowCount * ROW_BYTES) + "MB for the index of " +
+                    stationNodes.length + " stations x " + rowCount / Math.max(1, stationNodes.length) + " departures alone, which exceeds the limit of " +
+                    toMB(maxBytes) + "MB. Use fewer or shorter departure windows, a larger step or increase the limit.");
+        rows.create(rowCount * ROW_BYTES);
+        entries.create(1000);
+        entryBytes = 0;
+        GHUtility.runConcurrently(IntStream.range(0, stationNodes.length).mapToObj(from -> () -> {
+            GraphExplorer explorer = new GraphExplorer(graph, ptGraph, weighting, gtfsStorage, RealtimeFeed.empty(), false, false, false, 5.0, false, 0);
+            boolean[] reached = new boolean[stationNodes.length];
+            IntArrayList tos = new IntArrayList();
+            CharArrayList travelTimes = new CharArrayList();
+            for (int w = 0; w < windows.size(); w++) {
+                for (long d = 0; d < getDepartures(windows.get(w)); d++) {
+                    calcRow(explorer, gtfsStorage, from, windows.get(w).start.toEpochMilli() + d * stepMillis, reached, tos, travelTimes);
+                    storeRow((firstDepartures[w] + d) * stationNodes.length + from, tos, travelTimes, maxBytes);
+                }
+            }
+        }), threads);
+    }
+
+    public void flush() {
+        rows.setHeader(0, stationNodes.length);
+        rows.setHeader(4, windows.toString().hashCode());
+        rows.setHeader(8, (int) (stepMillis / 1000));
+        rows.setHeader(12, (int) (maxTravelTimeMillis / 1000));
+        entries.setHeader(0, (int) entryBytes);
+        entries.setHeader(4, (int) (entryBytes >>> 32));
+        rows.flush();
+        entries.flush();
+    }
+
+    private void calcRow(GraphExplorer explorer, GtfsStorage gtfsStorage, int from, long departureTime, boolean[] reached, IntArrayList tos, CharArrayList travelTimes) {
+        for (int i = 0; i < tos.size(); i++)
+            reached[tos.get(i)] = false;
+        tos.clear();
+        travelTimes.clear();
+        MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(explorer, false, false, false, 0, new ArrayList<>());
+        // we only want to enter and leave the stations, walking is done outside the table
+        router.setLimitStreetTime(0);
+        router.setLimitTripTime(maxTravelTimeMillis);
+        Label.NodeId fromNode = new Label.NodeId(gtfsStorage.getPtToStreet().getOrDefault(stationNodes[from], -1), stationNodes[from]);
+        for (Label label : router.calcLabels(fromNode, Instant.ofEpochMilli(departureTime))) {
+            if (label.currentTime - departureTime > maxTravelTimeMillis)
+                break;
+            int to = label.node.ptNode == -1 ? -1 : stationIndexByNode.getOrDefault(label.node.ptNode, -1);
+            // labels are polled in the order of their arrival time, so the first one we see is the earliest
+            if (to >= 0 && !reached[to]) {
+                reached[to] = true;
+                tos.add(to);
+                travelTimes.add((char) ((label.currentTime - departureTime + 999) / 1000));
+            }
+        }
+    }
+
+    private synchronized void storeRow(long row, IntArrayList tos, CharArrayList travelTimes, long maxBytes) {
+        // the stations (4 bytes each) are followed by the travel times (2 bytes each), padded such that the next row
+        // starts at a multiple of four again
+        long pointer = entryBytes;
+        long bytes = tos.size() * 4L + ((travelTimes.size() * 2L + 3) / 4) * 4;
+        if (pointer + bytes + rowCount * ROW_BYTES > maxBytes)
+            throw new IllegalStateException("The station travel time table exceeds the limit of " + toMB(maxBytes) + "MB. " +
+                    "Use a lower maximum travel time, fewer or shorter departure windows, a larger step or increase the limit.");
+        entries.ensureCapacity(pointer + bytes);
+        for (int i = 0; i < tos.size(); i++) {
+            entries.setInt(pointer + i * 4L, tos.get(i));
+            entries.setShort(pointer + tos.size() * 4L + i * 2L, (short) travelTimes.get(i));
+        }
+        entryBytes += bytes;
+        long rowPointer = row * ROW_BYTES;
+        rows.setInt(rowPointer, (int) pointer);
+        rows.setInt(rowPointer + 4, (int) (pointer >>> 32));
+        rows.setInt(rowPointer + 8, tos.size());
+    }
+
+    private static long bitsToLong(int low, int high) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static long toMB(long bytes) {
+        return bytes / (1 << 20);
+    }
+
+    private long getDepartures(Window window) {
+        return window.duration.toMillis() / stepMillis + 1;
+    }
+
+    /**
+     * @return true if the given departure time lies within one of the precomputed windows
+     */
+    public boolean covers(Instant departureTime) {
+        for (Window window : windows)
+            if (window.contains(departureTime.toEpochMilli()))
+                return true;
+        return false;
+    }
+
+    public long getMaxTravelTimeMillis() {
+        return maxTravelTimeMillis;
+    }
+
+    public boolean isStation(int ptNode) {
+        return stationIndexByNode.containsKey(ptNode);
+    }
+
+    public GtfsStorage.FeedIdWithStopId getStationId(int ptNode) {
+        return stationIds[stationIndexByNode.get(ptNode)];
+    }
+
+    /**
+     * Calculates the earliest arrival at every station that can be reached from the given stations.
+     *
+     * @param stationArrivals the time (epoch millis) at which we are at the given station (pt) nodes
+     * @return the earliest arrival time (epoch millis) for every station (pt) node that can be reached, including the
+     * given ones
+     */
+    public IntLongHashMap calcEarliestArrivals(IntLongHashMap stationArrivals) {
+        IntLongHashMap result = new IntLongHashMap();
+        for (IntLongCursor c : stationArrivals) {
+            int from = stationIndexByNode.getOrDefault(c.key, -1);
+            if (from < 0)
+                continue;
+            result.put(c.key, Math.min(c.value, result.getOrDefault(c.key, Long.MAX_VALUE)));
+            for (int w = 0; w < windows.size(); w++) {
+                Window window = windows.get(w);
+                if (!window.contains(c.value))
+                    continue;
+                long departure = (c.value - window.start.toEpochMilli() + stepMillis - 1) / stepMillis;
+                if (departure >= getDepartures(window))
+                    continue;
+                long departureTime = window.start.toEpochMilli() + departure * stepMillis;
+                long rowPointer = ((firstDepartures[w] + departure) * stationNodes.length + from) * ROW_BYTES;
+                long pointer = bitsToLong(rows.getInt(rowPointer), rows.getInt(rowPointer + 4));
+                int count = rows.getInt(rowPointer + 8);
+                for (int i = 0; i < count; i++) {
+                    int to = entries.getInt(pointer + i * 4L);
+                    long arrival = departureTime + (char) entries.getShort(pointer + count * 4L + i * 2L) * 1000L;
+                    if (arrival < result.getOrDefault(stationNodes[to], Long.MAX_VALUE))
+                        result.put(stationNodes[to], arrival);
+                }
+            }
+        }
+        return result;
+    }
+}
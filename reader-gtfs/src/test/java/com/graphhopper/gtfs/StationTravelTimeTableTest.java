@@ -0,0 +1,97 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StationTravelTimeTableTest {
+
+    private static final String GRAPH_LOC = "target/StationTravelTimeTableTest";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(GRAPH_LOC));
+    }
+
+    private static GraphHopperConfig createConfig() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("datareader.file", "files/beatty.osm");
+        ghConfig.putObject("gtfs.file", "files/sample-feed");
+        ghConfig.putObject("gtfs.isochrone_tables.departure_windows", "2007-01-01T08:00:00Z/PT1H");
+        ghConfig.putObject("gtfs.isochrone_tables.max_travel_time_seconds", 8 * 60 * 60);
+        ghConfig.putObject("import.osm.ignored_highways", "");
+        ghConfig.putObject("graph.encoded_values", "foot_access, foot_priority, foot_average_speed");
+        ghConfig.setProfiles(List.of(TestProfiles.accessSpeedAndPriority("foot")));
+        return ghConfig;
+    }
+
+    private static GraphHopperGtfs importOrLoad(GraphHopperConfig ghConfig) {
+        GraphHopperGtfs graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        return graphHopperGtfs;
+    }
+
+    private static IntLongHashMap calcEarliestArrivalsFromStagecoach(GraphHopperGtfs graphHopperGtfs) {
+        GtfsStorage gtfsStorage = graphHopperGtfs.getGtfsStorage();
+        int station = gtfsStorage.getStationNodes().get(new GtfsStorage.FeedIdWithStopId("gtfs_0", "STAGECOACH"));
+        IntLongHashMap stationArrivals = new IntLongHashMap();
+        stationArrivals.put(station, Instant.parse("2007-01-01T08:05:00Z").toEpochMilli());
+        return gtfsStorage.getStationTravelTimeTable().calcEarliestArrivals(stationArrivals);
+    }
+
+    @Test
+    public void testStoreAndLoad() {
+        GraphHopperGtfs graphHopperGtfs = importOrLoad(createConfig());
+        IntLongHashMap arrivals = calcEarliestArrivalsFromStagecoach(graphHopperGtfs);
+        // only the reachable stations are in the result, the start station is always one of them
+        assertTrue(arrivals.size() > 1);
+        assertTrue(arrivals.size() < graphHopperGtfs.getGtfsStorage().getStationNodes().size());
+        graphHopperGtfs.close();
+
+        graphHopperGtfs = importOrLoad(createConfig());
+        assertEquals(arrivals, calcEarliestArrivalsFromStagecoach(graphHopperGtfs));
+        graphHopperGtfs.close();
+
+        GraphHopperConfig otherConfig = createConfig().putObject("gtfs.isochrone_tables.step_seconds", 300);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> importOrLoad(otherConfig));
+        assertTrue(e.getMessage().contains("was built for different stations, departure windows, step or maximum travel time"), e.getMessage());
+    }
+
+    @Test
+    public void testSizeLimit() {
+        GraphHopperConfig ghConfig = createConfig().putObject("gtfs.isochrone_tables.max_size_mb", 0);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> importOrLoad(ghConfig));
+        assertTrue(e.getMessage().contains("which exceeds the limit of 0MB"), e.getMessage());
+    }
+}
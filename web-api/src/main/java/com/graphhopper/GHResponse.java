@@ -18,6 +18,7 @@
 package com.graphhopper;
 
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.PhaseTimings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +35,7 @@ public class GHResponse {
     private PMap hintsMap = new PMap();
     private final List<ResponsePath> responsePaths = new ArrayList<>(5);
     private String debugInfo = "";
+    private final PhaseTimings timings = new PhaseTimings();
 
     public GHResponse() {
     }
@@ -87,6 +89,14 @@ public class GHResponse {
         return str;
     }
 
+    /**
+     * Returns the time spent in the different phases of the request, e.g. to find out if the search or the snapping
+     * is slow.
+     */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
     /**
      * This method returns true if one of the paths has an error or if the response itself is
      * erroneous.
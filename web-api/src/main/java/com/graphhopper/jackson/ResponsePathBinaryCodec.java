@@ -0,0 +1,362 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes and reads a compact binary version of the JSON response of the routing API. It is meant for calls between
+ * services where the encoding and decoding of large JSON responses costs noticeable CPU time. The response contains
+ * the same information as the JSON response with encoded points, apart from the legs and the fare of public transit
+ * routes. Errors are not written in this format, they are still returned as JSON.
+ * <p>
+ * All integers are written as variable length integers, signed ones in zig-zag encoding. The points are stored as
+ * the differences of their coordinates multiplied by 1e6 (elevation by 100), the instructions and path details as
+ * arrays of typed values.
+ */
+public class ResponsePathBinaryCodec {
+    public static final String MEDIA_TYPE = "application/x-graphhopper-route";
+    private static final int MAGIC = 0x47485250; // GHRP
+    private static final int VERSION = 1;
+    private static final double MULTIPLIER = 1e6;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_MAP = 5;
+    private static final int TYPE_LIST = 6;
+
+    public static void write(GHResponse ghRsp, OutputStream outputStream, boolean enableInstructions, boolean calcPoints,
+                             boolean enableElevation) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeValue(out, ghRsp.getHints().toMap());
+        writeUnsigned(out, ghRsp.getAll().size());
+        for (ResponsePath p : ghRsp.getAll()) {
+            out.writeDouble(p.getDistance());
+            out.writeDouble(p.getRouteWeight());
+            writeUnsigned(out, p.getTime());
+            writeUnsigned(out, p.getNumChanges());
+            writeValue(out, p.getDescription());
+            writePoints(out, p.getWaypoints(), enableElevation);
+            out.writeBoolean(calcPoints);
+            if (calcPoints) {
+                writePoints(out, p.getPoints(), enableElevation);
+                out.writeDouble(p.getAscend());
+                out.writeDouble(p.getDescend());
+                out.writeBoolean(enableInstructions);
+                if (enableInstructions)
+                    writeInstructions(out, p.getInstructions());
+                writeUnsigned(out, p.getPathDetails().size());
+                for (Map.Entry<String, List<PathDetail>> e : p.getPathDetails().entrySet()) {
+                    writeString(out, e.getKey());
+                    writeUnsigned(out, e.getValue().size());
+                    int prevLast = 0;
+                    for (PathDetail pd : e.getValue()) {
+                        writeSigned(out, pd.getFirst() - prevLast);
+                        writeUnsigned(out, pd.getLast() - pd.getFirst());
+                        writeValue(out, pd.getValue());
+                        prevLast = pd.getLast();
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeInstructions(DataOutputStream out, InstructionList instructions) throws IOException {
+        writeUnsigned(out, instructions.size());
+        for (Instruction instruction : instructions) {
+            writeSigned(out, instruction.getSign());
+            writeString(out, Helper.firstBig(instruction.getTurnDescription(instructions.getTr())));
+            writeString(out, instruction.getName());
+            out.writeDouble(instruction.getDistance());
+            writeUnsigned(out, instruction.getTime());
+            writeUnsigned(out, instruction.getLength());
+            writeValue(out, instruction.getExtraInfoJSON());
+        }
+    }
+
+    private static void writePoints(DataOutputStream out, PointList points, boolean enableElevation) throws IOException {
+        boolean is3D = enableElevation && points.is3D();
+        out.writeBoolean(is3D);
+        writeUnsigned(out, points.size());
+        long prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.size(); i++) {
+            long lat = Math.round(points.getLat(i) * MULTIPLIER);
+            long lon = Math.round(points.getLon(i) * MULTIPLIER);
+            writeSigned(out, lat - prevLat);
+            writeSigned(out, lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                long ele = Math.round(points.getEle(i) * 100);
+                writeSigned(out, ele - prevEle);
+                prevEle = ele;
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_LONG);
+            writeSigned(out, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Map) {
+            out.writeByte(TYPE_MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeUnsigned(out, map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeString(out, e.getKey().toString());
+                writeValue(out, e.getValue());
+            }
+        } else if (value instanceof Collection) {
+            out.writeByte(TYPE_LIST);
+            Collection<?> list = (Collection<?>) value;
+            writeUnsigned(out, list.size());
+            for (Object o : list)
+                writeValue(out, o);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(Helper.UTF_CS);
+        writeUnsigned(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeSigned(DataOutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeUnsigned(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a response that was written with {@link #write}.
+     *
+     * @param turnDescription if true the text of the instructions is the turn description created by the server,
+     *                        otherwise only the street name, see {@link ResponsePathDeserializerHelper}
+     */
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC)
+            throw new IllegalArgumentException("Not a binary route response");
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported version of binary route response: " + version);
+        GHResponse ghRsp = new GHResponse();
+        Map<?, ?> hints = (Map<?, ?>) readValue(in);
+        for (Map.Entry<?, ?> e : hints.entrySet())
+            ghRsp.getHints().putObject(e.getKey().toString(), e.getValue());
+        int paths = (int) readUnsigned(in);
+        for (int i = 0; i < paths; i++) {
+            ResponsePath p = new ResponsePath();
+            p.setDistance(in.readDouble());
+            p.setRouteWeight(in.readDouble());
+            p.setTime(readUnsigned(in));
+            p.setNumChanges((int) readUnsigned(in));
+            List<String> description = new ArrayList<>();
+            for (Object o : (List<?>) readValue(in))
+                description.add(o.toString());
+            p.setDescription(description);
+            p.setWaypoints(readPoints(in));
+            if (in.readBoolean()) {
+                PointList points = readPoints(in);
+                p.setPoints(points);
+                p.setAscend(in.readDouble());
+                p.setDescend(in.readDouble());
+                if (in.readBoolean())
+                    p.setInstructions(readInstructions(in, points, turnDescription));
+                int detailCount = (int) readUnsigned(in);
+                Map<String, List<PathDetail>> details = new HashMap<>(detailCount);
+                for (int d = 0; d < detailCount; d++) {
+                    String key = readString(in);
+                    int size = (int) readUnsigned(in);
+                    List<PathDetail> list = new ArrayList<>(size);
+                    int prevLast = 0;
+                    for (int j = 0; j < size; j++) {
+                        int first = prevLast + (int) readSigned(in);
+                        int last = first + (int) readUnsigned(in);
+                        PathDetail pd = new PathDetail(readValue(in));
+                        pd.setFirst(first);
+                        pd.setLast(last);
+                        list.add(pd);
+                        prevLast = last;
+                    }
+                    details.put(key, list);
+                }
+                p.addPathDetails(details);
+            }
+            List<Integer> pointsOrder = new ArrayList<>(p.getWaypoints().size());
+            for (int j = 0; j < p.getWaypoints().size(); j++)
+                pointsOrder.add(j);
+            p.setPointsOrder(pointsOrder);
+            ghRsp.add(p);
+        }
+        return ghRsp;
+    }
+
+    private static InstructionList readInstructions(DataInputStream in, PointList points, boolean turnDescription) throws IOException {
+        int size = (int) readUnsigned(in);
+        InstructionList il = new InstructionList(size, null);
+        int viaCount = 1;
+        int from = 0;
+        for (int i = 0; i < size; i++) {
+            int sign = (int) readSigned(in);
+            String text = readString(in);
+            String name = readString(in);
+            double distance = in.readDouble();
+            long time = readUnsigned(in);
+            int to = from + (int) readUnsigned(in);
+            Map<?, ?> extras = (Map<?, ?>) readValue(in);
+            PointList instPL = new PointList(to - from + 1, points.is3D());
+            for (int j = from; j <= to; j++)
+                instPL.add(points, j);
+            from = to;
+
+            String instrName = turnDescription ? text : name;
+            Instruction instr;
+            if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+                RoundaboutInstruction ri = new RoundaboutInstruction(sign, instrName, instPL);
+                if (extras.get("exit_number") != null)
+                    ri.setExitNumber(((Number) extras.get("exit_number")).intValue());
+                if (Boolean.TRUE.equals(extras.get("exited")))
+                    ri.setExited();
+                if (extras.get("turn_angle") != null) {
+                    double angle = ((Number) extras.get("turn_angle")).doubleValue();
+                    ri.setDirOfRotation(angle);
+                    ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                }
+                instr = ri;
+            } else if (sign == Instruction.REACHED_VIA) {
+                ViaInstruction tmpInstr = new ViaInstruction(instrName, instPL);
+                tmpInstr.setViaCount(viaCount);
+                viaCount++;
+                instr = tmpInstr;
+            } else if (sign == Instruction.FINISH) {
+                instr = new FinishInstruction(instrName, instPL, 0);
+            } else {
+                instr = new Instruction(sign, instrName, instPL);
+                for (Map.Entry<?, ?> e : extras.entrySet())
+                    instr.setExtraInfo(e.getKey().toString(), e.getValue());
+            }
+            if (turnDescription)
+                instr.setUseRawName();
+            instr.setDistance(distance).setTime(time);
+            il.add(instr);
+        }
+        return il;
+    }
+
+    private static PointList readPoints(DataInputStream in) throws IOException {
+        boolean is3D = in.readBoolean();
+        int size = (int) readUnsigned(in);
+        PointList points = new PointList(size, is3D);
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < size; i++) {
+            lat += readSigned(in);
+            lon += readSigned(in);
+            if (is3D) {
+                ele += readSigned(in);
+                points.add(lat / MULTIPLIER, lon / MULTIPLIER, ele / 100.0);
+            } else {
+                points.add(lat / MULTIPLIER, lon / MULTIPLIER);
+            }
+        }
+        return points;
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_LONG:
+                return readSigned(in);
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_MAP:
+                int mapSize = (int) readUnsigned(in);
+                Map<String, Object> map = new LinkedHashMap<>(mapSize);
+                for (int i = 0; i < mapSize; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            case TYPE_LIST:
+                int listSize = (int) readUnsigned(in);
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++)
+                    list.add(readValue(in));
+                return list;
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readUnsigned(in)];
+        in.readFully(bytes);
+        return new String(bytes, Helper.UTF_CS);
+    }
+
+    private static long readSigned(DataInputStream in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readUnsigned(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+}
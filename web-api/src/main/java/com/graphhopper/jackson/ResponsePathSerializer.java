@@ -67,7 +67,10 @@ public class ResponsePathSerializer {
         return sb.toString();
     }
 
-    private static void encodeNumber(StringBuilder sb, int num) {
+    /**
+     * Appends the difference to the previous value of a polyline, see {@link #encodePolyline}.
+     */
+    public static void encodeNumber(StringBuilder sb, int num) {
         num = num << 1;
         if (num < 0) {
             num = ~num;
@@ -83,6 +83,7 @@ public class Parameters {
             public static final String DISTANCE = ROUND_TRIP + ".distance";
             public static final String SEED = ROUND_TRIP + ".seed";
             public static final String POINTS = ROUND_TRIP + ".points";
+            public static final String CANDIDATES = ROUND_TRIP + ".candidates";
             public static final String INIT_MAX_RETRIES = ROUTING_INIT_PREFIX + ROUND_TRIP + ".max_retries";
         }
     }
@@ -99,6 +100,28 @@ public class Parameters {
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
         public static final String TIMEOUT_MS = "timeout_ms";
         public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * number of threads shared by all requests to snap the points and calculate the legs of via-routes
+         * concurrently. the default of 1 disables this.
+         */
+        public static final String INIT_VIA_THREADS = ROUTING_INIT_PREFIX + "via_threads";
+        /**
+         * number of threads shared by all batch requests. the default of 1 calculates the routes of a batch in the
+         * request thread.
+         */
+        public static final String INIT_BATCH_THREADS = ROUTING_INIT_PREFIX + "batch_threads";
+        /**
+         * the maximum number of routing requests in a single batch
+         */
+        public static final String INIT_MAX_BATCH_REQUESTS = ROUTING_INIT_PREFIX + "max_batch_requests";
+        /**
+         * the maximum number of CH routes kept in the route cache. the default of 0 disables the cache.
+         */
+        public static final String INIT_CACHE_SIZE = ROUTING_INIT_PREFIX + "cache_size";
+        /**
+         * if true the response will contain the time spent in the different phases of the request
+         */
+        public static final String TIMINGS = "timings";
         /**
          * if true the response will contain turn instructions
          */
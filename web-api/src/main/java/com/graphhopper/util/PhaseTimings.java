@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the time spent in the different phases of a single routing request, like snapping the points, the
+ * search and the calculation of the instructions. The times of a phase that happens more than once, e.g. the search
+ * of every leg of a via-route, are summed up. This class is not thread-safe.
+ */
+public class PhaseTimings {
+    public static final String SNAPPING = "snapping";
+    public static final String QUERY_GRAPH = "query_graph";
+    public static final String SEARCH = "search";
+    public static final String PATH_EXTRACTION = "path_extraction";
+    /**
+     * the calculation of the points, instructions and path details, which happens in a single pass over the edges
+     * of the path, plus the simplification of the points
+     */
+    public static final String PATH_PROCESSING = "path_processing";
+    /**
+     * only measured if {@link #isDetailed()}, because it requires timing every edge of the path
+     */
+    public static final String INSTRUCTIONS = "instructions";
+    /**
+     * only measured if {@link #isDetailed()}, because it requires timing every edge of the path
+     */
+    public static final String DETAILS = "details";
+    public static final String SERIALIZATION = "serialization";
+
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+    private String mode = "";
+    private long visitedNodes;
+    private boolean detailed;
+
+    /**
+     * Adds the given time to the specified phase.
+     */
+    public PhaseTimings add(String phase, long nanos) {
+        this.nanos.merge(phase, Math.max(0, nanos), Long::sum);
+        return this;
+    }
+
+    /**
+     * @return the summed up time for the specified phase in nanoseconds or -1 if the phase was not measured
+     */
+    public long getNanos(String phase) {
+        return nanos.getOrDefault(phase, -1L);
+    }
+
+    /**
+     * @return the measured phases and their times in nanoseconds in the order they were added first
+     */
+    public Map<String, Long> getAll() {
+        return Collections.unmodifiableMap(nanos);
+    }
+
+    /**
+     * @return the measured phases and their times in milliseconds, which is meant for the debug output of a response
+     */
+    public Map<String, Object> toMillisMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mode", mode);
+        for (Map.Entry<String, Long> e : nanos.entrySet())
+            map.put(e.getKey(), Helper.round(e.getValue() / 1e6, 3));
+        map.put("visited_nodes", visitedNodes);
+        return map;
+    }
+
+    public boolean isEmpty() {
+        return nanos.isEmpty();
+    }
+
+    /**
+     * The kind of routing that was used for the request: "ch", "lm" or "flex".
+     */
+    public PhaseTimings setMode(String mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public PhaseTimings addVisitedNodes(long visitedNodes) {
+        this.visitedNodes += visitedNodes;
+        return this;
+    }
+
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * If true the phases that are expensive to measure are timed as well, see {@link #INSTRUCTIONS}.
+     */
+    public PhaseTimings setDetailed(boolean detailed) {
+        this.detailed = detailed;
+        return this;
+    }
+
+    public boolean isDetailed() {
+        return detailed;
+    }
+
+    @Override
+    public String toString() {
+        return toMillisMap().toString();
+    }
+}
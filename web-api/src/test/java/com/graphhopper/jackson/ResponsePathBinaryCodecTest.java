@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponsePathBinaryCodecTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        PointList points = Helper.createPointList3D(42.5093, 1.5274, 1000, 42.5101, 1.5281, 1010.5,
+                42.5112, 1.5305, 1020, 42.5126, 1.5410, 1005);
+        InstructionList il = new InstructionList(null);
+        Instruction first = new Instruction(Instruction.CONTINUE_ON_STREET, "Main Street", points.copy(0, 2));
+        first.setExtraInfo("heading", 45.5);
+        first.setExtraInfo("street_ref", "B1");
+        first.setDistance(120.5).setTime(12_000);
+        il.add(first);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "Ring", points.copy(2, 3));
+        roundabout.setExitNumber(2).setExited().setDirOfRotation(-0.5).setRadian(-Math.PI + 0.5);
+        roundabout.setDistance(80).setTime(9_000);
+        il.add(roundabout);
+        il.add(new FinishInstruction("Target", points.copy(3, 4), 0));
+        // there is no translation, so the turn descriptions are just the names
+        for (Instruction instruction : il)
+            instruction.setUseRawName();
+
+        ResponsePath path = new ResponsePath().setDistance(200.5).setRouteWeight(30.25).setTime(21_000).
+                setDescription(Arrays.asList("a", "b")).setPoints(points).
+                setWaypoints(Helper.createPointList3D(42.5093, 1.5274, 1000, 42.5126, 1.5410, 1005)).
+                setAscend(20.5).setDescend(15.5);
+        path.setInstructions(il);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("street_name", Arrays.asList(detail("Main Street", 0, 2), detail(null, 2, 3)));
+        details.put("max_speed", Arrays.asList(detail(50.0, 0, 1), detail(30.0, 1, 3)));
+        details.put("edge_id", Arrays.asList(detail(12L, 0, 1), detail(-1L, 1, 3)));
+        details.put("toll", Collections.singletonList(detail(false, 0, 3)));
+        path.addPathDetails(details);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().putObject("visited_nodes.sum", 47L);
+        rsp.getHints().putObject("visited_nodes.average", 47.0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathBinaryCodec.write(rsp, out, true, true, true);
+        GHResponse result = ResponsePathBinaryCodec.read(new ByteArrayInputStream(out.toByteArray()), true);
+
+        assertEquals(47L, result.getHints().getLong("visited_nodes.sum", 0));
+        assertEquals(47.0, result.getHints().getDouble("visited_nodes.average", 0));
+        ResponsePath resPath = result.getBest();
+        assertEquals(200.5, resPath.getDistance());
+        assertEquals(30.25, resPath.getRouteWeight());
+        assertEquals(21_000, resPath.getTime());
+        assertEquals(Arrays.asList("a", "b"), resPath.getDescription());
+        assertEquals(20.5, resPath.getAscend());
+        assertEquals(15.5, resPath.getDescend());
+        assertEquals(points, resPath.getPoints());
+        assertEquals(path.getWaypoints(), resPath.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), resPath.getPointsOrder());
+
+        InstructionList resIl = resPath.getInstructions();
+        assertEquals(3, resIl.size());
+        assertEquals("Main Street", resIl.get(0).getName());
+        // like for JSON the points of an instruction include the first point of the next one
+        assertEquals(points.copy(0, 3), resIl.get(0).getPoints());
+        assertEquals(45.5, resIl.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals("B1", resIl.get(0).getExtraInfoJSON().get("street_ref"));
+        assertEquals(120.5, resIl.get(0).getDistance());
+        assertEquals(12_000, resIl.get(0).getTime());
+        RoundaboutInstruction resRoundabout = (RoundaboutInstruction) resIl.get(1);
+        assertEquals(2, resRoundabout.getExitNumber());
+        assertTrue(resRoundabout.isExited());
+        assertEquals(roundabout.getExtraInfoJSON().get("turn_angle"), resRoundabout.getExtraInfoJSON().get("turn_angle"));
+        assertEquals(Instruction.FINISH, resIl.get(2).getSign());
+
+        assertEquals(details.size(), resPath.getPathDetails().size());
+        for (Map.Entry<String, List<PathDetail>> e : details.entrySet())
+            assertEquals(e.getValue().toString(), resPath.getPathDetails().get(e.getKey()).toString(), e.getKey());
+    }
+
+    @Test
+    public void testWithoutPointsAndElevation() throws IOException {
+        ResponsePath path = new ResponsePath().setDistance(100).setTime(10_000).
+                setPoints(Helper.createPointList3D(42.5093, 1.5274, 1000, 42.5126, 1.5410, 1005)).
+                setWaypoints(Helper.createPointList3D(42.5093, 1.5274, 1000, 42.5126, 1.5410, 1005));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathBinaryCodec.write(rsp, out, false, false, false);
+        ResponsePath resPath = ResponsePathBinaryCodec.read(new ByteArrayInputStream(out.toByteArray()), true).getBest();
+        assertEquals(100, resPath.getDistance());
+        assertTrue(resPath.getPoints().isEmpty());
+        assertFalse(resPath.getWaypoints().is3D());
+        assertEquals(Helper.createPointList(42.5093, 1.5274, 42.5126, 1.5410), resPath.getWaypoints());
+    }
+
+    @Test
+    public void testInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> ResponsePathBinaryCodec.read(new ByteArrayInputStream(
+                "{\"paths\":[]}".getBytes(Helper.UTF_CS)), true));
+    }
+
+    private static PathDetail detail(Object value, int first, int last) {
+        PathDetail pd = new PathDetail(value);
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+}
@@ -257,11 +257,19 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        GraphHopperConfig ghConfig = configuration.getGraphHopperConfiguration();
+        final MapMatchingJobs mapMatchingJobs = new MapMatchingJobs(
+                ghConfig.getInt("mapmatching.jobs.threads", Runtime.getRuntime().availableProcessors()),
+                ghConfig.getInt("mapmatching.jobs.max_traces", 100_000),
+                ghConfig.getInt("mapmatching.jobs.max_jobs", 100));
+        environment.lifecycle().manage(mapMatchingJobs);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
+                bind(new RouteMetrics(environment.metrics())).to(RouteMetrics.class);
+                bind(mapMatchingJobs).to(MapMatchingJobs.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
@@ -0,0 +1,47 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.util.PhaseTimings;
+
+import java.util.Map;
+
+/**
+ * Records the phase timings of the routing requests as histograms, which are available via the metrics endpoint of
+ * the admin connector, e.g. graphhopper.route.car.ch.search_us. There is one histogram per profile, kind of routing
+ * ("ch", "lm" or "flex") and phase. The times are recorded in microseconds.
+ */
+public class RouteMetrics {
+    public static final String PREFIX = "graphhopper.route";
+    private final MetricRegistry registry;
+
+    public RouteMetrics(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(String profile, PhaseTimings timings) {
+        // the request failed before the routing started
+        if (timings.getMode().isEmpty())
+            return;
+        String prefix = MetricRegistry.name(PREFIX, profile, timings.getMode());
+        for (Map.Entry<String, Long> e : timings.getAll().entrySet())
+            registry.histogram(MetricRegistry.name(prefix, e.getKey() + "_us")).update(e.getValue() / 1000);
+        registry.histogram(MetricRegistry.name(prefix, "visited_nodes")).update(timings.getVisitedNodes());
+    }
+}
@@ -8,6 +8,7 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.RasterContourBuilder;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
 
 import static com.graphhopper.resources.IsochroneResource.ResponseType.geojson;
@@ -66,6 +68,11 @@ public class IsochroneResource {
 
     public enum ResponseType {json, geojson}
 
+    public enum Mode {triangulation, raster}
+
+    // the maximum number of cells for mode=raster, the cells are enlarged for large isochrones
+    private static final int MAX_RASTER_CELLS = 1_000_000;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
@@ -79,6 +86,7 @@ public class IsochroneResource {
             @QueryParam("weight_limit") @DefaultValue("-1") OptionalLong weightLimit,
             @QueryParam("type") @DefaultValue("json") ResponseType respType,
             @QueryParam("tolerance") @DefaultValue("0") double toleranceInMeter,
+            @QueryParam("mode") @DefaultValue("triangulation") Mode mode,
             @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry) {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
@@ -103,7 +111,8 @@ public class IsochroneResource {
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
+        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraphWeighting, reverseFlow, traversalMode);
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
@@ -126,13 +135,22 @@ public class IsochroneResource {
             zs.add((i + 1) * delta);
         }
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        Function<Double, MultiPolygon> isolineBuilder;
+        if (mode == Mode.raster) {
+            // the tolerance is used as the size of the cells, the default is derived from the size of the isochrone
+            RasterContourBuilder rasterContourBuilder = RasterContourBuilder.create(snap.getClosestNode(), queryGraph,
+                    queryGraphWeighting, shortestPathTree, fz, degreesFromMeters(toleranceInMeter), MAX_RASTER_CELLS, 2);
+            isolineBuilder = rasterContourBuilder::computeIsoline;
+        } else {
+            Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+            ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
+            isolineBuilder = z -> contourBuilder.computeIsoline(z, result.seedEdges);
+        }
 
-        ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
         ArrayList<Geometry> isochrones = new ArrayList<>();
         for (Double z : zs) {
             logger.info("Building contour z={}", z);
-            MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
+            MultiPolygon isochrone = isolineBuilder.apply(z);
             if (fullGeometry) {
                 isochrones.add(isochrone);
             } else {
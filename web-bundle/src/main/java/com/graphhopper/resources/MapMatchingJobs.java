@@ -0,0 +1,333 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.StopWatch;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs bulk map matching jobs on a fixed pool of worker threads that is shared by all jobs. Every job is split into
+ * one task per worker (but not more than there are traces) and every task creates a single {@link MapMatching} that
+ * it reuses for all the traces it takes from the job, so the router and the weighting are only created once per job
+ * and the per-trace setup is limited to the matching itself.
+ * <p>
+ * Jobs that are not streamed are kept, so their results can be polled, until they are deleted or until they are
+ * evicted because too many jobs were submitted since they finished.
+ */
+public class MapMatchingJobs implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(MapMatchingJobs.class);
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final int maxTraces;
+    private final int maxJobs;
+    // keeps the insertion order, so the oldest jobs are evicted first
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    // the streamed jobs that are still running, they are guarded by the lock on jobs as well
+    private final Set<Job> streamedJobs = new HashSet<>();
+
+    /**
+     * @param threads   the number of worker threads shared by all jobs
+     * @param maxTraces the maximum number of traces of a single job
+     * @param maxJobs   the maximum number of jobs that are kept for polling plus the streamed jobs that are running
+     */
+    public MapMatchingJobs(int threads, int maxTraces, int maxJobs) {
+        if (threads < 1)
+            throw new IllegalArgumentException("mapmatching.jobs.threads must be positive, but was: " + threads);
+        this.threads = threads;
+        this.maxTraces = maxTraces;
+        this.maxJobs = maxJobs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mapmatching-job-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts matching the given traces and returns immediately. The job can be polled with {@link #get(String)} later.
+     *
+     * @param matchingFactory creates the {@link MapMatching} that is used by one worker for all its traces
+     * @param toJson          converts the result of a single trace, it is called by the worker threads
+     */
+    public Job submit(List<Trace> traces, Supplier<MapMatching> matchingFactory, Function<MatchResult, ObjectNode> toJson) {
+        checkTraces(traces.size());
+        Job job = new Job(UUID.randomUUID().toString(), traces.size(), true);
+        synchronized (jobs) {
+            checkCapacity();
+            // only register the job once it was started, otherwise it would never be done and block its slot forever
+            start(job, traces, matchingFactory, toJson, job::setResult);
+            jobs.put(job.getId(), job);
+        }
+        return job;
+    }
+
+    /**
+     * Starts matching the given traces like {@link #submit}, but the results are only passed to the given listener and
+     * are not kept, i.e. the job cannot be polled. The listener is called by the worker threads with the index of the
+     * trace and its result. Streamed jobs count against the maximum number of jobs until they are done.
+     */
+    public Job stream(List<Trace> traces, Supplier<MapMatching> matchingFactory, Function<MatchResult, ObjectNode> toJson,
+                      BiConsumer<Integer, ObjectNode> listener) {
+        checkTraces(traces.size());
+        Job job = new Job(UUID.randomUUID().toString(), traces.size(), false);
+        synchronized (jobs) {
+            checkCapacity();
+            start(job, traces, matchingFactory, toJson, listener);
+            streamedJobs.add(job);
+        }
+        job.done.whenComplete((r, ex) -> {
+            synchronized (jobs) {
+                streamedJobs.remove(job);
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Throws an IllegalArgumentException if a job with the given number of traces cannot be started right now. This
+     * can be used to reject a streamed job before the response is committed, {@link #submit} and {@link #stream}
+     * check this again.
+     */
+    public void check(int traces) {
+        checkTraces(traces);
+        synchronized (jobs) {
+            checkCapacity();
+        }
+    }
+
+    private void checkTraces(int traces) {
+        if (traces > maxTraces)
+            throw new IllegalArgumentException("Too many traces in map matching job: " + traces + ", the maximum is: " + maxTraces);
+    }
+
+    private void checkCapacity() {
+        evictFinishedJobs();
+        if (jobs.size() + streamedJobs.size() >= maxJobs)
+            throw new IllegalArgumentException("Too many map matching jobs are running, the maximum is: " + maxJobs);
+    }
+
+    /**
+     * @return the job with the given id or null if there is no such job (anymore)
+     */
+    public Job get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * Cancels the job with the given id and forgets about it. Traces that are already being matched are finished,
+     * but no further traces are started.
+     *
+     * @return the removed job or null if there is no such job
+     */
+    public Job remove(String id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.remove(id);
+        }
+        if (job != null)
+            job.cancel();
+        return job;
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<Job> iter = jobs.values().iterator();
+        while (jobs.size() + streamedJobs.size() >= maxJobs && iter.hasNext()) {
+            if (iter.next().isDone())
+                iter.remove();
+        }
+    }
+
+    private void start(Job job, List<Trace> traces, Supplier<MapMatching> matchingFactory,
+                       Function<MatchResult, ObjectNode> toJson, BiConsumer<Integer, ObjectNode> listener) {
+        if (traces.isEmpty()) {
+            job.done.complete(null);
+            return;
+        }
+        AtomicInteger nextTrace = new AtomicInteger();
+        AtomicInteger runningWorkers = new AtomicInteger(Math.min(threads, traces.size()));
+        StopWatch sw = new StopWatch().start();
+        for (int w = runningWorkers.get(); w > 0; w--) {
+            executor.execute(() -> {
+                try {
+                    MapMatching matching = matchingFactory.get();
+                    for (int index = nextTrace.getAndIncrement(); index < traces.size() && !job.isCancelled(); index = nextTrace.getAndIncrement()) {
+                        Trace trace = traces.get(index);
+                        ObjectNode result;
+                        try {
+                            result = toJson.apply(matching.match(trace.getObservations()));
+                        } catch (Exception ex) {
+                            job.errors.incrementAndGet();
+                            result = JsonNodeFactory.instance.objectNode();
+                            result.put("message", ex.getMessage() == null ? ex.toString() : ex.getMessage());
+                        }
+                        result.put("index", index);
+                        if (trace.getName() != null)
+                            result.put("name", trace.getName());
+                        listener.accept(index, result);
+                        job.finished.incrementAndGet();
+                    }
+                } catch (Exception ex) {
+                    // the listener failed, e.g. because a streaming client disconnected, so there is no point to go on
+                    job.cancel();
+                    job.done.completeExceptionally(ex);
+                } finally {
+                    if (runningWorkers.decrementAndGet() == 0) {
+                        logger.info("map matching job: " + job.getId() + ", traces: " + job.getTraces() + ", finished: " + job.getFinished()
+                                + ", errors: " + job.getErrors() + ", took: " + String.format("%.1f", sw.stop().getMillisDouble()) + " ms");
+                        job.done.complete(null);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public static class Trace {
+        private final String name;
+        private final List<Observation> observations;
+
+        /**
+         * @param name an optional name of the trace that is copied into its result, can be null
+         */
+        public Trace(String name, List<Observation> observations) {
+            this.name = name;
+            this.observations = observations;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Observation> getObservations() {
+            return observations;
+        }
+    }
+
+    public static class Job {
+        private final String id;
+        private final int traces;
+        private final AtomicInteger finished = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        // null for streamed jobs
+        private final ObjectNode[] results;
+        private volatile boolean cancelled;
+
+        Job(String id, int traces, boolean keepResults) {
+            this.id = id;
+            this.traces = traces;
+            this.results = keepResults ? new ObjectNode[traces] : null;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getTraces() {
+            return traces;
+        }
+
+        public int getFinished() {
+            return finished.get();
+        }
+
+        public int getErrors() {
+            return errors.get();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done.isDone();
+        }
+
+        /**
+         * @return a future that is completed as soon as all workers of this job are done
+         */
+        public CompletableFuture<Void> getDone() {
+            return done;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        private void setResult(int index, ObjectNode result) {
+            synchronized (results) {
+                results[index] = result;
+            }
+        }
+
+        /**
+         * @param withResults if true the results of the traces that are finished so far are included, in the order of
+         *                    the traces
+         */
+        public ObjectNode toJson(boolean withResults) {
+            ObjectNode json = JsonNodeFactory.instance.objectNode();
+            json.put("job_id", id);
+            json.put("status", cancelled ? "cancelled" : isDone() ? "finished" : "running");
+            json.put("traces", traces);
+            json.put("finished", getFinished());
+            json.put("errors", getErrors());
+            if (withResults && results != null) {
+                ArrayNode array = json.putArray("results");
+                synchronized (results) {
+                    for (ObjectNode result : results) {
+                        if (result != null)
+                            array.add(result);
+                    }
+                }
+            }
+            return json;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
@@ -34,6 +35,8 @@ import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.GHPoint3D;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,11 +44,12 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
-import javax.ws.rs.core.Context;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.*;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
@@ -70,17 +74,21 @@ public class MapMatchingResource {
     private final ProfileResolver profileResolver;
     private final TranslationMap trMap;
     private final MapMatchingRouterFactory mapMatchingRouterFactory;
+    private final MapMatchingJobs mapMatchingJobs;
     private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final XmlMapper xmlMapper = new XmlMapper();
     @Nullable
     private final String osmDate;
 
     @Inject
-    public MapMatchingResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap, MapMatchingRouterFactory mapMatchingRouterFactory) {
+    public MapMatchingResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap, MapMatchingRouterFactory mapMatchingRouterFactory,
+                               MapMatchingJobs mapMatchingJobs) {
         this.config = config;
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.trMap = trMap;
         this.mapMatchingRouterFactory = mapMatchingRouterFactory;
+        this.mapMatchingJobs = mapMatchingJobs;
         this.osmDate = graphHopper.getProperties().getAll().get("datareader.data.date");
     }
 
@@ -109,7 +117,7 @@ public class MapMatchingResource {
             throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
         }
         if (gpx.trk.size() > 1) {
-            throw new IllegalArgumentException("GPX documents with multiple tracks not supported yet.");
+            throw new IllegalArgumentException("GPX documents with multiple tracks are only supported by POST /match/jobs");
         }
 
         instructions = writeGPX || instructions;
@@ -147,47 +155,17 @@ public class MapMatchingResource {
                     build();
         } else {
             Translation tr = trMap.getWithFallBack(Helper.getLocale(localeStr));
-            RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker().setMaxDistance(minPathPrecision);
-            PathMerger pathMerger = new PathMerger(matchResult.getGraph(), matchResult.getWeighting()).
-                    setEnableInstructions(instructions).
-                    setPathDetailsBuilders(graphHopper.getPathDetailsBuilderFactory(), pathDetails).
-                    setRamerDouglasPeucker(simplifyAlgo).
-                    setSimplifyResponse(minPathPrecision > 0);
-            ResponsePath responsePath = pathMerger.doWork(PointList.EMPTY, Collections.singletonList(matchResult.getMergedPath()),
-                    graphHopper.getEncodingManager(), tr);
-
-            // GraphHopper thinks an empty path is an invalid path, and further that an invalid path is still a path but
-            // marked with a non-empty list of Exception objects. I disagree, so I clear it.
-            responsePath.getErrors().clear();
-            GHResponse rsp = new GHResponse();
-            rsp.add(responsePath);
-
             if (writeGPX) {
+                ResponsePath responsePath = createResponsePath(matchResult, tr, instructions, pathDetails, minPathPrecision);
                 long time = gpx.trk.get(0).getStartTime()
                         .map(Date::getTime)
                         .orElse(System.currentTimeMillis());
-                return Response.ok(GpxConversions.createGPX(rsp.getBest().getInstructions(), gpx.trk.get(0).name != null ? gpx.trk.get(0).name : "", time, enableElevation, withRoute, withTrack, false, Constants.VERSION, tr), "application/gpx+xml").
+                return Response.ok(GpxConversions.createGPX(responsePath.getInstructions(), gpx.trk.get(0).name != null ? gpx.trk.get(0).name : "", time, enableElevation, withRoute, withTrack, false, Constants.VERSION, tr), "application/gpx+xml").
                         header("X-GH-Took", "" + Math.round(sw.getMillisDouble())).
                         build();
             } else {
-                ObjectNode map = ResponsePathSerializer.jsonObject(rsp, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(sw.getMillisDouble()), osmDate), instructions,
-                        calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
-
-                Map<String, Object> matchStatistics = new HashMap<>();
-                matchStatistics.put("distance", matchResult.getMatchLength());
-                matchStatistics.put("time", matchResult.getMatchMillis());
-                matchStatistics.put("original_distance", matchResult.getGpxEntriesLength());
-                map.putPOJO("map_matching", matchStatistics);
-
-                if (enableTraversalKeys) {
-                    List<Integer> traversalKeylist = new ArrayList<>();
-                    for (EdgeMatch em : matchResult.getEdgeMatches()) {
-                        EdgeIteratorState edge = em.getEdgeState();
-                        // encode edges as traversal keys which includes orientation, decode simply by multiplying with 0.5
-                        traversalKeylist.add(edge.getEdgeKey());
-                    }
-                    map.putPOJO("traversal_keys", traversalKeylist);
-                }
+                ObjectNode map = createJson(matchResult, tr, Math.round(sw.getMillisDouble()), instructions, calcPoints, enableElevation,
+                        pointsEncoded, pointsEncodedMultiplier, pathDetails, minPathPrecision, enableTraversalKeys);
                 return Response.ok(map).
                         header("X-GH-Took", "" + Math.round(sw.getMillisDouble())).
                         build();
@@ -195,6 +173,252 @@ public class MapMatchingResource {
         }
     }
 
+    /**
+     * Matches many traces at once. The traces are either the tracks of a GPX document, the LineString features of a
+     * GeoJSON FeatureCollection or the lines of a CSV document with the columns id, lat and lon. They are matched
+     * concurrently by a pool of workers that is shared by all jobs, see {@link MapMatchingJobs}. By default this
+     * returns the id of the job immediately and the results can be polled with GET /match/jobs/{id}. With stream=true
+     * the results are instead streamed as newline delimited JSON in the order they are ready: one line per trace that
+     * contains the index of the trace plus either the usual map matching response or the error message.
+     */
+    @POST
+    @javax.ws.rs.Path("jobs")
+    @Consumes({MediaType.APPLICATION_XML, "application/gpx+xml", MediaType.APPLICATION_JSON, "application/geo+json", "text/csv"})
+    @Produces({MediaType.APPLICATION_JSON, RouteResource.NDJSON})
+    public Response submitJob(
+            @NotNull InputStream body,
+            @Context HttpHeaders headers,
+            @Context UriInfo uriInfo,
+            @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("0.5") double minPathPrecision,
+            @QueryParam(INSTRUCTIONS) @DefaultValue("false") boolean instructions,
+            @QueryParam(CALC_POINTS) @DefaultValue("true") boolean calcPoints,
+            @QueryParam("elevation") @DefaultValue("false") boolean enableElevation,
+            @QueryParam("points_encoded") @DefaultValue("true") boolean pointsEncoded,
+            @QueryParam("points_encoded_multiplier") @DefaultValue("1e5") double pointsEncodedMultiplier,
+            @QueryParam("locale") @DefaultValue("en") String localeStr,
+            @QueryParam("profile") String profile,
+            @QueryParam(PATH_DETAILS) List<String> pathDetails,
+            @QueryParam("traversal_keys") @DefaultValue("false") boolean enableTraversalKeys,
+            @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy,
+            @QueryParam("stream") @DefaultValue("false") boolean stream) {
+        List<MapMatchingJobs.Trace> traces = readTraces(body, headers.getMediaType());
+
+        PMap hints = new PMap();
+        RouteResource.initHints(hints, uriInfo.getQueryParameters());
+        hints.remove("stream");
+        PMap profileResolverHints = new PMap(hints);
+        profileResolverHints.putObject("profile", profile);
+        profileResolverHints.putObject(Parameters.CH.DISABLE, true);
+        profile = profileResolver.resolveProfile(profileResolverHints);
+        hints.putObject("profile", profile);
+        removeLegacyParameters(hints);
+
+        // the router (and its weighting) is shared by all traces of the job, only the MapMatching is created per worker
+        MapMatching.Router router = mapMatchingRouterFactory.createMapMatchingRouter(hints);
+        Supplier<MapMatching> matchingFactory = () -> {
+            MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), router);
+            matching.setMeasurementErrorSigma(gpsAccuracy);
+            return matching;
+        };
+        Translation tr = trMap.getWithFallBack(Helper.getLocale(localeStr));
+        Function<MatchResult, ObjectNode> toJson = matchResult -> {
+            ObjectNode json = createJson(matchResult, tr, 0, instructions, calcPoints, enableElevation, pointsEncoded,
+                    pointsEncodedMultiplier, pathDetails, minPathPrecision, enableTraversalKeys);
+            json.remove("info");
+            return json;
+        };
+
+        if (!stream) {
+            MapMatchingJobs.Job job = mapMatchingJobs.submit(traces, matchingFactory, toJson);
+            return Response.accepted(job.toJson(false)).
+                    location(uriInfo.getAbsolutePathBuilder().path(job.getId()).build()).
+                    build();
+        }
+        // reject the job while we can still respond with an error, the streaming output is only called after the
+        // status was sent
+        mapMatchingJobs.check(traces.size());
+        StreamingOutput out = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS));
+            MapMatchingJobs.Job job = mapMatchingJobs.stream(traces, matchingFactory, toJson, (index, result) -> {
+                // the traces are matched concurrently, so we have to make sure the lines do not mix
+                synchronized (writer) {
+                    try {
+                        writer.write(objectMapper.writeValueAsString(result));
+                        writer.write('\n');
+                        writer.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            });
+            try {
+                job.getDone().join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof UncheckedIOException)
+                    throw ((UncheckedIOException) ex.getCause()).getCause();
+                throw ex;
+            }
+            writer.flush();
+        };
+        return Response.ok(out).type(RouteResource.NDJSON).build();
+    }
+
+    /**
+     * Returns the status of a map matching job and the results of all its traces that are finished so far.
+     */
+    @GET
+    @javax.ws.rs.Path("jobs/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode getJob(@PathParam("id") String id, @QueryParam("results") @DefaultValue("true") boolean withResults) {
+        MapMatchingJobs.Job job = mapMatchingJobs.get(id);
+        if (job == null)
+            throw new NotFoundException("Map matching job not found: " + id);
+        return job.toJson(withResults);
+    }
+
+    /**
+     * Cancels a map matching job and discards its results.
+     */
+    @DELETE
+    @javax.ws.rs.Path("jobs/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode deleteJob(@PathParam("id") String id) {
+        MapMatchingJobs.Job job = mapMatchingJobs.remove(id);
+        if (job == null)
+            throw new NotFoundException("Map matching job not found: " + id);
+        return job.toJson(false);
+    }
+
+    private ResponsePath createResponsePath(MatchResult matchResult, Translation tr, boolean instructions, List<String> pathDetails, double minPathPrecision) {
+        RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker().setMaxDistance(minPathPrecision);
+        PathMerger pathMerger = new PathMerger(matchResult.getGraph(), matchResult.getWeighting()).
+                setEnableInstructions(instructions).
+                setPathDetailsBuilders(graphHopper.getPathDetailsBuilderFactory(), pathDetails).
+                setRamerDouglasPeucker(simplifyAlgo).
+                setSimplifyResponse(minPathPrecision > 0);
+        ResponsePath responsePath = pathMerger.doWork(PointList.EMPTY, Collections.singletonList(matchResult.getMergedPath()),
+                graphHopper.getEncodingManager(), tr);
+
+        // GraphHopper thinks an empty path is an invalid path, and further that an invalid path is still a path but
+        // marked with a non-empty list of Exception objects. I disagree, so I clear it.
+        responsePath.getErrors().clear();
+        return responsePath;
+    }
+
+    private ObjectNode createJson(MatchResult matchResult, Translation tr, long took, boolean instructions, boolean calcPoints,
+                                  boolean enableElevation, boolean pointsEncoded, double pointsEncodedMultiplier,
+                                  List<String> pathDetails, double minPathPrecision, boolean enableTraversalKeys) {
+        GHResponse rsp = new GHResponse();
+        rsp.add(createResponsePath(matchResult, tr, instructions, pathDetails, minPathPrecision));
+        ObjectNode map = ResponsePathSerializer.jsonObject(rsp, new ResponsePathSerializer.Info(config.getCopyrights(), took, osmDate), instructions,
+                calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
+
+        Map<String, Object> matchStatistics = new HashMap<>();
+        matchStatistics.put("distance", matchResult.getMatchLength());
+        matchStatistics.put("time", matchResult.getMatchMillis());
+        matchStatistics.put("original_distance", matchResult.getGpxEntriesLength());
+        map.putPOJO("map_matching", matchStatistics);
+
+        if (enableTraversalKeys) {
+            List<Integer> traversalKeylist = new ArrayList<>();
+            for (EdgeMatch em : matchResult.getEdgeMatches()) {
+                EdgeIteratorState edge = em.getEdgeState();
+                // encode edges as traversal keys which includes orientation, decode simply by multiplying with 0.5
+                traversalKeylist.add(edge.getEdgeKey());
+            }
+            map.putPOJO("traversal_keys", traversalKeylist);
+        }
+        return map;
+    }
+
+    private List<MapMatchingJobs.Trace> readTraces(InputStream body, MediaType mediaType) {
+        try {
+            if (mediaType != null && "csv".equals(mediaType.getSubtype()))
+                return readCSVTraces(new BufferedReader(new InputStreamReader(body, Helper.UTF_CS)));
+            if (mediaType != null && mediaType.getSubtype().endsWith("json"))
+                return readGeoJsonTraces(objectMapper.readTree(body));
+            Gpx gpx = xmlMapper.readValue(body, Gpx.class);
+            List<MapMatchingJobs.Trace> traces = new ArrayList<>(gpx.trk.size());
+            for (Gpx.Trk trk : gpx.trk) {
+                traces.add(new MapMatchingJobs.Trace(trk.name, GpxConversions.getEntries(trk)));
+            }
+            if (traces.isEmpty())
+                throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
+            return traces;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not read the traces: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Reads a GeoJSON FeatureCollection, a single Feature or a single geometry. Every LineString or MultiPoint
+     * geometry is a trace, which is named by the id or the name property of its feature.
+     */
+    static List<MapMatchingJobs.Trace> readGeoJsonTraces(JsonNode json) {
+        List<MapMatchingJobs.Trace> traces = new ArrayList<>();
+        if ("FeatureCollection".equals(json.path("type").asText())) {
+            for (JsonNode feature : json.path("features"))
+                traces.add(readGeoJsonFeature(feature));
+        } else if ("Feature".equals(json.path("type").asText())) {
+            traces.add(readGeoJsonFeature(json));
+        } else {
+            traces.add(new MapMatchingJobs.Trace(null, readGeoJsonGeometry(json)));
+        }
+        if (traces.isEmpty())
+            throw new IllegalArgumentException("No features found in GeoJSON document");
+        return traces;
+    }
+
+    private static MapMatchingJobs.Trace readGeoJsonFeature(JsonNode feature) {
+        String name = feature.hasNonNull("id") ? feature.get("id").asText() : feature.path("properties").path("name").asText(null);
+        return new MapMatchingJobs.Trace(name, readGeoJsonGeometry(feature.path("geometry")));
+    }
+
+    private static List<Observation> readGeoJsonGeometry(JsonNode geometry) {
+        String type = geometry.path("type").asText();
+        if (!"LineString".equals(type) && !"MultiPoint".equals(type))
+            throw new IllegalArgumentException("Traces have to be LineString or MultiPoint geometries, but was: '" + type + "'");
+        List<Observation> observations = new ArrayList<>(geometry.path("coordinates").size());
+        for (JsonNode coordinate : geometry.path("coordinates")) {
+            // GeoJSON uses lon,lat order
+            observations.add(new Observation(coordinate.size() > 2
+                    ? new GHPoint3D(coordinate.get(1).asDouble(), coordinate.get(0).asDouble(), coordinate.get(2).asDouble())
+                    : new GHPoint(coordinate.get(1).asDouble(), coordinate.get(0).asDouble())));
+        }
+        return observations;
+    }
+
+    /**
+     * Reads lines with the columns id, lat and lon. The lines of a trace do not need to be consecutive, but their
+     * order determines the order of the observations. An optional header line and empty lines are skipped.
+     */
+    static List<MapMatchingJobs.Trace> readCSVTraces(BufferedReader reader) throws IOException {
+        Map<String, List<Observation>> observationsById = new LinkedHashMap<>();
+        String line;
+        for (int lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+            if (line.trim().isEmpty())
+                continue;
+            String[] columns = line.split(",");
+            if (columns.length < 3)
+                throw new IllegalArgumentException("Line " + lineNumber + " needs the columns id, lat and lon: '" + line + "'");
+            double lat, lon;
+            try {
+                lat = Double.parseDouble(columns[1].trim());
+                lon = Double.parseDouble(columns[2].trim());
+            } catch (NumberFormatException ex) {
+                if (lineNumber == 1)
+                    continue; // header
+                throw new IllegalArgumentException("Line " + lineNumber + " contains an invalid coordinate: '" + line + "'");
+            }
+            observationsById.computeIfAbsent(columns[0].trim(), id -> new ArrayList<>()).add(new Observation(new GHPoint(lat, lon)));
+        }
+        if (observationsById.isEmpty())
+            throw new IllegalArgumentException("No traces found in CSV document");
+        List<MapMatchingJobs.Trace> traces = new ArrayList<>(observationsById.size());
+        observationsById.forEach((id, observations) -> traces.add(new MapMatchingJobs.Trace(id, observations)));
+        return traces;
+    }
+
     public static JsonNode convertToTree(MatchResult result, boolean elevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
         ObjectNode root = JsonNodeFactory.instance.objectNode();
         ObjectNode diary = root.putObject("diary");
@@ -18,6 +18,8 @@
 
 package com.graphhopper.resources;
 
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
 import com.conveyal.gtfs.model.Stop;
 import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.gtfs.*;
@@ -35,9 +37,12 @@ import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.JsonFeature;
 import com.graphhopper.util.shapes.BBox;
@@ -109,25 +114,13 @@ public class PtIsochroneResource {
         DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, encodingManager.getBooleanEncodedValue(Subnetwork.key("foot")));
 
         PtLocationSnapper.Result snapResult = new PtLocationSnapper(baseGraph, locationIndex, gtfsStorage).snapAll(Arrays.asList(location), Arrays.asList(snapFilter));
-        GraphExplorer graphExplorer = new GraphExplorer(snapResult.queryGraph, gtfsStorage.getPtGraph(), weighting, gtfsStorage, RealtimeFeed.empty(), reverseFlow, false, false, 5.0, reverseFlow, blockedRouteTypes);
-        MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, reverseFlow, false, false, 0, Collections.emptyList());
-
-        Map<Coordinate, Double> z1 = new HashMap<>();
         NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
-
-        for (Label label : router.calcLabels(snapResult.nodes.get(0), initialTime)) {
-            if (!((label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1) <= targetZ)) {
-                break;
-            }
-            if (label.node.streetNode != -1) {
-                Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(label.node.streetNode), nodeAccess.getLat(label.node.streetNode));
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
-            } else if (label.edge != null && (label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT || label.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
-                GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
-                Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
-                Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
-            }
+        StationTravelTimeTable table = gtfsStorage.getStationTravelTimeTable();
+        Map<Coordinate, Double> z1;
+        if (table != null && !reverseFlow && blockedRouteTypes == 0 && targetZ <= table.getMaxTravelTimeMillis() && table.covers(initialTime)) {
+            z1 = calcTravelTimesFromTable(table, snapResult, weighting, initialTime.toEpochMilli(), (long) targetZ);
+        } else {
+            z1 = calcTravelTimes(snapResult, weighting, initialTime, targetZ, reverseFlow, blockedRouteTypes);
         }
 
         if (format.equals("multipoint")) {
@@ -208,6 +201,98 @@ public class PtIsochroneResource {
 
     }
 
+    private Map<Coordinate, Double> calcTravelTimes(PtLocationSnapper.Result snapResult, Weighting weighting, Instant initialTime, double targetZ, boolean reverseFlow, int blockedRouteTypes) {
+        GraphExplorer graphExplorer = new GraphExplorer(snapResult.queryGraph, gtfsStorage.getPtGraph(), weighting, gtfsStorage, RealtimeFeed.empty(), reverseFlow, false, false, 5.0, reverseFlow, blockedRouteTypes);
+        MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, reverseFlow, false, false, 0, Collections.emptyList());
+
+        Map<Coordinate, Double> z1 = new HashMap<>();
+        NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
+
+        for (Label label : router.calcLabels(snapResult.nodes.get(0), initialTime)) {
+            if (!((label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1) <= targetZ)) {
+                break;
+            }
+            if (label.node.streetNode != -1) {
+                Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(label.node.streetNode), nodeAccess.getLat(label.node.streetNode));
+                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+            } else if (label.edge != null && (label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT || label.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
+                GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
+                Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
+                Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
+                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+            }
+        }
+        return z1;
+    }
+
+    /**
+     * Answers the isochrone from the precomputed station travel times: we walk from the start to all stations within
+     * reach, look up the earliest arrivals at all other stations and then walk from there (and from the start).
+     */
+    private Map<Coordinate, Double> calcTravelTimesFromTable(StationTravelTimeTable table, PtLocationSnapper.Result snapResult, Weighting weighting, long initialTime, long targetZ) {
+        Label.NodeId start = snapResult.nodes.get(0);
+        IntLongHashMap walkSources = new IntLongHashMap();
+        if (start.streetNode != -1)
+            walkSources.put(start.streetNode, initialTime);
+        IntLongHashMap access = walk(snapResult.queryGraph, weighting, walkSources, initialTime + targetZ);
+
+        IntLongHashMap stationArrivals = new IntLongHashMap();
+        if (start.ptNode != -1 && table.isStation(start.ptNode))
+            stationArrivals.put(start.ptNode, initialTime);
+        for (IntLongCursor c : access) {
+            int ptNode = gtfsStorage.getStreetToPt().getOrDefault(c.key, -1);
+            if (ptNode != -1 && table.isStation(ptNode) && c.value < stationArrivals.getOrDefault(ptNode, Long.MAX_VALUE))
+                stationArrivals.put(ptNode, c.value);
+        }
+
+        Map<Coordinate, Double> z1 = new HashMap<>();
+        for (IntLongCursor c : table.calcEarliestArrivals(stationArrivals)) {
+            if (c.value - initialTime > targetZ)
+                continue;
+            GtfsStorage.FeedIdWithStopId stationId = table.getStationId(c.key);
+            Stop stop = gtfsStorage.getGtfsFeeds().get(stationId.feedId).stops.get(stationId.stopId);
+            z1.merge(new Coordinate(stop.stop_lon, stop.stop_lat), (double) (c.value - initialTime), Math::min);
+            int streetNode = gtfsStorage.getPtToStreet().getOrDefault(c.key, -1);
+            if (streetNode != -1 && c.value < walkSources.getOrDefault(streetNode, Long.MAX_VALUE))
+                walkSources.put(streetNode, c.value);
+        }
+
+        NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
+        for (IntLongCursor c : walk(snapResult.queryGraph, weighting, walkSources, initialTime + targetZ)) {
+            z1.merge(new Coordinate(nodeAccess.getLon(c.key), nodeAccess.getLat(c.key)), (double) (c.value - initialTime), Math::min);
+        }
+        return z1;
+    }
+
+    /**
+     * Walks from all the given street nodes, each one starting at the given time, and returns the earliest arrival at
+     * every street node until the given time limit.
+     */
+    private static IntLongHashMap walk(Graph graph, Weighting weighting, IntLongHashMap sources, long maxTime) {
+        IntLongHashMap arrivals = new IntLongHashMap(sources);
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(e -> e[1]));
+        for (IntLongCursor c : sources)
+            queue.add(new long[]{c.key, c.value});
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[0];
+            if (entry[1] > arrivals.get(node))
+                continue;
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!Double.isFinite(weighting.calcEdgeWeight(iter, false)))
+                    continue;
+                long arrival = entry[1] + weighting.calcEdgeMillis(iter, false);
+                if (arrival <= maxTime && arrival < arrivals.getOrDefault(iter.getAdjNode(), Long.MAX_VALUE)) {
+                    arrivals.put(iter.getAdjNode(), arrival);
+                    queue.add(new long[]{iter.getAdjNode(), arrival});
+                }
+            }
+        }
+        return arrivals;
+    }
+
     private Response wrap(Geometry isoline) {
         JsonFeature feature = new JsonFeature();
         feature.setGeometry(isoline);
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
@@ -25,7 +27,10 @@ import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.http.RouteMetrics;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathBinaryCodec;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
@@ -40,8 +45,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
+import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -58,22 +66,28 @@ import static java.util.stream.Collectors.toList;
 public class RouteResource {
 
     private static final Logger logger = LoggerFactory.getLogger(RouteResource.class);
+    static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
 
     private final GraphHopperConfig config;
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final GHRequestTransformer ghRequestTransformer;
     private final Boolean hasElevation;
+    private final RouteMetrics routeMetrics;
     @Nullable
     private final String osmDate;
 
     @Inject
-    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer,
+                         @Named("hasElevation") Boolean hasElevation, RouteMetrics routeMetrics) {
         this.config = config;
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.ghRequestTransformer = ghRequestTransformer;
         this.hasElevation = hasElevation;
+        this.routeMetrics = routeMetrics;
         this.osmDate = graphHopper.getProperties().getAll().get("datareader.data.date");
     }
 
@@ -147,6 +161,7 @@ public class RouteResource {
 
         if (ghResponse.hasErrors()) {
             logger.info(logStr + " " + ghResponse);
+            routeMetrics.record(profileName, ghResponse.getTimings());
             return Response.status(Response.Status.BAD_REQUEST).
                     entity(new MultiException(ghResponse.getErrors())).
                     type(writeGPX ? "application/gpx+xml" : MediaType.APPLICATION_JSON).
@@ -158,15 +173,22 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return writeGPX ?
-                    gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
-                            header("X-GH-Took", "" + Math.round(took)).
-                            build()
-                    :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
-                            header("X-GH-Took", "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
-                            build();
+            if (writeGPX) {
+                StopWatch serializationSW = new StopWatch().start();
+                Response.ResponseBuilder builder = gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION);
+                ghResponse.getTimings().add(PhaseTimings.SERIALIZATION, serializationSW.stop().getNanos());
+                routeMetrics.record(profileName, ghResponse.getTimings());
+                return builder.
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
+            }
+            StopWatch serializationSW = new StopWatch().start();
+            ObjectNode json = ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
+            addTimings(json, request, ghResponse, serializationSW);
+            return Response.ok(json).
+                    header("X-GH-Took", "" + Math.round(took)).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
         }
     }
 
@@ -175,6 +197,149 @@ public class RouteResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
         StopWatch sw = new StopWatch().start();
+        request = prepareRequest(request);
+
+        GHResponse ghResponse = graphHopper.route(request);
+        double took = sw.stop().getMillisDouble();
+        String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
+        String logStr = infoStr + " " + request.getPoints().size() + ", took: "
+                + String.format("%.1f", took) + " ms, algo: " + request.getAlgorithm() + ", profile: " + request.getProfile()
+                + ", custom_model: " + request.getCustomModel();
+
+        if (ghResponse.hasErrors()) {
+            routeMetrics.record(request.getProfile(), ghResponse.getTimings());
+            throw new MultiException(ghResponse.getErrors());
+        } else {
+            logPostSuccess(logStr, ghResponse);
+            StopWatch serializationSW = new StopWatch().start();
+            ObjectNode json = jsonObject(request, ghResponse, Math.round(took));
+            addTimings(json, request, ghResponse, serializationSW);
+            return Response.ok(json).
+                    header("X-GH-Took", "" + Math.round(took)).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
+        }
+    }
+
+    /**
+     * Same as {@link #doPost} but returns the routes in the compact binary format of {@link ResponsePathBinaryCodec},
+     * which is selected via the Accept header. It is meant for calls between services, where encoding and decoding
+     * large JSON responses is expensive. Errors are still returned as JSON.
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    // the lower quality makes sure that clients accepting any media type still get JSON
+    @Produces(ResponsePathBinaryCodec.MEDIA_TYPE + ";qs=0.5")
+    public Response doPostBinary(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        GHResponse ghResponse;
+        try {
+            request = prepareRequest(request);
+            ghResponse = graphHopper.route(request);
+        } catch (IllegalArgumentException ex) {
+            logger.info("bad request: " + ex.getMessage(), ex);
+            ghResponse = new GHResponse().addError(ex);
+        }
+        double took = sw.stop().getMillisDouble();
+        String logStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " " + request.getPoints().size() + ", took: " + String.format("%.1f", took) + " ms, binary, algo: "
+                + request.getAlgorithm() + ", profile: " + request.getProfile() + ", custom_model: " + request.getCustomModel();
+
+        if (ghResponse.hasErrors()) {
+            logger.info(logStr + " " + ghResponse);
+            routeMetrics.record(request.getProfile(), ghResponse.getTimings());
+            // we cannot rely on the exception mappers here, because there is no writer for the binary media type
+            return Response.status(Response.Status.BAD_REQUEST).
+                    entity(new MultiException(ghResponse.getErrors())).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
+        }
+        logPostSuccess(logStr, ghResponse);
+        boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
+        boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
+        boolean enableElevation = request.getHints().getBool("elevation", false);
+        GHRequest finalRequest = request;
+        GHResponse finalResponse = ghResponse;
+        StreamingOutput out = output -> {
+            StopWatch serializationSW = new StopWatch().start();
+            ResponsePathBinaryCodec.write(finalResponse, output, instructions, calcPoints, enableElevation);
+            finalResponse.getTimings().add(PhaseTimings.SERIALIZATION, serializationSW.stop().getNanos());
+            routeMetrics.record(finalRequest.getProfile(), finalResponse.getTimings());
+        };
+        return Response.ok(out).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(ResponsePathBinaryCodec.MEDIA_TYPE).
+                build();
+    }
+
+    private static void logPostSuccess(String logStr, GHResponse ghResponse) {
+        logger.info(logStr + ", alternatives: " + ghResponse.getAll().size()
+                + ", distance0: " + ghResponse.getBest().getDistance()
+                + ", weight0: " + ghResponse.getBest().getRouteWeight()
+                + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
+                + ", points0: " + ghResponse.getBest().getPoints().size()
+                + ", debugInfo: " + ghResponse.getDebugInfo());
+    }
+
+    /**
+     * Calculates the routes for many requests at once. The body is a JSON array of requests in the same format as for
+     * POST /route. The response is streamed as newline delimited JSON: one line per request, in the order the routes
+     * are ready, and each line contains the index of its request plus either the usual route response or the error.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, NDJSON})
+    public Response doPostBatch(@NotNull List<GHRequest> requests, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        int maxBatchRequests = graphHopper.getRouterConfig().getMaxBatchRequests();
+        if (requests.size() > maxBatchRequests)
+            throw new IllegalArgumentException("Too many requests in batch: " + requests.size() + ", the maximum is: " + maxBatchRequests);
+        List<GHRequest> preparedRequests = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                preparedRequests.add(prepareRequest(requests.get(i)));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Request " + i + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        StreamingOutput out = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS));
+            AtomicInteger errors = new AtomicInteger();
+            graphHopper.routeBatch(preparedRequests, (ghResponse, index) -> {
+                ObjectNode entry = objectMapper.createObjectNode();
+                entry.put("index", index);
+                if (ghResponse.hasErrors()) {
+                    errors.incrementAndGet();
+                    entry.setAll((ObjectNode) objectMapper.valueToTree(new MultiException(ghResponse.getErrors())));
+                    routeMetrics.record(preparedRequests.get(index).getProfile(), ghResponse.getTimings());
+                } else {
+                    StopWatch serializationSW = new StopWatch().start();
+                    ObjectNode json = jsonObject(preparedRequests.get(index), ghResponse, Math.round(sw.getCurrentSeconds() * 1000));
+                    addTimings(json, preparedRequests.get(index), ghResponse, serializationSW);
+                    entry.setAll(json);
+                }
+                // the routes of a batch are calculated concurrently, so we have to make sure the lines do not mix
+                synchronized (writer) {
+                    try {
+                        writer.write(objectMapper.writeValueAsString(entry));
+                        writer.write('\n');
+                        writer.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            });
+            writer.flush();
+            logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                    + " batch: " + preparedRequests.size() + ", errors: " + errors.get()
+                    + ", took: " + String.format("%.1f", sw.stop().getMillisDouble()) + " ms");
+        };
+        return Response.ok(out).type(NDJSON).build();
+    }
+
+    private GHRequest prepareRequest(GHRequest request) {
         request = ghRequestTransformer.transformRequest(request);
 
         if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
@@ -186,34 +351,29 @@ public class RouteResource {
         profileResolverHints.putObject("has_curbsides", !request.getCurbsides().isEmpty());
         request.setProfile(profileResolver.resolveProfile(profileResolverHints));
         removeLegacyParameters(request.getHints());
+        return request;
+    }
 
-        GHResponse ghResponse = graphHopper.route(request);
+    private ObjectNode jsonObject(GHRequest request, GHResponse ghResponse, long took) {
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
         boolean pointsEncoded = request.getHints().getBool("points_encoded", true);
         double pointsEncodedMultiplier = request.getHints().getDouble("points_encoded_multiplier", 1e5);
+        return ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), took, osmDate),
+                instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
+    }
 
-        double took = sw.stop().getMillisDouble();
-        String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
-        String logStr = infoStr + " " + request.getPoints().size() + ", took: "
-                + String.format("%.1f", took) + " ms, algo: " + request.getAlgorithm() + ", profile: " + request.getProfile()
-                + ", custom_model: " + request.getCustomModel();
-
-        if (ghResponse.hasErrors()) {
-            throw new MultiException(ghResponse.getErrors());
-        } else {
-            logger.info(logStr + ", alternatives: " + ghResponse.getAll().size()
-                    + ", distance0: " + ghResponse.getBest().getDistance()
-                    + ", weight0: " + ghResponse.getBest().getRouteWeight()
-                    + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
-                    + ", points0: " + ghResponse.getBest().getPoints().size()
-                    + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
-                    header("X-GH-Took", "" + Math.round(took)).
-                    type(MediaType.APPLICATION_JSON).
-                    build();
-        }
+    /**
+     * Records the timings of the request including the serialization, which was started with the given stop watch,
+     * and adds them to the response if the request asked for them.
+     */
+    private void addTimings(ObjectNode json, GHRequest request, GHResponse ghResponse, StopWatch serializationSW) {
+        PhaseTimings timings = ghResponse.getTimings();
+        timings.add(PhaseTimings.SERIALIZATION, serializationSW.stop().getNanos());
+        routeMetrics.record(request.getProfile(), timings);
+        if (request.getHints().getBool(TIMINGS, false))
+            json.putPOJO("timings", timings.toMillisMap());
     }
 
     public static void removeLegacyParameters(PMap hints) {
@@ -27,9 +27,15 @@ import com.graphhopper.matching.MapMatching;
 import com.graphhopper.matching.MatchResult;
 import com.graphhopper.matching.State;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.FetchMode;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.PointList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +43,7 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.graphhopper.application.MapMatchingTest.fetchStreets;
 import static org.junit.jupiter.api.Assertions.*;
@@ -127,6 +134,48 @@ public class MapMatching2Test {
         assertEquals(0, mr.getMatchMillis(), 50);
     }
 
+    @Test
+    public void testCandidatesForSparseTrace() {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.setPreciseIndexResolution(50);
+        hopper.importOrLoad();
+        // only a few small tiles are searched around a point, the candidate search must still find far away roads
+        ((LocationIndexTree) hopper.getLocationIndex()).setMaxRegionSearch(1);
+
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, hints);
+        mapMatching.setMeasurementErrorSigma(10);
+
+        // roughly 300m south of all roads, so the search box has to grow many times
+        double queryLat = 41.0064, queryLon = 29.0910;
+        List<Snap> snaps = mapMatching.findCandidateSnaps(queryLat, queryLon);
+        assertFalse(snaps.isEmpty());
+        assertTrue(snaps.get(0).getQueryDistance() > 250, "closest candidate is too close: " + snaps.get(0).getQueryDistance());
+
+        // no point of an accepted edge is closer than the closest candidate
+        EdgeFilter snapFilter = MapMatching.routerFromGraphHopper(hopper, hints).getSnapFilter();
+        double minPointDist = Double.MAX_VALUE;
+        AllEdgesIterator iter = hopper.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            if (!snapFilter.accept(iter))
+                continue;
+            PointList points = iter.fetchWayGeometry(FetchMode.ALL);
+            for (int i = 0; i < points.size(); i++) {
+                minPointDist = Math.min(minPointDist, DistanceCalcEarth.DIST_EARTH.calcDist(queryLat, queryLon, points.getLat(i), points.getLon(i)));
+            }
+        }
+        assertTrue(snaps.get(0).getQueryDistance() <= minPointDist + 0.1,
+                "closest candidate " + snaps.get(0).getQueryDistance() + " is farther away than " + minPointDist);
+        for (Snap snap : snaps) {
+            assertEquals(DistanceCalcEarth.DIST_EARTH.calcDist(queryLat, queryLon, snap.getSnappedPoint().lat, snap.getSnappedPoint().lon),
+                    snap.getQueryDistance(), 1);
+        }
+    }
+
     private void validateEdgeMatch(EdgeMatch edgeMatch) {
         for (State state : edgeMatch.getStates()) {
             if (state.getSnap().getSnappedPosition() == Snap.Position.TOWER) {
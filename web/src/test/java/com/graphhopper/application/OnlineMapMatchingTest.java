@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.*;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OnlineMapMatchingTest {
+    private static final String GH_LOCATION = "../target/onlinemapmatchingtest-gh";
+    private static GraphHopper hopper;
+    private final XmlMapper xmlMapper = new XmlMapper();
+
+    @BeforeAll
+    public static void setup() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        hopper.importOrLoad();
+    }
+
+    @AfterAll
+    public static void after() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = null;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1000,true", "3,false", "0,false"})
+    public void testIssue13(int lag, boolean sameAsBatch) throws IOException {
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        List<Observation> observations = GpxConversions.getEntries(gpx.trk.get(0));
+        MatchResult mr = MapMatching.fromGraphHopper(hopper, hints).match(observations);
+
+        OnlineMapMatching onlineMapMatching = OnlineMapMatching.fromGraphHopper(hopper, hints);
+        onlineMapMatching.setLag(lag);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (int i = 0; i < observations.size(); i++) {
+            List<EdgeMatch> fixed = onlineMapMatching.add(observations.get(i));
+            // with a large lag nothing is fixed until the trace is finished
+            if (lag >= observations.size())
+                assertTrue(fixed.isEmpty());
+            edgeMatches.addAll(fixed);
+        }
+        edgeMatches.addAll(onlineMapMatching.finish());
+        if (lag == 0)
+            // edge matches are returned while the observations arrive
+            assertTrue(edgeMatches.size() > 1);
+
+        int edgeCount = hopper.getBaseGraph().getEdges();
+        for (int i = 0; i < edgeMatches.size(); i++) {
+            EdgeIteratorState edge = edgeMatches.get(i).getEdgeState();
+            assertTrue(edge.getEdge() < edgeCount, "result contains virtual edges:" + edge);
+            if (i > 0)
+                assertEquals(edgeMatches.get(i - 1).getEdgeState().getAdjNode(), edge.getBaseNode(), "edge matches are not connected");
+        }
+        double length = edgeMatches.stream().mapToDouble(em -> em.getEdgeState().getDistance()).sum();
+        double batchLength = mr.getEdgeMatches().stream().mapToDouble(em -> em.getEdgeState().getDistance()).sum();
+        if (sameAsBatch) {
+            assertEquals(toString(mr.getEdgeMatches()), toString(edgeMatches));
+            assertEquals(
+                    mr.getEdgeMatches().stream().mapToInt(em -> em.getStates().size()).sum(),
+                    edgeMatches.stream().mapToInt(em -> em.getStates().size()).sum());
+        } else {
+            assertEquals(batchLength, length, 0.2 * batchLength);
+        }
+    }
+
+    private static List<String> toString(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().map(em -> em.getEdgeState().getBaseNode() + "-" + em.getEdgeState().getAdjNode())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MapMatchingJobsResourceTest {
+
+    private static final String DIR = "./target/mapmatchingjobstest-gh/";
+    public static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static List<Gpx.Trkpt> points;
+    private static double expectedDistance;
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../map-matching/files/map-issue13.osm.gz").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                putObject("graph.encoded_values", "car_access, car_average_speed").
+                putObject("mapmatching.jobs.threads", 2).
+                putObject("mapmatching.jobs.max_traces", 3).
+                putObject("mapmatching.jobs.max_jobs", 3).
+                setProfiles(List.of(TestProfiles.accessAndSpeed("car")));
+        return config;
+    }
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(MapMatchingJobsResourceTest.class.getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        points = gpx.trk.get(0).trkseg.get(0).trkpt;
+        JsonNode json = clientTarget(app, "/match?profile=car").request()
+                .post(Entity.xml(MapMatchingJobsResourceTest.class.getResourceAsStream("/issue-13.gpx")), JsonNode.class);
+        expectedDistance = json.get("map_matching").get("distance").asDouble();
+        assertTrue(expectedDistance > 0);
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testGPXJob() throws InterruptedException {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><gpx>");
+        for (String name : List.of("first", "second")) {
+            sb.append("<trk><name>").append(name).append("</name><trkseg>");
+            for (Gpx.Trkpt p : points)
+                sb.append("<trkpt lat=\"").append(p.lat).append("\" lon=\"").append(p.lon).append("\"/>");
+            sb.append("</trkseg></trk>");
+        }
+        sb.append("</gpx>");
+        Response response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity(sb.toString(), "application/gpx+xml"));
+        assertEquals(202, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(2, json.get("traces").asInt());
+        String jobId = json.get("job_id").asText();
+        assertTrue(response.getLocation().getPath().endsWith("/match/jobs/" + jobId));
+
+        JsonNode job = waitForJob(jobId);
+        assertEquals("finished", job.get("status").asText());
+        assertEquals(2, job.get("finished").asInt());
+        assertEquals(0, job.get("errors").asInt());
+        JsonNode results = job.get("results");
+        assertEquals(2, results.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+            assertEquals(expectedDistance, results.get(i).get("map_matching").get("distance").asDouble(), 1.e-3);
+            assertEquals(expectedDistance, results.get(i).get("paths").get(0).get("distance").asDouble(), 1);
+        }
+        assertEquals("first", results.get(0).get("name").asText());
+        assertEquals("second", results.get(1).get("name").asText());
+
+        response = clientTarget(app, "/match/jobs/" + jobId).request().delete();
+        assertEquals(200, response.getStatus());
+        response = clientTarget(app, "/match/jobs/" + jobId).request().get();
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testGeoJsonJob() throws InterruptedException {
+        StringBuilder coordinates = new StringBuilder();
+        for (Gpx.Trkpt p : points)
+            coordinates.append(coordinates.length() == 0 ? "" : ",").append("[").append(p.lon).append(",").append(p.lat).append("]");
+        String geoJson = "{\"type\": \"FeatureCollection\", \"features\": [" +
+                "{\"type\": \"Feature\", \"id\": \"a\", \"geometry\": {\"type\": \"LineString\", \"coordinates\": [" + coordinates + "]}}," +
+                "{\"type\": \"Feature\", \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[29.0891, 41.0119]]}}]}";
+        Response response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity(geoJson, "application/geo+json"));
+        assertEquals(202, response.getStatus());
+        JsonNode job = waitForJob(response.readEntity(JsonNode.class).get("job_id").asText());
+        assertEquals(2, job.get("finished").asInt());
+        assertEquals(0, job.get("errors").asInt());
+        JsonNode results = job.get("results");
+        assertEquals("a", results.get(0).get("name").asText());
+        assertEquals(expectedDistance, results.get(0).get("map_matching").get("distance").asDouble(), 1.e-3);
+        // the second trace is outside of the map, so nothing is matched
+        assertFalse(results.get(1).has("name"));
+        assertEquals(0, results.get(1).get("map_matching").get("distance").asDouble());
+    }
+
+    @Test
+    public void testStreamCSV() throws IOException {
+        StringBuilder csv = new StringBuilder("id,lat,lon\n");
+        for (Gpx.Trkpt p : points)
+            csv.append("x,").append(p.lat).append(",").append(p.lon).append("\n").
+                    append("y,").append(p.lat).append(",").append(p.lon).append("\n");
+        Response response = clientTarget(app, "/match/jobs?profile=car&stream=true").request().post(Entity.entity(csv.toString(), "text/csv"));
+        assertEquals(200, response.getStatus());
+        String[] lines = response.readEntity(String.class).split("\n");
+        assertEquals(2, lines.length);
+        boolean[] found = new boolean[2];
+        for (String line : lines) {
+            JsonNode json = objectMapper.readTree(line);
+            int index = json.get("index").asInt();
+            found[index] = true;
+            assertEquals(index == 0 ? "x" : "y", json.get("name").asText());
+            assertEquals(expectedDistance, json.get("map_matching").get("distance").asDouble(), 1.e-3);
+        }
+        assertTrue(found[0] && found[1]);
+    }
+
+    @Test
+    public void testErrors() {
+        Response response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity("id,lat,lon\na,1,2\nb,1,2\nc,1,2\nd,1,2\n", "text/csv"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many traces in map matching job: 4, the maximum is: 3"));
+
+        // rejected jobs must not take one of the max_jobs slots
+        for (int i = 0; i < 5; i++) {
+            response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity("id,lat,lon\na,1,2\nb,1,2\nc,1,2\nd,1,2\n", "text/csv"));
+            assertEquals(400, response.getStatus());
+        }
+        response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity("id,lat,lon\na,1,2\n", "text/csv"));
+        assertEquals(202, response.getStatus());
+
+        // streamed jobs are rejected before the response is committed
+        response = clientTarget(app, "/match/jobs?profile=car&stream=true").request().post(Entity.entity("id,lat,lon\na,1,2\nb,1,2\nc,1,2\nd,1,2\n", "text/csv"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many traces in map matching job: 4, the maximum is: 3"));
+
+        response = clientTarget(app, "/match/jobs?profile=car").request().post(Entity.entity("{\"type\": \"Point\", \"coordinates\": [1, 2]}", "application/json"));
+        assertEquals(400, response.getStatus());
+
+        response = clientTarget(app, "/match/jobs/unknown").request().get();
+        assertEquals(404, response.getStatus());
+    }
+
+    private static JsonNode waitForJob(String jobId) throws InterruptedException {
+        for (int i = 0; i < 600; i++) {
+            JsonNode job = clientTarget(app, "/match/jobs/" + jobId).request().get(JsonNode.class);
+            if (!"running".equals(job.get("status").asText()))
+                return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job did not finish in time: " + jobId);
+    }
+}
@@ -43,6 +43,8 @@ import org.junit.jupiter.params.provider.EnumSource;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.json.Statement.If;
 import static com.graphhopper.json.Statement.Op.MULTIPLY;
@@ -81,21 +83,25 @@ public class RouteResourceClientHCTest {
     // dropwizard extension does not work with @RunWith(Parameterized.class), but we can use an @EnumSource or similar
     // and on each test method. see https://github.com/graphhopper/graphhopper/pull/2003
     private enum TestParam {
-        GET(false, -1),
-        POST_MAX_UNZIPPED_0(true, 0),
-        POST_MAX_UNZIPPED_1000(true, 1000);
+        GET(false, -1, false),
+        POST_MAX_UNZIPPED_0(true, 0, false),
+        POST_MAX_UNZIPPED_1000(true, 1000, false),
+        POST_BINARY(true, 1000, true);
 
         public boolean usePost;
         public int maxUnzippedLength;
+        public boolean binaryResponse;
 
-        TestParam(boolean usePost, int maxUnzippedLength) {
+        TestParam(boolean usePost, int maxUnzippedLength, boolean binaryResponse) {
             this.usePost = usePost;
             this.maxUnzippedLength = maxUnzippedLength;
+            this.binaryResponse = binaryResponse;
         }
     }
 
     private GraphHopperWeb createGH(TestParam p) {
-        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength);
+        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).
+                setMaxUnzippedLength(p.maxUnzippedLength).setBinaryResponse(p.binaryResponse);
     }
 
     @BeforeAll
@@ -162,6 +168,35 @@ public class RouteResourceClientHCTest {
         assertTrue(path.getInstructions().toString().contains("Avinguda Prat de la Creu"), path.getInstructions().toString());
     }
 
+    @ParameterizedTest
+    @EnumSource(value = TestParam.class)
+    public void testRouteAsync(TestParam p) throws Exception {
+        GraphHopperWeb gh = createGH(p).setMaxConcurrentRequests(4).setCoalesceRequests(true);
+        AtomicInteger calls = new AtomicInteger();
+        gh.setDownloader(gh.getDownloader().newBuilder().addInterceptor(chain -> {
+            calls.incrementAndGet();
+            return chain.proceed(chain.request());
+        }).build());
+        List<CompletableFuture<GHResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // every second request is the same and can be coalesced with the previous one if it is still in flight
+            futures.add(gh.routeAsync(new GHRequest(42.5093, 1.5274, 42.5126, 1.5410 + (i / 2) * 0.001).setProfile("car")));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        assertTrue(calls.get() < futures.size(), "requests were not coalesced, calls: " + calls.get());
+        for (int i = 0; i < futures.size(); i++) {
+            GHResponse rsp = futures.get(i).get();
+            assertFalse(rsp.hasErrors(), "errors:" + rsp.getErrors().toString());
+            GHResponse expected = gh.route(new GHRequest(42.5093, 1.5274, 42.5126, 1.5410 + (i / 2) * 0.001).setProfile("car"));
+            assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1.e-3);
+            assertEquals(expected.getBest().getPoints().size(), rsp.getBest().getPoints().size());
+        }
+
+        // errors are returned just like for the blocking requests
+        GHResponse rsp = gh.routeAsync(new GHRequest(42.5093, 1.5274, 42.5126, 1.5410).setProfile("unknown")).get();
+        assertTrue(rsp.hasErrors());
+    }
+
     @ParameterizedTest
     @EnumSource(value = TestParam.class)
     public void testNoPoints(TestParam p) {
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.codahale.metrics.Histogram;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -26,6 +27,7 @@ import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
 import com.graphhopper.config.CHProfile;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ev.RoadClass;
 import com.graphhopper.routing.ev.RoadClassLink;
@@ -90,6 +92,7 @@ public class RouteResourceTest {
                 putObject("graph.location", DIR).
                 // adding this so the corresponding check is not just skipped...
                 putObject(MAX_NON_CH_POINT_DISTANCE, 10e6).
+                putObject("routing.batch_threads", 2).
                 putObject("graph.encoded_values", "road_class, surface, road_environment, max_speed, country, car_access, car_average_speed").
                 setProfiles(Collections.singletonList(TestProfiles.accessAndSpeed("my_car", "car"))).
                 setCHProfiles(Collections.singletonList(new CHProfile("my_car")));
@@ -148,6 +151,64 @@ public class RouteResourceTest {
         assertFalse(response.readEntity(JsonNode.class).get("info").has("errors"));
     }
 
+    @Test
+    public void testTimings() {
+        final Response response = clientTarget(app, "/route?profile=my_car&timings=true&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode timings = response.readEntity(JsonNode.class).get("timings");
+        assertEquals("ch", timings.get("mode").asText());
+        for (String phase : Arrays.asList("snapping", "query_graph", "search", "path_extraction", "path_processing",
+                "instructions", "details", "serialization"))
+            assertTrue(timings.get(phase).asDouble() >= 0, phase + " was missing");
+        assertTrue(timings.get("visited_nodes").asLong() > 0);
+
+        String jsonStr = "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"ch.disable\": true }";
+        JsonNode json = clientTarget(app, "/route").request().post(Entity.json(jsonStr)).readEntity(JsonNode.class);
+        // the timings are only added if requested
+        assertFalse(json.has("timings"));
+
+        Map<String, Histogram> histograms = app.getEnvironment().metrics().getHistograms();
+        assertTrue(histograms.get("graphhopper.route.my_car.ch.search_us").getCount() > 0);
+        assertTrue(histograms.get("graphhopper.route.my_car.flex.serialization_us").getCount() > 0);
+        assertTrue(histograms.get("graphhopper.route.my_car.flex.visited_nodes").getSnapshot().getMax() > 0);
+        // the instructions and details are only measured separately if the timings were requested
+        assertFalse(histograms.containsKey("graphhopper.route.my_car.flex.instructions_us"));
+    }
+
+    @Test
+    public void testBatchQuery() throws Exception {
+        String jsonStr = "[{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                "{ \"profile\": \"my_car\", \"points\": [[1.548128, 42.510071], [1.536198,42.554851]], \"instructions\": false }," +
+                "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"ch.disable\": true }," +
+                "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [0, 0]] }]";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        assertEquals("application/x-ndjson", response.getMediaType().toString());
+        String[] lines = response.readEntity(String.class).split("\n");
+        assertEquals(4, lines.length);
+        JsonNode[] entries = new JsonNode[lines.length];
+        for (String line : lines) {
+            JsonNode entry = Jackson.newObjectMapper().readTree(line);
+            entries[entry.get("index").asInt()] = entry;
+        }
+        for (int i = 0; i < 3; i++) {
+            double distance = entries[i].get("paths").get(0).get("distance").asDouble();
+            assertTrue(distance > 9000, "distance wasn't correct:" + distance);
+            assertTrue(distance < 9500, "distance wasn't correct:" + distance);
+        }
+        assertTrue(entries[0].get("paths").get(0).has("instructions"));
+        assertFalse(entries[1].get("paths").get(0).has("instructions"));
+        assertEquals(entries[0].get("paths").get(0).get("distance").asDouble(), entries[2].get("paths").get(0).get("distance").asDouble(), 1);
+        assertTrue(entries[3].get("message").asText().contains("Point 1 is out of bounds"), entries[3].toString());
+        assertEquals(PointOutOfBoundsException.class.getName(), entries[3].at("/hints/0/details").asText());
+
+        // invalid requests reject the whole batch
+        response = clientTarget(app, "/route/batch").request().post(Entity.json("[{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"profile\": \"unknown\" }]"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().startsWith("Request 0: "));
+    }
+
     @Test
     public void testBasicNavigationQuery() {
         Response response = clientTarget(app, "/navigate/directions/v5/gh/driving/1.537174,42.507145;1.539116,42.511368?" +